@@ -0,0 +1,332 @@
+// ApproxQuery.java
+// Approximate grouped aggregates (avg / sum / count) from a stratified random sample, each with a
+// confidence interval. This is for exploratory dashboards (Q29, Q67, Q101, Q139), which need a quick
+// estimate more than an exact answer.
+// - Strata: the rows are split by a stratum key (e.g. deptId) once per ApproxQuery. Every stratum
+//   is sampled at the same fraction, with at least MIN_PER_STRATUM rows, so a small department
+//   is never left out. The group key of an aggregate need not be the stratum key.
+// - Estimates: stratified expansion estimator for sums and counts, ratio estimator for averages;
+//   the variance includes the finite population correction, so a fully sampled stratum
+//   contributes no error. A stratum whose sample has no row of a group is assumed to have none, so
+//   an estimate is exact only when every stratum with sampled rows of the group is fully sampled.
+// - Intervals: counts add up a Wilson interval per stratum (conservative: the bounds are summed,
+//   not the variances). Unlike the normal approximation it keeps a width when every sampled row of a
+//   stratum is in the group, and it always contains the estimate. Sums and averages use a Student-t
+//   quantile with df = sum of (n_h - 1) over the partly sampled strata that hold the group, so a
+//   handful of sampled rows gives a wide interval instead of a normal one that is far too narrow.
+//   A group whose values show no spread in a partly sampled stratum (e.g. a single sampled member)
+//   has no usable variance and is reported unbounded rather than exact.
+// - Progressive: a Run keeps its sample, and refine() doubles it by adding new rows (the earlier
+//   rows stay), so the bounds tighten round by round. refineUntil() stops when every group
+//   is within a relative error or the time budget runs out.
+//     ApproxQuery<Employee> q = ApproxQuery.over(EMP, e -> e.deptId).seed(7);
+//     Map<Integer, Estimate> avg = q.avg(e -> e.deptId, e -> e.salary.doubleValue()).sample(0.1);
+//     Map<String, Estimate> freq = q.countEach(e -> e.skills).refineUntil(0.05, Duration.ofMillis(50));
+// A group that no sampled row belongs to is missing from the result rather than reported as zero.
+// - reservoir(k) / shuffled(): one-pass collectors for a uniform random sample and a uniform random
+//   permutation (Q292, Q293). No copy of the input is needed, and both merge correctly when the
+//   stream is parallel.
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.Collector;
+
+public class ApproxQuery<T> {
+
+    static final int MIN_PER_STRATUM = 2;
+
+    private final List<T> rows;
+    private final int[][] strata; // row indexes per stratum
+    private long seed = System.nanoTime();
+    private double confidence = 0.95;
+
+    private ApproxQuery(List<T> rows, Function<? super T, ?> stratum) {
+        this.rows = rows;
+        Map<Object, List<Integer>> by = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) by.computeIfAbsent(stratum.apply(rows.get(i)), k -> new ArrayList<>()).add(i);
+        strata = by.values().stream().map(l -> l.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+    }
+
+    static <T> ApproxQuery<T> over(Collection<T> rows, Function<? super T, ?> stratum) {
+        return new ApproxQuery<>(new ArrayList<>(rows), stratum);
+    }
+
+    // Fixed seed for reproducible samples; each Run created afterwards starts from it.
+    ApproxQuery<T> seed(long seed) { this.seed = seed; return this; }
+
+    ApproxQuery<T> confidence(double level) {
+        if (!(level > 0 && level < 1)) throw new IllegalArgumentException("Confidence must be in (0, 1): " + level);
+        this.confidence = level;
+        return this;
+    }
+
+    enum Aggregate { COUNT, SUM, AVG }
+
+    <K> Run<K> avg(Function<? super T, ? extends K> group, ToDoubleFunction<? super T> value) { return new Run<>(Aggregate.AVG, single(group), value); }
+
+    <K> Run<K> sum(Function<? super T, ? extends K> group, ToDoubleFunction<? super T> value) { return new Run<>(Aggregate.SUM, single(group), value); }
+
+    <K> Run<K> count(Function<? super T, ? extends K> group) { return new Run<>(Aggregate.COUNT, single(group), t -> 1); }
+
+    // Rows with several keys (e.g. skills): counts the rows that have each key.
+    <K> Run<K> countEach(Function<? super T, ? extends Collection<? extends K>> groups) {
+        return new Run<>(Aggregate.COUNT, t -> {
+            Collection<? extends K> c = groups.apply(t);
+            return c instanceof Set ? c : new LinkedHashSet<>(c);
+        }, t -> 1);
+    }
+
+    private static <T, K> Function<T, Collection<? extends K>> single(Function<? super T, ? extends K> group) {
+        return t -> Collections.singletonList(group.apply(t));
+    }
+
+    static final class Estimate {
+        final double value, low, high, confidence;
+        private final boolean exact;
+
+        Estimate(double value, double low, double high, double confidence, boolean exact) {
+            this.value = value; this.low = low; this.high = high; this.confidence = confidence; this.exact = exact;
+        }
+
+        static Estimate exact(double value, double confidence) { return new Estimate(value, value, value, confidence, true); }
+
+        boolean exact() { return exact; }
+        boolean bounded() { return !Double.isInfinite(low) && !Double.isInfinite(high); }
+        double halfWidth() { return (high - low) / 2; }
+
+        // half width relative to the estimate; infinite when unbounded or for an estimate of 0 with a nonzero width
+        double relativeError() { return exact ? 0 : halfWidth() / Math.abs(value); }
+
+        @Override public String toString() {
+            if (exact) return String.format(Locale.US, "%.2f", value);
+            if (!bounded()) return String.format(Locale.US, "%.2f (unbounded)", value);
+            return String.format(Locale.US, "%.2f [%.2f, %.2f]", value, low, high);
+        }
+    }
+
+    // One aggregate over a growing sample. Not thread-safe.
+    final class Run<K> {
+        private final Aggregate agg;
+        private final Function<? super T, ? extends Collection<? extends K>> groups;
+        private final ToDoubleFunction<? super T> value;
+        private final int[][] order = new int[strata.length][]; // per stratum; the first taken[h] entries are the sample
+        private final int[] taken = new int[strata.length];
+        private final Map<K, double[]> acc = new HashMap<>();   // per group, per stratum: count, sum, sum of squares
+        private final SplittableRandom random = new SplittableRandom(seed);
+        private final double z = normalQuantile(0.5 + confidence / 2); // Wilson intervals of counts
+        private final double level = confidence;
+        private double fraction;
+
+        private Run(Aggregate agg, Function<? super T, ? extends Collection<? extends K>> groups, ToDoubleFunction<? super T> value) {
+            this.agg = agg; this.groups = groups; this.value = value;
+            for (int h = 0; h < strata.length; h++) order[h] = strata[h].clone();
+        }
+
+        // Grows the sample to at least the given fraction of every stratum.
+        Map<K, Estimate> sample(double fraction) {
+            if (!(fraction > 0 && fraction <= 1)) throw new IllegalArgumentException("Fraction must be in (0, 1]: " + fraction);
+            this.fraction = Math.max(this.fraction, fraction);
+            for (int h = 0; h < strata.length; h++) {
+                int size = order[h].length;
+                grow(h, Math.min(size, Math.max(MIN_PER_STRATUM, (int) Math.ceil(this.fraction * size))));
+            }
+            return estimates();
+        }
+
+        // Next round: twice the current sample (1% to start).
+        Map<K, Estimate> refine() { return sample(fraction == 0 ? 0.01 : Math.min(1, 2 * fraction)); }
+
+        Map<K, Estimate> refineUntil(double maxRelativeError, Duration budget) {
+            long deadline = System.nanoTime() + budget.toNanos();
+            Map<K, Estimate> m = refine();
+            while (!exact() && System.nanoTime() - deadline < 0
+                    && m.values().stream().anyMatch(e -> !(e.relativeError() <= maxRelativeError)))
+                m = refine();
+            return m;
+        }
+
+        double fraction() { return fraction; }
+
+        boolean exact() {
+            for (int h = 0; h < strata.length; h++) if (taken[h] < order[h].length) return false;
+            return true;
+        }
+
+        long sampledRows() { long n = 0; for (int t : taken) n += t; return n; }
+
+        // partial Fisher-Yates: each step moves one not-yet-sampled row of the stratum into the sample
+        private void grow(int h, int target) {
+            int[] o = order[h];
+            for (int i = taken[h]; i < target; i++) {
+                int j = i + random.nextInt(o.length - i);
+                int r = o[j]; o[j] = o[i]; o[i] = r;
+                T row = rows.get(r);
+                double y = value.applyAsDouble(row);
+                for (K k : groups.apply(row)) {
+                    double[] a = acc.computeIfAbsent(k, x -> new double[3 * strata.length]);
+                    a[3 * h]++; a[3 * h + 1] += y; a[3 * h + 2] += y * y;
+                }
+            }
+            taken[h] = Math.max(taken[h], target);
+        }
+
+        private Map<K, Estimate> estimates() {
+            Map<K, Estimate> m = new HashMap<>();
+            acc.forEach((k, a) -> {
+                double tx = 0, ty = 0;
+                boolean exact = true;
+                for (int h = 0; h < strata.length; h++) {
+                    if (taken[h] == 0) continue;
+                    double w = (double) order[h].length / taken[h];
+                    tx += w * a[3 * h]; ty += w * a[3 * h + 1];
+                    if (a[3 * h] > 0 && taken[h] < order[h].length) exact = false;
+                }
+                double est = agg == Aggregate.AVG ? ty / tx : agg == Aggregate.SUM ? ty : tx;
+                m.put(k, exact ? Estimate.exact(est, level) : agg == Aggregate.COUNT ? countInterval(a) : tInterval(a, est, tx));
+            });
+            return m;
+        }
+
+        // Per stratum: Wilson bounds on the group's share, times the stratum size, clipped to the rows
+        // seen in the group and the rows not sampled yet.
+        private Estimate countInterval(double[] a) {
+            double est = 0, low = 0, high = 0, z2 = z * z;
+            for (int h = 0; h < strata.length; h++) {
+                int n = taken[h], size = order[h].length;
+                double c = a[3 * h];
+                if (c == 0) continue;
+                est += c * size / n;
+                if (n == size) { low += c; high += c; continue; }
+                double centre = (c + z2 / 2) / (n + z2), half = z / (n + z2) * Math.sqrt(c * (n - c) / n + z2 / 4);
+                low += Math.max(c, size * (centre - half));
+                high += Math.min(c + size - n, size * (centre + half));
+            }
+            return new Estimate(est, low, high, level, false);
+        }
+
+        private Estimate tInterval(double[] a, double est, double tx) {
+            double ratio = agg == Aggregate.AVG ? est : 0, var = 0;
+            int df = 0;
+            for (int h = 0; h < strata.length; h++) {
+                int n = taken[h], size = order[h].length;
+                double c = a[3 * h], s = a[3 * h + 1], ss = a[3 * h + 2], sv, svv;
+                if (n == size || c == 0) continue;
+                if (n < 2) return new Estimate(est, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, level, false);
+                if (agg == Aggregate.SUM) { sv = s; svv = ss; }
+                else { sv = s - ratio * c; svv = ss - 2 * ratio * s + ratio * ratio * c; } // y - R*x, x = 1 for members
+                double s2 = (svv - sv * sv / n) / (n - 1);
+                // no spread among the sampled values says nothing about the unsampled ones
+                if (!(s2 > 1e-12 * Math.max(1, ss / n))) return new Estimate(est, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, level, false);
+                var += (double) size * size * (1 - (double) n / size) * s2 / n;
+                df += n - 1;
+            }
+            double half = studentQuantile(level, df) * (agg == Aggregate.AVG ? Math.sqrt(var) / tx : Math.sqrt(var));
+            return new Estimate(est, est - half, est + half, level, false);
+        }
+    }
+
+    // Two-sided Student-t critical value t with P(|T| <= t) = level for df degrees of freedom. The
+    // central probability is an exact finite series in theta = atan(t / sqrt(df)) (Abramowitz & Stegun
+    // 26.7.3-4), increasing in theta, so bisection on theta finds t; very large df use the normal.
+    static double studentQuantile(double level, int df) {
+        if (!(level > 0 && level < 1)) throw new IllegalArgumentException("level must be in (0, 1): " + level);
+        if (df < 1) throw new IllegalArgumentException("df must be >= 1: " + df);
+        if (df > 10_000) return normalQuantile(0.5 + level / 2);
+        double lo = 0, hi = Math.PI / 2;
+        for (int i = 0; i < 100; i++) {
+            double mid = (lo + hi) / 2;
+            if (studentCentral(mid, df) < level) lo = mid; else hi = mid;
+        }
+        return Math.sqrt(df) * Math.tan((lo + hi) / 2);
+    }
+
+    // P(|T| <= sqrt(df) * tan(theta))
+    private static double studentCentral(double theta, int df) {
+        double sin = Math.sin(theta), cos = Math.cos(theta), cos2 = cos * cos;
+        if (df == 1) return 2 * theta / Math.PI;
+        double term = df % 2 == 0 ? 1 : cos, sum = term;
+        for (int k = df % 2 == 0 ? 2 : 3; k < df; k += 2) { term *= cos2 * (k - 1) / k; sum += term; }
+        return df % 2 == 0 ? sin * sum : 2 / Math.PI * (theta + sin * sum);
+    }
+
+    // Inverse of the standard normal CDF (Acklam's rational approximation, relative error < 1.2e-9).
+    static double normalQuantile(double p) {
+        if (!(p > 0 && p < 1)) throw new IllegalArgumentException("p must be in (0, 1): " + p);
+        final double[] a = { -3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02, 1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00 };
+        final double[] b = { -5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02, 6.680131188771972e+01, -1.328068155288572e+01 };
+        final double[] c = { -7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00, -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00 };
+        final double[] d = { 7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00, 3.754408661907416e+00 };
+        if (p < 0.02425 || p > 1 - 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(Math.min(p, 1 - p)));
+            double x = (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5]) / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+            return p < 0.5 ? x : -x;
+        }
+        double q = p - 0.5, r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    // --- one-pass sampling collectors ----------------------------------------
+
+    // Uniform random sample of k elements (all of them if fewer), in random order. Algorithm R per
+    // worker; parallel partial samples are merged by drawing from each in proportion to how many
+    // elements it saw.
+    static <E> Collector<E, ?, List<E>> reservoir(int k, Random random) {
+        if (k < 0) throw new IllegalArgumentException("k < 0: " + k);
+        return Collector.<E, Reservoir<E>, List<E>>of(() -> new Reservoir<>(k, random), Reservoir::add, Reservoir::merge, r -> {
+            Collections.shuffle(r.items, random);
+            return r.items;
+        });
+    }
+
+    private static final class Reservoir<E> {
+        final int k; final Random random;
+        List<E> items = new ArrayList<>();
+        long seen;
+
+        Reservoir(int k, Random random) { this.k = k; this.random = random; }
+
+        void add(E e) {
+            seen++;
+            if (items.size() < k) items.add(e);
+            else {
+                long j = (long) (random.nextDouble() * seen);
+                if (j < k) items.set((int) j, e);
+            }
+        }
+
+        Reservoir<E> merge(Reservoir<E> o) {
+            List<E> a = items, b = o.items, out = new ArrayList<>();
+            long na = seen, nb = o.seen;
+            for (long m = Math.min(k, na + nb); m > 0; m--) {
+                boolean fromA = random.nextDouble() * (na + nb) < na;
+                List<E> src = fromA ? a : b;
+                int j = random.nextInt(src.size());
+                out.add(src.get(j));
+                src.set(j, src.get(src.size() - 1));
+                src.remove(src.size() - 1);
+                if (fromA) na--; else nb--;
+            }
+            items = out;
+            seen += o.seen;
+            return this;
+        }
+    }
+
+    // Uniform random permutation in one pass (inside-out Fisher-Yates); parallel parts are riffled
+    // together, taking the next element from each part in proportion to what it has left.
+    static <E> Collector<E, ?, List<E>> shuffled(Random random) {
+        return Collector.<E, List<E>>of(ArrayList::new, (l, e) -> {
+            int j = random.nextInt(l.size() + 1);
+            if (j == l.size()) l.add(e); else { l.add(l.get(j)); l.set(j, e); }
+        }, (a, b) -> {
+            List<E> out = new ArrayList<>(a.size() + b.size());
+            int i = 0, j = 0;
+            while (i < a.size() || j < b.size()) {
+                int ra = a.size() - i, rb = b.size() - j;
+                out.add(random.nextInt(ra + rb) < ra ? a.get(i++) : b.get(j++));
+            }
+            return out;
+        });
+    }
+}
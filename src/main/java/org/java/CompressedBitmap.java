@@ -0,0 +1,330 @@
+// CompressedBitmap.java
+// A small roaring-style compressed bitmap of non-negative ints (employee ordinals, ids, ...).
+// Values are split into 65536-wide chunks by their high 16 bits. Each chunk stores its low 16 bits
+// either as a sorted char[] (sparse, <= 4096 values) or as a 1024-word long[] bitset (dense),
+// so memory stays proportional to the data and AND/OR/ANDNOT work chunk by chunk.
+// and/or/andNot return NEW bitmaps; add/remove change this one. Not thread-safe (like HashSet).
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public final class CompressedBitmap {
+
+    private static final int ARRAY_MAX = 4096; // above this a chunk is cheaper as a bitset
+
+    private char[] keys = new char[4];
+    private Container[] chunks = new Container[4];
+    private int size; // number of chunks in use
+
+    CompressedBitmap() { }
+
+    static CompressedBitmap of(int... values) {
+        CompressedBitmap b = new CompressedBitmap();
+        for (int v : values) b.add(v);
+        return b;
+    }
+
+    // --- Mutation -----------------------------------------------------------
+
+    boolean add(int v) {
+        checkValue(v);
+        char hi = (char) (v >>> 16), lo = (char) v;
+        int i = find(hi);
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, hi, new ArrayContainer());
+        }
+        int before = chunks[i].cardinality();
+        chunks[i] = chunks[i].add(lo);
+        return chunks[i].cardinality() > before;
+    }
+
+    boolean remove(int v) {
+        if (v < 0) return false;
+        int i = find((char) (v >>> 16));
+        if (i < 0) return false;
+        int before = chunks[i].cardinality();
+        chunks[i] = chunks[i].remove((char) v);
+        boolean changed = chunks[i].cardinality() < before;
+        if (chunks[i].cardinality() == 0) removeChunk(i);
+        return changed;
+    }
+
+    // --- Queries ------------------------------------------------------------
+
+    boolean contains(int v) {
+        if (v < 0) return false;
+        int i = find((char) (v >>> 16));
+        return i >= 0 && chunks[i].contains((char) v);
+    }
+
+    int cardinality() {
+        int n = 0;
+        for (int i = 0; i < size; i++) n += chunks[i].cardinality();
+        return n;
+    }
+
+    boolean isEmpty() { return size == 0; }
+
+    // |a AND b| without building the intersection
+    static int andCardinality(CompressedBitmap a, CompressedBitmap b) {
+        int n = 0;
+        for (int i = 0, j = 0; i < a.size && j < b.size; ) {
+            if (a.keys[i] < b.keys[j]) i++;
+            else if (a.keys[i] > b.keys[j]) j++;
+            else n += a.chunks[i++].andCardinality(b.chunks[j++]);
+        }
+        return n;
+    }
+
+    // --- Set algebra (new bitmaps) ------------------------------------------
+
+    CompressedBitmap and(CompressedBitmap o) {
+        CompressedBitmap r = new CompressedBitmap();
+        for (int i = 0, j = 0; i < size && j < o.size; ) {
+            if (keys[i] < o.keys[j]) i++;
+            else if (keys[i] > o.keys[j]) j++;
+            else r.appendIfNotEmpty(keys[i], chunks[i++].and(o.chunks[j++]));
+        }
+        return r;
+    }
+
+    CompressedBitmap or(CompressedBitmap o) {
+        CompressedBitmap r = new CompressedBitmap();
+        int i = 0, j = 0;
+        while (i < size || j < o.size) {
+            if (j >= o.size || (i < size && keys[i] < o.keys[j])) { r.appendIfNotEmpty(keys[i], chunks[i].copy()); i++; }
+            else if (i >= size || keys[i] > o.keys[j]) { r.appendIfNotEmpty(o.keys[j], o.chunks[j].copy()); j++; }
+            else r.appendIfNotEmpty(keys[i], chunks[i++].or(o.chunks[j++]));
+        }
+        return r;
+    }
+
+    CompressedBitmap andNot(CompressedBitmap o) {
+        CompressedBitmap r = new CompressedBitmap();
+        for (int i = 0, j = 0; i < size; ) {
+            while (j < o.size && o.keys[j] < keys[i]) j++;
+            if (j < o.size && o.keys[j] == keys[i]) r.appendIfNotEmpty(keys[i], chunks[i++].andNot(o.chunks[j++]));
+            else { r.appendIfNotEmpty(keys[i], chunks[i].copy()); i++; }
+        }
+        return r;
+    }
+
+    CompressedBitmap copy() {
+        CompressedBitmap r = new CompressedBitmap();
+        for (int i = 0; i < size; i++) r.appendIfNotEmpty(keys[i], chunks[i].copy());
+        return r;
+    }
+
+    // --- Iteration ----------------------------------------------------------
+
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) chunks[i].forEach(keys[i] << 16, action);
+    }
+
+    int[] toArray() {
+        int[] out = new int[cardinality()];
+        int[] pos = {0};
+        forEach(v -> out[pos[0]++] = v);
+        return out;
+    }
+
+    // ascending order
+    IntStream stream() { return IntStream.of(toArray()); }
+
+    @Override public boolean equals(Object o) {
+        return o instanceof CompressedBitmap && Arrays.equals(toArray(), ((CompressedBitmap) o).toArray());
+    }
+    @Override public int hashCode() { return Arrays.hashCode(toArray()); }
+    @Override public String toString() { return Arrays.toString(toArray()); }
+
+    // --- Chunk table --------------------------------------------------------
+
+    private static void checkValue(int v) {
+        if (v < 0) throw new IllegalArgumentException("negative value: " + v);
+    }
+
+    private int find(char hi) {
+        int lo = 0, h = size - 1;
+        while (lo <= h) {
+            int mid = (lo + h) >>> 1;
+            if (keys[mid] < hi) lo = mid + 1; else if (keys[mid] > hi) h = mid - 1; else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private void insertChunk(int i, char hi, Container c) {
+        if (size == keys.length) { keys = Arrays.copyOf(keys, size * 2); chunks = Arrays.copyOf(chunks, size * 2); }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(chunks, i, chunks, i + 1, size - i);
+        keys[i] = hi; chunks[i] = c; size++;
+    }
+
+    private void removeChunk(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+        chunks[--size] = null;
+    }
+
+    // only used while building results, where keys arrive in ascending order
+    private void appendIfNotEmpty(char hi, Container c) {
+        if (c.cardinality() > 0) insertChunk(size, hi, c);
+    }
+
+    // --- Containers ---------------------------------------------------------
+
+    private abstract static class Container {
+        abstract Container add(char v);
+        abstract Container remove(char v);
+        abstract boolean contains(char v);
+        abstract int cardinality();
+        abstract Container copy();
+        abstract void forEach(int base, IntConsumer action);
+
+        Container and(Container o) {
+            if (this instanceof BitmapContainer && o instanceof BitmapContainer) return ((BitmapContainer) this).and((BitmapContainer) o);
+            Container small = cardinality() <= o.cardinality() ? this : o, big = small == this ? o : this;
+            ArrayContainer r = new ArrayContainer();
+            small.forEach(0, v -> { if (big.contains((char) v)) r.append((char) v); });
+            return r;
+        }
+
+        int andCardinality(Container o) {
+            if (this instanceof BitmapContainer && o instanceof BitmapContainer) {
+                long[] a = ((BitmapContainer) this).words, b = ((BitmapContainer) o).words;
+                int n = 0;
+                for (int w = 0; w < a.length; w++) n += Long.bitCount(a[w] & b[w]);
+                return n;
+            }
+            Container small = cardinality() <= o.cardinality() ? this : o, big = small == this ? o : this;
+            int[] n = {0};
+            small.forEach(0, v -> { if (big.contains((char) v)) n[0]++; });
+            return n[0];
+        }
+
+        Container or(Container o) {
+            if (this instanceof BitmapContainer) return ((BitmapContainer) copy()).orWith(o);
+            if (o instanceof BitmapContainer) return ((BitmapContainer) o.copy()).orWith(this);
+            return ((ArrayContainer) this).union((ArrayContainer) o);
+        }
+
+        Container andNot(Container o) {
+            if (this instanceof BitmapContainer) {
+                BitmapContainer r = (BitmapContainer) copy();
+                if (o instanceof BitmapContainer) r.andNotInPlace((BitmapContainer) o);
+                else o.forEach(0, v -> r.clear((char) v));
+                return r.shrinkIfSparse();
+            }
+            ArrayContainer r = new ArrayContainer();
+            forEach(0, v -> { if (!o.contains((char) v)) r.append((char) v); });
+            return r;
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] values = new char[4]; int n;
+
+        @Override Container add(char v) {
+            int i = Arrays.binarySearch(values, 0, n, v);
+            if (i >= 0) return this;
+            if (n == ARRAY_MAX) return toBitmap().add(v);
+            i = -i - 1;
+            if (n == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX, n * 2));
+            System.arraycopy(values, i, values, i + 1, n - i);
+            values[i] = v; n++;
+            return this;
+        }
+        @Override Container remove(char v) {
+            int i = Arrays.binarySearch(values, 0, n, v);
+            if (i >= 0) { System.arraycopy(values, i + 1, values, i, n - i - 1); n--; }
+            return this;
+        }
+        @Override boolean contains(char v) { return Arrays.binarySearch(values, 0, n, v) >= 0; }
+        @Override int cardinality() { return n; }
+        @Override Container copy() { ArrayContainer c = new ArrayContainer(); c.values = Arrays.copyOf(values, Math.max(4, n)); c.n = n; return c; }
+        @Override void forEach(int base, IntConsumer action) { for (int i = 0; i < n; i++) action.accept(base | values[i]); }
+
+        // values must arrive in ascending order
+        void append(char v) {
+            if (n == values.length) values = Arrays.copyOf(values, n * 2);
+            values[n++] = v;
+        }
+
+        Container union(ArrayContainer o) {
+            if (n + o.n > ARRAY_MAX) {
+                BitmapContainer b = toBitmap();
+                o.forEach(0, v -> b.set((char) v));
+                return b;
+            }
+            ArrayContainer r = new ArrayContainer();
+            r.values = new char[Math.max(4, n + o.n)];
+            int i = 0, j = 0;
+            while (i < n || j < o.n) {
+                if (j >= o.n || (i < n && values[i] < o.values[j])) r.values[r.n++] = values[i++];
+                else if (i >= n || values[i] > o.values[j]) r.values[r.n++] = o.values[j++];
+                else { r.values[r.n++] = values[i++]; j++; }
+            }
+            return r;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer b = new BitmapContainer();
+            for (int i = 0; i < n; i++) b.set(values[i]);
+            return b;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        long[] words = new long[1024]; int card;
+
+        void set(char v) {
+            long bit = 1L << v, w = words[v >>> 6];
+            if ((w & bit) == 0) { words[v >>> 6] = w | bit; card++; }
+        }
+        void clear(char v) {
+            long bit = 1L << v, w = words[v >>> 6];
+            if ((w & bit) != 0) { words[v >>> 6] = w & ~bit; card--; }
+        }
+        @Override Container add(char v) { set(v); return this; }
+        @Override Container remove(char v) { clear(v); return shrinkIfSparse(); }
+        @Override boolean contains(char v) { return (words[v >>> 6] & (1L << v)) != 0; }
+        @Override int cardinality() { return card; }
+        @Override Container copy() { BitmapContainer c = new BitmapContainer(); c.words = words.clone(); c.card = card; return c; }
+        @Override void forEach(int base, IntConsumer action) {
+            for (int w = 0; w < words.length; w++) {
+                long bits = words[w];
+                while (bits != 0) {
+                    action.accept(base | (w << 6) | Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        Container and(BitmapContainer o) {
+            BitmapContainer r = new BitmapContainer();
+            for (int w = 0; w < words.length; w++) { r.words[w] = words[w] & o.words[w]; r.card += Long.bitCount(r.words[w]); }
+            return r.shrinkIfSparse();
+        }
+        BitmapContainer orWith(Container o) {
+            if (o instanceof BitmapContainer) {
+                long[] ow = ((BitmapContainer) o).words;
+                card = 0;
+                for (int w = 0; w < words.length; w++) { words[w] |= ow[w]; card += Long.bitCount(words[w]); }
+            } else {
+                o.forEach(0, v -> set((char) v));
+            }
+            return this;
+        }
+        void andNotInPlace(BitmapContainer o) {
+            card = 0;
+            for (int w = 0; w < words.length; w++) { words[w] &= ~o.words[w]; card += Long.bitCount(words[w]); }
+        }
+        Container shrinkIfSparse() {
+            if (card > ARRAY_MAX) return this;
+            ArrayContainer a = new ArrayContainer();
+            forEach(0, v -> a.append((char) v));
+            return a;
+        }
+    }
+}
@@ -0,0 +1,459 @@
+// CriteriaCompiler.java
+// Filters and sort orders written as small expressions (as built from UI criteria) and compiled
+// into one MethodHandle tree per expression, instead of chains of Predicate.and/or and
+// Comparator.thenComparing lambdas (one megamorphic interface call per clause).
+//     Predicate<Employee> p = CriteriaCompiler.predicate(Employee.class, "active && age >= 30 && skills has 'Java'");
+//     Comparator<Employee> c = CriteriaCompiler.comparator(Employee.class, "deptId, salary desc, name");
+// Filter grammar:  expr := term ('||' term)* ;  term := factor ('&&' factor)*
+//                  factor := '!' factor | '(' expr ')' | field | field op literal | field 'has' literal
+//                  op := == != < <= > >= ;  literal := 123 | 1.5 | 'text' | true | false
+//                  a quote inside text is doubled ('O''Brien'); quote(s) builds such a literal
+// Literals are converted to the field's type when compiling ('2022-01-01' for a LocalDate, 'MALE'
+// for an enum, 10000 for a BigDecimal), so type errors surface at compile time, not per row.
+// - Fields are read through MethodHandle getters; int/long/double/boolean fields are compared
+//   without boxing. && / || short-circuit via guardWithTest.
+// - Compiled trees are cached by shape: the expression with its literals replaced by '?', per
+//   class. "age >= 30" and "age >= 45" share a tree; each predicate passes its own literal array.
+// - Each shape gets its own hidden class, defined from a precompiled template with the tree as class
+//   data in a static final field. The JIT treats that field as a constant, so the whole tree inlines
+//   into the hidden class's method as straight-line code; a MethodHandle held in an ordinary
+//   instance field would stay an opaque call.
+// Compiled predicates and comparators are immutable and thread-safe.
+
+import java.io.*;
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.*;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static java.lang.invoke.MethodType.methodType;
+
+public class CriteriaCompiler {
+
+    private CriteriaCompiler() { }
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final Map<String, FilterShape> FILTERS = new ConcurrentHashMap<>();
+    private static final Map<String, SortShape> SORTS = new ConcurrentHashMap<>();
+
+    // --- Public entry points ------------------------------------------------
+
+    static <T> Predicate<T> predicate(Class<T> type, String expression) {
+        Parser p = new Parser(expression);
+        Node root = p.parseFilter();
+        List<Object> consts = new ArrayList<>();
+        String shape = type.getName() + "|" + root.shape(type, consts);
+        // (Object[] consts, Object row) boolean
+        FilterShape tree = FILTERS.computeIfAbsent(shape, k -> define(FilterTemplate.class, root.compile(type, new int[1])));
+        return new CompiledPredicate<>(expression, tree, consts.toArray());
+    }
+
+    static <T> Comparator<T> comparator(Class<T> type, String sortSpec) {
+        String shape = type.getName() + "|sort|" + normalizeSort(sortSpec);
+        // (Object a, Object b) int
+        SortShape cmp = SORTS.computeIfAbsent(shape, k -> define(SortTemplate.class, compileSort(type, sortSpec)));
+        return new CompiledComparator<>(sortSpec, cmp);
+    }
+
+    // 'text' literal for s, with quotes doubled
+    static String quote(String s) { return "'" + s.replace("'", "''") + "'"; }
+
+    // number of distinct compiled shapes (filters and sorts)
+    static int cachedShapes() { return FILTERS.size() + SORTS.size(); }
+
+    private static final class CompiledPredicate<T> implements Predicate<T> {
+        private final String source;
+        private final FilterShape tree;
+        private final Object[] consts;
+
+        CompiledPredicate(String source, FilterShape tree, Object[] consts) { this.source = source; this.tree = tree; this.consts = consts; }
+
+        @Override public boolean test(T t) {
+            try {
+                return tree.test(consts, t);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        @Override public String toString() { return source; }
+    }
+
+    private static final class CompiledComparator<T> implements Comparator<T> {
+        private final String source;
+        private final SortShape compare;
+
+        CompiledComparator(String source, SortShape compare) { this.source = source; this.compare = compare; }
+
+        @Override public int compare(T a, T b) {
+            try {
+                return compare.compare(a, b);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        @Override public String toString() { return source; }
+    }
+
+    // --- Per-shape hidden classes -------------------------------------------
+
+    interface FilterShape { boolean test(Object[] consts, Object row) throws Throwable; }
+
+    interface SortShape { int compare(Object a, Object b) throws Throwable; }
+
+    // Templates: never loaded as themselves, only copied by define(). TREE is the copy's class data.
+    static final class FilterTemplate implements FilterShape {
+        private static final MethodHandle TREE = classData(MethodHandles.lookup());
+        @Override public boolean test(Object[] consts, Object row) throws Throwable { return (boolean) TREE.invokeExact(consts, row); }
+    }
+
+    static final class SortTemplate implements SortShape {
+        private static final MethodHandle TREE = classData(MethodHandles.lookup());
+        @Override public int compare(Object a, Object b) throws Throwable { return (int) TREE.invokeExact(a, b); }
+    }
+
+    // own: the hidden class's own lookup, which is allowed to read its class data
+    static MethodHandle classData(MethodHandles.Lookup own) {
+        try {
+            return MethodHandles.classData(own, ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+        } catch (IllegalAccessException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private static final Map<Class<?>, byte[]> TEMPLATES = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    private static <S> S define(Class<?> template, MethodHandle tree) {
+        byte[] bytes = TEMPLATES.computeIfAbsent(template, CriteriaCompiler::classBytes);
+        try {
+            MethodHandles.Lookup hidden = LOOKUP.defineHiddenClassWithClassData(bytes, tree, true);
+            return (S) hidden.findConstructor(hidden.lookupClass(), methodType(void.class)).invoke();
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Cannot define a class for " + template.getSimpleName(), ex);
+        }
+    }
+
+    private static byte[] classBytes(Class<?> c) {
+        try (InputStream in = c.getResourceAsStream(c.getName().substring(c.getName().lastIndexOf('.') + 1) + ".class")) {
+            if (in == null) throw new IllegalStateException("Class file of " + c.getName() + " not found");
+            return in.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // --- Filter AST ---------------------------------------------------------
+
+    private abstract static class Node {
+        // appends this node's literals to consts (in compile order) and returns the shape text
+        abstract String shape(Class<?> type, List<Object> consts);
+        // (Object[] consts, Object row) boolean; slot[0] is the next literal index
+        abstract MethodHandle compile(Class<?> type, int[] slot);
+    }
+
+    private static final class Logical extends Node {
+        final boolean and; final Node left, right;
+        Logical(boolean and, Node left, Node right) { this.and = and; this.left = left; this.right = right; }
+
+        String shape(Class<?> type, List<Object> consts) {
+            return "(" + left.shape(type, consts) + (and ? " && " : " || ") + right.shape(type, consts) + ")";
+        }
+
+        MethodHandle compile(Class<?> type, int[] slot) {
+            MethodHandle l = left.compile(type, slot), r = right.compile(type, slot);
+            MethodHandle constant = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, !and), 0, Object[].class, Object.class);
+            return and ? MethodHandles.guardWithTest(l, r, constant) : MethodHandles.guardWithTest(l, constant, r);
+        }
+    }
+
+    private static final class Not extends Node {
+        final Node inner;
+        Not(Node inner) { this.inner = inner; }
+
+        String shape(Class<?> type, List<Object> consts) { return "!" + inner.shape(type, consts); }
+
+        MethodHandle compile(Class<?> type, int[] slot) { return MethodHandles.filterReturnValue(inner.compile(type, slot), Ops.NOT); }
+    }
+
+    // field alone (boolean field) or field op literal
+    private static final class Clause extends Node {
+        final String field, op; final Literal literal; // op and literal null for a bare boolean field
+        Clause(String field, String op, Literal literal) { this.field = field; this.op = op; this.literal = literal; }
+
+        String shape(Class<?> type, List<Object> consts) {
+            Field f = field(type, field);
+            if (op == null) {
+                if (f.getType() != boolean.class && f.getType() != Boolean.class) throw error(field + " is not a boolean field");
+                return field;
+            }
+            if (op.equals("has") && !Collection.class.isAssignableFrom(f.getType())) throw error(field + " is not a collection field");
+            consts.add(op.equals("has") ? literal.value : literal.as(f.getType(), field));
+            return field + " " + op + " ?";
+        }
+
+        MethodHandle compile(Class<?> type, int[] slot) {
+            Field f = field(type, field);
+            MethodHandle getter = getter(f);
+            if (op == null)
+                return MethodHandles.dropArguments(getter.asType(methodType(boolean.class, Object.class)), 0, Object[].class);
+            Class<?> t = f.getType();
+            Class<?> operand = t == int.class || t == long.class || t == double.class ? t : Object.class;
+            MethodHandle test = op.equals("has") ? Ops.HAS : Ops.compare(op, operand);
+            MethodHandle value = getter.asType(methodType(operand, Object.class));
+            MethodHandle literalAt = MethodHandles.insertArguments(MethodHandles.arrayElementGetter(Object[].class), 1, slot[0]++)
+                .asType(methodType(operand, Object[].class));
+            // test(value(row), literal(consts)) as (Object[] consts, Object row)
+            MethodHandle h = MethodHandles.filterArguments(test, 0, value, literalAt);
+            return MethodHandles.permuteArguments(h, methodType(boolean.class, Object[].class, Object.class), 1, 0);
+        }
+    }
+
+    private static final class Literal {
+        final Object value; // Long, BigDecimal, String or Boolean as written
+        Literal(Object value) { this.value = value; }
+
+        Object as(Class<?> t, String field) {
+            try {
+                // a fractional literal for an integral field is an error, not silently truncated
+                if (t == int.class || t == Integer.class) return value instanceof BigDecimal ? ((BigDecimal) value).intValueExact() : Math.toIntExact((Long) value);
+                if (t == long.class || t == Long.class) return value instanceof BigDecimal ? ((BigDecimal) value).longValueExact() : (Long) value;
+                if (t == double.class || t == Double.class) return ((Number) value).doubleValue();
+                if (t == BigDecimal.class) return value instanceof BigDecimal ? value : BigDecimal.valueOf((Long) value);
+                if (t == boolean.class || t == Boolean.class) return (Boolean) value;
+                if (t == String.class) return (String) value;
+                if (t == LocalDate.class) return LocalDate.parse((String) value);
+                if (t.isEnum()) return enumValue(t, (String) value);
+            } catch (RuntimeException ex) {
+                throw error("Cannot use " + value + " for " + field + " (" + t.getSimpleName() + ")");
+            }
+            throw error("Field " + field + " of type " + t.getSimpleName() + " cannot be compared");
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Object enumValue(Class<?> t, String s) { return Enum.valueOf((Class) t, s); }
+    }
+
+    // --- Sort ---------------------------------------------------------------
+
+    private static String normalizeSort(String spec) {
+        StringJoiner j = new StringJoiner(",");
+        for (String key : spec.split(",")) j.add(key.trim().replaceAll("\\s+", " ").replaceAll("(?i) asc$", ""));
+        return j.toString();
+    }
+
+    private static MethodHandle compileSort(Class<?> type, String spec) {
+        MethodHandle result = null;
+        String[] keys = spec.split(",");
+        for (int i = keys.length - 1; i >= 0; i--) { // build from the last key so each wraps its tie-breaker
+            String[] parts = keys[i].trim().split("\\s+");
+            if (parts[0].isEmpty() || parts.length > 2 || (parts.length == 2 && !parts[1].matches("(?i)asc|desc")))
+                throw error("Bad sort key '" + keys[i].trim() + "' in: " + spec);
+            Field f = field(type, parts[0]);
+            Class<?> t = f.getType();
+            Class<?> operand = t == int.class || t == long.class || t == double.class || t == boolean.class ? t : Object.class;
+            MethodHandle key = getter(f).asType(methodType(operand, Object.class));
+            MethodHandle cmp = MethodHandles.filterArguments(Ops.compareTo(operand), 0, key, key); // (Object, Object) int
+            if (parts.length == 2 && parts[1].equalsIgnoreCase("desc")) cmp = MethodHandles.filterReturnValue(cmp, Ops.NEGATE);
+            if (result != null) {
+                // c != 0 ? c : result(a, b), with c = cmp(a, b)
+                MethodHandle tie = MethodHandles.guardWithTest(
+                    MethodHandles.dropArguments(Ops.NON_ZERO, 1, Object.class, Object.class),
+                    MethodHandles.dropArguments(MethodHandles.identity(int.class), 1, Object.class, Object.class),
+                    MethodHandles.dropArguments(result, 0, int.class));
+                cmp = MethodHandles.foldArguments(tie, cmp);
+            }
+            result = cmp;
+        }
+        return result;
+    }
+
+    // --- Operators ----------------------------------------------------------
+
+    private static final class Ops {
+        static final MethodHandle NOT, NEGATE, NON_ZERO, HAS;
+        private static final Map<String, MethodHandle> COMPARE = new HashMap<>();
+
+        static {
+            try {
+                NOT = LOOKUP.findStatic(Ops.class, "not", methodType(boolean.class, boolean.class));
+                NEGATE = LOOKUP.findStatic(Ops.class, "negate", methodType(int.class, int.class));
+                NON_ZERO = LOOKUP.findStatic(Ops.class, "nonZero", methodType(boolean.class, int.class));
+                HAS = LOOKUP.findStatic(Ops.class, "has", methodType(boolean.class, Object.class, Object.class));
+                String[][] ops = {{"==", "eq"}, {"!=", "ne"}, {"<", "lt"}, {"<=", "le"}, {">", "gt"}, {">=", "ge"}};
+                for (Class<?> t : new Class<?>[] {int.class, long.class, double.class, Object.class})
+                    for (String[] op : ops)
+                        COMPARE.put(op[0] + t.getName(), LOOKUP.findStatic(Ops.class, op[1], methodType(boolean.class, t, t)));
+                for (Class<?> t : new Class<?>[] {int.class, long.class, double.class, boolean.class, Object.class})
+                    COMPARE.put("cmp" + t.getName(), LOOKUP.findStatic(Ops.class, "cmp", methodType(int.class, t, t)));
+            } catch (ReflectiveOperationException ex) {
+                throw new ExceptionInInitializerError(ex);
+            }
+        }
+
+        static MethodHandle compare(String op, Class<?> operand) { return COMPARE.get(op + operand.getName()); }
+        static MethodHandle compareTo(Class<?> operand) { return COMPARE.get("cmp" + operand.getName()); }
+
+        static boolean not(boolean b) { return !b; }
+        static int negate(int c) { return -c; }
+        static boolean nonZero(int c) { return c != 0; }
+        static boolean has(Object collection, Object v) { return collection != null && ((Collection<?>) collection).contains(v); }
+
+        static boolean eq(int a, int b) { return a == b; }
+        static boolean ne(int a, int b) { return a != b; }
+        static boolean lt(int a, int b) { return a < b; }
+        static boolean le(int a, int b) { return a <= b; }
+        static boolean gt(int a, int b) { return a > b; }
+        static boolean ge(int a, int b) { return a >= b; }
+        static boolean eq(long a, long b) { return a == b; }
+        static boolean ne(long a, long b) { return a != b; }
+        static boolean lt(long a, long b) { return a < b; }
+        static boolean le(long a, long b) { return a <= b; }
+        static boolean gt(long a, long b) { return a > b; }
+        static boolean ge(long a, long b) { return a >= b; }
+        static boolean eq(double a, double b) { return a == b; }
+        static boolean ne(double a, double b) { return a != b; }
+        static boolean lt(double a, double b) { return a < b; }
+        static boolean le(double a, double b) { return a <= b; }
+        static boolean gt(double a, double b) { return a > b; }
+        static boolean ge(double a, double b) { return a >= b; }
+
+        // Comparable values; null (e.g. an open end date) is never equal to, below or above anything
+        static boolean eq(Object a, Object b) { return a != null && cmp(a, b) == 0; }
+        static boolean ne(Object a, Object b) { return a != null && cmp(a, b) != 0; }
+        static boolean lt(Object a, Object b) { return a != null && cmp(a, b) < 0; }
+        static boolean le(Object a, Object b) { return a != null && cmp(a, b) <= 0; }
+        static boolean gt(Object a, Object b) { return a != null && cmp(a, b) > 0; }
+        static boolean ge(Object a, Object b) { return a != null && cmp(a, b) >= 0; }
+
+        static int cmp(int a, int b) { return Integer.compare(a, b); }
+        static int cmp(long a, long b) { return Long.compare(a, b); }
+        static int cmp(double a, double b) { return Double.compare(a, b); }
+        static int cmp(boolean a, boolean b) { return Boolean.compare(a, b); }
+
+        // nulls last; BigDecimal by value, so 10000 == 10000.00
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        static int cmp(Object a, Object b) {
+            if (a == null || b == null) return a == null ? (b == null ? 0 : 1) : -1;
+            return ((Comparable) a).compareTo(b);
+        }
+    }
+
+    // --- Fields -------------------------------------------------------------
+
+    private static Field field(Class<?> type, String name) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass())
+            for (Field f : c.getDeclaredFields()) if (f.getName().equals(name)) return f;
+        throw error("Unknown field " + name + " on " + type.getSimpleName());
+    }
+
+    private static MethodHandle getter(Field f) {
+        try {
+            return LOOKUP.unreflectGetter(f); // (Declaring) FieldType
+        } catch (IllegalAccessException ex) {
+            throw error("Field " + f.getName() + " is not accessible: " + ex.getMessage());
+        }
+    }
+
+    private static IllegalArgumentException error(String message) { return new IllegalArgumentException(message); }
+
+    // --- Parser -------------------------------------------------------------
+
+    private static final class Parser {
+        private final String src;
+        private int pos;
+
+        Parser(String src) { this.src = src; }
+
+        Node parseFilter() {
+            Node n = or();
+            skipSpaces();
+            if (pos != src.length()) throw fail("Unexpected '" + src.substring(pos) + "'");
+            return n;
+        }
+
+        private Node or() {
+            Node n = and();
+            while (accept("||")) n = new Logical(false, n, and());
+            return n;
+        }
+
+        private Node and() {
+            Node n = factor();
+            while (accept("&&")) n = new Logical(true, n, factor());
+            return n;
+        }
+
+        private Node factor() {
+            if (accept("!")) return new Not(factor());
+            if (accept("(")) {
+                Node n = or();
+                if (!accept(")")) throw fail("Missing ')'");
+                return n;
+            }
+            String field = identifier();
+            for (String op : new String[] {"==", "!=", "<=", ">=", "<", ">"})
+                if (accept(op)) return new Clause(field, op, literal());
+            skipSpaces();
+            if (src.startsWith("has", pos) && (pos + 3 == src.length() || !Character.isJavaIdentifierPart(src.charAt(pos + 3)))) {
+                pos += 3;
+                return new Clause(field, "has", literal());
+            }
+            return new Clause(field, null, null);
+        }
+
+        private String identifier() {
+            skipSpaces();
+            int start = pos;
+            while (pos < src.length() && Character.isJavaIdentifierPart(src.charAt(pos))) pos++;
+            if (start == pos) throw fail("Expected a field name");
+            return src.substring(start, pos);
+        }
+
+        private Literal literal() {
+            skipSpaces();
+            if (accept("'")) {
+                StringBuilder s = new StringBuilder();
+                while (true) {
+                    int end = src.indexOf('\'', pos);
+                    if (end < 0) throw fail("Unterminated string");
+                    s.append(src, pos, end);
+                    pos = end + 1;
+                    if (pos < src.length() && src.charAt(pos) == '\'') { s.append('\''); pos++; } // '' is one quote
+                    else return new Literal(s.toString());
+                }
+            }
+            int start = pos;
+            while (pos < src.length() && (Character.isLetterOrDigit(src.charAt(pos)) || "-.".indexOf(src.charAt(pos)) >= 0)) pos++;
+            String word = src.substring(start, pos);
+            if (word.equals("true") || word.equals("false")) return new Literal(Boolean.valueOf(word));
+            try {
+                return new Literal(word.contains(".") ? new BigDecimal(word) : (Object) Long.valueOf(word));
+            } catch (NumberFormatException ex) {
+                throw fail("Expected a literal, found '" + word + "'");
+            }
+        }
+
+        private boolean accept(String token) {
+            skipSpaces();
+            if (!src.startsWith(token, pos)) return false;
+            pos += token.length();
+            return true;
+        }
+
+        private void skipSpaces() { while (pos < src.length() && Character.isWhitespace(src.charAt(pos))) pos++; }
+
+        private IllegalArgumentException fail(String message) { return error(message + " at " + pos + " in: " + src); }
+    }
+}
@@ -0,0 +1,291 @@
+// EmployeeRecords.java
+// Employees kept as fixed-width byte records and read through lazy views, which decode a field the
+// first time it is asked for. Most queries read one or two fields (Q3 names, Q23 age, Q27 deptId),
+// but building Employee objects materializes a skill set, a project list, a BigDecimal and a
+// LocalDate for every row, and most of them are never read.
+// - Layout: a header (row count, gender and skill dictionaries), then one RECORD-byte slot per row
+//   with the fixed fields at fixed offsets, then a heap holding the variable parts (name bytes, skill
+//   and project ids) that the slot points into. Reading row i's age is one getInt at i * RECORD + 4.
+// - Projection: the query names the fields it reads: stream(Field.NAME), column(Field.DEPT_ID).
+//   A view refuses undeclared fields with IllegalStateException, so a query that reads more than it
+//   declared fails loudly instead of quietly decoding everything. column() gives an IntStream and
+//   creates no view objects at all.
+// - decoded(): decode counts per field, e.g. to check that "count by dept" touched one int column.
+// - Builder.build() keeps the bytes on the heap; Builder.write() + open() put the same bytes in a
+//   file and memory-map it, so only the pages that are read get loaded.
+//     EmployeeRecords r = EmployeeRecords.open(file);
+//     Map<Integer, Long> byDept = r.column(Field.DEPT_ID).boxed().collect(groupingBy(d -> d, counting()));
+// The store is read-only and safe to share between threads (absolute reads only). Views are not;
+// each stream element gets its own.
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.*;
+
+public class EmployeeRecords {
+
+    enum Field { ID, NAME, GENDER, AGE, DEPT_ID, SALARY, JOIN_DATE, ACTIVE, SKILLS, PROJECTS }
+
+    private static final int MAGIC = 0x454D5052; // "EMPR"
+    private static final int FORMAT = 1;
+
+    // slot layout; *_AT are heap offsets, *_LEN byte (name) or element (ids) counts
+    private static final int ID = 0, AGE = 4, DEPT_ID = 8, JOIN_DATE = 12, SALARY = 16, SCALE = 24, GENDER = 25, ACTIVE = 26,
+        NAME_AT = 28, NAME_LEN = 32, SKILLS_AT = 36, SKILLS_LEN = 40, PROJECTS_AT = 44, PROJECTS_LEN = 48;
+    static final int RECORD = 52;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final byte NO_SALARY = Byte.MIN_VALUE, NO_GENDER = -1;
+
+    private final ByteBuffer buf;      // absolute reads only, so it can be shared
+    private final int rows, slots, heap; // row count, byte offset of slot 0, byte offset of the heap
+    private final String[] genders;
+    private final int[] skillIds;      // file skill index -> SymbolDictionary.SKILLS id
+    private final LongAdder[] decoded = new LongAdder[Field.values().length];
+
+    private EmployeeRecords(ByteBuffer buf) {
+        this.buf = buf;
+        ByteBuffer in = buf.duplicate();
+        if (in.getInt() != MAGIC) throw new IllegalArgumentException("Not an employee record file");
+        int format = in.getInt();
+        if (format != FORMAT) throw new IllegalArgumentException("Unsupported record format " + format);
+        rows = in.getInt();
+        genders = readStrings(in);
+        String[] skills = readStrings(in);
+        skillIds = new int[skills.length];
+        for (int i = 0; i < skills.length; i++) skillIds[i] = SymbolDictionary.SKILLS.intern(skills[i]);
+        slots = in.position();
+        if (rows < 0 || slots + (long) rows * RECORD > buf.limit()) throw new IllegalArgumentException("Truncated record file");
+        heap = slots + rows * RECORD;
+        for (int i = 0; i < decoded.length; i++) decoded[i] = new LongAdder();
+    }
+
+    // Memory-maps a file written by Builder.write().
+    static EmployeeRecords open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException(file + " is larger than 2 GB");
+            return new EmployeeRecords(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    int size() { return rows; }
+
+    // Lazy views over all rows that may read only the given fields.
+    Stream<View> stream(Field... needed) {
+        EnumSet<Field> allowed = needed.length == 0 ? EnumSet.noneOf(Field.class) : EnumSet.copyOf(Arrays.asList(needed));
+        return IntStream.range(0, rows).mapToObj(i -> new View(slots + i * RECORD, allowed));
+    }
+
+    View view(int row, Field... needed) {
+        if (row < 0 || row >= rows) throw new IndexOutOfBoundsException("row " + row + " of " + rows);
+        return new View(slots + row * RECORD, needed.length == 0 ? EnumSet.noneOf(Field.class) : EnumSet.copyOf(Arrays.asList(needed)));
+    }
+
+    // One int field of every row, straight from the slots: ID, AGE or DEPT_ID.
+    IntStream column(Field f) {
+        int off = f == Field.ID ? ID : f == Field.AGE ? AGE : f == Field.DEPT_ID ? DEPT_ID : -1;
+        if (off < 0) throw new IllegalArgumentException(f + " is not an int column");
+        LongAdder counter = decoded[f.ordinal()];
+        return IntStream.range(0, rows).map(i -> { counter.increment(); return buf.getInt(slots + i * RECORD + off); });
+    }
+
+    // Decodes per field since creation (or reset), fields never decoded omitted.
+    Map<Field, Long> decoded() {
+        Map<Field, Long> m = new EnumMap<>(Field.class);
+        for (Field f : Field.values()) { long n = decoded[f.ordinal()].sum(); if (n > 0) m.put(f, n); }
+        return m;
+    }
+
+    void resetDecoded() { for (LongAdder a : decoded) a.reset(); }
+
+    // One row. Primitive fields are read from the slot on every call; object fields are decoded once
+    // and kept. Each field counts as decoded once per view.
+    final class View {
+        private final int at;
+        private final Set<Field> allowed;
+        private int seen; // bit per Field
+        private String name;
+        private BigDecimal salary;
+        private LocalDate joinDate;
+        private SymbolDictionary.SymbolSet skills;
+        private int[] projects;
+
+        private View(int at, Set<Field> allowed) { this.at = at; this.allowed = allowed; }
+
+        int id() { first(Field.ID); return buf.getInt(at + ID); }
+
+        int age() { first(Field.AGE); return buf.getInt(at + AGE); }
+
+        int deptId() { first(Field.DEPT_ID); return buf.getInt(at + DEPT_ID); }
+
+        boolean active() { first(Field.ACTIVE); return buf.get(at + ACTIVE) != 0; }
+
+        String gender() {
+            first(Field.GENDER);
+            byte g = buf.get(at + GENDER);
+            return g == NO_GENDER ? null : genders[g];
+        }
+
+        String name() {
+            if (first(Field.NAME)) name = new String(bytes(buf.getInt(at + NAME_AT), buf.getInt(at + NAME_LEN)), StandardCharsets.UTF_8);
+            return name;
+        }
+
+        BigDecimal salary() {
+            if (first(Field.SALARY)) {
+                byte scale = buf.get(at + SCALE);
+                salary = scale == NO_SALARY ? null : BigDecimal.valueOf(buf.getLong(at + SALARY), scale);
+            }
+            return salary;
+        }
+
+        LocalDate joinDate() {
+            if (first(Field.JOIN_DATE)) {
+                int day = buf.getInt(at + JOIN_DATE);
+                joinDate = day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+            }
+            return joinDate;
+        }
+
+        SymbolDictionary.SymbolSet skills() {
+            if (first(Field.SKILLS)) {
+                BitSet ids = new BitSet();
+                int p = heap + buf.getInt(at + SKILLS_AT);
+                for (int i = 0, n = buf.getInt(at + SKILLS_LEN); i < n; i++) ids.set(skillIds[buf.getInt(p + 4 * i)]);
+                skills = SymbolDictionary.SKILLS.setOfIds(ids);
+            }
+            return skills;
+        }
+
+        // project ids, in the order they were added
+        int[] projectIds() {
+            if (first(Field.PROJECTS)) {
+                int p = heap + buf.getInt(at + PROJECTS_AT);
+                projects = new int[buf.getInt(at + PROJECTS_LEN)];
+                for (int i = 0; i < projects.length; i++) projects[i] = buf.getInt(p + 4 * i);
+            }
+            return projects.clone();
+        }
+
+        private boolean first(Field f) {
+            int bit = 1 << f.ordinal();
+            if ((seen & bit) != 0) return false;
+            if (!allowed.contains(f)) throw new IllegalStateException(f + " is not in the projection " + allowed);
+            seen |= bit;
+            decoded[f.ordinal()].increment();
+            return true;
+        }
+
+        private byte[] bytes(int heapOffset, int len) {
+            byte[] b = new byte[len];
+            ByteBuffer d = buf.duplicate();
+            d.position(heap + heapOffset);
+            d.get(b);
+            return b;
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer in) {
+        String[] s = new String[in.getInt()];
+        for (int i = 0; i < s.length; i++) {
+            byte[] b = new byte[in.getShort() & 0xFFFF];
+            in.get(b);
+            s[i] = new String(b, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    // Collects rows; takes plain values so the Playbook and Q91to300 models can both be encoded.
+    static final class Builder {
+        private final ByteBuffer slot = ByteBuffer.allocate(RECORD);
+        private final Growable slots = new Growable(), heap = new Growable();
+        private final Map<String, Integer> genders = new LinkedHashMap<>(), skills = new LinkedHashMap<>();
+        private int rows;
+
+        Builder add(int id, String name, String gender, int age, int deptId, BigDecimal salary, LocalDate joinDate,
+                    boolean active, Collection<String> skillNames, int[] projectIds) {
+            if (salary != null && (salary.unscaledValue().bitLength() > 63 || salary.scale() <= NO_SALARY || salary.scale() > Byte.MAX_VALUE))
+                throw new IllegalArgumentException("Salary of employee " + id + " does not fit a record: " + salary);
+            if (joinDate != null && (joinDate.toEpochDay() <= NO_DATE || joinDate.toEpochDay() > Integer.MAX_VALUE))
+                throw new IllegalArgumentException("Join date of employee " + id + " does not fit a record: " + joinDate);
+            if (gender != null && genders.size() >= Byte.MAX_VALUE && !genders.containsKey(gender))
+                throw new IllegalArgumentException("Too many distinct genders");
+            byte[] nameBytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+            slot.clear();
+            slot.putInt(ID, id).putInt(AGE, age).putInt(DEPT_ID, deptId)
+                .putInt(JOIN_DATE, joinDate == null ? NO_DATE : (int) joinDate.toEpochDay())
+                .putLong(SALARY, salary == null ? 0 : salary.unscaledValue().longValue())
+                .put(SCALE, salary == null ? NO_SALARY : (byte) salary.scale())
+                .put(GENDER, gender == null ? NO_GENDER : (byte) (int) genders.computeIfAbsent(gender, g -> genders.size()))
+                .put(ACTIVE, (byte) (active ? 1 : 0));
+            slot.putInt(NAME_AT, heap.size()).putInt(NAME_LEN, nameBytes.length);
+            heap.put(nameBytes);
+            Collection<String> sk = skillNames == null ? Collections.<String>emptySet() : skillNames;
+            slot.putInt(SKILLS_AT, heap.size()).putInt(SKILLS_LEN, sk.size());
+            for (String s : sk) heap.putInt(skills.computeIfAbsent(s, x -> skills.size()));
+            int[] pj = projectIds == null ? new int[0] : projectIds;
+            slot.putInt(PROJECTS_AT, heap.size()).putInt(PROJECTS_LEN, pj.length);
+            for (int p : pj) heap.putInt(p);
+            slots.put(slot.array());
+            rows++;
+            return this;
+        }
+
+        EmployeeRecords build() { return new EmployeeRecords(ByteBuffer.wrap(bytes())); }
+
+        void write(Path file) throws IOException { Files.write(file, bytes()); }
+
+        private byte[] bytes() {
+            Growable head = new Growable();
+            head.putInt(MAGIC).putInt(FORMAT).putInt(rows);
+            for (Map<String, Integer> dict : Arrays.asList(genders, skills)) {
+                head.putInt(dict.size());
+                for (String s : dict.keySet()) {
+                    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                    if (b.length > 0xFFFF) throw new IllegalArgumentException("Dictionary entry too long: " + s.substring(0, 32) + "...");
+                    head.putShort(b.length).put(b);
+                }
+            }
+            long total = (long) head.size() + slots.size() + heap.size();
+            if (total > Integer.MAX_VALUE) throw new IllegalStateException("Records exceed 2 GB: " + total + " bytes");
+            byte[] all = new byte[(int) total];
+            head.copyTo(all, 0);
+            slots.copyTo(all, head.size());
+            heap.copyTo(all, head.size() + slots.size());
+            return all;
+        }
+    }
+
+    // Big-endian byte sink, same byte order as ByteBuffer reads.
+    private static final class Growable {
+        private byte[] a = new byte[256];
+        private int n;
+
+        int size() { return n; }
+
+        Growable put(byte[] b) { ensure(b.length); System.arraycopy(b, 0, a, n, b.length); n += b.length; return this; }
+
+        Growable putShort(int v) { ensure(2); a[n++] = (byte) (v >>> 8); a[n++] = (byte) v; return this; }
+
+        Growable putInt(int v) {
+            ensure(4);
+            a[n++] = (byte) (v >>> 24); a[n++] = (byte) (v >>> 16); a[n++] = (byte) (v >>> 8); a[n++] = (byte) v;
+            return this;
+        }
+
+        void copyTo(byte[] dst, int at) { System.arraycopy(a, 0, dst, at, n); }
+
+        private void ensure(int more) {
+            if (n + more > a.length) {
+                if ((long) n + more > Integer.MAX_VALUE - 8) throw new IllegalStateException("Records exceed 2 GB");
+                a = Arrays.copyOf(a, (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) n + more, 2L * a.length)));
+            }
+        }
+    }
+}
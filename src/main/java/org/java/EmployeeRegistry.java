@@ -0,0 +1,229 @@
+// EmployeeRegistry.java
+// Concurrent id -> Employee registry with lock-free updates and point-in-time snapshots.
+//
+// How it works (MVCC in a few lines):
+// - Every record is a chain of immutable versions (newest first). A write never mutates an Employee;
+//   it links a new version onto the chain with a CAS (copy-on-write per record).
+// - A version is stamped from a global clock only after it is linked. Whoever meets it unstamped
+//   first (its writer, a reader, or the next writer of that record) stamps it with a CAS, so once
+//   seen, a stamp never changes, and a version linked after clock value v is read always gets a stamp
+//   > v. No writer ever waits for another one, not even on the same record.
+// - A Snapshot remembers v = clock and, for each record, reads the first version with stamp <= v.
+//   Long aggregations over a snapshot never block writers and never see half of a batch.
+// - Secondary indexes (dept, skill) hold candidate ids; snapshot reads re-check the candidate
+//   against the versioned record, so the index can never disagree with the primary data. Skills are
+//   keyed by their SymbolDictionary.SKILLS id, the same ids the records' SymbolSets already hold.
+// - vacuum() drops versions no open snapshot can see and prunes stale index postings.
+//
+// Stored records must be immutable (or never mutated once put): change a record by putting a copy,
+// e.g. update(id, e -> e.withSalary(...)), instead of the in-place setSalary(...) style of TestEmployee.
+// The registry is generic over the record type; employees() builds one for EmployeeStreamQ91to300.
+
+import java.lang.invoke.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class EmployeeRegistry<E> implements QueryResultCache.Versioned {
+
+    // One immutable version of a record; value == null is a delete (tombstone).
+    private static final class Version<E> {
+        volatile long stamp = PENDING; final E value;
+        volatile Version<E> prev; // cut by vacuum() once no snapshot can reach it
+        Version(E value, Version<E> prev) { this.value = value; this.prev = prev; }
+    }
+
+    private static final long PENDING = Long.MAX_VALUE; // linked (or about to be), not stamped yet
+    private static final long ABANDONED = -1;            // lost its CAS, never linked
+    private static final VarHandle STAMP;
+    static {
+        try {
+            STAMP = MethodHandles.lookup().findVarHandle(Version.class, "stamp", long.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private final ToIntFunction<? super E> idOf;
+    private final Function<? super E, ?> deptOf;
+    private final Function<? super E, SymbolDictionary.SymbolSet> skillsOf; // sets of SymbolDictionary.SKILLS
+
+    private final ConcurrentHashMap<Integer, AtomicReference<Version<E>>> records = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Object, ConcurrentHashMap<Integer, Version<E>>> byDept = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, ConcurrentHashMap<Integer, Version<E>>> bySkill = new ConcurrentHashMap<>();
+
+    private final AtomicLong clock = new AtomicLong();      // last stamp handed out
+    private final ConcurrentSkipListMap<Long, Integer> openSnapshots = new ConcurrentSkipListMap<>();
+    private volatile long vacuumHorizon;                    // versions below this may be gone
+
+    // deptOf and skillsOf feed the secondary indexes; either may return null/empty for "none".
+    EmployeeRegistry(ToIntFunction<? super E> idOf, Function<? super E, ?> deptOf, Function<? super E, SymbolDictionary.SymbolSet> skillsOf) {
+        this.idOf = idOf; this.deptOf = deptOf; this.skillsOf = skillsOf;
+    }
+
+    static EmployeeRegistry<EmployeeStreamQ91to300.Employee> employees(Collection<EmployeeStreamQ91to300.Employee> initial) {
+        EmployeeRegistry<EmployeeStreamQ91to300.Employee> r = new EmployeeRegistry<>(e -> e.id, e -> e.deptId, e -> e.skills);
+        r.putAll(initial);
+        return r;
+    }
+
+    // --- Writes (lock-free CAS per record) ----------------------------------
+
+    void put(E e) { update(idOf.applyAsInt(e), old -> e); }
+
+    void putAll(Collection<? extends E> all) { all.forEach(this::put); }
+
+    // Returns false when there was nothing to remove.
+    boolean remove(int id) {
+        return records.containsKey(id) && update(id, old -> null) != null; // absent ids get no entry and no tombstone
+    }
+
+    // Atomically replaces the record with fn(current); current is null if absent. Returns the old value.
+    // fn may be called more than once under contention, so it must be side-effect free. When fn
+    // returns current unchanged, nothing is written.
+    E update(int id, UnaryOperator<E> fn) {
+        AtomicReference<Version<E>> ref = records.computeIfAbsent(id, k -> new AtomicReference<>());
+        while (true) {
+            Version<E> head = ref.get();
+            if (head != null) stamp(head); // keeps stamps increasing along the chain
+            E old = head == null ? null : head.value;
+            E next = fn.apply(old);
+            if (next == old) return old;
+            if (next != null && idOf.applyAsInt(next) != id) throw new IllegalArgumentException("id mismatch: " + idOf.applyAsInt(next) + " != " + id);
+            Version<E> v = new Version<>(next, head);
+            // postings go in before the version becomes reachable: extra postings are filtered out
+            // by the snapshot re-check, missing ones could not be
+            if (next != null) index(id, next, v);
+            if (ref.compareAndSet(head, v)) {
+                stamp(v);
+                return old;
+            }
+            v.stamp = ABANDONED; // unreachable, so no one else stamps it; lets vacuum() drop its postings
+        }
+    }
+
+    // Fixes the stamp of a linked version (the first CAS wins) and returns it.
+    private long stamp(Version<E> v) {
+        long s = v.stamp;
+        if (s != PENDING) return s;
+        STAMP.compareAndSet(v, PENDING, clock.incrementAndGet());
+        return v.stamp;
+    }
+
+    private void index(int id, E e, Version<E> v) {
+        Object dept = deptOf.apply(e);
+        if (dept != null) byDept.computeIfAbsent(dept, k -> new ConcurrentHashMap<>()).put(id, v);
+        SymbolDictionary.SymbolSet skills = skillsOf.apply(e);
+        if (skills != null) skills.forEachId(s -> bySkill.computeIfAbsent(s, k -> new ConcurrentHashMap<>()).put(id, v));
+    }
+
+    // --- Reads --------------------------------------------------------------
+
+    // Latest value, or null. Stamps the head first: a write that depends on what was read here
+    // must get a later stamp, or a snapshot could see the write without the value it was based on.
+    E get(int id) {
+        AtomicReference<Version<E>> ref = records.get(id);
+        Version<E> head = ref == null ? null : ref.get();
+        if (head == null) return null;
+        stamp(head);
+        return head.value;
+    }
+
+    @Override public long version() { return clock.get(); }
+
+    int approximateSize() { return records.size(); }
+
+    // Point-in-time view; close it so vacuum() can reclaim old versions.
+    Snapshot snapshot() {
+        while (true) {
+            long v = clock.get();
+            openSnapshots.merge(v, 1, Integer::sum);
+            if (vacuumHorizon <= v) return new Snapshot(v);
+            release(v); // a vacuum already moved past v; take a newer one
+        }
+    }
+
+    private void release(long v) {
+        openSnapshots.computeIfPresent(v, (k, n) -> n == 1 ? null : n - 1);
+    }
+
+    // Newest version stamped <= v. Stamping a pending version here can only give it a stamp > v,
+    // so a later read at v makes the same choice.
+    private Version<E> visible(Version<E> head, long v) {
+        Version<E> x = head;
+        while (x != null && stamp(x) > v) x = x.prev;
+        return x;
+    }
+
+    final class Snapshot implements AutoCloseable {
+        final long version;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Snapshot(long version) { this.version = version; }
+
+        E get(int id) {
+            AtomicReference<Version<E>> ref = records.get(id);
+            if (ref == null) return null;
+            Version<E> x = visible(ref.get(), version);
+            return x == null ? null : x.value;
+        }
+
+        // All records as of this snapshot; parallel() is safe and scales with cores.
+        Stream<E> stream() {
+            return records.keySet().stream().map(this::get).filter(Objects::nonNull);
+        }
+
+        Stream<E> byDept(Object dept) {
+            return candidates(byDept.get(dept)).filter(e -> dept.equals(deptOf.apply(e)));
+        }
+
+        Stream<E> bySkill(String skill) {
+            int id = SymbolDictionary.SKILLS.id(skill);
+            return id < 0 ? Stream.empty() : candidates(bySkill.get(id)).filter(e -> hasSkill(e, id));
+        }
+
+        private Stream<E> candidates(Map<Integer, Version<E>> postings) {
+            return postings == null ? Stream.empty() : postings.keySet().stream().map(this::get).filter(Objects::nonNull);
+        }
+
+        List<E> toList() { return stream().collect(Collectors.toList()); }
+
+        @Override public void close() { if (closed.compareAndSet(false, true)) release(version); }
+    }
+
+    // --- Maintenance --------------------------------------------------------
+
+    // Drops versions that no open snapshot can reach and index postings that no reachable version
+    // needs. Never blocks readers or writers; concurrent vacuums are serialized.
+    synchronized void vacuum() {
+        long horizon = clock.get();
+        vacuumHorizon = horizon;
+        Map.Entry<Long, Integer> oldest = openSnapshots.firstEntry();
+        long min = oldest == null ? horizon : Math.min(horizon, oldest.getKey());
+        for (AtomicReference<Version<E>> ref : records.values()) {
+            Version<E> keep = visible(ref.get(), min);
+            if (keep != null) keep.prev = null;
+        }
+        prune(byDept, (e, dept) -> dept.equals(deptOf.apply(e)), min);
+        prune(bySkill, this::hasSkill, min);
+    }
+
+    private boolean hasSkill(E e, int skillId) {
+        SymbolDictionary.SymbolSet skills = skillsOf.apply(e);
+        return skills != null && skills.containsId(skillId);
+    }
+
+    private <K> void prune(ConcurrentHashMap<K, ConcurrentHashMap<Integer, Version<E>>> index,
+                           BiPredicate<E, K> has, long min) {
+        index.forEach((key, postings) -> postings.forEach((id, asserted) -> {
+            if (asserted.stamp == PENDING) return; // its writer may be about to link it
+            AtomicReference<Version<E>> ref = records.get(id);
+            Version<E> head = ref == null ? null : ref.get();
+            if (head == null || stamp(head) > min) return; // newer versions: keep the posting
+            for (Version<E> x = head; x != null; x = x.prev) if (x.value != null && has.test(x.value, key)) return;
+            postings.remove(id, asserted); // fails if a writer re-asserted the posting meanwhile
+        }));
+    }
+}
@@ -0,0 +1,167 @@
+// EmployeeScans.java
+// Parallel prefix-scan ("running") operators for the Employee domain.
+// Streams have reduce() but no scan(); these helpers fill the gap for running sum/min/max/count
+// and sliding windows, using Arrays.parallelPrefix (up-sweep/down-sweep over a ForkJoin pool).
+// Used by EmployeeStreamQ91to300 (Q148, Q203, Q249).
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class EmployeeScans {
+
+    private EmployeeScans() { }
+
+    // --- Primitive scans ----------------------------------------------------
+    // Each method returns a NEW array; the input is never modified.
+
+    static long[] runningSum(long[] values) {
+        long[] out = values.clone();
+        Arrays.parallelPrefix(out, Long::sum);
+        return out;
+    }
+
+    static double[] runningSum(double[] values) {
+        double[] out = values.clone();
+        Arrays.parallelPrefix(out, Double::sum);
+        return out;
+    }
+
+    static long[] runningMin(long[] values) {
+        long[] out = values.clone();
+        Arrays.parallelPrefix(out, Math::min);
+        return out;
+    }
+
+    static long[] runningMax(long[] values) {
+        long[] out = values.clone();
+        Arrays.parallelPrefix(out, Math::max);
+        return out;
+    }
+
+    static double[] runningMin(double[] values) {
+        double[] out = values.clone();
+        Arrays.parallelPrefix(out, Math::min);
+        return out;
+    }
+
+    static double[] runningMax(double[] values) {
+        double[] out = values.clone();
+        Arrays.parallelPrefix(out, Math::max);
+        return out;
+    }
+
+    // out[i] = how many of values[0..i] match the predicate
+    static <T> int[] runningCount(T[] values, Predicate<? super T> p) {
+        int[] out = new int[values.length];
+        Arrays.parallelSetAll(out, i -> p.test(values[i]) ? 1 : 0);
+        Arrays.parallelPrefix(out, Integer::sum);
+        return out;
+    }
+
+    // --- Exact money scans --------------------------------------------------
+    // Money is summed as unscaled longs (cents at the given scale) so the scan runs on primitives.
+    // If any value has more decimals than 'scale' or overflows a long, we fall back to a
+    // BigDecimal scan, which is still parallel and exact, just slower.
+
+    static BigDecimal[] runningSum(BigDecimal[] money, int scale) {
+        long[] units = toUnscaled(money, scale);
+        if (units == null) {
+            BigDecimal[] out = money.clone();
+            Arrays.parallelPrefix(out, BigDecimal::add);
+            return out;
+        }
+        long[] sums;
+        try {
+            sums = units.clone();
+            Arrays.parallelPrefix(sums, Math::addExact);
+        } catch (ArithmeticException overflow) {
+            BigDecimal[] out = money.clone();
+            Arrays.parallelPrefix(out, BigDecimal::add);
+            return out;
+        }
+        BigDecimal[] out = new BigDecimal[sums.length];
+        Arrays.parallelSetAll(out, i -> BigDecimal.valueOf(sums[i], scale));
+        return out;
+    }
+
+    static BigDecimal[] runningMin(BigDecimal[] money) {
+        BigDecimal[] out = money.clone();
+        Arrays.parallelPrefix(out, BigDecimal::min);
+        return out;
+    }
+
+    static BigDecimal[] runningMax(BigDecimal[] money) {
+        BigDecimal[] out = money.clone();
+        Arrays.parallelPrefix(out, BigDecimal::max);
+        return out;
+    }
+
+    // null when some value cannot be represented exactly as a long at this scale
+    private static long[] toUnscaled(BigDecimal[] money, int scale) {
+        long[] units = new long[money.length];
+        try {
+            Arrays.parallelSetAll(units, i -> money[i].setScale(scale).unscaledValue().longValueExact());
+        } catch (ArithmeticException notExact) {
+            return null;
+        }
+        return units;
+    }
+
+    // --- Sliding windows (built on prefix sums) -----------------------------
+    // avg of values[i-window+1..i]; the first window-1 slots average over what is available.
+
+    static double[] slidingAverage(double[] values, int window) {
+        if (window <= 0) throw new IllegalArgumentException("window must be > 0: " + window);
+        double[] prefix = runningSum(values);
+        double[] out = new double[values.length];
+        Arrays.parallelSetAll(out, i -> {
+            int from = Math.max(0, i - window + 1);
+            double sum = prefix[i] - (from == 0 ? 0 : prefix[from - 1]);
+            return sum / (i - from + 1);
+        });
+        return out;
+    }
+
+    static BigDecimal[] slidingSum(BigDecimal[] money, int scale, int window) {
+        if (window <= 0) throw new IllegalArgumentException("window must be > 0: " + window);
+        BigDecimal[] prefix = runningSum(money, scale);
+        BigDecimal[] out = new BigDecimal[money.length];
+        Arrays.parallelSetAll(out, i -> i < window ? prefix[i] : prefix[i].subtract(prefix[i - window]));
+        return out;
+    }
+
+    // --- Stream stages ------------------------------------------------------
+    // A scan needs everything to its left, so these are barrier stages: the upstream is drained
+    // with toArray() (which keeps encounter order, also for parallel streams), scanned in
+    // parallel, and handed back as a stream with the same parallel flag.
+
+    static <T> LongStream runningSum(Stream<T> s, ToLongFunction<? super T> f) {
+        boolean parallel = s.isParallel();
+        long[] out = s.mapToLong(f).toArray();
+        Arrays.parallelPrefix(out, Long::sum);
+        LongStream res = Arrays.stream(out);
+        return parallel ? res.parallel() : res;
+    }
+
+    static <T> Stream<BigDecimal> runningTotal(Stream<T> s, Function<? super T, BigDecimal> money, int scale) {
+        boolean parallel = s.isParallel();
+        BigDecimal[] out = runningSum(s.map(money).toArray(BigDecimal[]::new), scale);
+        Stream<BigDecimal> res = Arrays.stream(out);
+        return parallel ? res.parallel() : res;
+    }
+
+    // element paired with the running total up to and including it
+    static <T> Stream<Map.Entry<T, BigDecimal>> withRunningTotal(Stream<T> s, Function<? super T, BigDecimal> money, int scale) {
+        boolean parallel = s.isParallel();
+        @SuppressWarnings("unchecked")
+        T[] items = (T[]) s.toArray();
+        BigDecimal[] values = new BigDecimal[items.length];
+        Arrays.parallelSetAll(values, i -> money.apply(items[i]));
+        BigDecimal[] totals = runningSum(values, scale);
+        Stream<Map.Entry<T, BigDecimal>> res = IntStream.range(0, items.length)
+            .<Map.Entry<T, BigDecimal>>mapToObj(i -> new AbstractMap.SimpleImmutableEntry<>(items[i], totals[i]));
+        return parallel ? res.parallel() : res;
+    }
+}
@@ -26,7 +26,7 @@ public class EmployeeStreamPlaybook {
         final String name;
         final String location;
         Department(int id, String name, String location) {
-            this.id = id; this.name = name; this.location = location;
+            this.id = id; this.name = SymbolDictionary.DEPARTMENTS.canonical(name); this.location = location;
         }
         @Override public String toString() { return name + "(" + location + ")"; }
     }
@@ -38,7 +38,7 @@ public class EmployeeStreamPlaybook {
         final LocalDate startDate;
         final LocalDate endDate; // can be null if ongoing
         Project(int id, String name, boolean billable, LocalDate startDate, LocalDate endDate) {
-            this.id = id; this.name = name; this.billable = billable; this.startDate = startDate; this.endDate = endDate;
+            this.id = id; this.name = SymbolDictionary.PROJECTS.canonical(name); this.billable = billable; this.startDate = startDate; this.endDate = endDate;
         }
         @Override public String toString() {
             return name + (billable ? "[billable]" : "[non-billable]");
@@ -54,7 +54,7 @@ public class EmployeeStreamPlaybook {
         final BigDecimal salary; // monthly salary
         final LocalDate joinDate;
         final boolean active;
-        final Set<String> skills;
+        final SymbolDictionary.SymbolSet skills; // sorted ids into SymbolDictionary.SKILLS
         final List<Project> projects;
 
         Employee(int id, String name, Gender gender, int age, int deptId,
@@ -62,7 +62,7 @@ public class EmployeeStreamPlaybook {
                  Set<String> skills, List<Project> projects) {
             this.id = id; this.name = name; this.gender = gender; this.age = age; this.deptId = deptId;
             this.salary = salary; this.joinDate = joinDate; this.active = active;
-            this.skills = skills == null ? new HashSet<>() : new HashSet<>(skills);
+            this.skills = SymbolDictionary.SKILLS.setOf(skills == null ? Collections.emptySet() : skills);
             this.projects = projects == null ? new ArrayList<>() : new ArrayList<>(projects);
         }
         @Override public String toString() {
@@ -126,7 +126,56 @@ public class EmployeeStreamPlaybook {
         System.out.println("\n== " + title + " ==");
     }
 
-    static Map<Integer, Department> DEPTS = DataFactory.departments();
+    // built on first use, not during class initialization (see FastStart)
+    static Map<Integer, Department> depts() { return Depts.DEPTS; }
+
+    private static final class Depts {
+        static final Map<Integer, Department> DEPTS = DataFactory.departments();
+    }
+
+    // byte-record copy of a dataset for the projection demos (see EmployeeRecords)
+    static EmployeeRecords records(List<Employee> emps) { return recordsBuilder(emps).build(); }
+
+    static EmployeeRecords.Builder recordsBuilder(List<Employee> emps) {
+        EmployeeRecords.Builder b = new EmployeeRecords.Builder();
+        for (Employee e : emps)
+            b.add(e.id, e.name, e.gender == null ? null : e.gender.name(), e.age, e.deptId, e.salary, e.joinDate, e.active,
+                  e.skills, e.projects.stream().mapToInt(p -> p.id).toArray());
+        return b;
+    }
+    // evaluation date for tenure/duration questions, fixed so the output is reproducible
+    static final Clock CLOCK = TimelineIndex.fixedAt(LocalDate.of(2025, 1, 1));
+
+    // intermediates shared by several demos, computed once per dataset (see QueryResultCache)
+    static final QueryResultCache RESULTS = new QueryResultCache(256);
+    static final QueryResultCache.Plan<List<Employee>, Map<Integer, List<Employee>>> BY_DEPT = QueryResultCache.plan("group by deptId", d -> {
+        Map<Integer, List<Employee>> m = d.stream().collect(Collectors.groupingBy(e -> e.deptId));
+        m.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        return Collections.unmodifiableMap(m);
+    });
+    static final QueryResultCache.Plan<List<Employee>, Map<Integer, List<String>>> NAMES_BY_DEPT = QueryResultCache.plan("group by deptId -> names", d -> {
+        Map<Integer, List<String>> m = new LinkedHashMap<>();
+        RESULTS.get(BY_DEPT, d).forEach((k, v) -> m.put(k, Collections.unmodifiableList(v.stream().map(e -> e.name).collect(Collectors.toList()))));
+        return Collections.unmodifiableMap(m);
+    });
+    // folded, sorted and trigram-indexed once per dataset; Q74 and Q84 only query it
+    static final QueryResultCache.Plan<List<Employee>, NameIndex<Employee>> NAME_INDEX =
+            QueryResultCache.plan("name index", d -> new NameIndex<>(d, e -> e.name));
+    // keeps its sorted order cached across requests (Q75)
+    static final QueryResultCache.Plan<List<Employee>, KeysetPager<Employee>> NAME_PAGER =
+            QueryResultCache.plan("pager by name", d -> new KeysetPager<>(d, KeysetPager.Order.byString("name", e -> e.name, e -> e.id)));
+
+    // per-department aggregates of Q27, Q28 and Q29, fused into one shared scan per dataset
+    static final SharedScan<Employee> DEPT_SCAN = new SharedScan<>();
+    static final SharedScan.Key<Employee, Integer> SCAN_DEPT = DEPT_SCAN.key("dept", e -> e.deptId);
+    static final SharedScan.Handle<Map<Integer, Long>> COUNT_PER_DEPT =
+            DEPT_SCAN.groupBy("count per dept", null, SCAN_DEPT, Collectors.counting());
+    static final SharedScan.Handle<Map<Integer, BigDecimal>> SALARY_PER_DEPT =
+            DEPT_SCAN.groupBy("total salary per dept", null, SCAN_DEPT, Collectors.reducing(BigDecimal.ZERO, e -> e.salary, BigDecimal::add));
+    static final SharedScan.Handle<Map<Integer, Double>> AVG_SALARY_PER_DEPT =
+            DEPT_SCAN.groupBy("avg salary per dept", null, SCAN_DEPT, Collectors.averagingDouble(e -> e.salary.doubleValue()));
+    static final QueryResultCache.Plan<List<Employee>, SharedScan.Results> DEPT_AGGREGATES =
+            QueryResultCache.plan("dept shared scan", d -> DEPT_SCAN.run(d));
 
     // --- Demos --------------------------------------------------------------
 
@@ -255,6 +304,10 @@ public class EmployeeStreamPlaybook {
         header("Q3 Map to names");
         List<String> names = EMP.stream().map(e -> e.name).collect(Collectors.toList());
         System.out.println(names);
+        // Same over byte records: only the name bytes are decoded, no Employee is built
+        EmployeeRecords records = records(EMP);
+        List<String> fromRecords = records.stream(EmployeeRecords.Field.NAME).map(EmployeeRecords.View::name).collect(Collectors.toList());
+        System.out.println(fromRecords + " decoded " + records.decoded());
     }
 
     // Q4: Map to salary and sum (BigDecimal-safe way).
@@ -290,7 +343,10 @@ public class EmployeeStreamPlaybook {
     // Layman: "Collect unique skill names across the company."
     static void q7_distinctSkills(List<Employee> EMP) {
         header("Q7 Distinct skills");
-        Set<String> skills = EMP.stream().flatMap(e -> e.skills.stream()).collect(Collectors.toSet());
+        // union of the employees' skill ids; each skill name is looked up once, not hashed per employee
+        BitSet ids = new BitSet();
+        EMP.forEach(e -> e.skills.forEachId(ids::set));
+        Set<String> skills = SymbolDictionary.SKILLS.setOfIds(ids);
         System.out.println(skills);
     }
 
@@ -364,14 +420,15 @@ public class EmployeeStreamPlaybook {
     // Layman: "Print in the middle without changing the stream."
     static void q16_debugPeek(List<Employee> EMP) {
         header("Q16 peek for debug");
-        List<String> topNames = EMP.stream()
-                .peek(e -> System.out.println("start: " + e.name))
-                .filter(e -> e.salary.compareTo(new BigDecimal("10000")) > 0)
-                .peek(e -> System.out.println(">10k: " + e.name))
-                .map(e -> e.name.toUpperCase())
+        // per-stage counts instead of println in peek(): limit(3) stops the source early
+        PipelineProbe probe = new PipelineProbe(PipelineProbe.Level.COUNTS, new PipelineProbe.Registry());
+        List<String> topNames = probe.of("Q16 top names", EMP)
+                .filter(">10k", e -> e.salary.compareTo(new BigDecimal("10000")) > 0)
+                .map("upper", e -> e.name.toUpperCase())
                 .limit(3)
-                .collect(Collectors.toList());
+                .toList();
         System.out.println("Result: " + topNames);
+        System.out.println(probe.registry().get("Q16 top names"));
     }
 
     // Q17: boxed primitive streams
@@ -437,15 +494,18 @@ public class EmployeeStreamPlaybook {
         header("Q23 average age");
         OptionalDouble avg = EMP.stream().mapToInt(x -> x.age).average();
         System.out.println(avg.isPresent() ? avg.getAsDouble() : null);
+        // Over byte records the age column is read straight from the slots
+        EmployeeRecords records = records(EMP);
+        OptionalDouble fromRecords = records.column(EmployeeRecords.Field.AGE).average();
+        System.out.println((fromRecords.isPresent() ? fromRecords.getAsDouble() : null) + " decoded " + records.decoded());
     }
 
     // Q24: Top-N salaries
+    // A bounded heap keeps only 3 elements instead of sorting the whole list.
     static void q24_takeTopN(List<Employee> EMP) {
         header("Q24 Top-3 salaries");
         List<Employee> top3 = EMP.stream()
-            .sorted(Comparator.comparing((Employee e) -> e.salary).reversed())
-            .limit(3)
-            .collect(Collectors.toList());
+            .collect(TopK.topK(3, Comparator.comparing((Employee e) -> e.salary)));
         System.out.println(top3);
     }
 
@@ -453,9 +513,8 @@ public class EmployeeStreamPlaybook {
     static void q25_nthHighestSalary(List<Employee> EMP, int n) {
         header("Q25 Nth highest salary");
         Employee nth = EMP.stream()
-            .sorted(Comparator.comparing((Employee e) -> e.salary).reversed())
-            .skip(n - 1)
-            .findFirst().orElse(null);
+            .collect(TopK.nthLargest(n, Comparator.comparing((Employee e) -> e.salary)))
+            .orElse(null);
         System.out.println(n + "th highest: " + nth);
     }
 
@@ -464,43 +523,52 @@ public class EmployeeStreamPlaybook {
     // Q26: Group by department
     static void q26_groupByDept(List<Employee> EMP) {
         header("Q26 group by dept");
-        Map<Integer, List<Employee>> byDept = EMP.stream().collect(Collectors.groupingBy(e -> e.deptId));
+        Map<Integer, List<Employee>> byDept = RESULTS.get(BY_DEPT, EMP);
         System.out.println(byDept);
     }
 
     // Q27: Group by dept and count
     static void q27_groupByDeptCounting(List<Employee> EMP) {
         header("Q27 group by dept & count");
-        Map<Integer, Long> counts = EMP.stream().collect(Collectors.groupingBy(e -> e.deptId, Collectors.counting()));
+        Map<Integer, Long> counts = RESULTS.get(DEPT_AGGREGATES, EMP).get(COUNT_PER_DEPT);
         System.out.println(counts);
+        // From a memory-mapped record file: decodes one int per row and nothing else
+        try {
+            Path file = Files.createTempFile("employees", ".rec");
+            file.toFile().deleteOnExit();
+            recordsBuilder(EMP).write(file);
+            EmployeeRecords records = EmployeeRecords.open(file);
+            Map<Integer, Long> fromFile = records.column(EmployeeRecords.Field.DEPT_ID).boxed()
+                    .collect(Collectors.groupingBy(d -> d, Collectors.counting()));
+            System.out.println(fromFile + " decoded " + records.decoded());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
     }
 
     // Q28: Group by dept and sum salaries
     static void q28_groupByDeptTotalSalary(List<Employee> EMP) {
         header("Q28 group by dept total salary");
-        Map<Integer, BigDecimal> totals = EMP.stream().collect(
-            Collectors.groupingBy(e -> e.deptId,
-                Collectors.reducing(BigDecimal.ZERO, e -> e.salary, BigDecimal::add))
-        );
+        Map<Integer, BigDecimal> totals = RESULTS.get(DEPT_AGGREGATES, EMP).get(SALARY_PER_DEPT);
         System.out.println(totals);
     }
 
     // Q29: Group by dept and average salary
     static void q29_groupByDeptAvgSalary(List<Employee> EMP) {
         header("Q29 group by dept avg salary");
-        Map<Integer, Double> avg = EMP.stream().collect(
-            Collectors.groupingBy(e -> e.deptId,
-                Collectors.averagingDouble(e -> e.salary.doubleValue()))
-        );
+        Map<Integer, Double> avg = RESULTS.get(DEPT_AGGREGATES, EMP).get(AVG_SALARY_PER_DEPT);
         System.out.println(avg);
+        // Approximate: half of each department, then refined until every average is within 5%
+        ApproxQuery<Employee>.Run<Integer> approx = ApproxQuery.over(EMP, e -> e.deptId).seed(29)
+                .avg(e -> e.deptId, e -> e.salary.doubleValue());
+        System.out.println("~" + approx.sample(0.5) + " from " + approx.sampledRows() + " of " + EMP.size() + " rows");
+        System.out.println("~" + approx.refineUntil(0.05, Duration.ofMillis(50)) + " from " + approx.sampledRows() + " rows");
     }
 
     // Q30: Group by dept to names list
     static void q30_groupByDeptNamesList(List<Employee> EMP) {
         header("Q30 group by dept -> names");
-        Map<Integer, List<String>> names = EMP.stream().collect(
-            Collectors.groupingBy(e -> e.deptId, Collectors.mapping(e -> e.name, Collectors.toList()))
-        );
+        Map<Integer, List<String>> names = RESULTS.get(NAMES_BY_DEPT, EMP);
         System.out.println(names);
     }
 
@@ -584,7 +652,8 @@ public class EmployeeStreamPlaybook {
     // Q39: flatMap skills set
     static void q39_flatMapSkillsSet(List<Employee> EMP) {
         header("Q39 flatMap skills");
-        Set<String> skills = EMP.stream().flatMap(e -> e.skills.stream()).collect(Collectors.toCollection(TreeSet::new));
+        Set<String> skills = EMP.stream().map(e -> e.skills).reduce(SymbolDictionary.SymbolSet::union)
+                .map(TreeSet::new).orElseGet(TreeSet::new);
         System.out.println(skills);
     }
 
@@ -616,19 +685,22 @@ public class EmployeeStreamPlaybook {
     // Q43: Multi-level grouping: dept -> gender -> names
     static void q43_groupingMultiLevel(List<Employee> EMP) {
         header("Q43 multi-level grouping");
-        Map<Integer, Map<Gender, List<String>>> result = EMP.stream().collect(
-            Collectors.groupingBy(e -> e.deptId,
-                Collectors.groupingBy(e -> e.gender, Collectors.mapping(e -> e.name, Collectors.toList())))
-        );
+        // one flat table keyed by packed (dept, gender) plus the per-dept rollup, instead of a map of maps
+        PackedGroupBy.KeyPacker<Employee> key = new PackedGroupBy.KeyPacker<>(
+            PackedGroupBy.Dimension.ofInt("dept", 10, (Employee e) -> e.deptId),
+            PackedGroupBy.Dimension.ofEnum("gender", Gender.class, (Employee e) -> e.gender));
+        PackedGroupBy.Result<List<String>> result = EMP.stream().collect(
+            PackedGroupBy.rollup(key, Collectors.mapping(e -> e.name, Collectors.toList())));
         System.out.println(result);
     }
 
     // Q44: Partition by active then again by dept (two-step)
     static void q44_partitionByActiveAndDept(List<Employee> EMP) {
         header("Q44 partition by active then group by dept");
-        Map<Boolean, Map<Integer, List<Employee>>> result = EMP.stream().collect(
-            Collectors.partitioningBy(e -> e.active, Collectors.groupingBy(e -> e.deptId))
-        );
+        PackedGroupBy.KeyPacker<Employee> key = new PackedGroupBy.KeyPacker<>(
+            PackedGroupBy.Dimension.ofBoolean("active", (Employee e) -> e.active),
+            PackedGroupBy.Dimension.ofInt("dept", 10, (Employee e) -> e.deptId));
+        PackedGroupBy.Result<List<Employee>> result = EMP.stream().collect(PackedGroupBy.groupBy(key, Collectors.toList()));
         System.out.println(result);
     }
 
@@ -645,7 +717,10 @@ public class EmployeeStreamPlaybook {
     // Q46: Custom collector: Set<String> -> CSV string
     static void q46_customCollectorSetToCsv(List<Employee> EMP) {
         header("Q46 custom collector CSV");
-        Set<String> skills = EMP.stream().flatMap(e -> e.skills.stream()).collect(Collectors.toSet());
+        // union of the employees' skill ids; each skill name is looked up once, not hashed per employee
+        BitSet ids = new BitSet();
+        EMP.forEach(e -> e.skills.forEachId(ids::set));
+        Set<String> skills = SymbolDictionary.SKILLS.setOfIds(ids);
         String csv = skills.stream().collect(Collector.of(
             () -> new StringBuilder(),
             (sb, s) -> { if (sb.length() > 0) sb.append(','); sb.append(s); },
@@ -710,11 +785,8 @@ public class EmployeeStreamPlaybook {
     // Q53: Grouping and top-N per dept
     static void q53_groupingAndTopN(List<Employee> EMP) {
         header("Q53 top-2 earners per dept");
-        Map<Integer, List<Employee>> top2 = EMP.stream().collect(Collectors.groupingBy(e -> e.deptId,
-            Collectors.collectingAndThen(Collectors.toList(), list -> list.stream()
-                .sorted(Comparator.comparing((Employee e) -> e.salary).reversed())
-                .limit(2).collect(Collectors.toList()))
-        ));
+        Map<Integer, List<Employee>> top2 = EMP.stream().collect(
+            TopK.topKPerGroup(e -> e.deptId, 2, Comparator.comparing((Employee e) -> e.salary)));
         System.out.println(top2);
     }
 
@@ -741,26 +813,29 @@ public class EmployeeStreamPlaybook {
     // Q56: Lazy evaluation demonstration
     static void q56_lazyEvaluation(List<Employee> EMP) {
         header("Q56 lazy evaluation");
-        Stream<Employee> s = EMP.stream().filter(e -> { System.out.println("filter " + e.name); return e.age > 30; });
-        System.out.println("Nothing printed yet because no terminal op.");
+        PipelineProbe probe = new PipelineProbe(PipelineProbe.Level.COUNTS, new PipelineProbe.Registry());
+        PipelineProbe.Pipeline<Employee> s = probe.of("Q56 age > 30", EMP).filter("age > 30", e -> e.age > 30);
+        System.out.println("Nothing evaluated yet because no terminal op:\n" + s.peekReport());
         System.out.println("Now terminal op:");
         System.out.println(s.count());
+        System.out.println(probe.registry().get("Q56 age > 30"));
     }
 
     // Q57: Short-circuit operations (anyMatch stops early)
     static void q57_shortCircuit(List<Employee> EMP) {
         header("Q57 short-circuit");
-        boolean found = EMP.stream().peek(e -> System.out.println("check " + e.name))
-                .anyMatch(e -> e.salary.compareTo(new BigDecimal("14000")) >= 0);
+        PipelineProbe probe = new PipelineProbe(PipelineProbe.Level.COUNTS, new PipelineProbe.Registry());
+        boolean found = probe.of("Q57 any >= 14k", EMP).anyMatch(e -> e.salary.compareTo(new BigDecimal("14000")) >= 0);
         System.out.println("Found high earner? " + found);
+        System.out.println(probe.registry().get("Q57 any >= 14k")); // source out = elements checked before the match
     }
 
     // Q58: Reusable predicates
     static void q58_reusablePredicates(List<Employee> EMP) {
         header("Q58 reusable predicates");
-        Predicate<Employee> isEng = e -> e.deptId == 10;
-        Predicate<Employee> highPay = e -> e.salary.compareTo(new BigDecimal("10000")) > 0;
-        List<Employee> result = EMP.stream().filter(isEng.and(highPay)).collect(Collectors.toList());
+        // compiled once per expression shape; the clauses read fields directly, no lambda chain
+        Predicate<Employee> isEngHighPay = CriteriaCompiler.predicate(Employee.class, "deptId == 10 && salary > 10000");
+        List<Employee> result = EMP.stream().filter(isEngHighPay).collect(Collectors.toList());
         System.out.println(result);
     }
 
@@ -823,8 +898,9 @@ public class EmployeeStreamPlaybook {
     // Q64: Window: top salaries per dept (another approach)
     static void q64_windowTopSalariesPerDept(List<Employee> EMP) {
         header("Q64 window top salaries per dept");
-        Map<Integer, List<Employee>> top = EMP.stream().collect(Collectors.groupingBy(e -> e.deptId));
-        top.replaceAll((k, v) -> v.stream().sorted(Comparator.comparing((Employee e) -> e.salary).reversed()).limit(1).collect(Collectors.toList()));
+        // PARTITION BY dept ORDER BY salary DESC, keep ROW_NUMBER() = 1
+        Map<Integer, List<Employee>> top = WindowFunctions.over(EMP, (Employee e) -> e.deptId,
+                Comparator.comparing((Employee e) -> e.salary).reversed()).topPerPartition(1);
         System.out.println(top);
     }
 
@@ -851,31 +927,33 @@ public class EmployeeStreamPlaybook {
             Collectors.groupingBy(Function.identity(), Collectors.counting())
         );
         System.out.println(freq);
+        // Approximate: employees per skill from a sample stratified by department (95% intervals)
+        System.out.println("~" + ApproxQuery.over(EMP, e -> e.deptId).seed(67).countEach(e -> e.skills).sample(0.5));
+        // Fixed-memory point estimates: a Count-Min sketch answers "how often" for any skill
+        Sketches.CountMin<String> cm = EMP.stream().flatMap(e -> e.skills.stream()).collect(Sketches.countMin(0.01, 0.01));
+        System.out.println("Count-Min Java=" + cm.estimate("Java") + " SQL=" + cm.estimate("SQL") + " Cobol=" + cm.estimate("Cobol"));
     }
 
     // Q68: Most common skill
     static void q68_mostCommonSkill(List<Employee> EMP) {
         header("Q68 most common skill");
-        String skill = EMP.stream().flatMap(e -> e.skills.stream())
-            .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
-            .entrySet().stream().max(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElse(null);
+        // heavy hitter from a Space-Saving summary instead of a full frequency map
+        String skill = EMP.stream().flatMap(e -> e.skills.stream()).collect(Sketches.topItems(1)).stream().findFirst().orElse(null);
         System.out.println(skill);
     }
 
     // Q69: Employee tenure in years
     static void q69_employeeTenureInYears(List<Employee> EMP) {
         header("Q69 tenure in years");
-        Map<String, Long> tenure = EMP.stream().collect(Collectors.toMap(e -> e.name, e -> ChronoUnit.YEARS.between(e.joinDate, LocalDate.now())));
+        Map<String, Long> tenure = EMP.stream().collect(Collectors.toMap(e -> e.name, e -> TimelineIndex.yearsSince(e.joinDate, CLOCK)));
         System.out.println(tenure);
     }
 
     // Q70: Group by tenure brackets
     static void q70_groupByTenureBrackets(List<Employee> EMP) {
         header("Q70 tenure buckets");
-        Function<Long, String> bucket = y -> y < 1 ? "<1y" : y < 3 ? "1-3y" : y < 5 ? "3-5y" : ">=5y";
-        Map<String, List<Employee>> byBucket = EMP.stream().collect(Collectors.groupingBy(
-            e -> bucket.apply(ChronoUnit.YEARS.between(e.joinDate, LocalDate.now()))
-        ));
+        // buckets are contiguous slices of the join-date order, found by binary search
+        Map<String, List<Employee>> byBucket = new TimelineIndex.Points<>(EMP, (Employee e) -> e.joinDate, CLOCK).yearBuckets(1, 3, 5);
         System.out.println(byBucket);
     }
 
@@ -883,8 +961,7 @@ public class EmployeeStreamPlaybook {
     static void q71_projectDurationDays(List<Employee> EMP) {
         header("Q71 project duration days");
         List<Project> projects = DataFactory.allProjects();
-        Map<String, Long> days = projects.stream().collect(Collectors.toMap(p -> p.name,
-            p -> ChronoUnit.DAYS.between(p.startDate, p.endDate == null ? LocalDate.now() : p.endDate)));
+        Map<String, Long> days = projects.stream().collect(Collectors.toMap(p -> p.name, p -> TimelineIndex.durationDays(p.startDate, p.endDate, CLOCK)));
         System.out.println(days);
     }
 
@@ -897,17 +974,25 @@ public class EmployeeStreamPlaybook {
     }
 
     // Q73: Build index by name -> employee (assume unique or last wins)
+    // The primary index is a concurrent id registry that writers may keep updating; the name view is
+    // built from one snapshot of it, so it never mixes records from before and after a write.
     static void q73_buildIndexByName(List<Employee> EMP) {
         header("Q73 index by name");
-        Map<String, Employee> idx = EMP.stream().collect(Collectors.toMap(e -> e.name, e -> e, (a,b)->b));
-        System.out.println(idx.keySet());
+        EmployeeRegistry<Employee> reg = new EmployeeRegistry<>(e -> e.id, e -> e.deptId, e -> e.skills);
+        reg.putAll(EMP);
+        try (EmployeeRegistry<Employee>.Snapshot snap = reg.snapshot()) {
+            Map<String, Employee> idx = snap.stream().collect(Collectors.toMap(e -> e.name, e -> e, (a,b)->b));
+            System.out.println(idx.keySet());
+        }
     }
 
     // Q74: Case-insensitive search by name (contains)
     static void q74_findByNameCaseInsensitive(List<Employee> EMP) {
         header("Q74 case-insensitive search");
         String q = "a";
-        List<Employee> res = EMP.stream().filter(e -> e.name.toLowerCase().contains(q)).collect(Collectors.toList());
+        // the cached index folded the names once per dataset, not per row per query; results in name order
+        NameIndex<Employee> idx = RESULTS.get(NAME_INDEX, EMP);
+        List<Employee> res = idx.contains(q, 0, Integer.MAX_VALUE);
         System.out.println(res);
     }
 
@@ -915,8 +1000,8 @@ public class EmployeeStreamPlaybook {
     static void q75_paginateSortedEmployees(List<Employee> EMP) {
         header("Q75 pagination");
         int page = 2, size = 3; // 1-based page index for demo
-        List<Employee> sorted = EMP.stream().sorted(Comparator.comparing(e -> e.name)).collect(Collectors.toList());
-        List<Employee> page2 = sorted.stream().skip((page-1L)*size).limit(size).collect(Collectors.toList());
+        // the pager is cached per dataset and sorts once; the page is a direct jump into that order
+        List<Employee> page2 = RESULTS.get(NAME_PAGER, EMP).pageAt("name", page, size).rows;
         System.out.println(page2);
     }
 
@@ -952,16 +1037,24 @@ public class EmployeeStreamPlaybook {
     // Q79: Cache intermediate results (collect then reuse)
     static void q79_cacheIntermediateResults(List<Employee> EMP) {
         header("Q79 cache intermediate");
-        List<Employee> eng = EMP.stream().filter(e -> e.deptId == 10).collect(Collectors.toList());
-        BigDecimal total = eng.stream().map(e -> e.salary).reduce(BigDecimal.ZERO, BigDecimal::add);
-        long cnt = eng.stream().count();
+        // bounded memo of the filtered members per dept; repeated aggregates reuse the same list
+        MemoCache<Integer, List<Employee>> byDept = MemoCache.<Integer, List<Employee>>builder().maximumSize(16)
+            .build(d -> Collections.unmodifiableList(EMP.stream().filter(e -> e.deptId == d).collect(Collectors.toList())));
+        BigDecimal total = byDept.get(10).stream().map(e -> e.salary).reduce(BigDecimal.ZERO, BigDecimal::add);
+        long cnt = byDept.get(10).size();
         System.out.println("Engineering count=" + cnt + ", total=" + total);
+        System.out.println(byDept.stats());
     }
 
     // Q80: Invert dept -> employees (map of dept name-> names)
     static void q80_invertDeptToEmployeesMap(List<Employee> EMP) {
         header("Q80 invert dept to names");
-        Map<String, List<String>> m = EMP.stream().collect(Collectors.groupingBy(e -> DEPTS.get(e.deptId).name, Collectors.mapping(e -> e.name, Collectors.toList())));
+        // join the cached dept -> names groups to the department table: one lookup per dept, not per row
+        Map<String, List<String>> m = new HashMap<>();
+        RESULTS.get(NAMES_BY_DEPT, EMP).forEach((id, names) -> {
+            Department d = depts().get(id);
+            if (d != null) m.put(d.name, names);
+        });
         System.out.println(m);
     }
 
@@ -1015,7 +1108,10 @@ public class EmployeeStreamPlaybook {
     // Q84: Group by first letter of name
     static void q84_groupByFirstLetter(List<Employee> EMP) {
         header("Q84 group by first letter");
-        Map<Character, List<String>> groups = EMP.stream().collect(Collectors.groupingBy(e -> e.name.charAt(0), Collectors.mapping(e -> e.name, Collectors.toList())));
+        // each letter is one contiguous range of the sorted name index
+        Map<Character, List<String>> groups = new LinkedHashMap<>();
+        RESULTS.get(NAME_INDEX, EMP).byFirstLetter()
+            .forEach((c, es) -> groups.put(c, es.stream().map(e -> e.name).collect(Collectors.toList())));
         System.out.println(groups);
     }
 
@@ -1046,12 +1142,22 @@ public class EmployeeStreamPlaybook {
     // Q88: Stream pipeline template (filter -> map -> sort -> collect)
     static void q88_streamPipelineTemplate(List<Employee> EMP) {
         header("Q88 template");
-        List<String> result = EMP.stream()
-            .filter(e -> e.active)
-            .map(e -> e.name)
-            .sorted()
-            .collect(Collectors.toList());
+        // the same shape, declared instead of hand-written: filter -> map -> sort
+        QueryPlanner.Table<Employee> emps = new QueryPlanner.Table<>("employees", EMP)
+            .column("id", e -> e.id).column("name", e -> e.name).column("deptId", e -> e.deptId)
+            .column("salary", e -> e.salary).column("active", e -> e.active)
+            .index("deptId");
+        List<Object> result = QueryPlanner.from(emps, "e").where("e.active", "=", true).orderBy("e.name").select("e.name").plan().values("e.name");
         System.out.println(result);
+        // a join exercises every rewrite: pushdown, index lookup, top-k and column pruning
+        QueryPlanner.Table<Department> depts = new QueryPlanner.Table<>("departments", depts().values())
+            .column("id", d -> d.id).column("name", d -> d.name).column("location", d -> d.location)
+            .index("id");
+        QueryPlanner.Plan top = QueryPlanner.from(emps, "e").join(depts, "d", "e.deptId", "d.id")
+            .where("e.deptId", "=", 10).where("e.active", "=", true).where("d.location", "=", "St. Louis")
+            .orderBy("e.salary desc").limit(2).select("e.name", "e.salary", "d.name").plan();
+        top.rows().forEach(r -> System.out.println(Arrays.toString(r)));
+        System.out.print(top.explain());
     }
 
     // Q89: When NOT to use streams (explain)
@@ -22,23 +22,24 @@ public class EmployeeStreamQ91to300 {
 
     static class Department {
         final int id; final String name; final String location;
-        Department(int id, String name, String location) { this.id=id; this.name=name; this.location=location; }
+        Department(int id, String name, String location) { this.id=id; this.name=SymbolDictionary.DEPARTMENTS.canonical(name); this.location=location; }
         @Override public String toString(){ return name+"("+location+")"; }
     }
 
     static class Project {
         final int id; final String name; final boolean billable; final LocalDate startDate; final LocalDate endDate; // null if ongoing
-        Project(int id, String name, boolean billable, LocalDate startDate, LocalDate endDate){ this.id=id; this.name=name; this.billable=billable; this.startDate=startDate; this.endDate=endDate; }
+        Project(int id, String name, boolean billable, LocalDate startDate, LocalDate endDate){ this.id=id; this.name=SymbolDictionary.PROJECTS.canonical(name); this.billable=billable; this.startDate=startDate; this.endDate=endDate; }
         @Override public String toString(){ return name + (billable?"[billable]":"[non-billable]"); }
     }
 
     static class Employee {
-        final int id; final String name; final Gender gender; final int age; final int deptId; final BigDecimal salary; final LocalDate joinDate; final boolean active; final Set<String> skills; final List<Project> projects;
+        final int id; final String name; final Gender gender; final int age; final int deptId; final BigDecimal salary; final LocalDate joinDate; final boolean active; final SymbolDictionary.SymbolSet skills; final List<Project> projects;
         Employee(int id, String name, Gender gender, int age, int deptId, BigDecimal salary, LocalDate joinDate, boolean active, Set<String> skills, List<Project> projects) {
             this.id=id; this.name=name; this.gender=gender; this.age=age; this.deptId=deptId; this.salary=salary; this.joinDate=joinDate; this.active=active;
-            this.skills = skills==null? new HashSet<>() : new HashSet<>(skills);
+            this.skills = SymbolDictionary.SKILLS.setOf(skills==null? Collections.emptySet() : skills); // sorted skill ids, no per-employee HashSet
             this.projects = projects==null? new ArrayList<>() : new ArrayList<>(projects);
         }
+        Employee withSalary(BigDecimal salary){ return new Employee(id, name, gender, age, deptId, salary, joinDate, active, skills, projects); } // copy, for EmployeeRegistry updates
         @Override public String toString(){ return String.format("%s{id=%d, dept=%d, age=%d, salary=%s}", name, id, deptId, age, salary); }
     }
 
@@ -86,42 +87,123 @@ public class EmployeeStreamQ91to300 {
                         new HashSet<>(Arrays.asList("Product","Leadership")), Arrays.asList(P.get(1), P.get(3)))
             );
         }
+        // employee id -> manager id (Julia heads the org)
+        static Map<Integer, Integer> managers(){
+            Map<Integer, Integer> m = new LinkedHashMap<>();
+            m.put(102, 110); m.put(103, 110); m.put(104, 110); m.put(108, 110);
+            m.put(101, 102); m.put(105, 102); m.put(109, 102);
+            m.put(106, 103); m.put(107, 104);
+            return m;
+        }
     }
 
-    static Map<Integer, Department> DEPTS = DataFactory.departments();
+    // departments and projects of this run's dataset; FastStart loads them on first use, not during class init
+    static Map<Integer, Department> depts(){ return FastStart.departments(); }
+    static List<Project> projects(){ return FastStart.projects(); }
+    // evaluation date for tenure/duration questions, fixed so the output is reproducible
+    static final java.time.Clock CLOCK = TimelineIndex.fixedAt(LocalDate.of(2025, 1, 1));
 
     static void header(String t){ System.out.println("\n== "+t+" =="); }
 
     // --- Entry Point --------------------------------------------------------
     public static void main(String[] args) throws Exception {
-        List<Employee> EMP = DataFactory.employees();
-
         if (args.length == 0) {
             System.out.println("Pass codes like Q123, or 'range Q91-Q110', or 'all'. For example:\n  java EmployeeStreamQ91to300 Q101 Q102\n  java EmployeeStreamQ91to300 range Q120-Q130\n  java EmployeeStreamQ91to300 all");
             return;
         }
+        // DataFactory, or the snapshot named by -Demp.snapshot (see FastStart)
+        List<Employee> EMP = FastStart.employees();
         if ("all".equalsIgnoreCase(args[0])) {
-            for (int i=91;i<=300;i++) run("Q"+i, EMP);
+            runBatch(IntStream.rangeClosed(91, 300), EMP);
             return;
         }
-        if ("range".equalsIgnoreCase(args[0]) && args.length>1 && args[1].matches("Q\\\d+-Q\\\d+")){
+        if ("range".equalsIgnoreCase(args[0]) && args.length>1 && args[1].matches("Q\\d+-Q\\d+")){
             String[] p = args[1].substring(1).split("-Q");
             int a = Integer.parseInt(p[0]); int b = Integer.parseInt(p[1]);
-            for (int i=a;i<=b;i++) run("Q"+i, EMP);
+            runBatch(IntStream.rangeClosed(a, b), EMP);
             return;
         }
         for (String code: args) run(code, EMP);
     }
 
+    static final Qs QS = new Qs(); // stateless, shared by every run
+
+    // intermediates shared by several queries, computed once per dataset (see QueryResultCache)
+    static final QueryResultCache RESULTS = new QueryResultCache(256);
+    static final QueryResultCache.Plan<List<Employee>, Map<Integer, List<Employee>>> BY_DEPT = QueryResultCache.plan("group by deptId", d -> {
+        Map<Integer, List<Employee>> m = d.stream().collect(Collectors.groupingBy(e -> e.deptId));
+        m.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        return Collections.unmodifiableMap(m);
+    });
+    // built once per dataset and only read afterwards (never add/remove on it), so the skill queries share it
+    static final QueryResultCache.Plan<List<Employee>, SkillIndex> SKILL_INDEX = QueryResultCache.plan("skill index", SkillIndex::new);
+    static final QueryResultCache.Plan<List<Employee>, NameIndex<Employee>> NAME_INDEX = QueryResultCache.plan("name index", d -> new NameIndex<>(d, e -> e.name));
+    static final QueryResultCache.Plan<List<Employee>, KeysetPager<Employee>> ID_PAGER = QueryResultCache.plan("pager by id", d -> new KeysetPager<>(d, KeysetPager.Order.byInt("id", e -> e.id, e -> e.id)));
+    // per-department aggregates of Q104, Q111, Q142 and Q196: one shared scan per dataset feeds them all
+    static final SharedScan<Employee> DEPT_SCAN = new SharedScan<>();
+    static final SharedScan.Key<Employee, Integer> SCAN_DEPT = DEPT_SCAN.key("dept", e -> e.deptId);
+    static final SharedScan.Handle<Map<Integer, Long>> ACTIVE_PER_DEPT = DEPT_SCAN.groupBy("active per dept", DEPT_SCAN.filter("active", e -> e.active), SCAN_DEPT, Collectors.counting());
+    static final SharedScan.Handle<Map<Integer, Double>> AVG_AGE_PER_DEPT = DEPT_SCAN.groupBy("avg age per dept", null, SCAN_DEPT, Collectors.averagingInt(e -> e.age));
+    static final SharedScan.Handle<Map<Integer, Optional<Employee>>> YOUNGEST_PER_DEPT = DEPT_SCAN.groupBy("min age per dept", null, SCAN_DEPT, Collectors.minBy(Comparator.comparingInt(e -> e.age)));
+    static final SharedScan.Handle<Map<Integer, BigDecimal>> ANNUAL_PAYROLL_PER_DEPT = DEPT_SCAN.groupBy("annual payroll per dept", null, SCAN_DEPT, Collectors.reducing(BigDecimal.ZERO, e -> e.salary.multiply(new BigDecimal("12")), BigDecimal::add));
+    static final QueryResultCache.Plan<List<Employee>, SharedScan.Results> DEPT_AGGREGATES = QueryResultCache.plan("dept shared scan", d -> DEPT_SCAN.run(d));
+    static final QueryResultCache.Plan<List<Employee>, Map<Integer, List<String>>> NAMES_BY_DEPT = QueryResultCache.plan("group by deptId -> names", d -> {
+        Map<Integer, List<String>> m = new LinkedHashMap<>();
+        RESULTS.get(BY_DEPT, d).forEach((k, v) -> m.put(k, Collections.unmodifiableList(v.stream().map(e -> e.name).collect(Collectors.toList()))));
+        return Collections.unmodifiableMap(m);
+    });
+
     static void run(String code, List<Employee> EMP) throws Exception {
+        int n;
         try {
-            int n = Integer.parseInt(code.substring(1));
-            new Qs().run(n, EMP);
+            n = Integer.parseInt(code.substring(1));
         } catch(Exception ex){
             System.out.println("Bad code: "+code+" -> "+ex);
+            return;
+        }
+        try {
+            QS.run(n, EMP);
+        } catch(Exception ex){
+            System.out.println("Failed: "+code+" -> "+ex);
         }
     }
 
+    // Many queries: run them concurrently on a work-stealing pool, print outputs in order, then a timing report.
+    // Priorities and deadlines come from rules like Q120-Q130:5,Q296:-1 (later rules win):
+    //   -Dbatch.priority=...   higher runs first, default 0
+    //   -Dbatch.deadline=...   500ms, 30s or 2m from batch start, default BATCH_DEADLINE
+    static final Duration BATCH_DEADLINE = Duration.ofSeconds(30);
+
+    static void runBatch(IntStream qs, List<Employee> EMP) throws InterruptedException {
+        Map<Integer, String> priorities = batchRules("batch.priority"), deadlines = batchRules("batch.deadline");
+        QueryBatchScheduler<List<Employee>> batch = new QueryBatchScheduler<>(Runtime.getRuntime().availableProcessors());
+        qs.forEach(i -> batch.add("Q"+i, Integer.parseInt(priorities.getOrDefault(i, "0")),
+            deadlines.containsKey(i) ? duration(deadlines.get(i)) : BATCH_DEADLINE, data -> QS.run(i, data)));
+        QueryBatchScheduler.BatchReport report = batch.run(Collections.unmodifiableList(EMP), Duration.ofMinutes(5));
+        report.printOutputs(System.out);
+        report.printSummary(System.out);
+    }
+
+    // "Q120-Q130:5,Q296:-1" -> {120=5, ..., 130=5, 296=-1}
+    static Map<Integer, String> batchRules(String property) {
+        Map<Integer, String> rules = new HashMap<>();
+        for (String rule : System.getProperty(property, "").split(",")) {
+            if (rule.isBlank()) continue;
+            java.util.regex.Matcher m = java.util.regex.Pattern.compile("Q(\\d+)(?:-Q(\\d+))?:(\\S+)").matcher(rule.trim());
+            if (!m.matches()) throw new IllegalArgumentException(property + ": bad rule '" + rule + "', expected Qa[-Qb]:value");
+            int from = Integer.parseInt(m.group(1)), to = m.group(2) == null ? from : Integer.parseInt(m.group(2));
+            for (int q = from; q <= to; q++) rules.put(q, m.group(3));
+        }
+        return rules;
+    }
+
+    static Duration duration(String s) {
+        if (s.endsWith("ms")) return Duration.ofMillis(Long.parseLong(s.substring(0, s.length() - 2)));
+        if (s.endsWith("s")) return Duration.ofSeconds(Long.parseLong(s.substring(0, s.length() - 1)));
+        if (s.endsWith("m")) return Duration.ofMinutes(Long.parseLong(s.substring(0, s.length() - 1)));
+        throw new IllegalArgumentException("bad duration '" + s + "', expected e.g. 500ms, 30s or 2m");
+    }
+
     // -------------------- IMPLEMENTATIONS Q91..Q300 ------------------------
     static class Qs {
         void run(int q, List<Employee> EMP) throws Exception {
@@ -152,16 +234,16 @@ public class EmployeeStreamQ91to300 {
                 case 206: q206(EMP); break; case 207: q207(EMP); break; case 208: q208(EMP); break; case 209: q209(EMP); break; case 210: q210(EMP); break;
                 case 211: q211(EMP); break; case 212: q212(EMP); break; case 213: q213(EMP); break; case 214: q214(); break; case 215: q215(); break;
                 case 216: q216(EMP); break; case 217: q217(EMP); break; case 218: q218(EMP); break; case 219: q219(); break; case 220: q220(EMP); break;
-                case 221: q221(EMP); break; case 222: q222(EMP); break; case 223: q223(EMP); break; case 224: q224(); break; case 225: q225(); break;
+                case 221: q221(EMP); break; case 222: q222(EMP); break; case 223: q223(EMP); break; case 224: q224(); break; case 225: q225(EMP); break;
                 case 226: q226(); break; case 227: q227(EMP); break; case 228: q228(EMP); break; case 229: q229(EMP); break; case 230: q230(EMP); break;
                 case 231: q231(EMP); break; case 232: q232(); break; case 233: q233(EMP); break; case 234: q234(EMP); break; case 235: q235(); break;
-                case 236: q236(EMP); break; case 237: q237(); break; case 238: q238(EMP); break; case 239: q239(); break; case 240: q240(); break;
+                case 236: q236(EMP); break; case 237: q237(EMP); break; case 238: q238(EMP); break; case 239: q239(); break; case 240: q240(); break;
                 case 241: q241(); break; case 242: q242(); break; case 243: q243(EMP); break; case 244: q244(EMP); break; case 245: q245(); break;
-                case 246: q246(EMP); break; case 247: q247(); break; case 248: q248(EMP); break; case 249: q249(); break; case 250: q250(EMP); break;
-                case 251: q251(EMP); break; case 252: q252(); break; case 253: q253(); break; case 254: q254(EMP); break; case 255: q255(EMP); break;
+                case 246: q246(EMP); break; case 247: q247(); break; case 248: q248(EMP); break; case 249: q249(EMP); break; case 250: q250(EMP); break;
+                case 251: q251(EMP); break; case 252: q252(EMP); break; case 253: q253(); break; case 254: q254(EMP); break; case 255: q255(EMP); break;
                 case 256: q256(); break; case 257: q257(EMP); break; case 258: q258(); break; case 259: q259(EMP); break; case 260: q260(EMP); break;
-                case 261: q261(EMP); break; case 262: q262(EMP); break; case 263: q263(EMP); break; case 264: q264(); break; case 265: q265(EMP); break;
-                case 266: q266(); break; case 267: q267(); break; case 268: q268(EMP); break; case 269: q269(); break; case 270: q270(EMP); break;
+                case 261: q261(EMP); break; case 262: q262(EMP); break; case 263: q263(EMP); break; case 264: q264(EMP); break; case 265: q265(EMP); break;
+                case 266: q266(); break; case 267: q267(EMP); break; case 268: q268(EMP); break; case 269: q269(); break; case 270: q270(EMP); break;
                 case 271: q271(EMP); break; case 272: q272(EMP); break; case 273: q273(EMP); break; case 274: q274(EMP); break; case 275: q275(EMP); break;
                 case 276: q276(); break; case 277: q277(); break; case 278: q278(EMP); break; case 279: q279(); break; case 280: q280(); break;
                 case 281: q281(EMP); break; case 282: q282(EMP); break; case 283: q283(EMP); break; case 284: q284(EMP); break; case 285: q285(EMP); break;
@@ -175,32 +257,32 @@ public class EmployeeStreamQ91to300 {
         // Implementations (reuse logic from our plan)
         void q91(List<Employee> EMP){ header("Q91 TreeMap id->name"); System.out.println(EMP.stream().collect(Collectors.toMap(e->e.id,e->e.name,(a,b)->a,TreeMap::new))); }
         void q92(List<Employee> EMP){ header("Q92 side-effects vs collectors"); List<String> unsafe=Collections.synchronizedList(new ArrayList<>()); EMP.parallelStream().forEach(e->unsafe.add(e.name)); List<String> safe=EMP.parallelStream().map(e->e.name).collect(Collectors.toList()); System.out.println("unsafe="+unsafe.size()+", safe="+safe.size()); }
-        void q93(List<Employee> EMP){ header("Q93 template filter->map->sort"); System.out.println(EMP.stream().filter(e->e.active).map(e->e.name).sorted().collect(Collectors.toList())); }
+        void q93(List<Employee> EMP){ header("Q93 template filter->map->sort"); QueryPlanner.Plan p=QueryPlanner.from(QueryPlanner.employees(EMP),"e").where("e.active","=",true).orderBy("e.name").select("e.name").plan(); System.out.println(p.values("e.name")); System.out.print(p.explain()); }
         void q94(){ header("Q94 for-loop clearer for adjacent pairs"); System.out.println("Prefer for-loop for neighbor-dependent logic"); }
         void q95(){ header("Q95 checklist"); System.out.println("Side-effect free, right collector, BigDecimal for money, parallel only with payoff"); }
-        void q96(List<Employee> EMP){ header("Q96 List->Map id->Employee"); System.out.println(EMP.stream().collect(Collectors.toMap(e->e.id, e->e)).size()); }
+        void q96(List<Employee> EMP){ header("Q96 List->Map id->Employee"); EmployeeRegistry<Employee> reg=EmployeeRegistry.employees(EMP); try(EmployeeRegistry<Employee>.Snapshot snap=reg.snapshot()){ System.out.println(snap.stream().count()+", id 105 -> "+reg.get(105)); } }
         void q97(List<Employee> EMP){ header("Q97 salaries list"); System.out.println(EMP.stream().map(e->e.salary).collect(Collectors.toList())); }
         void q98(List<Employee> EMP){ header("Q98 all project names"); System.out.println(EMP.stream().flatMap(e->e.projects.stream()).map(p->p.name).collect(Collectors.toSet())); }
         void q99(List<Employee> EMP){ header("Q99 youngest"); System.out.println(EMP.stream().min(Comparator.comparingInt(e->e.age)).orElse(null)); }
         void q100(List<Employee> EMP){ header("Q100 oldest"); System.out.println(EMP.stream().max(Comparator.comparingInt(e->e.age)).orElse(null)); }
-        void q101(List<Employee> EMP){ header("Q101 avg salary by gender"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.gender, Collectors.averagingDouble(e->e.salary.doubleValue())))); }
+        void q101(List<Employee> EMP){ header("Q101 avg salary by gender"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.gender, Collectors.averagingDouble(e->e.salary.doubleValue())))); System.out.println("~" + ApproxQuery.over(EMP, e->e.deptId).seed(101).avg(e->e.gender, e->e.salary.doubleValue()).sample(0.5)); }
         void q102(List<Employee> EMP){ header("Q102 dept->highest earner name"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.maxBy(Comparator.comparing(e->e.salary)), o->o.map(x->x.name).orElse(null))))); }
         void q103(List<Employee> EMP){ header("Q103 dept->ages sorted"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.age, Collectors.toList()), list->{Collections.sort(list); return list;})))); }
-        void q104(List<Employee> EMP){ header("Q104 active count per dept"); System.out.println(EMP.stream().filter(e->e.active).collect(Collectors.groupingBy(e->e.deptId, Collectors.counting()))); }
+        void q104(List<Employee> EMP){ header("Q104 active count per dept"); System.out.println(RESULTS.get(DEPT_AGGREGATES, EMP).get(ACTIVE_PER_DEPT)); }
         void q105(List<Employee> EMP){ header("Q105 dept->set of skills"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.skills, Collectors.toList()), list->list.stream().flatMap(Set::stream).collect(Collectors.toSet()))))); }
         void q106(List<Employee> EMP){ header("Q106 partition age >=30"); System.out.println(EMP.stream().collect(Collectors.partitioningBy(e->e.age>=30))); }
         void q107(List<Employee> EMP){ header("Q107 dept->billable vs non-billable counts"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.projects, Collectors.toList()), list->list.stream().flatMap(List::stream).collect(Collectors.groupingBy(p->p.billable, Collectors.counting())))))); }
         void q108(List<Employee> EMP){ header("Q108 employees without projects"); System.out.println(EMP.stream().filter(e->e.projects.isEmpty()).map(e->e.name).collect(Collectors.toList())); }
         void q109(List<Employee> EMP){ header("Q109 joined in 2023"); System.out.println(EMP.stream().filter(e->e.joinDate.getYear()==2023).map(e->e.name).collect(Collectors.toList())); }
         void q110(List<Employee> EMP){ header("Q110 highest-paid active engineer"); System.out.println(EMP.stream().filter(e->e.active && e.deptId==10).max(Comparator.comparing(e->e.salary)).orElse(null)); }
-        void q111(List<Employee> EMP){ header("Q111 avg age per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.averagingInt(e->e.age)))); }
+        void q111(List<Employee> EMP){ header("Q111 avg age per dept"); System.out.println(RESULTS.get(DEPT_AGGREGATES, EMP).get(AVG_AGE_PER_DEPT)); }
         void q112(List<Employee> EMP){ header("Q112 median salary overall"); List<BigDecimal> s=EMP.stream().map(e->e.salary).sorted().collect(Collectors.toList()); BigDecimal med=s.size()%2==1?s.get(s.size()/2):s.get(s.size()/2-1).add(s.get(s.size()/2)).divide(new BigDecimal(2),2,RoundingMode.HALF_UP); System.out.println(med);}        
         void q113(List<Employee> EMP){ header("Q113 median salary per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.salary, Collectors.toList()), list->{ List<BigDecimal> t=new ArrayList<>(list); t.sort(Comparator.naturalOrder()); return t.size()%2==1?t.get(t.size()/2):t.get(t.size()/2-1).add(t.get(t.size()/2)).divide(new BigDecimal(2),2,RoundingMode.HALF_UP);} )))); }
         void q114(List<Employee> EMP){ header("Q114 percentile 90 salary"); List<BigDecimal> s=EMP.stream().map(e->e.salary).sorted().collect(Collectors.toList()); int idx=Math.min(s.size()-1,(int)Math.ceil(0.9*s.size())-1); System.out.println(s.get(idx)); }
-        void q115(List<Employee> EMP){ header("Q115 unique dept names"); System.out.println(EMP.stream().map(e->DEPTS.get(e.deptId).name).collect(Collectors.toSet())); }
+        void q115(List<Employee> EMP){ header("Q115 unique dept names"); System.out.println(EMP.stream().map(e->depts().get(e.deptId).name).collect(Collectors.toSet())); }
         void q116(List<Employee> EMP){ header("Q116 name->vowel count"); System.out.println(EMP.stream().collect(Collectors.toMap(e->e.name, e-> e.name.toLowerCase().chars().filter(c->"aeiou".indexOf(c)>=0).count()))); }
-        void q117(List<Employee> EMP){ header("Q117 top-5 most skilled"); System.out.println(EMP.stream().sorted(Comparator.comparingInt((Employee e)->e.skills.size()).reversed()).limit(5).map(e->e.name).collect(Collectors.toList())); }
-        void q118(List<Employee> EMP){ header("Q118 with skill SQL"); System.out.println(EMP.stream().filter(e->e.skills.contains("SQL")).map(e->e.name).collect(Collectors.toList())); }
+        void q117(List<Employee> EMP){ header("Q117 top-5 most skilled"); System.out.println(EMP.stream().collect(TopK.topK(5, Comparator.comparingInt((Employee e)->e.skills.size()))).stream().map(e->e.name).collect(Collectors.toList())); }
+        void q118(List<Employee> EMP){ header("Q118 with skill SQL"); SkillIndex idx=RESULTS.get(SKILL_INDEX, EMP); System.out.println(idx.employees(idx.skill("SQL")).stream().map(e->e.name).collect(Collectors.toList())); }
         void q119(List<Employee> EMP){ header("Q119 dept with max payroll"); Map<Integer,BigDecimal> totals=EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.reducing(BigDecimal.ZERO, e->e.salary, BigDecimal::add))); System.out.println(totals.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null)); }
         void q120(List<Employee> EMP){ header("Q120 (employee,project) pairs"); System.out.println(EMP.stream().flatMap(e->e.projects.stream().map(p->e.name+"->"+p.name)).collect(Collectors.toList())); }
         void q121(List<Employee> EMP){ header("Q121 sort by join date asc"); System.out.println(EMP.stream().sorted(Comparator.comparing(e->e.joinDate)).map(e->e.name).collect(Collectors.toList())); }
@@ -208,33 +290,33 @@ public class EmployeeStreamQ91to300 {
         void q123(List<Employee> EMP){ header("Q123 first joined after 2022-01-01"); System.out.println(EMP.stream().filter(e->e.joinDate.isAfter(LocalDate.of(2022,1,1))).findFirst().orElse(null)); }
         void q124(List<Employee> EMP){ header("Q124 any with >3 skills"); System.out.println(EMP.stream().anyMatch(e->e.skills.size()>3)); }
         void q125(List<Employee> EMP){ header("Q125 count billable projects"); System.out.println(EMP.stream().flatMap(e->e.projects.stream()).filter(p->p.billable).count()); }
-        void q126(List<Employee> EMP){ header("Q126 avg tenure years per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.averagingLong(e->java.time.temporal.ChronoUnit.YEARS.between(e.joinDate, LocalDate.now()))))); }
+        void q126(List<Employee> EMP){ header("Q126 avg tenure years per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.averagingLong(e->TimelineIndex.yearsSince(e.joinDate, CLOCK))))); }
         void q127(List<Employee> EMP){ header("Q127 most experienced per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.minBy(Comparator.comparing(e->e.joinDate)), o->o.orElse(null))))); }
-        void q128(List<Employee> EMP){ header("Q128 Eng missing Java"); System.out.println(EMP.stream().filter(e->e.deptId==10 && !e.skills.contains("Java")).map(e->e.name).collect(Collectors.toList())); }
+        void q128(List<Employee> EMP){ header("Q128 Eng missing Java"); SkillIndex idx=RESULTS.get(SKILL_INDEX, EMP); System.out.println(idx.employees(idx.dept(10).andNot(idx.skill("Java"))).stream().map(e->e.name).collect(Collectors.toList())); }
         void q129(List<Employee> EMP){ header("Q129 name->annual pay"); System.out.println(EMP.stream().map(e->e.name+":"+ e.salary.multiply(new BigDecimal("12"))).collect(Collectors.toList())); }
-        void q130(List<Employee> EMP){ header("Q130 top-3 skills per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.skills, Collectors.toList()), list->{ Map<String,Long> f=list.stream().flatMap(Set::stream).collect(Collectors.groupingBy(Function.identity(), Collectors.counting())); return f.entrySet().stream().sorted(Map.Entry.<String,Long>comparingByValue().reversed()).limit(3).map(Map.Entry::getKey).collect(Collectors.toList()); })))); }
-        void q131(List<Employee> EMP){ header("Q131 skill->employees"); System.out.println(EMP.stream().flatMap(e->e.skills.stream().map(s->new AbstractMap.SimpleEntry<>(s,e.name))).collect(Collectors.groupingBy(Map.Entry::getKey, Collectors.mapping(Map.Entry::getValue, Collectors.toList())))); }
+        void q130(List<Employee> EMP){ header("Q130 top-3 skills per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.flatMapping(e->e.skills.stream(), Sketches.topItems(3))))); }
+        void q131(List<Employee> EMP){ header("Q131 skill->employees"); SkillIndex idx=RESULTS.get(SKILL_INDEX, EMP); Map<String, List<String>> m=idx.skills().stream().collect(Collectors.toMap(s->s, s->idx.employees(idx.skill(s)).stream().map(e->e.name).collect(Collectors.toList()), (a,b)->a, LinkedHashMap::new)); System.out.println(m); }
         void q132(List<Employee> EMP){ header("Q132 name length stats"); System.out.println(EMP.stream().mapToInt(e->e.name.length()).summaryStatistics()); }
         void q133(){ header("Q133 duplicate ids demo"); System.out.println("Use toMap merge or throw"); }
         void q134(){ header("Q134 merge two lists dedupe by id"); System.out.println("Stream.of(l1,l2).flatMap(List::stream).collect(toMap(id, keep last))"); }
-        void q135(List<Employee> EMP){ header("Q135 chunk page3 size2"); List<Employee> s=EMP.stream().sorted(Comparator.comparing(e->e.id)).collect(Collectors.toList()); System.out.println(s.stream().skip((3-1)*2).limit(2).collect(Collectors.toList())); }
+        void q135(List<Employee> EMP){ header("Q135 chunk page3 size2"); System.out.println(RESULTS.get(ID_PAGER, EMP).pageAt("id", 3, 2).rows); }
         void q136(List<Employee> EMP){ header("Q136 validate salaries > 0"); System.out.println(EMP.stream().allMatch(e->e.salary.compareTo(BigDecimal.ZERO)>0)); }
         void q137(List<Employee> EMP){ header("Q137 inactive by salary desc"); System.out.println(EMP.stream().filter(e->!e.active).sorted(Comparator.comparing((Employee e)->e.salary).reversed()).collect(Collectors.toList())); }
         void q138(List<Employee> EMP){ header("Q138 first5 distinct skills"); System.out.println(EMP.stream().flatMap(e->e.skills.stream()).distinct().sorted().limit(5).collect(Collectors.toList())); }
-        void q139(List<Employee> EMP){ header("Q139 count by join year"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.joinDate.getYear(), Collectors.counting()))); }
+        void q139(List<Employee> EMP){ header("Q139 count by join year"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.joinDate.getYear(), Collectors.counting()))); System.out.println("~" + ApproxQuery.over(EMP, e->e.deptId).seed(139).count(e->e.joinDate.getYear()).sample(0.5)); }
         void q140(List<Employee> EMP){ header("Q140 csv names per dept sorted"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.name, Collectors.toList()), list->{Collections.sort(list); return String.join(",", list);} )))); }
         void q141(List<Employee> EMP){ header("Q141 dept->TreeSet names"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.mapping(e->e.name, Collectors.toCollection(TreeSet::new))))); }
-        void q142(List<Employee> EMP){ header("Q142 min age per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.minBy(Comparator.comparingInt(e->e.age))))); }
+        void q142(List<Employee> EMP){ header("Q142 min age per dept"); System.out.println(RESULTS.get(DEPT_AGGREGATES, EMP).get(YOUNGEST_PER_DEPT)); }
         void q143(List<Employee> EMP){ header("Q143 employees without any skill"); System.out.println(EMP.stream().filter(e->e.skills.isEmpty()).map(e->e.name).collect(Collectors.toList())); }
         void q144(List<Employee> EMP){ header("Q144 names on non-billable"); System.out.println(EMP.stream().filter(e->e.projects.stream().anyMatch(p->!p.billable)).map(e->e.name).collect(Collectors.toList())); }
         void q145(List<Employee> EMP){ header("Q145 total assignments"); System.out.println(EMP.stream().mapToLong(e->e.projects.size()).sum()); }
         void q146(List<Employee> EMP){ header("Q146 pairs same first letter"); Map<Character,List<Employee>> g=EMP.stream().collect(Collectors.groupingBy(e->e.name.charAt(0))); List<String> res=g.values().stream().flatMap(list->{ List<String> ps=new ArrayList<>(); for(int i=0;i<list.size();i++) for(int j=i+1;j<list.size();j++) ps.add(list.get(i).name+"+"+list.get(j).name); return ps.stream(); }).collect(Collectors.toList()); System.out.println(res); }
         void q147(List<Employee> EMP){ header("Q147 salary then name"); System.out.println(EMP.stream().sorted(Comparator.comparing((Employee e)->e.salary).thenComparing(e->e.name)).collect(Collectors.toList())); }
-        void q148(List<Employee> EMP){ header("Q148 cumulative salaries (loop)"); List<BigDecimal> s=EMP.stream().map(e->e.salary).collect(Collectors.toList()); List<BigDecimal> cum=new ArrayList<>(); BigDecimal acc=BigDecimal.ZERO; for(BigDecimal x:s){ acc=acc.add(x); cum.add(acc);} System.out.println(cum);}        
+        void q148(List<Employee> EMP){ header("Q148 cumulative salaries (parallel scan)"); System.out.println(EmployeeScans.runningTotal(EMP.stream(), e->e.salary, 2).collect(Collectors.toList())); }
         void q149(List<Employee> EMP){ header("Q149 parallel read-only"); System.out.println(EMP.parallelStream().map(e->e.name.toUpperCase()).collect(Collectors.toList())); }
         void q150(){ header("Q150 avoid shared state"); System.out.println("Prefer collectors over external mutation"); }
         void q151(List<Employee> EMP){ header("Q151 collectingAndThen"); System.out.println(EMP.stream().map(e->e.name).collect(Collectors.collectingAndThen(Collectors.toList(), list->{Collections.sort(list); return list;}))); }
-        void q152(List<Employee> EMP){ header("Q152 groupingBy+mapping"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.mapping(e->e.name, Collectors.toList())))); }
+        void q152(List<Employee> EMP){ header("Q152 groupingBy+mapping"); System.out.println(RESULTS.get(NAMES_BY_DEPT, EMP)); }
         void q153(List<Employee> EMP){ header("Q153 reducing identity/mapper/combiner"); System.out.println(EMP.stream().collect(Collectors.reducing(BigDecimal.ZERO, e->e.salary, BigDecimal::add))); }
         void q154(List<Employee> EMP){ header("Q154 summarizing vs averaging"); DoubleSummaryStatistics stats=EMP.stream().collect(Collectors.summarizingDouble(e->e.salary.doubleValue())); double avg=EMP.stream().collect(Collectors.averagingDouble(e->e.salary.doubleValue())); System.out.println(stats+" avg="+avg);}        
         void q155(List<Employee> EMP){ header("Q155 immutable map copy"); System.out.println(Collections.unmodifiableMap(EMP.stream().collect(Collectors.toMap(e->e.id,e->e.name)))); }
@@ -246,12 +328,12 @@ public class EmployeeStreamQ91to300 {
         void q161(List<Employee> EMP){ header("Q161 throw on duplicate ids"); System.out.println(EMP.stream().collect(Collectors.toMap(e->e.id,e->e,(x,y)->{throw new IllegalStateException("dup:"+x.id);})).size()); }
         void q162(List<Employee> EMP){ header("Q162 partition >1 project"); System.out.println(EMP.stream().collect(Collectors.partitioningBy(e->e.projects.size()>1))); }
         void q163(List<Employee> EMP){ header("Q163 avg project count by dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.averagingInt(e->e.projects.size())))); }
-        void q164(List<Employee> EMP){ header("Q164 names in top10% salary"); List<Employee> s=EMP.stream().sorted(Comparator.comparing((Employee e)->e.salary).reversed()).collect(Collectors.toList()); int k=Math.max(1,(int)Math.ceil(s.size()*0.10)); System.out.println(s.stream().limit(k).map(e->e.name).collect(Collectors.toList())); }
-        void q165(List<Employee> EMP){ header("Q165 normalize names"); System.out.println(EMP.stream().map(e->e.name.trim()).map(s->s.substring(0,1).toUpperCase()+s.substring(1).toLowerCase()).collect(Collectors.toList())); }
+        void q164(List<Employee> EMP){ header("Q164 names in top10% salary"); int k=Math.max(1,(int)Math.ceil(EMP.size()*0.10)); System.out.println(EMP.stream().collect(TopK.topK(k, Comparator.comparing((Employee e)->e.salary))).stream().map(e->e.name).collect(Collectors.toList())); }
+        void q165(List<Employee> EMP){ header("Q165 normalize names"); SymbolDictionary raw=new SymbolDictionary("name"); int[] ids=EMP.stream().mapToInt(e->raw.intern(e.name)).toArray(); String[] norm=new String[raw.size()]; for(int id=0; id<norm.length; id++){ String s=raw.name(id).trim(); norm[id]=s.substring(0,1).toUpperCase()+s.substring(1).toLowerCase(); } System.out.println(Arrays.stream(ids).mapToObj(id->norm[id]).collect(Collectors.toList())); }
         void q166(){ header("Q166 replace null skills"); List<Set<String>> L=Arrays.asList(new HashSet<>(Arrays.asList("A")), null, new HashSet<>()); System.out.println(L.stream().map(s->s==null?Collections.emptySet():s).collect(Collectors.toList())); }
         void q167(List<Employee> EMP){ header("Q167 join quarter buckets"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.joinDate.getYear()+"-Q"+((e.joinDate.getMonthValue()-1)/3+1), Collectors.counting()))); }
-        void q168(List<Employee> EMP){ header("Q168 group by city"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->DEPTS.get(e.deptId).location, Collectors.mapping(e->e.name, Collectors.toList())))); }
-        void q169(List<Employee> EMP){ header("Q169 city payroll"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->DEPTS.get(e.deptId).location, Collectors.reducing(BigDecimal.ZERO, e->e.salary, BigDecimal::add)))); }
+        void q168(List<Employee> EMP){ header("Q168 group by city"); System.out.println(StreamJoins.innerJoin(EMP.stream(), depts().values(), e->e.deptId, d->d.id, (e,d)->new AbstractMap.SimpleEntry<>(d.location, e.name)).collect(Collectors.groupingBy(Map.Entry::getKey, Collectors.mapping(Map.Entry::getValue, Collectors.toList())))); }
+        void q169(List<Employee> EMP){ header("Q169 city payroll"); System.out.println(StreamJoins.innerJoin(EMP.stream(), depts().values(), e->e.deptId, d->d.id, (e,d)->new AbstractMap.SimpleEntry<>(d.location, e.salary)).collect(Collectors.groupingBy(Map.Entry::getKey, Collectors.reducing(BigDecimal.ZERO, Map.Entry::getValue, BigDecimal::add)))); }
         void q170(){ header("Q170 overlapping skills pairs note"); System.out.println("Use double loop to intersect skill sets"); }
         void q171(List<Employee> EMP){ header("Q171 lookup join month"); java.time.format.DateTimeFormatter f=java.time.format.DateTimeFormatter.ofPattern("yyyy-MM"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.joinDate.format(f), Collectors.mapping(e->e.name, Collectors.toList())))); }
         void q172(List<Employee> EMP){ header("Q172 avg age of active"); System.out.println(EMP.stream().filter(e->e.active).mapToInt(e->e.age).average().orElse(0)); }
@@ -259,7 +341,7 @@ public class EmployeeStreamQ91to300 {
         void q174(List<Employee> EMP){ header("Q174 highest salary in Product"); System.out.println(EMP.stream().filter(e->e.deptId==20).max(Comparator.comparing(e->e.salary)).orElse(null)); }
         void q175(List<Employee> EMP){ header("Q175 payroll for Sales"); System.out.println(EMP.stream().filter(e->e.deptId==30).map(e->e.salary).reduce(BigDecimal.ZERO, BigDecimal::add)); }
         void q176(List<Employee> EMP){ header("Q176 sort by skills count desc"); System.out.println(EMP.stream().sorted(Comparator.comparingInt((Employee e)->e.skills.size()).reversed()).collect(Collectors.toList())); }
-        void q177(){ header("Q177 all project start dates"); System.out.println(DataFactory.allProjects().stream().map(p->p.startDate).collect(Collectors.toList())); }
+        void q177(){ header("Q177 all project start dates"); System.out.println(projects().stream().map(p->p.startDate).collect(Collectors.toList())); }
         void q178(List<Employee> EMP){ header("Q178 count names starting vowel"); System.out.println(EMP.stream().filter(e->"AEIOUaeiou".indexOf(e.name.charAt(0))>=0).count()); }
         void q179(List<Employee> EMP){ header("Q179 partition by age 30"); System.out.println(EMP.stream().collect(Collectors.partitioningBy(e->e.age>=30))); }
         void q180(List<Employee> EMP){ header("Q180 hash buckets (3)"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->Math.floorMod(e.name.hashCode(),3), Collectors.mapping(e->e.name, Collectors.toList())))); }
@@ -267,60 +349,60 @@ public class EmployeeStreamQ91to300 {
         void q182(List<Employee> EMP){ header("Q182 any zero projects?"); System.out.println(EMP.stream().anyMatch(e->e.projects.isEmpty())); }
         void q183(List<Employee> EMP){ header("Q183 exactly two projects"); System.out.println(EMP.stream().filter(e->e.projects.size()==2).map(e->e.name).collect(Collectors.toList())); }
         void q184(List<Employee> EMP){ header("Q184 dept->salaries sorted desc"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.salary, Collectors.toList()), list->{list.sort(Comparator.reverseOrder()); return list;})))); }
-        void q185(List<Employee> EMP){ header("Q185 CSV of all unique skills"); System.out.println(EMP.stream().flatMap(e->e.skills.stream()).distinct().sorted().collect(Collectors.joining(","))); }
-        void q186(List<Employee> EMP){ header("Q186 dept->count of distinct skills"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.skills, Collectors.toList()), list->list.stream().flatMap(Set::stream).distinct().count())))); }
+        void q185(List<Employee> EMP){ header("Q185 CSV of all unique skills"); BitSet ids=new BitSet(); EMP.forEach(e->e.skills.forEachId(ids::set)); System.out.println(ids.stream().mapToObj(SymbolDictionary.SKILLS::name).sorted().collect(Collectors.joining(","))); }
+        void q186(List<Employee> EMP){ header("Q186 dept->count of distinct skills"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.flatMapping(e->e.skills.stream(), Sketches.distinctCount(10))))); }
         void q187(List<Employee> EMP){ header("Q187 earliest joiner per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.minBy(Comparator.comparing(e->e.joinDate)), o->o.orElse(null))))); }
         void q188(List<Employee> EMP){ header("Q188 latest joiner per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.maxBy(Comparator.comparing(e->e.joinDate)), o->o.orElse(null))))); }
-        void q189(List<Employee> EMP){ header("Q189 avg tenure of active"); System.out.println(EMP.stream().filter(e->e.active).mapToLong(e->java.time.temporal.ChronoUnit.YEARS.between(e.joinDate, LocalDate.now())).average().orElse(0)); }
+        void q189(List<Employee> EMP){ header("Q189 avg tenure of active"); System.out.println(EMP.stream().filter(e->e.active).mapToLong(e->TimelineIndex.yearsSince(e.joinDate, CLOCK)).average().orElse(0)); }
         void q190(List<Employee> EMP){ header("Q190 validate positive ages"); System.out.println(EMP.stream().allMatch(e->e.age>0)); }
-        void q191(List<Employee> EMP){ header("Q191 dense rank by salary"); List<Employee> s=EMP.stream().sorted(Comparator.comparing((Employee e)->e.salary).reversed()).collect(Collectors.toList()); Map<BigDecimal,Integer> rank=new LinkedHashMap<>(); int r=0; BigDecimal prev=null; for(Employee e:s){ if(prev==null||e.salary.compareTo(prev)!=0){r++; prev=e.salary;} rank.putIfAbsent(e.salary,r);} System.out.println(s.stream().map(e->e.name+" rank="+rank.get(e.salary)).collect(Collectors.toList())); }
+        void q191(List<Employee> EMP){ header("Q191 dense rank by salary"); WindowFunctions<Employee,Boolean> w=WindowFunctions.over(EMP, Comparator.comparing((Employee e)->e.salary).reversed()); System.out.println(w.rows().stream().map(r->r.row.name+" rank="+r.denseRank).collect(Collectors.toList())); Employee top=w.rows().get(0).row, raised=EMP.get(EMP.size()-1).withSalary(top.salary); w.update(EMP.get(EMP.size()-1), raised); System.out.println("after "+raised.name+" matches "+top.name+": dense="+w.denseRank(raised)+", rank="+w.rank(raised)+", row="+w.rowNumber(raised)); }
         void q192(List<Employee> EMP){ header("Q192 salary z-scores"); List<Double> s=EMP.stream().map(e->e.salary.doubleValue()).collect(Collectors.toList()); double mean=s.stream().mapToDouble(x->x).average().orElse(0); double std=Math.sqrt(s.stream().mapToDouble(x->(x-mean)*(x-mean)).average().orElse(1)); System.out.println(s.stream().map(x->(x-mean)/(std==0?1:std)).map(z->String.format(Locale.US,"%.2f",z)).collect(Collectors.toList())); }
-        void q193(){ header("Q193 distinct projects"); System.out.println(DataFactory.allProjects().stream().map(p->p.name).distinct().collect(Collectors.toList())); }
+        void q193(){ header("Q193 distinct projects"); System.out.println(projects().stream().map(p->p.name).distinct().collect(Collectors.toList())); }
         void q194(List<Employee> EMP){ header("Q194 TreeSet of names"); System.out.println(EMP.stream().map(e->e.name).collect(Collectors.toCollection(TreeSet::new))); }
         void q195(List<Employee> EMP){ header("Q195 5% raise Engineering"); System.out.println(EMP.stream().filter(e->e.deptId==10).collect(Collectors.toMap(e->e.name, e->e.salary.multiply(new BigDecimal("1.05")).setScale(2,RoundingMode.HALF_UP)))); }
-        void q196(List<Employee> EMP){ header("Q196 annual payroll by dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.reducing(BigDecimal.ZERO, e->e.salary.multiply(new BigDecimal("12")), BigDecimal::add)))); }
+        void q196(List<Employee> EMP){ header("Q196 annual payroll by dept"); System.out.println(RESULTS.get(DEPT_AGGREGATES, EMP).get(ANNUAL_PAYROLL_PER_DEPT)); }
         void q197(List<Employee> EMP){ header("Q197 project with most employees"); Map<String,Long> c=EMP.stream().flatMap(e->e.projects.stream().map(p->p.name)).collect(Collectors.groupingBy(Function.identity(), Collectors.counting())); System.out.println(c.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null)); }
-        void q198(List<Employee> EMP){ header("Q198 employees per project (including zeros)"); Map<String,Long> c=EMP.stream().flatMap(e->e.projects.stream().map(p->p.name)).collect(Collectors.groupingBy(Function.identity(), Collectors.counting())); Map<String,Long> all=DataFactory.allProjects().stream().collect(Collectors.toMap(p->p.name, p->c.getOrDefault(p.name,0L))); System.out.println(all); }
+        void q198(List<Employee> EMP){ header("Q198 employees per project (including zeros)"); Map<String,Long> c=EMP.stream().flatMap(e->e.projects.stream().map(p->p.name)).collect(Collectors.groupingBy(Function.identity(), Collectors.counting())); Map<String,Long> all=projects().stream().collect(Collectors.toMap(p->p.name, p->c.getOrDefault(p.name,0L))); System.out.println(all); }
         void q199(List<Employee> EMP){ header("Q199 names on 'CardAuth'"); System.out.println(EMP.stream().filter(e->e.projects.stream().anyMatch(p->p.name.equals("CardAuth"))).map(e->e.name).collect(Collectors.toList())); }
         void q200(List<Employee> EMP){ header("Q200 dept->names by tenure desc"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.toList(), list->list.stream().sorted(Comparator.comparing((Employee e)->e.joinDate)).map(e->e.name).collect(Collectors.toList()))))); }
 
         void q201(List<Employee> EMP){ header("Q201 harmonic mean salary"); List<Double>s=EMP.stream().map(e->e.salary.doubleValue()).collect(Collectors.toList()); double denom=s.stream().mapToDouble(x->1.0/x).sum(); double hm=s.isEmpty()?0:s.size()/denom; System.out.println(String.format(Locale.US,"%.2f",hm)); }
         void q202(List<Employee> EMP){ header("Q202 salary quantiles"); List<BigDecimal>s=EMP.stream().map(e->e.salary).sorted().collect(Collectors.toList()); int n=s.size(); java.util.function.IntFunction<BigDecimal> at=i->s.get(Math.min(n-1,Math.max(0,i))); System.out.println("q25="+at.apply((int)Math.ceil(0.25*n)-1)+", q50="+at.apply((int)Math.ceil(0.5*n)-1)+", q75="+at.apply((int)Math.ceil(0.75*n)-1)); }
-        void q203(List<Employee> EMP){ header("Q203 sliding window avg note"); System.out.println("Prefer loops for sliding windows"); }
-        void q204(List<Employee> EMP){ header("Q204 k-most common skills (3)"); Map<String,Long> f=EMP.stream().flatMap(e->e.skills.stream()).collect(Collectors.groupingBy(Function.identity(), Collectors.counting())); System.out.println(f.entrySet().stream().sorted(Map.Entry.<String,Long>comparingByValue().reversed()).limit(3).collect(Collectors.toList())); }
-        void q205(List<Employee> EMP){ header("Q205 top-2 skills per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.skills, Collectors.toList()), list->{ Map<String,Long> f=list.stream().flatMap(Set::stream).collect(Collectors.groupingBy(Function.identity(), Collectors.counting())); return f.entrySet().stream().sorted(Map.Entry.<String,Long>comparingByValue().reversed()).limit(2).map(Map.Entry::getKey).collect(Collectors.toList()); })))); }
+        void q203(List<Employee> EMP){ header("Q203 sliding window avg (3 joins, by join date)"); double[] s=EMP.stream().sorted(Comparator.comparing(e->e.joinDate)).mapToDouble(e->e.salary.doubleValue()).toArray(); System.out.println(Arrays.stream(EmployeeScans.slidingAverage(s,3)).mapToObj(x->String.format(Locale.US,"%.2f",x)).collect(Collectors.toList())); }
+        void q204(List<Employee> EMP){ header("Q204 k-most common skills (3)"); System.out.println(EMP.stream().flatMap(e->e.skills.stream()).collect(Sketches.topK(3))); }
+        void q205(List<Employee> EMP){ header("Q205 top-2 skills per dept"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.flatMapping(e->e.skills.stream(), Sketches.topItems(2))))); }
         void q206(List<Employee> EMP){ header("Q206 min-max normalize salaries"); List<Double>s=EMP.stream().map(e->e.salary.doubleValue()).collect(Collectors.toList()); double min=s.stream().mapToDouble(x->x).min().orElse(0), max=s.stream().mapToDouble(x->x).max().orElse(1); System.out.println(s.stream().map(x->max==min?0:(x-min)/(max-min)).collect(Collectors.toList())); }
-        void q207(List<Employee> EMP){ header("Q207 bipartite edges"); System.out.println(EMP.stream().flatMap(e->e.projects.stream().map(p->e.name+"->"+p.name)).collect(Collectors.toList())); }
+        void q207(List<Employee> EMP){ header("Q207 bipartite edges"); List<String> edges=new ArrayList<>(); new OrgGraph(EMP, DataFactory.managers()).forEachMembership((e,p)->edges.add(e.name+"->"+p.name)); System.out.println(edges); }
         void q208(List<Employee> EMP){ header("Q208 only non-billable employees"); System.out.println(EMP.stream().filter(e->!e.projects.isEmpty() && e.projects.stream().allMatch(p->!p.billable)).map(e->e.name).collect(Collectors.toList())); }
         void q209(List<Employee> EMP){ header("Q209 validate unique names"); System.out.println(EMP.stream().map(e->e.name).distinct().count()==EMP.size()); }
-        void q210(List<Employee> EMP){ header("Q210 simple trie note"); System.out.println("Build via loops; streams feed inserts"); }
-        void q211(List<Employee> EMP){ header("Q211 Jaccard similarity of skills"); List<Employee>L=new ArrayList<>(EMP); for(int i=0;i<L.size();i++) for(int j=i+1;j<L.size();j++){ Set<String>a=L.get(i).skills,b=L.get(j).skills; Set<String> inter=new HashSet<>(a); inter.retainAll(b); Set<String> uni=new HashSet<>(a); uni.addAll(b); double J=uni.isEmpty()?0:(double)inter.size()/uni.size(); if(J>0) System.out.println(L.get(i).name+"-"+L.get(j).name+": "+String.format(Locale.US,"%.2f",J)); } }
+        void q210(List<Employee> EMP){ header("Q210 name index: autocomplete + contains"); NameIndex<Employee> idx=RESULTS.get(NAME_INDEX, EMP); System.out.println("complete(\"a\")="+idx.complete("a", 5)+", prefix(\"j\")="+idx.prefixCount("j")); System.out.println("contains(\"ann\")="+idx.contains("ann", 0, 10)); }
+        void q211(List<Employee> EMP){ header("Q211 Jaccard-similar skills (MinHash/LSH, J>=0.5)"); SkillSimilarity sim=SkillSimilarity.forThreshold(EMP, 0.5, 64, 42L); sim.similarPairs(0.5).forEach(System.out::println); }
         void q212(List<Employee> EMP){ header("Q212 outliers by MAD"); List<Double>s=EMP.stream().map(e->e.salary.doubleValue()).sorted().collect(Collectors.toList()); double m=s.get(s.size()/2); List<Double>d=s.stream().map(x->Math.abs(x-m)).sorted().collect(Collectors.toList()); double mad=d.get(d.size()/2); double thr=m+3*mad; System.out.println(">= "+thr); System.out.println(EMP.stream().filter(e->e.salary.doubleValue()>=thr).map(e->e.name).collect(Collectors.toList())); }
         void q213(List<Employee> EMP){ header("Q213 age histogram bins of 5"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->(e.age/5)*5, TreeMap::new, Collectors.counting()))); }
         void q214(){ header("Q214 stream from rows simulate"); System.out.println("Stream<Map<String,Object>> rows ..."); }
         void q215() throws IOException { header("Q215 dir file sizes"); Path dir=Files.createTempDirectory("d"); Files.write(dir.resolve("a.txt"), Arrays.asList("x")); Files.write(dir.resolve("b.txt"), Arrays.asList("y")); try(Stream<Path> st=Files.list(dir)){ System.out.println(st.collect(Collectors.toMap(p->p.getFileName().toString(), p->{ try{return Files.size(p);}catch(Exception ex){return -1L;} }))); } Files.walk(dir).sorted(Comparator.reverseOrder()).forEach(p->{ try{Files.deleteIfExists(p);}catch(Exception ig){} }); }
         void q216(List<Employee> EMP){ header("Q216 parallel calc safely"); System.out.println(EMP.parallelStream().map(e->Math.abs(e.name.hashCode())).collect(Collectors.toList()).size()); }
         void q217(List<Employee> EMP) throws IOException { header("Q217 write CSV per dept"); Path dir=Files.createTempDirectory("dept"); Map<Integer,List<String>> m=EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.mapping(e->e.id+","+e.name+","+e.salary, Collectors.toList()))); for(Map.Entry<Integer,List<String>> en: m.entrySet()) Files.write(dir.resolve("dept_"+en.getKey()+".csv"), en.getValue()); System.out.println("Wrote to "+dir); }
-        void q218(List<Employee> EMP){ header("Q218 city->highest paid active"); System.out.println(EMP.stream().filter(e->e.active).collect(Collectors.groupingBy(e->DEPTS.get(e.deptId).location, Collectors.collectingAndThen(Collectors.maxBy(Comparator.comparing(e->e.salary)), o->o.map(x->x.name).orElse(null))))); }
+        void q218(List<Employee> EMP){ header("Q218 city->highest paid active"); System.out.println(EMP.stream().filter(e->e.active).collect(Collectors.groupingBy(e->depts().get(e.deptId).location, Collectors.collectingAndThen(Collectors.maxBy(Comparator.comparing(e->e.salary)), o->o.map(x->x.name).orElse(null))))); }
         void q219(){ header("Q219 time-to-hire note"); System.out.println("Parse HR events and average per month"); }
-        void q220(List<Employee> EMP){ header("Q220 join employees with departments"); System.out.println(EMP.stream().map(e->e.name+"|"+DEPTS.get(e.deptId).name).collect(Collectors.toList())); }
-        void q221(List<Employee> EMP){ header("Q221 left join employees->projects"); System.out.println(EMP.stream().flatMap(e->e.projects.isEmpty()? Stream.of(e.name+"|<none>"): e.projects.stream().map(p->e.name+"|"+p.name)).collect(Collectors.toList())); }
+        void q220(List<Employee> EMP){ header("Q220 join employees with departments"); System.out.println(StreamJoins.innerJoin(EMP.stream(), depts().values(), e->e.deptId, d->d.id, (e,d)->e.name+"|"+d.name).collect(Collectors.toList())); }
+        void q221(List<Employee> EMP){ header("Q221 left join employees->projects"); List<Map.Entry<Integer,Project>> assignments=EMP.stream().flatMap(e->e.projects.stream().map(p->new AbstractMap.SimpleEntry<>(e.id,p))).collect(Collectors.toList()); System.out.println(StreamJoins.leftJoin(EMP.stream(), assignments, e->e.id, Map.Entry::getKey, (e,a)->e.name+"|"+(a==null?"<none>":a.getValue().name)).collect(Collectors.toList())); }
         void q222(List<Employee> EMP){ header("Q222 dedup by id keep most recent join"); System.out.println(EMP.stream().collect(Collectors.toMap(e->e.id, e->e, (a,b)-> a.joinDate.isAfter(b.joinDate)?a:b)).size()); }
         void q223(List<Employee> EMP){ header("Q223 distinct skills preserve insertion"); System.out.println(EMP.stream().flatMap(e->e.skills.stream()).collect(Collectors.toCollection(LinkedHashSet::new))); }
-        void q224(){ header("Q224 partition projects active vs finished"); System.out.println(DataFactory.allProjects().stream().collect(Collectors.partitioningBy(p->p.endDate==null))); }
-        void q225(){ header("Q225 switched departments note"); System.out.println("Need history data"); }
+        void q224(){ header("Q224 partition projects active vs finished"); TimelineIndex.Intervals<Project> t=new TimelineIndex.Intervals<>(projects(), p->p.startDate, p->p.endDate, CLOCK); Set<Integer> active=t.activeToday().stream().map(p->p.id).collect(Collectors.toSet()); System.out.println("as of "+t.today()+": "+projects().stream().collect(Collectors.partitioningBy(p->active.contains(p.id)))); }
+        void q225(List<Employee> EMP){ header("Q225 switched departments (registry history)"); EmployeeRegistry<Employee> reg=EmployeeRegistry.employees(EMP); try(EmployeeRegistry<Employee>.Snapshot before=reg.snapshot()){ java.util.function.BiFunction<Employee,Integer,Employee> move=(e,d)->new Employee(e.id,e.name,e.gender,e.age,d,e.salary,e.joinDate,e.active,e.skills,e.projects); reg.update(105, e->move.apply(e,20)); reg.update(107, e->move.apply(e,10)); try(EmployeeRegistry<Employee>.Snapshot after=reg.snapshot()){ System.out.println(before.stream().sorted(Comparator.comparingInt(e->e.id)).filter(e->after.get(e.id)!=null && after.get(e.id).deptId!=e.deptId).map(e->e.name+": "+depts().get(e.deptId).name+" -> "+depts().get(after.get(e.id).deptId).name).collect(Collectors.toList())); } } }
         void q226(){ header("Q226 benchmarking note"); System.out.println("Use System.nanoTime around stream vs loop"); }
-        void q227(List<Employee> EMP){ header("Q227 memoize mapping"); Map<String,Integer> cache=new ConcurrentHashMap<>(); Function<String,Integer> f=s->cache.computeIfAbsent(s, k->{ try{Thread.sleep(5);}catch(Exception ig){} return k.hashCode(); }); System.out.println(EMP.stream().map(e->f.apply(e.name)).collect(Collectors.toList()).size()); }
-        void q228(List<Employee> EMP){ header("Q228 adjacency >=2 shared skills"); List<Employee>L=new ArrayList<>(EMP); List<String> edges=new ArrayList<>(); for(int i=0;i<L.size();i++) for(int j=i+1;j<L.size();j++){ Set<String>a=L.get(i).skills,b=L.get(j).skills; Set<String> inter=new HashSet<>(a); inter.retainAll(b); if(inter.size()>=2) edges.add(L.get(i).name+"~"+L.get(j).name+" "+inter);} System.out.println(edges); }
+        void q227(List<Employee> EMP){ header("Q227 memoize mapping"); MemoCache<String,Integer> cache=MemoCache.<String,Integer>builder().maximumSize(64).expireAfterWrite(Duration.ofMinutes(10)).build(k->{ try{Thread.sleep(5);}catch(Exception ig){} return k.hashCode(); }); System.out.println(EMP.stream().map(e->cache.get(e.name)).collect(Collectors.toList()).size()); System.out.println(EMP.stream().map(e->cache.get(e.name)).collect(Collectors.toList()).size()+" again, cached="+cache.size()+" "+cache.stats()); }
+        void q228(List<Employee> EMP){ header("Q228 adjacency >=2 shared skills"); SkillSimilarity sim=new SkillSimilarity(EMP, 1, 1, 42L); System.out.println(sim.pairsSharingAtLeast(2).stream().map(p->p.a.name+"~"+p.b.name+" "+sim.sharedSkills(p.a,p.b)).collect(Collectors.toList())); }
         void q229(List<Employee> EMP){ header("Q229 JSON note"); System.out.println("Use Jackson/Gson externally; streams build DTOs"); }
-        void q230(List<Employee> EMP){ header("Q230 dynamic predicates"); Predicate<Employee> p=e->true; boolean onlyActive=true; Integer minAge=30; String skill="Java"; if(onlyActive)p=p.and(e->e.active); if(minAge!=null)p=p.and(e->e.age>=minAge); if(skill!=null)p=p.and(e->e.skills.contains(skill)); System.out.println(EMP.stream().filter(p).map(e->e.name).collect(Collectors.toList())); }
-        void q231(List<Employee> EMP){ header("Q231 dynamic comparator"); Comparator<Employee> c=Comparator.comparing((Employee e)->e.deptId).thenComparing(e->e.salary).thenComparing(e->e.name); System.out.println(EMP.stream().sorted(c).collect(Collectors.toList())); }
+        void q230(List<Employee> EMP){ header("Q230 dynamic predicates"); List<String> clauses=new ArrayList<>(); boolean onlyActive=true; Integer minAge=30; String skill="Java"; if(onlyActive)clauses.add("active"); if(minAge!=null)clauses.add("age >= "+minAge); if(skill!=null)clauses.add("skills has "+CriteriaCompiler.quote(skill)); Predicate<Employee> p=clauses.isEmpty()? e->true : CriteriaCompiler.predicate(Employee.class, String.join(" && ", clauses)); System.out.println(EMP.stream().filter(p).map(e->e.name).collect(Collectors.toList())); }
+        void q231(List<Employee> EMP){ header("Q231 dynamic comparator"); Comparator<Employee> c=CriteriaCompiler.comparator(Employee.class, "deptId, salary, name"); System.out.println(EMP.stream().sorted(c).collect(Collectors.toList())); }
         void q232(){ header("Q232 Luhn-like note"); System.out.println("Implement check with digit stream if needed"); }
         void q233(List<Employee> EMP){ header("Q233 salary growth note"); System.out.println("Needs salary history"); }
-        void q234(List<Employee> EMP){ header("Q234 emulate teeing (two-pass)"); double avg=EMP.stream().mapToDouble(e->e.salary.doubleValue()).average().orElse(0); double std=Math.sqrt(EMP.stream().mapToDouble(e->e.salary.doubleValue()).map(x->(x-avg)*(x-avg)).average().orElse(0)); System.out.println("avg="+avg+", std="+std); }
+        void q234(List<Employee> EMP){ header("Q234 teeing in one pass (shared scan)"); SharedScan<Employee> scan=new SharedScan<>(); SharedScan.Handle<DoubleSummaryStatistics> st=scan.aggregate("salary stats", null, Collectors.summarizingDouble(e->e.salary.doubleValue())); SharedScan.Handle<SharedScan.Moments> mo=scan.aggregate("salary moments", null, SharedScan.moments(e->e.salary.doubleValue())); SharedScan.Results r=scan.run(EMP); System.out.println("avg="+r.get(st).getAverage()+", std="+r.get(mo).stdDev()); }
         void q235(){ header("Q235 custom Spliterator note"); System.out.println("Beyond short demo"); }
         void q236(List<Employee> EMP){ header("Q236 groupingByConcurrent"); System.out.println(EMP.parallelStream().collect(Collectors.groupingByConcurrent(e->e.deptId, Collectors.counting()))); }
-        void q237(){ header("Q237 stable pagination note"); System.out.println("Snapshot first, then paginate"); }
+        void q237(List<Employee> EMP){ header("Q237 stable keyset pagination (salary desc, id)"); KeysetPager.Order<Employee,BigDecimal> bySalary=KeysetPager.Order.byDecimal("salary", (Employee e)->e.salary, e->e.id); KeysetPager<Employee> pager=new KeysetPager<>(EMP, bySalary.descending("salaryDesc")); KeysetPager.Page<Employee> p=pager.first("salaryDesc", 4); System.out.println(p.rows.stream().map(e->e.name).collect(Collectors.toList())); List<Employee> grown=new ArrayList<>(EMP); grown.add(0, new Employee(999, "Newcomer", Gender.OTHER, 30, 10, p.rows.get(0).salary.add(BigDecimal.ONE), LocalDate.of(2024,1,1), true, Collections.emptySet(), Collections.emptyList())); pager.reload(grown); System.out.println("after insert above the cursor: "+pager.after(p.next, 4).rows.stream().map(e->e.name).collect(Collectors.toList())); }
         void q238(List<Employee> EMP){ header("Q238 mapMulti emulation"); System.out.println(EMP.stream().flatMap(e->e.projects.isEmpty()? Stream.of(e.name+"|<none>"): e.projects.stream().map(p->e.name+"|"+p.name)).collect(Collectors.toList())); }
         void q239(){ header("Q239 one-shot streams note"); System.out.println("Collect to list if you need to traverse twice"); }
         void q240(){ header("Q240 reactive note"); System.out.println("Use Reactor/Flow outside JDK8"); }
@@ -329,43 +411,43 @@ public class EmployeeStreamQ91to300 {
         void q243(List<Employee> EMP){ header("Q243 short-circuit findFirst"); System.out.println(EMP.stream().filter(e->e.salary.compareTo(new BigDecimal("13000"))>0).findFirst().orElse(null)); }
         void q244(List<Employee> EMP){ header("Q244 Optional wrapper for exceptions"); Function<String,Optional<Integer>> safe=s->{ try{return Optional.of(Integer.parseInt(s));}catch(Exception ex){return Optional.empty();}}; System.out.println(Stream.of("10","x","20").map(safe).filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList())); }
         void q245(){ header("Q245 retry note"); System.out.println("Wrap with try/catch, avoid complex retries inside streams"); }
-        void q246(List<Employee> EMP){ header("Q246 group by (dept,year)"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId+"-"+e.joinDate.getYear(), Collectors.mapping(e->e.name, Collectors.toList())))); }
+        void q246(List<Employee> EMP){ header("Q246 group by (dept,year) + cube subtotals"); PackedGroupBy.KeyPacker<Employee> k=new PackedGroupBy.KeyPacker<>(PackedGroupBy.Dimension.ofInt("dept", 10, (Employee e)->e.deptId), PackedGroupBy.Dimension.ofInt("year", 12, (Employee e)->e.joinDate.getYear())); System.out.println(EMP.stream().collect(PackedGroupBy.groupBy(k, Collectors.mapping((Employee e)->e.name, Collectors.toList())))); PackedGroupBy.Result<Long> cube=EMP.parallelStream().collect(PackedGroupBy.cube(k, Collectors.counting())); System.out.println("dept="+cube.level(0b01)+", year="+cube.level(0b10)+", total="+cube.get(PackedGroupBy.ALL, PackedGroupBy.ALL)); }
         void q247(){ header("Q247 flatMap over map values"); Map<String,List<Integer>>m=new HashMap<>(); m.put("A",Arrays.asList(1,2)); m.put("B",Arrays.asList(3)); System.out.println(m.entrySet().stream().flatMap(en->en.getValue().stream()).collect(Collectors.toList())); }
-        void q248(List<Employee> EMP){ header("Q248 invert skill->names"); System.out.println(EMP.stream().flatMap(e->e.skills.stream().map(s->new AbstractMap.SimpleEntry<>(s,e.name))).collect(Collectors.groupingBy(Map.Entry::getKey, Collectors.mapping(Map.Entry::getValue, Collectors.toList())))); }
-        void q249(){ header("Q249 rolling headcount note"); System.out.println("Build monthly buckets and count active"); }
+        void q248(List<Employee> EMP){ header("Q248 invert skill->names"); SkillIndex idx=RESULTS.get(SKILL_INDEX, EMP); Map<String,List<String>> inv=new TreeMap<>(); for(String s: idx.skills()) inv.put(s, idx.employees(idx.skill(s)).stream().map(e->e.name).collect(Collectors.toList())); System.out.println(inv); }
+        void q249(List<Employee> EMP){ header("Q249 rolling headcount by join month"); Employee[] byJoin=EMP.stream().sorted(Comparator.comparing(e->e.joinDate)).toArray(Employee[]::new); int[] hc=EmployeeScans.runningCount(byJoin, e->e.active); Map<YearMonth,Integer> m=new TreeMap<>(); for(int i=0;i<byJoin.length;i++) m.put(YearMonth.from(byJoin[i].joinDate), hc[i]); System.out.println(m); }
         void q250(List<Employee> EMP){ header("Q250 partition on-call eligible"); System.out.println(EMP.stream().collect(Collectors.partitioningBy(e->e.skills.contains("Java") && e.age>=30))); }
-        void q251(List<Employee> EMP){ header("Q251 KPIs"); long active=EMP.stream().filter(e->e.active).count(); BigDecimal payroll=EMP.stream().map(e->e.salary).reduce(BigDecimal.ZERO, BigDecimal::add); double avgAge=EMP.stream().mapToInt(e->e.age).average().orElse(0); System.out.println("active="+active+", payroll="+payroll+", avgAge="+avgAge); }
-        void q252(){ header("Q252 circular org chart note"); System.out.println("Graph traversal beyond streams"); }
+        void q251(List<Employee> EMP){ header("Q251 KPIs (one shared scan)"); SharedScan<Employee> scan=new SharedScan<>(); SharedScan.Handle<Long> active=scan.aggregate("active", scan.filter("active", e->e.active), Collectors.counting()); SharedScan.Handle<BigDecimal> payroll=scan.aggregate("payroll", null, Collectors.reducing(BigDecimal.ZERO, e->e.salary, BigDecimal::add)); SharedScan.Handle<Double> avgAge=scan.aggregate("avgAge", null, Collectors.averagingInt(e->e.age)); SharedScan.Results r=scan.run(EMP); System.out.println("active="+r.get(active)+", payroll="+r.get(payroll)+", avgAge="+r.get(avgAge)); }
+        void q252(List<Employee> EMP){ header("Q252 circular org chart"); Map<Integer,Integer> mgr=new LinkedHashMap<>(DataFactory.managers()); System.out.println("cycles="+new OrgGraph(EMP, mgr).cycles()); mgr.put(110, 105); OrgGraph bad=new OrgGraph(EMP, mgr); System.out.println("after 110 -> 105: cycles="+bad.cycles()+", depth(106)="+bad.depth(106)+", chain(101)="+bad.chain(101)); }
         void q253(){ header("Q253 factorial via reduce"); int n=5; System.out.println(IntStream.rangeClosed(1,n).reduce(1,(a,b)->a*b)); }
         void q254(List<Employee> EMP){ header("Q254 longest name length"); System.out.println(EMP.stream().mapToInt(e->e.name.length()).max().orElse(0)); }
-        void q255(List<Employee> EMP){ header("Q255 letter counts across names"); System.out.println(EMP.stream().flatMap(e->e.name.chars().mapToObj(c->(char)c)).collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))); }
+        void q255(List<Employee> EMP){ header("Q255 letter counts across names"); System.out.println(EMP.stream().flatMap(e->e.name.chars().mapToObj(c->(char)c)).collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))); } // exact: at most one entry per letter
         void q256(){ header("Q256 parse CSV note"); System.out.println("Use Files.lines + split + map to Employee"); }
         void q257(List<Employee> EMP){ header("Q257 toCollection LinkedList"); System.out.println(EMP.stream().map(e->e.name).collect(Collectors.toCollection(java.util.LinkedList::new))); }
         void q258(){ header("Q258 weighted sum"); List<Integer> xs=Arrays.asList(1,2,3), ws=Arrays.asList(2,3,4); System.out.println(IntStream.range(0,xs.size()).map(i->xs.get(i)*ws.get(i)).sum()); }
-        void q259(List<Employee> EMP){ header("Q259 skills superset {Java,SQL}"); Set<String> req=new HashSet<>(Arrays.asList("Java","SQL")); System.out.println(EMP.stream().filter(e->e.skills.containsAll(req)).map(e->e.name).collect(Collectors.toList())); }
-        void q260(List<Employee> EMP){ header("Q260 pairs on same project"); List<String> rows=new ArrayList<>(); List<Employee>L=new ArrayList<>(EMP); for(int i=0;i<L.size();i++) for(int j=i+1;j<L.size();j++){ Set<String>a=L.get(i).projects.stream().map(p->p.name).collect(Collectors.toSet()); Set<String>b=L.get(j).projects.stream().map(p->p.name).collect(Collectors.toSet()); Set<String> inter=new HashSet<>(a); inter.retainAll(b); if(!inter.isEmpty()) rows.add(L.get(i).name+" & "+L.get(j).name+" -> "+inter);} System.out.println(rows);}        
+        void q259(List<Employee> EMP){ header("Q259 skills superset {Java,SQL}"); SkillIndex idx=RESULTS.get(SKILL_INDEX, EMP); System.out.println(idx.employees(idx.allOf("Java","SQL")).stream().map(e->e.name).collect(Collectors.toList())); }
+        void q260(List<Employee> EMP){ header("Q260 pairs on same project"); OrgGraph g=new OrgGraph(EMP, DataFactory.managers()); List<String> rows=new ArrayList<>(); for(Employee e:EMP) g.sharedProjects(e.id).forEach((w,ps)->{ if(w>e.id) rows.add(e.name+" & "+g.employee(w).name+" -> "+ps.stream().map(p->p.name).collect(Collectors.toList())); }); System.out.println(rows); System.out.println("pairs="+g.coMemberPairs()+", co-members per employee="+g.coMemberCounts()); }
         void q261(List<Employee> EMP){ header("Q261 project->distinct departments"); System.out.println(EMP.stream().flatMap(e->e.projects.stream().map(p->new AbstractMap.SimpleEntry<>(p.name,e.deptId))).collect(Collectors.groupingBy(Map.Entry::getKey, Collectors.mapping(Map.Entry::getValue, Collectors.toSet())))); }
         void q262(List<Employee> EMP){ header("Q262 dept->projects covered"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.projects, Collectors.toList()), list->list.stream().flatMap(List::stream).map(p->p.name).collect(Collectors.toSet()))))); }
-        void q263(List<Employee> EMP){ header("Q263 total billable days approx"); System.out.println(DataFactory.allProjects().stream().filter(p->p.billable).mapToLong(p->java.time.temporal.ChronoUnit.DAYS.between(p.startDate, p.endDate==null?LocalDate.now():p.endDate)).sum()); }
-        void q264(){ header("Q264 idle last 90 days note"); System.out.println("Need assignment dates timeline"); }
+        void q263(List<Employee> EMP){ header("Q263 total billable days approx"); System.out.println(projects().stream().filter(p->p.billable).mapToLong(p->TimelineIndex.durationDays(p.startDate, p.endDate, CLOCK)).sum()); }
+        void q264(List<Employee> EMP){ header("Q264 idle last 90 days"); List<Map.Entry<Employee,Project>> asg=EMP.stream().flatMap(e->e.projects.stream().map(p->(Map.Entry<Employee,Project>)new AbstractMap.SimpleEntry<>(e,p))).collect(Collectors.toList()); TimelineIndex.Intervals<Map.Entry<Employee,Project>> t=new TimelineIndex.Intervals<>(asg, a->a.getValue().startDate, a->a.getValue().endDate, CLOCK); Set<Integer> busy=t.overlapping(t.today().minusDays(90), t.today()).stream().map(a->a.getKey().id).collect(Collectors.toSet()); System.out.println(EMP.stream().filter(e->!busy.contains(e.id)).map(e->e.name).collect(Collectors.toList())); LocalDate d=LocalDate.of(2024,6,1); System.out.println("on a billable project on "+d+": "+t.activeOn(d).stream().filter(a->a.getValue().billable).map(a->a.getKey().name).distinct().collect(Collectors.toList())+" ("+t.countActiveOn(d)+" assignments)"); }
         void q265(List<Employee> EMP){ header("Q265 heatmap dept vs skill freq"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.skills, Collectors.toList()), list->list.stream().flatMap(Set::stream).collect(Collectors.groupingBy(Function.identity(), Collectors.counting())))))); }
         void q266(){ header("Q266 cohort retention note"); System.out.println("Needs exit dates"); }
-        void q267(){ header("Q267 org chart prep note"); System.out.println("Manager->reports data needed"); }
+        void q267(List<Employee> EMP){ header("Q267 org chart: depth, chain, payroll roll-up"); OrgGraph g=new OrgGraph(EMP, DataFactory.managers()); System.out.println("depths="+g.depths()); System.out.println("chain(101)="+g.chain(101)); System.out.println("payroll="+g.payrollRollup()); }
         void q268(List<Employee> EMP){ header("Q268 min/max via reduce"); Employee min=EMP.stream().reduce((a,b)->a.age<=b.age?a:b).orElse(null); Employee max=EMP.stream().reduce((a,b)->a.age>=b.age?a:b).orElse(null); System.out.println("min="+min+", max="+max); }
         void q269(){ header("Q269 stream reuse error"); Stream<String>s=Stream.of("a","b"); s.count(); try{s.count();}catch(IllegalStateException ex){System.out.println("Cannot reuse: "+ex.getMessage());} }
         void q270(List<Employee> EMP){ header("Q270 partitioningBy+mapping"); System.out.println(EMP.stream().collect(Collectors.partitioningBy(e->e.active, Collectors.mapping(e->e.name, Collectors.toList())))); }
-        void q271(List<Employee> EMP){ header("Q271 groupingBy -> top2 names by salary"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.toList(), list->list.stream().sorted(Comparator.comparing((Employee e)->e.salary).reversed()).limit(2).map(e->e.name).collect(Collectors.toList()))))); }
-        void q272(List<Employee> EMP){ header("Q272 first letter -> employees"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.name.charAt(0)))); }
-        void q273(List<Employee> EMP){ header("Q273 salary - dept avg"); Map<Integer,Double> avg=EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.averagingDouble(e->e.salary.doubleValue()))); System.out.println(EMP.stream().map(e->e.name+":"+String.format(Locale.US,"%.2f",(e.salary.doubleValue()-avg.get(e.deptId)))).collect(Collectors.toList())); }
-        void q274(List<Employee> EMP){ header("Q274 list->multimap (dept->employees)"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId))); }
+        void q271(List<Employee> EMP){ header("Q271 groupingBy -> top2 names by salary"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(TopK.topK(2, Comparator.comparing((Employee e)->e.salary)), top->top.stream().map(e->e.name).collect(Collectors.toList()))))); }
+        void q272(List<Employee> EMP){ header("Q272 first letter -> employees"); System.out.println(RESULTS.get(NAME_INDEX, EMP).byFirstLetter()); }
+        void q273(List<Employee> EMP){ header("Q273 salary - dept avg"); Map<Employee,WindowFunctions.Row<Employee,Integer>> w=WindowFunctions.over(EMP, (Employee e)->e.deptId, Comparator.comparing((Employee e)->e.id)).rows(e->e.salary.doubleValue()).stream().collect(Collectors.toMap(r->r.row, r->r)); System.out.println(EMP.stream().map(e->e.name+":"+String.format(Locale.US,"%.2f",(w.get(e).value-w.get(e).partitionAvg))).collect(Collectors.toList())); }
+        void q274(List<Employee> EMP){ header("Q274 list->multimap (dept->employees)"); System.out.println(RESULTS.get(BY_DEPT, EMP)); }
         void q275(List<Employee> EMP){ header("Q275 multimap->flat list"); Map<Integer,List<Employee>> m=EMP.stream().collect(Collectors.groupingBy(e->e.deptId)); System.out.println(m.values().stream().flatMap(List::stream).collect(Collectors.toList()).size()); }
         void q276(){ header("Q276 merge duplicates aggregate skills note"); System.out.println("toMap(id, e, merge union skills)"); }
         void q277(){ header("Q277 map vs flatMap"); System.out.println("map maps 1->1, flatMap 1->many"); }
         void q278(List<Employee> EMP){ header("Q278 reduce vs collector"); BigDecimal r=EMP.stream().map(e->e.salary).reduce(BigDecimal.ZERO, BigDecimal::add); BigDecimal c=EMP.stream().collect(Collectors.reducing(BigDecimal.ZERO, e->e.salary, BigDecimal::add)); System.out.println("reduce="+r+", collecting="+c); }
         void q279(){ header("Q279 why BigDecimal"); System.out.println("Precision for money"); }
         void q280(){ header("Q280 nullsFirst/nullsLast"); List<String>L=Arrays.asList("Bob",null,"Alice"); System.out.println(L.stream().sorted(Comparator.nullsFirst(Comparator.naturalOrder())).collect(Collectors.toList())); System.out.println(L.stream().sorted(Comparator.nullsLast(Comparator.naturalOrder())).collect(Collectors.toList())); }
-        void q281(List<Employee> EMP){ header("Q281 predicate combinators"); Predicate<Employee> p=e->e.active; p=p.and(e->e.age>=30).or(e->e.skills.contains("Leadership")); System.out.println(EMP.stream().filter(p).map(e->e.name).collect(Collectors.toList())); }
-        void q282(List<Employee> EMP){ header("Q282 precompute before grouping"); System.out.println(EMP.stream().map(e->new AbstractMap.SimpleEntry<>(e.deptId, e.name.toUpperCase())).collect(Collectors.groupingBy(Map.Entry::getKey, Collectors.mapping(Map.Entry::getValue, Collectors.toList())))); }
+        void q281(List<Employee> EMP){ header("Q281 predicate combinators"); Predicate<Employee> p=CriteriaCompiler.predicate(Employee.class, "active && age >= 30 || skills has 'Leadership'"); System.out.println(EMP.stream().filter(p).map(e->e.name).collect(Collectors.toList())); }
+        void q282(List<Employee> EMP){ header("Q282 precompute before grouping"); QueryPlanner.Plan p=QueryPlanner.from(QueryPlanner.employees(EMP),"e").derive("upper","e.name",n->((String)n).toUpperCase()).groupBy("e.deptId").aggregate("names",QueryPlanner.Agg.LIST,"upper").plan(); System.out.println(p.toMap()); System.out.print(p.explain()); }
         void q283(List<Employee> EMP){ header("Q283 simulate grouping+mapping two-pass"); Map<Integer,List<Employee>> g=EMP.stream().collect(Collectors.groupingBy(e->e.deptId)); System.out.println(g.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, en->en.getValue().stream().map(e->e.name).collect(Collectors.toList())))); }
         void q284(List<Employee> EMP){ header("Q284 method ref toString"); System.out.println(EMP.stream().map(Employee::toString).collect(Collectors.toList())); }
         void q285(List<Employee> EMP){ header("Q285 id->salary range"); Function<BigDecimal,String> b=s->s.doubleValue()<9000?"LOW":s.doubleValue()<12000?"MID":"HIGH"; System.out.println(EMP.stream().collect(Collectors.toMap(e->e.id, e->b.apply(e.salary)))); }
@@ -375,11 +457,11 @@ public class EmployeeStreamQ91to300 {
         void q289(List<Employee> EMP){ header("Q289 dept median ignoring outliers"); System.out.println(EMP.stream().collect(Collectors.groupingBy(e->e.deptId, Collectors.collectingAndThen(Collectors.mapping(e->e.salary, Collectors.toList()), list->{ List<BigDecimal>s=new ArrayList<>(list); s.sort(Comparator.naturalOrder()); if(s.size()>2){ int cut=Math.max(1,s.size()/10); s=s.subList(cut, s.size()-cut);} return s.get(s.size()/2);} )))); }
         void q290(List<Employee> EMP){ header("Q290 Gini coefficient"); List<Double>s=EMP.stream().map(e->e.salary.doubleValue()).sorted().collect(Collectors.toList()); double mean=s.stream().mapToDouble(x->x).average().orElse(1); double sum=0; for(int i=0;i<s.size();i++) for(int j=0;j<s.size();j++) sum+=Math.abs(s.get(i)-s.get(j)); double g=sum/(2*s.size()*s.size()*mean); System.out.println(String.format(Locale.US,"%.3f",g)); }
         void q291(List<Employee> EMP){ header("Q291 palindromic names"); System.out.println(EMP.stream().map(e->e.name).filter(n->new StringBuilder(n).reverse().toString().equalsIgnoreCase(n)).collect(Collectors.toList())); }
-        void q292(List<Employee> EMP){ header("Q292 random sample 3"); List<Employee>L=new ArrayList<>(EMP); Collections.shuffle(L); System.out.println(L.stream().limit(3).collect(Collectors.toList())); }
-        void q293(List<Employee> EMP){ header("Q293 shuffle employees"); List<Employee>L=new ArrayList<>(EMP); Collections.shuffle(L); System.out.println(L); }
+        void q292(List<Employee> EMP){ header("Q292 random sample 3"); System.out.println(EMP.stream().collect(ApproxQuery.reservoir(3, new Random()))); }
+        void q293(List<Employee> EMP){ header("Q293 shuffle employees"); System.out.println(EMP.stream().collect(ApproxQuery.shuffled(new Random()))); }
         void q294(List<Employee> EMP){ header("Q294 dropWhile salary < 10000 (emulated)"); List<Employee>s=EMP.stream().sorted(Comparator.comparing(e->e.salary)).collect(Collectors.toList()); int i=0; while(i<s.size() && s.get(i).salary.compareTo(new BigDecimal("10000"))<0) i++; System.out.println(s.subList(i,s.size())); }
         void q295(List<Employee> EMP){ header("Q295 takeWhile salary < 12000 (emulated)"); List<Employee>s=EMP.stream().sorted(Comparator.comparing(e->e.salary)).collect(Collectors.toList()); int i=0; while(i<s.size() && s.get(i).salary.compareTo(new BigDecimal("12000"))<0) i++; System.out.println(s.subList(0,i)); }
-        void q296(List<Employee> EMP){ header("Q296 time pipeline"); long t1=System.nanoTime(); long c=EMP.stream().filter(e->e.active).count(); long t2=System.nanoTime(); System.out.println("count="+c+" ns="+(t2-t1)); }
+        void q296(List<Employee> EMP){ header("Q296 time pipeline"); PipelineProbe probe=new PipelineProbe(PipelineProbe.Level.ALLOCATION, new PipelineProbe.Registry()); long c=probe.of("Q296 active", EMP.parallelStream()).filter("active", e->e.active).map("salary", e->e.salary).count(); System.out.println("count="+c); System.out.println(probe.registry().get("Q296 active")); }
         void q297(List<Employee> EMP){ header("Q297 presized collection"); ArrayList<String> list=new ArrayList<>(EMP.size()); list.addAll(EMP.stream().map(e->e.name).collect(Collectors.toList())); System.out.println(list.size()); }
         void q298(){ header("Q298 terminal op one-shot"); System.out.println("A stream cannot be reused after terminal op"); }
         void q299(List<Employee> EMP){ header("Q299 read-only vs copy"); List<Employee> ro=Collections.unmodifiableList(EMP); List<Employee> copy=new ArrayList<>(EMP); System.out.println("ro="+ro.size()+", copy="+copy.size()); }
@@ -0,0 +1,263 @@
+// FastStart.java
+// Launcher for short-lived report runs (the Q-queries), aimed at time to first result.
+// - snapshot: the DataFactory dataset written once to a compact binary file. Runs started with
+//   -Demp.snapshot=<file> read it instead of rebuilding the objects, on first use (holder class),
+//   so a query that never touches the data never pays for it.
+// - train / run: dynamic AppCDS (JDK 13+). "train" runs the given queries once in a child JVM with
+//   -XX:ArchiveClassesAtExit, archiving every class they loaded and (JDK 16+) the lambda proxy
+//   classes their call sites linked; "run" starts the queries with -XX:SharedArchiveFile, so those
+//   classes are mapped from the archive instead of being parsed, verified and spun again.
+// - bench: starts N fresh JVMs per mode (plain, snapshot, archive + snapshot) and reports the time
+//   from process start to the first result line. With --budget-ms the archived median must stay
+//   under the budget or the exit status is 1, which makes it usable as a startup regression test.
+//     java FastStart snapshot emp.snap
+//     java FastStart train app.jsa emp.snap Q101 Q152
+//     java FastStart run app.jsa emp.snap Q101
+//     java FastStart bench app.jsa emp.snap 10 --budget-ms 400 Q101
+// The Playbook and Q91to300 keep separate domain classes; a single run only loads one set, so the
+// duplication does not cost startup time and is left alone. The snapshot holds the Q91to300 model;
+// the Playbook builds its data in main and its DEPTS on first use, never during class initialization.
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+public class FastStart {
+
+    static final String SNAPSHOT_PROPERTY = "emp.snapshot";
+    private static final int MAGIC = 0x454D5053; // "EMPS"
+    private static final int FORMAT = 3;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) { usage(); return; }
+        switch (args[0]) {
+            case "snapshot":
+                write(Paths.get(args[1]), EmployeeStreamQ91to300.DataFactory.departments().values(), EmployeeStreamQ91to300.DataFactory.allProjects(), EmployeeStreamQ91to300.DataFactory.employees());
+                System.out.println("wrote " + Files.size(Paths.get(args[1])) + " bytes to " + args[1]);
+                break;
+            case "train":
+                requireArgs(args, 4);
+                Files.deleteIfExists(Paths.get(args[1]));
+                int code = child(Arrays.asList("-XX:ArchiveClassesAtExit=" + args[1], "-D" + SNAPSHOT_PROPERTY + "=" + args[2]), tail(args, 3)).inheritIO().start().waitFor();
+                System.out.println(code == 0 && Files.exists(Paths.get(args[1])) ? "archive " + args[1] + " (" + Files.size(Paths.get(args[1])) + " bytes)" : "training run failed: exit " + code);
+                break;
+            case "run":
+                requireArgs(args, 4);
+                System.exit(child(archiveFlags(args[1], args[2]), tail(args, 3)).inheritIO().start().waitFor());
+                break;
+            case "bench":
+                requireArgs(args, 5);
+                System.exit(bench(args));
+                break;
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("java FastStart snapshot <file>\n"
+            + "java FastStart train <archive.jsa> <snapshot> Q...\n"
+            + "java FastStart run <archive.jsa> <snapshot> Q...\n"
+            + "java FastStart bench <archive.jsa> <snapshot> <runs> [--budget-ms N] Q...");
+    }
+
+    private static void requireArgs(String[] args, int n) {
+        if (args.length < n) { usage(); throw new IllegalArgumentException("Expected at least " + (n - 1) + " arguments after " + args[0]); }
+    }
+
+    private static String[] tail(String[] args, int from) { return Arrays.copyOfRange(args, from, args.length); }
+
+    // --- Lazily loaded dataset ----------------------------------------------
+
+    // The employees for this run: from the snapshot named by -Demp.snapshot, else DataFactory.
+    static List<EmployeeStreamQ91to300.Employee> employees() { return Data.EMPLOYEES; }
+
+    static Map<Integer, EmployeeStreamQ91to300.Department> departments() { return Data.DEPARTMENTS; }
+
+    static List<EmployeeStreamQ91to300.Project> projects() { return Data.PROJECTS; }
+
+    // initialized on first use only (class initialization is lazy and thread-safe)
+    private static final class Data {
+        static final Map<Integer, EmployeeStreamQ91to300.Department> DEPARTMENTS;
+        static final List<EmployeeStreamQ91to300.Project> PROJECTS;
+        static final List<EmployeeStreamQ91to300.Employee> EMPLOYEES;
+
+        static {
+            String file = System.getProperty(SNAPSHOT_PROPERTY);
+            if (file == null) {
+                DEPARTMENTS = EmployeeStreamQ91to300.DataFactory.departments();
+                PROJECTS = EmployeeStreamQ91to300.DataFactory.allProjects();
+                EMPLOYEES = EmployeeStreamQ91to300.DataFactory.employees();
+            } else {
+                Map<Integer, EmployeeStreamQ91to300.Department> depts = new LinkedHashMap<>();
+                Map<Integer, EmployeeStreamQ91to300.Project> projects = new LinkedHashMap<>();
+                List<EmployeeStreamQ91to300.Employee> emps = new ArrayList<>();
+                try {
+                    read(Paths.get(file), depts, projects, emps);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Cannot read snapshot " + file, ex);
+                }
+                DEPARTMENTS = Collections.unmodifiableMap(depts);
+                PROJECTS = Collections.unmodifiableList(new ArrayList<>(projects.values()));
+                EMPLOYEES = Collections.unmodifiableList(emps);
+            }
+        }
+    }
+
+    // --- Snapshot format ----------------------------------------------------
+    // magic, format, departments, projects (all of them, plus any only reached through an employee;
+    // shared by reference), employees (project ids).
+    // Dates are epoch days (Long.MIN_VALUE = null); salaries are unscaled value + scale.
+
+    static void write(Path file, Collection<EmployeeStreamQ91to300.Department> depts, Collection<EmployeeStreamQ91to300.Project> allProjects,
+                      List<EmployeeStreamQ91to300.Employee> emps) throws IOException {
+        Map<Integer, EmployeeStreamQ91to300.Project> projects = new LinkedHashMap<>();
+        for (EmployeeStreamQ91to300.Project p : allProjects) projects.putIfAbsent(p.id, p);
+        for (EmployeeStreamQ91to300.Employee e : emps) for (EmployeeStreamQ91to300.Project p : e.projects) projects.putIfAbsent(p.id, p);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC); out.writeInt(FORMAT);
+            out.writeInt(depts.size());
+            for (EmployeeStreamQ91to300.Department d : depts) { out.writeInt(d.id); out.writeUTF(d.name); out.writeUTF(d.location); }
+            out.writeInt(projects.size());
+            for (EmployeeStreamQ91to300.Project p : projects.values()) {
+                out.writeInt(p.id); out.writeUTF(p.name); out.writeBoolean(p.billable); writeDate(out, p.startDate); writeDate(out, p.endDate);
+            }
+            out.writeInt(emps.size());
+            for (EmployeeStreamQ91to300.Employee e : emps) {
+                out.writeInt(e.id); out.writeUTF(e.name); out.writeByte(e.gender.ordinal()); out.writeInt(e.age); out.writeInt(e.deptId);
+                byte[] unscaled = e.salary.unscaledValue().toByteArray();
+                out.writeInt(e.salary.scale()); out.writeInt(unscaled.length); out.write(unscaled);
+                writeDate(out, e.joinDate); out.writeBoolean(e.active);
+                out.writeInt(e.skills.size());
+                for (String s : e.skills) out.writeUTF(s);
+                out.writeInt(e.projects.size());
+                for (EmployeeStreamQ91to300.Project p : e.projects) out.writeInt(p.id);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // element or byte count; a negative one means the file is corrupt, not an empty list
+    private static int count(DataInputStream in, Path file) throws IOException {
+        int n = in.readInt();
+        if (n < 0) throw new IOException(file + ": corrupt snapshot (count " + n + ")");
+        return n;
+    }
+
+    static void read(Path file, Map<Integer, EmployeeStreamQ91to300.Department> depts, Map<Integer, EmployeeStreamQ91to300.Project> projects,
+                     List<EmployeeStreamQ91to300.Employee> emps) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not an employee snapshot");
+            int format = in.readInt();
+            if (format != FORMAT) throw new IOException(file + ": snapshot format " + format + ", expected " + FORMAT + " (re-run FastStart snapshot)");
+            for (int i = in.readInt(); i > 0; i--) {
+                EmployeeStreamQ91to300.Department d = new EmployeeStreamQ91to300.Department(in.readInt(), in.readUTF(), in.readUTF());
+                depts.put(d.id, d);
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                EmployeeStreamQ91to300.Project p = new EmployeeStreamQ91to300.Project(in.readInt(), in.readUTF(), in.readBoolean(), readDate(in), readDate(in));
+                projects.put(p.id, p);
+            }
+            EmployeeStreamQ91to300.Gender[] genders = EmployeeStreamQ91to300.Gender.values();
+            for (int i = in.readInt(); i > 0; i--) {
+                int id = in.readInt(); String name = in.readUTF(); EmployeeStreamQ91to300.Gender g = genders[in.readByte()];
+                int age = in.readInt(), dept = in.readInt();
+                int scale = in.readInt();
+                byte[] unscaled = new byte[count(in, file)];
+                in.readFully(unscaled);
+                BigDecimal salary = new BigDecimal(new BigInteger(unscaled), scale);
+                LocalDate joined = readDate(in); boolean active = in.readBoolean();
+                List<String> skills = new ArrayList<>();
+                for (int s = count(in, file); s > 0; s--) skills.add(in.readUTF());
+                List<EmployeeStreamQ91to300.Project> ps = new ArrayList<>();
+                for (int p = count(in, file); p > 0; p--) {
+                    int pid = in.readInt();
+                    EmployeeStreamQ91to300.Project project = projects.get(pid);
+                    if (project == null) throw new IOException(file + ": employee " + id + " refers to unknown project " + pid);
+                    ps.add(project);
+                }
+                emps.add(new EmployeeStreamQ91to300.Employee(id, name, g, age, dept, salary, joined, active, new LinkedHashSet<>(skills), ps));
+            }
+        }
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate d) throws IOException { out.writeLong(d == null ? Long.MIN_VALUE : d.toEpochDay()); }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        long v = in.readLong();
+        return v == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(v);
+    }
+
+    // --- Child JVMs ---------------------------------------------------------
+
+    private static List<String> archiveFlags(String archive, String snapshot) {
+        if (!Files.exists(Paths.get(archive))) throw new IllegalArgumentException("No archive " + archive + "; run FastStart train first");
+        return Arrays.asList("-XX:SharedArchiveFile=" + archive, "-Xshare:auto", "-D" + SNAPSHOT_PROPERTY + "=" + snapshot);
+    }
+
+    private static ProcessBuilder child(List<String> jvmFlags, String[] queries) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.addAll(jvmFlags);
+        cmd.add("-cp"); cmd.add(System.getProperty("java.class.path"));
+        cmd.add(EmployeeStreamQ91to300.class.getName());
+        cmd.addAll(Arrays.asList(queries));
+        return new ProcessBuilder(cmd).redirectErrorStream(true);
+    }
+
+    // ms from start to the first line after the first "== Qnnn ==" header, or -1 if none appeared
+    private static long timeToFirstResult(ProcessBuilder pb) throws IOException, InterruptedException {
+        long t0 = System.nanoTime();
+        Process p = pb.start();
+        long ms = -1;
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            boolean header = false;
+            for (String line; (line = r.readLine()) != null; ) {
+                if (ms < 0 && header) ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+                if (line.startsWith("== ")) header = true;
+            }
+        }
+        if (p.waitFor() != 0) return -1;
+        return ms;
+    }
+
+    private static int bench(String[] args) throws IOException, InterruptedException {
+        String archive = args[1], snapshot = args[2];
+        int runs = Integer.parseInt(args[3]);
+        int q = 4;
+        long budget = -1;
+        if (args.length > q + 1 && args[q].equals("--budget-ms")) { budget = Long.parseLong(args[q + 1]); q += 2; }
+        String[] queries = tail(args, q);
+        if (queries.length == 0) throw new IllegalArgumentException("No queries to run");
+
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("plain", Collections.singletonList("-Xshare:auto"));
+        modes.put("snapshot", Collections.singletonList("-D" + SNAPSHOT_PROPERTY + "=" + snapshot));
+        modes.put("archive+snapshot", archiveFlags(archive, snapshot));
+        long archivedMedian = -1;
+        System.out.println(String.format(Locale.US, "%-18s %5s %8s %8s %8s", "mode", "runs", "median", "min", "max"));
+        for (Map.Entry<String, List<String>> m : modes.entrySet()) {
+            long[] t = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                t[i] = timeToFirstResult(child(m.getValue(), queries));
+                if (t[i] < 0) { System.out.println(m.getKey() + ": run " + (i + 1) + " failed or printed no result"); return 1; }
+            }
+            Arrays.sort(t);
+            long median = t[runs / 2];
+            if (m.getKey().equals("archive+snapshot")) archivedMedian = median;
+            System.out.println(String.format(Locale.US, "%-18s %5d %6dms %6dms %6dms", m.getKey(), runs, median, t[0], t[runs - 1]));
+        }
+        if (budget >= 0 && archivedMedian > budget) {
+            System.out.println("FAIL: time to first result " + archivedMedian + "ms exceeds budget " + budget + "ms");
+            return 1;
+        }
+        if (budget >= 0) System.out.println("OK: time to first result " + archivedMedian + "ms within budget " + budget + "ms");
+        return 0;
+    }
+}
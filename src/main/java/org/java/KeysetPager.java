@@ -0,0 +1,181 @@
+// KeysetPager.java
+// Keyset ("seek") pagination instead of sorted().skip((page-1)*size).limit(size).
+// - Each Order sorts by one key plus a unique id as tie-breaker, so the order is total and stable.
+// - The sorted order is built once per Order and cached until reload(); requests only binary-search it.
+// - A page returns an opaque cursor (URL-safe Base64 of order name, last key and last id). The next
+//   request seeks to the first row after that (key, id): O(log n + pageSize) at any depth, and rows
+//   inserted or removed before the cursor (after a reload) do not shift the following pages.
+//     KeysetPager<Employee> pager = new KeysetPager<>(EMP, KeysetPager.Order.byString("name", e -> e.name, e -> e.id));
+//     KeysetPager.Page<Employee> p = pager.first("name", 20);
+//     while (p.next != null) p = pager.after(p.next, 20);
+//     pager.pageAt("name", 7, 20);   // or pager.at("name", 120, 20): jump straight to a position
+// Thread-safe: the data is an immutable snapshot and caches are built at most once per snapshot.
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.*;
+
+public class KeysetPager<T> {
+
+    // A named sort order: key ascending (or descending), then id ascending.
+    static final class Order<T, K extends Comparable<? super K>> {
+        final String name; final boolean descending;
+        final Function<? super T, K> key; final ToIntFunction<? super T> id;
+        final Function<K, String> encode; final Function<String, K> decode;
+
+        Order(String name, boolean descending, Function<? super T, K> key, ToIntFunction<? super T> id,
+              Function<K, String> encode, Function<String, K> decode) {
+            if (name.indexOf('\n') >= 0) throw new IllegalArgumentException("order name must be a single line: " + name);
+            this.name = name; this.descending = descending; this.key = key; this.id = id; this.encode = encode; this.decode = decode;
+        }
+
+        static <T> Order<T, String> byString(String name, Function<? super T, String> key, ToIntFunction<? super T> id) {
+            return new Order<>(name, false, key, id, s -> s, s -> s);
+        }
+        static <T> Order<T, Integer> byInt(String name, ToIntFunction<? super T> key, ToIntFunction<? super T> id) {
+            return new Order<>(name, false, key::applyAsInt, id, String::valueOf, Integer::valueOf);
+        }
+        static <T> Order<T, BigDecimal> byDecimal(String name, Function<? super T, BigDecimal> key, ToIntFunction<? super T> id) {
+            return new Order<>(name, false, key, id, BigDecimal::toPlainString, BigDecimal::new);
+        }
+        static <T> Order<T, LocalDate> byDate(String name, Function<? super T, LocalDate> key, ToIntFunction<? super T> id) {
+            return new Order<>(name, false, key, id, LocalDate::toString, LocalDate::parse);
+        }
+
+        // Same key, reversed; ids stay ascending so ties keep a stable order.
+        Order<T, K> descending(String name) { return new Order<>(name, !descending, key, id, encode, decode); }
+
+        int compare(K k1, int id1, K k2, int id2) {
+            int c = k1.compareTo(k2);
+            if (descending) c = -c;
+            return c != 0 ? c : Integer.compare(id1, id2);
+        }
+    }
+
+    static final class Page<T> {
+        final List<T> rows; final String next; // next == null on the last page
+        Page(List<T> rows, String next) { this.rows = rows; this.next = next; }
+        @Override public String toString() { return rows + (next == null ? " (last)" : " next=" + next); }
+    }
+
+    // rows of one order, sorted, with the keys and ids extracted once
+    private static final class Sorted {
+        final Object[] rows; final Object[] keys; final int[] ids;
+        Sorted(Object[] rows, Object[] keys, int[] ids) { this.rows = rows; this.keys = keys; this.ids = ids; }
+    }
+
+    private final Map<String, Order<T, ?>> orders = new LinkedHashMap<>();
+    private volatile List<T> data;
+    private volatile Map<String, Sorted> sorted = new ConcurrentHashMap<>();
+
+    @SafeVarargs
+    KeysetPager(Collection<? extends T> data, Order<T, ?>... orders) {
+        for (Order<T, ?> o : orders)
+            if (this.orders.putIfAbsent(o.name, o) != null) throw new IllegalArgumentException("duplicate order: " + o.name);
+        reload(data);
+    }
+
+    // Replaces the data; sorted orders are rebuilt lazily. Existing cursors stay valid.
+    void reload(Collection<? extends T> newData) {
+        data = Collections.unmodifiableList(new ArrayList<>(newData));
+        sorted = new ConcurrentHashMap<>();
+    }
+
+    Set<String> orders() { return Collections.unmodifiableSet(orders.keySet()); }
+
+    // --- Paging -------------------------------------------------------------
+
+    Page<T> first(String order, int size) { return page(order(order), sorted(order(order)), 0, size); }
+
+    // The page right after the cursor's row, in the cursor's order.
+    Page<T> after(String cursor, int size) {
+        String[] parts = decodeCursor(cursor);
+        Order<T, ?> o = order(parts[0]);
+        return page(o, sorted(o), seek(o, parts[1], parts[2]), size);
+    }
+
+    // Direct jump to a 0-based position of the cached order: O(pageSize) at any depth, without walking
+    // the cursors of the pages before it. Unlike after(cursor), positions move when rows are added or
+    // removed before them; the returned page's cursor continues from wherever the jump landed.
+    Page<T> at(String order, int offset, int size) {
+        if (offset < 0) throw new IllegalArgumentException("offset must be >= 0: " + offset);
+        Order<T, ?> o = order(order);
+        Sorted s = sorted(o);
+        return page(o, s, Math.min(s.rows.length, offset), size);
+    }
+
+    // at() for UIs with page numbers (1-based)
+    Page<T> pageAt(String order, int pageNumber, int size) {
+        if (pageNumber < 1) throw new IllegalArgumentException("pageNumber must be >= 1: " + pageNumber);
+        return at(order, (int) Math.min(Integer.MAX_VALUE, (pageNumber - 1L) * size), size);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<T> page(Order<T, ?> o, Sorted s, int from, int size) {
+        if (size <= 0) throw new IllegalArgumentException("size must be > 0: " + size);
+        int to = (int) Math.min(s.rows.length, (long) from + size);
+        List<T> rows = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) rows.add((T) s.rows[i]);
+        String next = to < s.rows.length && to > from ? cursor(o, s.keys[to - 1], s.ids[to - 1]) : null;
+        return new Page<>(Collections.unmodifiableList(rows), next);
+    }
+
+    // first position strictly after (key, id)
+    @SuppressWarnings("unchecked")
+    private <K extends Comparable<? super K>> int seek(Order<T, K> o, String keyText, String idText) {
+        K key; int id;
+        try { key = o.decode.apply(keyText); id = Integer.parseInt(idText); }
+        catch (RuntimeException ex) { throw new IllegalArgumentException("Malformed cursor for order " + o.name, ex); }
+        Sorted s = sorted(o);
+        int lo = 0, hi = s.rows.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (o.compare((K) s.keys[mid], s.ids[mid], key, id) <= 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private Order<T, ?> order(String name) {
+        Order<T, ?> o = orders.get(name);
+        if (o == null) throw new IllegalArgumentException("Unknown order: " + name + " (known: " + orders.keySet() + ")");
+        return o;
+    }
+
+    private Sorted sorted(Order<T, ?> o) {
+        return sorted.computeIfAbsent(o.name, n -> sort(o, data));
+    }
+
+    private static <T, K extends Comparable<? super K>> Sorted sort(Order<T, K> o, List<T> rows) {
+        int n = rows.size();
+        Object[] keys = new Object[n]; int[] ids = new int[n];
+        Integer[] idx = new Integer[n];
+        for (int i = 0; i < n; i++) { keys[i] = Objects.requireNonNull(o.key.apply(rows.get(i)), "sort key"); ids[i] = o.id.applyAsInt(rows.get(i)); idx[i] = i; }
+        @SuppressWarnings("unchecked")
+        Comparator<Integer> cmp = (a, b) -> o.compare((K) keys[a], ids[a], (K) keys[b], ids[b]);
+        Arrays.sort(idx, cmp);
+        Object[] sRows = new Object[n], sKeys = new Object[n]; int[] sIds = new int[n];
+        for (int i = 0; i < n; i++) { sRows[i] = rows.get(idx[i]); sKeys[i] = keys[idx[i]]; sIds[i] = ids[idx[i]]; }
+        return new Sorted(sRows, sKeys, sIds);
+    }
+
+    // --- Cursor tokens ------------------------------------------------------
+
+    @SuppressWarnings("unchecked")
+    private static <T, K extends Comparable<? super K>> String cursor(Order<T, K> o, Object key, int id) {
+        String raw = o.name + "\n" + id + "\n" + o.encode.apply((K) key); // key last: it may contain '\n'
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // -> {order name, key text, id text}
+    private static String[] decodeCursor(String cursor) {
+        String raw;
+        try { raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8); }
+        catch (IllegalArgumentException ex) { throw new IllegalArgumentException("Malformed cursor", ex); }
+        String[] parts = raw.split("\n", 3);
+        if (parts.length != 3) throw new IllegalArgumentException("Malformed cursor");
+        return new String[] {parts[0], parts[2], parts[1]};
+    }
+}
@@ -0,0 +1,308 @@
+// MemoCache.java
+// Bounded memoization cache, a replacement for map.computeIfAbsent(key, slowLoader).
+// - Loads never run under a lock. A miss installs an incomplete future for the key, so concurrent
+//   callers of the same key wait on that one load (in-flight dedup) and other keys are not blocked.
+// - Size or weight bound with W-TinyLFU eviction: new entries enter a small LRU window; entries
+//   leaving the window compete with the main region's LRU victim, and the one seen less often
+//   (per a 4-bit count-min frequency sketch, halved periodically) is evicted. The main region is
+//   a segmented LRU: probation, and protected for entries hit again.
+// - expireAfterWrite, measured with a pluggable ticker (pass a fake one in tests).
+// - Stats: hits, misses, load successes/failures, total load time, evictions.
+//     MemoCache<String, Report> c = MemoCache.<String, Report>builder().maximumSize(10_000)
+//         .expireAfterWrite(Duration.ofMinutes(5)).build(this::buildReport);
+//     c.get("dept-10");  c.getAsync("dept-20").thenAccept(...);  c.stats();
+// Failed loads are not cached; the next get() retries. A loader must not get() its own key.
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.*;
+
+public class MemoCache<K, V> {
+
+    private static final class Entry<V> {
+        final CompletableFuture<V> value;
+        volatile long writtenAt = Long.MAX_VALUE; // set when the load completes; never expires while loading
+        int weight;                               // guarded by the policy lock
+        Entry(CompletableFuture<V> value) { this.value = value; }
+    }
+
+    static final class Stats {
+        final long hits, misses, loadSuccesses, loadFailures, totalLoadNanos, evictions;
+        Stats(long hits, long misses, long loadSuccesses, long loadFailures, long totalLoadNanos, long evictions) {
+            this.hits = hits; this.misses = misses; this.loadSuccesses = loadSuccesses; this.loadFailures = loadFailures;
+            this.totalLoadNanos = totalLoadNanos; this.evictions = evictions;
+        }
+        double hitRate() { long n = hits + misses; return n == 0 ? 1 : (double) hits / n; }
+        double averageLoadMillis() { long n = loadSuccesses + loadFailures; return n == 0 ? 0 : totalLoadNanos / 1e6 / n; }
+        @Override public String toString() {
+            return String.format(Locale.US, "hits=%d misses=%d hitRate=%.2f loads=%d failures=%d avgLoadMs=%.3f evictions=%d",
+                hits, misses, hitRate(), loadSuccesses, loadFailures, averageLoadMillis(), evictions);
+        }
+    }
+
+    static final class Builder<K, V> {
+        private long maximumWeight = Long.MAX_VALUE;
+        private ToIntBiFunction<? super K, ? super V> weigher = (k, v) -> 1;
+        private long expireAfterWriteNanos = Long.MAX_VALUE;
+        private LongSupplier ticker = System::nanoTime;
+        private Executor executor = ForkJoinPool.commonPool();
+
+        Builder<K, V> maximumSize(long size) { return maximumWeight(size, (k, v) -> 1); }
+
+        Builder<K, V> maximumWeight(long weight, ToIntBiFunction<? super K, ? super V> weigher) {
+            if (weight < 0) throw new IllegalArgumentException("maximum must be >= 0: " + weight);
+            this.maximumWeight = weight; this.weigher = Objects.requireNonNull(weigher);
+            return this;
+        }
+
+        Builder<K, V> expireAfterWrite(Duration d) {
+            if (d.isNegative()) throw new IllegalArgumentException("negative duration: " + d);
+            this.expireAfterWriteNanos = d.toNanos();
+            return this;
+        }
+
+        Builder<K, V> ticker(LongSupplier nanos) { this.ticker = Objects.requireNonNull(nanos); return this; }
+
+        // where getAsync() runs loads; get() always loads on the calling thread
+        Builder<K, V> executor(Executor executor) { this.executor = Objects.requireNonNull(executor); return this; }
+
+        MemoCache<K, V> build(Function<? super K, ? extends V> loader) { return new MemoCache<>(this, loader); }
+    }
+
+    static <K, V> Builder<K, V> builder() { return new Builder<>(); }
+
+    private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+    private final Function<? super K, ? extends V> loader;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final LongSupplier ticker;
+    private final Executor executor;
+    private final Policy policy;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), loadSuccesses = new LongAdder(),
+        loadFailures = new LongAdder(), loadNanos = new LongAdder(), evictions = new LongAdder();
+
+    private MemoCache(Builder<K, V> b, Function<? super K, ? extends V> loader) {
+        this.loader = Objects.requireNonNull(loader);
+        this.weigher = b.weigher; this.expireAfterWriteNanos = b.expireAfterWriteNanos;
+        this.ticker = b.ticker; this.executor = b.executor;
+        this.policy = new Policy(b.maximumWeight);
+    }
+
+    // --- Reads --------------------------------------------------------------
+
+    V get(K key) {
+        try {
+            return lookup(key, Runnable::run).join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw ex;
+        }
+    }
+
+    CompletableFuture<V> getAsync(K key) { return lookup(key, executor); }
+
+    // the cached value if present, loaded and not expired; never loads
+    Optional<V> getIfPresent(K key) {
+        Entry<V> e = map.get(key);
+        if (e == null || !e.value.isDone() || e.value.isCompletedExceptionally() || expired(e)) return Optional.empty();
+        policy.onAccess(key, e);
+        return Optional.ofNullable(e.value.join());
+    }
+
+    private CompletableFuture<V> lookup(K key, Executor loadOn) {
+        while (true) {
+            Entry<V> e = map.get(key);
+            if (e != null && !expired(e)) {
+                hits.increment();
+                policy.onAccess(key, e);
+                return e.value;
+            }
+            Entry<V> fresh = new Entry<>(new CompletableFuture<>());
+            boolean installed = e == null ? map.putIfAbsent(key, fresh) == null : map.replace(key, e, fresh);
+            if (!installed) continue; // another caller got there first: use (or re-check) theirs
+            if (e != null) policy.onRemove(key, e);
+            misses.increment();
+            loadOn.execute(() -> load(key, fresh));
+            return fresh.value;
+        }
+    }
+
+    // Runs outside every lock; publishes the value, then lets the policy account for it.
+    private void load(K key, Entry<V> e) {
+        long t0 = ticker.getAsLong();
+        V v;
+        try {
+            v = loader.apply(key);
+        } catch (Throwable t) {
+            loadNanos.add(ticker.getAsLong() - t0);
+            loadFailures.increment();
+            map.remove(key, e);
+            e.value.completeExceptionally(t);
+            return;
+        }
+        long t1 = ticker.getAsLong();
+        loadNanos.add(t1 - t0);
+        loadSuccesses.increment();
+        e.writtenAt = t1;
+        e.value.complete(v);
+        policy.onInsert(key, e, Math.max(0, weigher.applyAsInt(key, v)));
+    }
+
+    private boolean expired(Entry<V> e) {
+        long w = e.writtenAt;
+        return w != Long.MAX_VALUE && expireAfterWriteNanos != Long.MAX_VALUE && ticker.getAsLong() - w >= expireAfterWriteNanos;
+    }
+
+    // --- Maintenance --------------------------------------------------------
+
+    void invalidate(K key) {
+        Entry<V> e = map.remove(key);
+        if (e != null) policy.onRemove(key, e);
+    }
+
+    void invalidateAll() { new ArrayList<>(map.keySet()).forEach(this::invalidate); }
+
+    // entries present, including loads in flight and expired entries not yet replaced
+    int size() { return map.size(); }
+
+    long weightedSize() { synchronized (policy) { return policy.totalWeight(); } }
+
+    Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), loadSuccesses.sum(), loadFailures.sum(), loadNanos.sum(), evictions.sum());
+    }
+
+    // --- W-TinyLFU policy ---------------------------------------------------
+
+    // All bookkeeping is under this object's monitor; it never calls the loader.
+    private final class Policy {
+        final long maxWeight, windowMax, protectedMax;
+        // insertion-ordered = LRU first; re-inserting a key moves it to the MRU end
+        final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(), probation = new LinkedHashMap<>(), protectedSeg = new LinkedHashMap<>();
+        long windowWeight, probationWeight, protectedWeight;
+        final FrequencySketch sketch;
+
+        Policy(long maxWeight) {
+            this.maxWeight = maxWeight;
+            this.windowMax = maxWeight == Long.MAX_VALUE ? maxWeight : Math.max(1, maxWeight / 100);
+            this.protectedMax = maxWeight == Long.MAX_VALUE ? maxWeight : (maxWeight - windowMax) * 8 / 10;
+            this.sketch = new FrequencySketch(maxWeight == Long.MAX_VALUE ? 1024 : (int) Math.min(1 << 24, Math.max(16, maxWeight)));
+        }
+
+        long totalWeight() { return windowWeight + probationWeight + protectedWeight; }
+
+        synchronized void onAccess(K key, Entry<V> e) {
+            sketch.increment(key.hashCode());
+            if (window.get(key) == e) { window.remove(key); window.put(key, e); }
+            else if (protectedSeg.get(key) == e) { protectedSeg.remove(key); protectedSeg.put(key, e); }
+            else if (probation.get(key) == e) {
+                probation.remove(key); probationWeight -= e.weight;
+                protectedSeg.put(key, e); protectedWeight += e.weight;
+                while (protectedWeight > protectedMax && protectedSeg.size() > 1) { // demote protected LRU
+                    Map.Entry<K, Entry<V>> lru = pollFirst(protectedSeg);
+                    protectedWeight -= lru.getValue().weight;
+                    probation.put(lru.getKey(), lru.getValue()); probationWeight += lru.getValue().weight;
+                }
+            }
+        }
+
+        synchronized void onInsert(K key, Entry<V> e, int weight) {
+            if (map.get(key) != e) return; // invalidated or replaced while loading
+            sketch.increment(key.hashCode());
+            e.weight = weight;
+            window.put(key, e); windowWeight += weight;
+            evictIfNeeded();
+        }
+
+        synchronized void onRemove(K key, Entry<V> e) {
+            if (window.get(key) == e) { window.remove(key); windowWeight -= e.weight; }
+            else if (probation.get(key) == e) { probation.remove(key); probationWeight -= e.weight; }
+            else if (protectedSeg.get(key) == e) { protectedSeg.remove(key); protectedWeight -= e.weight; }
+        }
+
+        private void evictIfNeeded() {
+            // Window overflow: its LRU entry becomes a candidate for the main region. While over the
+            // bound it duels the probation LRU; the less frequent one goes (ties evict the candidate).
+            while (windowWeight > windowMax && !window.isEmpty()) {
+                Map.Entry<K, Entry<V>> c = pollFirst(window);
+                K candidate = c.getKey();
+                windowWeight -= c.getValue().weight;
+                probation.put(candidate, c.getValue()); probationWeight += c.getValue().weight;
+                while (totalWeight() > maxWeight && probation.containsKey(candidate)) {
+                    K victim = probation.keySet().iterator().next();
+                    if (victim.equals(candidate)) evict(protectedSeg.isEmpty() ? probation : protectedSeg, firstKey(protectedSeg.isEmpty() ? probation : protectedSeg));
+                    else evict(probation, sketch.frequency(candidate.hashCode()) > sketch.frequency(victim.hashCode()) ? victim : candidate);
+                }
+            }
+            // still over (heavy entries, or a bound smaller than the window): plain LRU, main region first
+            while (totalWeight() > maxWeight) {
+                LinkedHashMap<K, Entry<V>> seg = !probation.isEmpty() ? probation : !protectedSeg.isEmpty() ? protectedSeg : window;
+                evict(seg, firstKey(seg));
+            }
+        }
+
+        private void evict(LinkedHashMap<K, Entry<V>> segment, K key) {
+            Entry<V> e = segment.remove(key);
+            if (segment == window) windowWeight -= e.weight;
+            else if (segment == probation) probationWeight -= e.weight;
+            else protectedWeight -= e.weight;
+            if (map.remove(key, e)) evictions.increment();
+        }
+
+        private Map.Entry<K, Entry<V>> pollFirst(LinkedHashMap<K, Entry<V>> m) {
+            Iterator<Map.Entry<K, Entry<V>>> it = m.entrySet().iterator();
+            Map.Entry<K, Entry<V>> first = new AbstractMap.SimpleEntry<>(it.next());
+            it.remove();
+            return first;
+        }
+
+        private K firstKey(LinkedHashMap<K, Entry<V>> m) { return m.keySet().iterator().next(); }
+    }
+
+    // 4-bit count-min sketch: 4 rows interleaved in one long[] of 16 counters each, halved every
+    // 10 * width increments so old popularity fades.
+    private static final class FrequencySketch {
+        private final long[] table;
+        private final int mask, sampleSize;
+        private int additions;
+
+        FrequencySketch(int expected) {
+            int width = Integer.highestOneBit(Math.max(16, expected - 1)) << 1; // counters in total, power of two
+            table = new long[width / 16];
+            mask = width - 1;
+            sampleSize = 10 * width;
+        }
+
+        int frequency(int hash) {
+            int min = 15;
+            for (int row = 0; row < 4; row++) min = Math.min(min, counter(index(hash, row)));
+            return min;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < 4; row++) {
+                int i = index(hash, row);
+                if (counter(i) < 15) { table[i >>> 4] += 1L << ((i & 15) << 2); added = true; }
+            }
+            if (added && ++additions >= sampleSize) reset();
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+            additions /= 2;
+        }
+
+        private int counter(int i) { return (int) ((table[i >>> 4] >>> ((i & 15) << 2)) & 15); }
+
+        // counter index for a row: rows are interleaved in quarters of the table
+        private int index(int hash, int row) {
+            int h = (hash + row * 0x9E3779B9) * 0x85EBCA6B;
+            h ^= h >>> 15;
+            return ((h & mask) & ~3) | row;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+// NameIndex.java
+// Case-insensitive name search without lower-casing every name on every query.
+// - Names are case-folded once (Locale.ROOT) and the rows are kept sorted by folded name, so all
+//   names with a given prefix form one contiguous range found by two binary searches: prefix
+//   lookups, autocomplete and limit/offset paging are O(log n + page size).
+// - Substring ("contains") queries use a trigram index: folded 3-gram -> ascending row positions.
+//   The postings of the query's trigrams are intersected (shortest first, galloping through the
+//   others) and each hit is verified once, so only rows that contain every trigram are touched.
+//   Queries shorter than 3 characters fall back to a scan of the pre-folded names (no allocation).
+// Results always come back in folded-name order (ties: original name, then input order).
+// Immutable after construction, so one index can be shared between threads.
+//     NameIndex<Employee> idx = new NameIndex<>(EMP, e -> e.name);
+//     idx.prefix("al", 0, 10);  idx.contains("ann", 20, 10);  idx.complete("j", 5);
+
+import java.util.*;
+import java.util.function.*;
+
+public class NameIndex<T> {
+
+    private static final int GRAM = 3;
+
+    private final Object[] rows;    // sorted, see above
+    private final String[] names;   // original names, same order
+    private final String[] folded;  // case-folded names, same order
+    private final Map<Long, int[]> trigrams = new HashMap<>();
+
+    NameIndex(Collection<? extends T> data, Function<? super T, String> name) {
+        int n = data.size();
+        Object[] in = data.toArray();
+        String[] inNames = new String[n], inFolded = new String[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            @SuppressWarnings("unchecked") T t = (T) in[i];
+            inNames[i] = Objects.requireNonNull(name.apply(t), "name");
+            inFolded[i] = fold(inNames[i]);
+            order[i] = i;
+        }
+        // stable sort: equal names keep their input order
+        Arrays.sort(order, (a, b) -> {
+            int c = inFolded[a].compareTo(inFolded[b]);
+            return c != 0 ? c : inNames[a].compareTo(inNames[b]);
+        });
+        rows = new Object[n]; names = new String[n]; folded = new String[n];
+        for (int i = 0; i < n; i++) { rows[i] = in[order[i]]; names[i] = inNames[order[i]]; folded[i] = inFolded[order[i]]; }
+
+        Map<Long, Posting> postings = new HashMap<>();
+        for (int pos = 0; pos < n; pos++) {
+            String f = folded[pos];
+            for (int i = 0; i + GRAM <= f.length(); i++) postings.computeIfAbsent(gram(f, i), k -> new Posting()).add(pos);
+        }
+        postings.forEach((g, p) -> trigrams.put(g, Arrays.copyOf(p.positions, p.size)));
+    }
+
+    static String fold(String s) { return s.toLowerCase(Locale.ROOT); }
+
+    int size() { return rows.length; }
+
+    // --- Prefix -------------------------------------------------------------
+
+    List<T> prefix(String prefix, int offset, int limit) {
+        String p = fold(prefix);
+        return page(lowerBound(p), prefixEnd(p), offset, limit);
+    }
+
+    int prefixCount(String prefix) {
+        String p = fold(prefix);
+        return prefixEnd(p) - lowerBound(p);
+    }
+
+    // Distinct original names starting with the prefix, in order (autocomplete suggestions).
+    List<String> complete(String prefix, int limit) {
+        checkPage(0, limit);
+        String p = fold(prefix);
+        List<String> out = new ArrayList<>(Math.min(limit, 16));
+        for (int i = lowerBound(p), end = prefixEnd(p); i < end && out.size() < limit; i++)
+            if (out.isEmpty() || !out.get(out.size() - 1).equals(names[i])) out.add(names[i]);
+        return out;
+    }
+
+    // Rows grouped by the upper-cased first letter of the folded name, letters in order, one
+    // range per letter; rows with an empty name have no first letter and are left out.
+    Map<Character, List<T>> byFirstLetter() {
+        Map<Character, List<T>> out = new LinkedHashMap<>();
+        int i = 0;
+        while (i < folded.length && folded[i].isEmpty()) i++; // empty names sort first
+        while (i < folded.length) {
+            String first = folded[i].substring(0, 1);
+            int end = prefixEnd(first);
+            out.merge(Character.toUpperCase(first.charAt(0)), page(i, end, 0, Integer.MAX_VALUE),
+                (a, b) -> { a.addAll(b); return a; });
+            i = end;
+        }
+        return out;
+    }
+
+    // first position whose folded name is >= p
+    private int lowerBound(String p) {
+        int lo = 0, hi = folded.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (folded[mid].compareTo(p) < 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // first position after lowerBound(p) whose folded name does not start with p
+    private int prefixEnd(String p) {
+        int lo = lowerBound(p), hi = folded.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (folded[mid].startsWith(p)) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // --- Contains -----------------------------------------------------------
+
+    List<T> contains(String query, int offset, int limit) {
+        checkPage(offset, limit);
+        List<T> out = new ArrayList<>(Math.min(limit, 16));
+        if (limit == 0) return out;
+        int[] toSkip = {offset};
+        forEachContaining(fold(query), pos -> {
+            if (toSkip[0] > 0) { toSkip[0]--; return true; }
+            out.add(row(pos));
+            return out.size() < limit;
+        });
+        return out;
+    }
+
+    int containsCount(String query) {
+        int[] n = {0};
+        forEachContaining(fold(query), pos -> { n[0]++; return true; });
+        return n[0];
+    }
+
+    // Visits matching positions in ascending order until the visitor returns false.
+    private void forEachContaining(String q, IntPredicate visitor) {
+        if (q.length() < GRAM) {
+            for (int pos = 0; pos < folded.length; pos++)
+                if (folded[pos].contains(q) && !visitor.test(pos)) return;
+            return;
+        }
+        int grams = q.length() - GRAM + 1;
+        int[][] lists = new int[grams][];
+        for (int i = 0; i < grams; i++) {
+            lists[i] = trigrams.get(gram(q, i));
+            if (lists[i] == null) return; // some trigram occurs in no name
+        }
+        Arrays.sort(lists, Comparator.comparingInt(l -> l.length));
+        int[] cursor = new int[lists.length];
+        outer:
+        for (int pos : lists[0]) {
+            for (int l = 1; l < lists.length; l++) {
+                cursor[l] = gallop(lists[l], cursor[l], pos);
+                if (cursor[l] == lists[l].length) return;
+                if (lists[l][cursor[l]] != pos) continue outer;
+            }
+            // all trigrams present; they may still be in the wrong places
+            if (folded[pos].contains(q) && !visitor.test(pos)) return;
+        }
+    }
+
+    // first index >= from with a[index] >= target (exponential then binary search)
+    private static int gallop(int[] a, int from, int target) {
+        int step = 1, hi = from;
+        while (hi < a.length && a[hi] < target) { from = hi + 1; hi += step; step <<= 1; }
+        hi = Math.min(hi, a.length);
+        while (from < hi) {
+            int mid = (from + hi) >>> 1;
+            if (a[mid] < target) from = mid + 1; else hi = mid;
+        }
+        return from;
+    }
+
+    // --- Helpers ------------------------------------------------------------
+
+    private List<T> page(int from, int to, int offset, int limit) {
+        checkPage(offset, limit);
+        int start = (int) Math.min(to, (long) from + offset);
+        int end = (int) Math.min(to, (long) start + limit);
+        List<T> out = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) out.add(row(i));
+        return out;
+    }
+
+    private static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset and limit must be >= 0: " + offset + ", " + limit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T row(int pos) { return (T) rows[pos]; }
+
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static final class Posting {
+        int[] positions = new int[4]; int size;
+        void add(int pos) {
+            if (size > 0 && positions[size - 1] == pos) return; // trigram repeats within one name
+            if (size == positions.length) positions = Arrays.copyOf(positions, size * 2);
+            positions[size++] = pos;
+        }
+    }
+}
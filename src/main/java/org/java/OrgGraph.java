@@ -0,0 +1,232 @@
+// OrgGraph.java
+// Org chart (manager -> reports) and employee <-> project membership as compact graphs.
+// - Employees and projects get dense ordinals; edges are stored in CSR form (compressed sparse row):
+//   offsets[v]..offsets[v+1] index into one int[] of targets. No per-node lists or boxed ids.
+// - depths(): level-synchronous BFS from the roots, each level expanded in parallel.
+//   Every employee has at most one manager, so a report is reached by exactly one parent and the
+//   parallel writes never collide.
+// - cycles(): every node has out-degree <= 1 along "reports to", so cycles are found with a
+//   single colouring walk, O(n). Employees in or below a cycle have no depth (-1).
+// - payrollRollup(): subtree salary sums, accumulated deepest level first.
+// - coMemberCounts() / sharedProjects(id): project co-membership through the bipartite CSR with a
+//   stamp array per thread, so k members of a project never produce a k^2 list of pairs.
+// Built once from an immutable employee list; all queries are read-only and thread-safe.
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class OrgGraph {
+
+    // Compressed sparse row adjacency over nodes 0..n-1.
+    static final class Csr {
+        final int[] offsets, targets;
+
+        private Csr(int[] offsets, int[] targets) { this.offsets = offsets; this.targets = targets; }
+
+        // Counting sort of the edge list by source; targets of one node keep their input order.
+        static Csr build(int n, int[] src, int[] dst, int edges) {
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < edges; i++) offsets[src[i] + 1]++;
+            for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+            int[] fill = Arrays.copyOf(offsets, n), targets = new int[edges];
+            for (int i = 0; i < edges; i++) targets[fill[src[i]]++] = dst[i];
+            return new Csr(offsets, targets);
+        }
+
+        int nodes() { return offsets.length - 1; }
+        int edges() { return targets.length; }
+        int degree(int v) { return offsets[v + 1] - offsets[v]; }
+        IntStream neighbours(int v) { return Arrays.stream(targets, offsets[v], offsets[v + 1]); }
+
+        Csr transpose(int targetNodes) {
+            int[] src = new int[targets.length];
+            for (int v = 0; v < nodes(); v++) for (int i = offsets[v]; i < offsets[v + 1]; i++) src[i] = v;
+            return build(targetNodes, targets, src, targets.length);
+        }
+    }
+
+    private final EmployeeStreamQ91to300.Employee[] employees; // by ordinal, ascending id
+    private final int[] ids;                                  // ordinal -> employee id (sorted)
+    private final int[] manager;                              // ordinal -> manager ordinal, -1 for roots
+    private final Csr reports;                                // manager -> direct reports
+    private final EmployeeStreamQ91to300.Project[] projects;  // by project ordinal
+    private final Csr memberOf, members;                      // employee -> projects, project -> employees
+    private int[] depths;                                     // computed on first use
+
+    // managerOf: employee id -> manager id. Missing entries and managers outside the list are roots.
+    OrgGraph(Collection<EmployeeStreamQ91to300.Employee> emps, Map<Integer, Integer> managerOf) {
+        employees = emps.stream().sorted(Comparator.comparingInt((EmployeeStreamQ91to300.Employee e) -> e.id))
+            .toArray(EmployeeStreamQ91to300.Employee[]::new);
+        int n = employees.length;
+        ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = employees[i].id;
+            if (i > 0 && ids[i] == ids[i - 1]) throw new IllegalArgumentException("Duplicate employee id: " + ids[i]);
+        }
+
+        manager = new int[n];
+        int[] src = new int[n], dst = new int[n];
+        int edges = 0;
+        for (int v = 0; v < n; v++) {
+            Integer m = managerOf.get(ids[v]);
+            manager[v] = m == null ? -1 : find(m);
+            if (manager[v] == v) throw new IllegalArgumentException("Employee " + ids[v] + " manages themselves");
+            if (manager[v] >= 0) { src[edges] = manager[v]; dst[edges] = v; edges++; }
+        }
+        reports = Csr.build(n, src, dst, edges);
+
+        Map<Integer, Integer> projectOrdinal = new LinkedHashMap<>();
+        List<EmployeeStreamQ91to300.Project> ps = new ArrayList<>();
+        int m = Arrays.stream(employees).mapToInt(e -> e.projects.size()).sum();
+        src = new int[m]; dst = new int[m]; edges = 0;
+        for (int v = 0; v < n; v++)
+            for (EmployeeStreamQ91to300.Project p : employees[v].projects) {
+                Integer po = projectOrdinal.get(p.id);
+                if (po == null) { po = ps.size(); projectOrdinal.put(p.id, po); ps.add(p); }
+                src[edges] = v; dst[edges] = po; edges++;
+            }
+        projects = ps.toArray(new EmployeeStreamQ91to300.Project[0]);
+        memberOf = Csr.build(n, src, dst, edges);
+        members = memberOf.transpose(projects.length);
+    }
+
+    int size() { return ids.length; }
+
+    // --- Reporting chains ---------------------------------------------------
+
+    // employee id -> depth below its root (roots are 0); absent for employees in or under a cycle
+    Map<Integer, Integer> depths() {
+        int[] d = depthArray();
+        Map<Integer, Integer> out = new LinkedHashMap<>();
+        for (int v = 0; v < d.length; v++) if (d[v] >= 0) out.put(ids[v], d[v]);
+        return out;
+    }
+
+    int depth(int employeeId) { return depthArray()[ordinal(employeeId)]; }
+
+    private synchronized int[] depthArray() {
+        if (depths == null) {
+            int[] d = new int[ids.length];
+            Arrays.fill(d, -1);
+            int[] frontier = IntStream.range(0, ids.length).filter(v -> manager[v] < 0).toArray();
+            for (int v : frontier) d[v] = 0;
+            for (int level = 1; frontier.length > 0; level++) {
+                int lv = level;
+                frontier = Arrays.stream(frontier).parallel()
+                    .flatMap(reports::neighbours)
+                    .peek(w -> d[w] = lv) // single parent per node: no two tasks write the same w
+                    .toArray();
+            }
+            depths = d;
+        }
+        return depths;
+    }
+
+    // Ids from the employee up to the root (employee first); stops before repeating a cycle member.
+    List<Integer> chain(int employeeId) {
+        List<Integer> out = new ArrayList<>();
+        BitSet seen = new BitSet(ids.length);
+        for (int v = ordinal(employeeId); v >= 0 && !seen.get(v); v = manager[v]) { seen.set(v); out.add(ids[v]); }
+        return out;
+    }
+
+    // Every reporting cycle once, as employee ids in "reports to" order starting from the smallest id.
+    List<List<Integer>> cycles() {
+        int n = ids.length;
+        byte[] state = new byte[n]; // 0 = unvisited, 1 = on the current walk, 2 = done
+        List<List<Integer>> out = new ArrayList<>();
+        for (int start = 0; start < n; start++) {
+            int v = start;
+            while (v >= 0 && state[v] == 0) { state[v] = 1; v = manager[v]; }
+            if (v >= 0 && state[v] == 1) { // closed a loop on this walk: v is on the cycle
+                int first = v; // ordinals follow ids, so the smallest ordinal is the smallest id
+                for (int u = manager[v]; u != v; u = manager[u]) first = Math.min(first, u);
+                List<Integer> cycle = new ArrayList<>();
+                int u = first;
+                do { cycle.add(ids[u]); u = manager[u]; } while (u != first);
+                out.add(cycle);
+            }
+            for (v = start; v >= 0 && state[v] == 1; v = manager[v]) state[v] = 2;
+        }
+        return out;
+    }
+
+    // --- Payroll ------------------------------------------------------------
+
+    // employee id -> own salary plus the salaries of everyone below them; employees in or under a
+    // cycle have no finite subtree and are left out
+    Map<Integer, BigDecimal> payrollRollup() {
+        int[] d = depthArray();
+        BigDecimal[] total = new BigDecimal[ids.length];
+        Integer[] byDepth = IntStream.range(0, ids.length).filter(v -> d[v] >= 0).boxed().toArray(Integer[]::new);
+        Arrays.sort(byDepth, Comparator.comparingInt((Integer v) -> d[v]).reversed());
+        for (int v : byDepth) {
+            total[v] = total[v] == null ? employees[v].salary : total[v].add(employees[v].salary);
+            int m = manager[v];
+            if (m >= 0) total[m] = total[m] == null ? total[v] : total[m].add(total[v]);
+        }
+        Map<Integer, BigDecimal> out = new LinkedHashMap<>();
+        for (int v = 0; v < ids.length; v++) if (total[v] != null) out.put(ids[v], total[v]);
+        return out;
+    }
+
+    // --- Project membership -------------------------------------------------
+
+    // employee id -> number of distinct colleagues sharing at least one project
+    Map<Integer, Integer> coMemberCounts() {
+        int n = ids.length;
+        int[] counts = new int[n];
+        ThreadLocal<int[]> stamps = ThreadLocal.withInitial(() -> new int[n]);
+        IntStream.range(0, n).parallel().forEach(v -> {
+            int[] seen = stamps.get(); // stamp v + 1 is unique to this v, so arrays are never cleared
+            int c = 0;
+            for (int i = memberOf.offsets[v]; i < memberOf.offsets[v + 1]; i++) {
+                int p = memberOf.targets[i];
+                for (int j = members.offsets[p]; j < members.offsets[p + 1]; j++) {
+                    int w = members.targets[j];
+                    if (w != v && seen[w] != v + 1) { seen[w] = v + 1; c++; }
+                }
+            }
+            counts[v] = c;
+        });
+        Map<Integer, Integer> out = new LinkedHashMap<>();
+        for (int v = 0; v < n; v++) out.put(ids[v], counts[v]);
+        return out;
+    }
+
+    // Number of unordered employee pairs sharing at least one project, without listing them.
+    long coMemberPairs() { return coMemberCounts().values().stream().mapToLong(Integer::longValue).sum() / 2; }
+
+    // colleague id -> projects shared with the employee, colleagues by ascending id
+    Map<Integer, List<EmployeeStreamQ91to300.Project>> sharedProjects(int employeeId) {
+        int v = ordinal(employeeId);
+        Map<Integer, List<EmployeeStreamQ91to300.Project>> out = new TreeMap<>();
+        for (int i = memberOf.offsets[v]; i < memberOf.offsets[v + 1]; i++) {
+            int p = memberOf.targets[i];
+            for (int j = members.offsets[p]; j < members.offsets[p + 1]; j++)
+                if (members.targets[j] != v) out.computeIfAbsent(ids[members.targets[j]], k -> new ArrayList<>()).add(projects[p]);
+        }
+        return out;
+    }
+
+    // employee -> project edges in employee-id order
+    void forEachMembership(BiConsumer<EmployeeStreamQ91to300.Employee, EmployeeStreamQ91to300.Project> action) {
+        for (int v = 0; v < ids.length; v++)
+            for (int i = memberOf.offsets[v]; i < memberOf.offsets[v + 1]; i++) action.accept(employees[v], projects[memberOf.targets[i]]);
+    }
+
+    // --- Helpers ------------------------------------------------------------
+
+    EmployeeStreamQ91to300.Employee employee(int employeeId) { return employees[ordinal(employeeId)]; }
+
+    // ordinal of an id, or -1 if it is not in the graph
+    private int find(int employeeId) { int i = Arrays.binarySearch(ids, employeeId); return i < 0 ? -1 : i; }
+
+    private int ordinal(int employeeId) {
+        int i = find(employeeId);
+        if (i < 0) throw new IllegalArgumentException("Unknown employee id: " + employeeId);
+        return i;
+    }
+}
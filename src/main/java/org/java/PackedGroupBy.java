@@ -0,0 +1,263 @@
+// PackedGroupBy.java
+// Multi-dimensional group-by on one packed long key instead of String keys or nested maps.
+// - A KeyPacker bit-packs several small int dimensions (dept, join year, gender, active, ...) into a
+//   long. Each field's all-ones value is reserved as ALL, meaning "rolled up over this dimension".
+// - Groups live in a flat open-addressing table keyed by that long, so there is no per-row key
+//   object, no String concatenation and no map-of-maps.
+// - Grouping sets: groupBy (finest level only), rollup (d, d-1, ..., 0 leading dimensions) and cube
+//   (all 2^d subsets). Every row is accumulated into each of its grouping-set keys in the same pass,
+//   so all subtotals and the grand total come out of one scan. Works as a parallel Collector.
+//     KeyPacker<Employee> k = new KeyPacker<>(Dimension.ofInt("dept", 10, e -> e.deptId),
+//                                             Dimension.ofInt("year", 12, e -> e.joinDate.getYear()));
+//     Result<Long> r = EMP.stream().collect(PackedGroupBy.cube(k, Collectors.counting()));
+//     r.get(10, PackedGroupBy.ALL);  r.toMap();   // {10-2022=1, ..., *-2022=2, ..., 10-*=4, ..., *-*=10}
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class PackedGroupBy {
+
+    private PackedGroupBy() { }
+
+    // Dimension value meaning "all values" (a rolled-up dimension) in get(...) and in labels.
+    static final int ALL = -1;
+
+    // One small non-negative int dimension of the key; values must be < 2^bits - 1.
+    static final class Dimension<T> {
+        final String name; final int bits;
+        final ToIntFunction<? super T> code;
+        final IntFunction<String> label;
+
+        Dimension(String name, int bits, ToIntFunction<? super T> code, IntFunction<String> label) {
+            if (bits < 1 || bits > 31) throw new IllegalArgumentException(name + ": bits must be 1..31: " + bits);
+            this.name = name; this.bits = bits; this.code = code; this.label = label;
+        }
+
+        static <T> Dimension<T> ofInt(String name, int bits, ToIntFunction<? super T> value) {
+            return new Dimension<>(name, bits, value, String::valueOf);
+        }
+
+        static <T, E extends Enum<E>> Dimension<T> ofEnum(String name, Class<E> type, Function<? super T, E> value) {
+            E[] constants = type.getEnumConstants();
+            int bits = 32 - Integer.numberOfLeadingZeros(constants.length); // room for ALL
+            return new Dimension<>(name, bits, t -> value.apply(t).ordinal(), i -> constants[i].name());
+        }
+
+        static <T> Dimension<T> ofBoolean(String name, Predicate<? super T> value) {
+            return new Dimension<>(name, 2, t -> value.test(t) ? 1 : 0, i -> String.valueOf(i == 1));
+        }
+    }
+
+    static final class KeyPacker<T> {
+        // grouping sets are int bit masks, one bit per dimension
+        static final int MAX_DIMENSIONS = 31;
+
+        private final List<Dimension<T>> dims;
+        private final int[] shift;
+        private final long[] mask; // field mask, already shifted
+
+        @SafeVarargs
+        KeyPacker(Dimension<T>... dims) {
+            if (dims.length > MAX_DIMENSIONS) throw new IllegalArgumentException(dims.length + " dimensions, at most " + MAX_DIMENSIONS + " fit a grouping-set mask");
+            List<Dimension<T>> copy = new ArrayList<>(dims.length);
+            for (Dimension<T> d : dims) copy.add(d); // element by element: the varargs array itself never escapes
+            this.dims = Collections.unmodifiableList(copy);
+            shift = new int[dims.length]; mask = new long[dims.length];
+            int used = 0;
+            for (int i = 0; i < dims.length; i++) {
+                shift[i] = used; mask[i] = ((1L << dims[i].bits) - 1) << used;
+                used += dims[i].bits;
+            }
+            if (used > 64) throw new IllegalArgumentException("Dimensions need " + used + " bits, a long has 64");
+        }
+
+        int dimensions() { return dims.size(); }
+
+        long pack(T row) {
+            long key = 0;
+            for (int i = 0; i < dims.size(); i++) {
+                int v = dims.get(i).code.applyAsInt(row);
+                key |= field(i, v);
+            }
+            return key;
+        }
+
+        // values[i] may be ALL
+        long key(int... values) {
+            if (values.length != dims.size()) throw new IllegalArgumentException("Expected " + dims.size() + " values, got " + values.length);
+            long key = 0;
+            for (int i = 0; i < values.length; i++) key |= values[i] == ALL ? mask[i] : field(i, values[i]);
+            return key;
+        }
+
+        int value(long key, int dim) {
+            long f = key & mask[dim];
+            return f == mask[dim] ? ALL : (int) (f >>> shift[dim]);
+        }
+
+        // Sets every dimension not in 'keep' (bit i = dimension i) to ALL.
+        long rollUp(long key, int keep) {
+            for (int i = 0; i < dims.size(); i++) if ((keep & (1 << i)) == 0) key |= mask[i];
+            return key;
+        }
+
+        String label(long key, String separator) {
+            StringJoiner j = new StringJoiner(separator);
+            for (int i = 0; i < dims.size(); i++) { int v = value(key, i); j.add(v == ALL ? "*" : dims.get(i).label.apply(v)); }
+            return j.toString();
+        }
+
+        private long field(int i, int v) {
+            long max = (1L << dims.get(i).bits) - 2;
+            if (v < 0 || v > max) throw new IllegalArgumentException(dims.get(i).name + " value " + v + " does not fit in " + dims.get(i).bits + " bits");
+            return (long) v << shift[i];
+        }
+    }
+
+    // --- Collectors ---------------------------------------------------------
+
+    static <T, A, R> Collector<T, ?, Result<R>> groupBy(KeyPacker<T> packer, Collector<? super T, A, R> agg) {
+        return grouping(packer, new int[] {(1 << packer.dimensions()) - 1}, agg);
+    }
+
+    // (d1..dn), (d1..dn-1), ..., (d1), () -- e.g. dept x year, dept, total
+    static <T, A, R> Collector<T, ?, Result<R>> rollup(KeyPacker<T> packer, Collector<? super T, A, R> agg) {
+        int d = packer.dimensions();
+        int[] sets = new int[d + 1];
+        for (int i = 0; i <= d; i++) sets[i] = (1 << (d - i)) - 1;
+        return grouping(packer, sets, agg);
+    }
+
+    // every subset of the dimensions, finest first -- e.g. dept x year, year, dept, total
+    static <T, A, R> Collector<T, ?, Result<R>> cube(KeyPacker<T> packer, Collector<? super T, A, R> agg) {
+        int all = (1 << packer.dimensions()) - 1;
+        int[] sets = new int[all + 1];
+        for (int i = 0; i <= all; i++) sets[i] = all - i;
+        return grouping(packer, sets, agg);
+    }
+
+    // sets: one bit mask of kept dimensions per grouping set
+    static <T, A, R> Collector<T, ?, Result<R>> grouping(KeyPacker<T> packer, int[] sets, Collector<? super T, A, R> agg) {
+        Supplier<A> supplier = agg.supplier();
+        BiConsumer<A, ? super T> acc = agg.accumulator();
+        BinaryOperator<A> combiner = agg.combiner();
+        Function<A, R> finisher = agg.finisher();
+        int[] groupingSets = sets.clone();
+        return Collector.of(
+            () -> new GroupTable<A>(16),
+            (GroupTable<A> table, T row) -> {
+                long key = packer.pack(row);
+                for (int keep : groupingSets) acc.accept(table.getOrCreate(packer.rollUp(key, keep), supplier), row);
+            },
+            (a, b) -> a.merge(b, combiner),
+            table -> table.finish(packer, groupingSets, finisher));
+    }
+
+    // --- Flat long-keyed table ----------------------------------------------
+
+    // Open addressing with linear probing; remembers insertion order for deterministic output.
+    private static final class GroupTable<A> {
+        long[] keys; Object[] states; boolean[] used;
+        int[] order; int size;
+
+        GroupTable(int capacity) {
+            keys = new long[capacity]; states = new Object[capacity]; used = new boolean[capacity]; order = new int[capacity];
+        }
+
+        @SuppressWarnings("unchecked")
+        A getOrCreate(long key, Supplier<A> supplier) {
+            int s = slot(key);
+            if (!used[s]) {
+                if ((size + 1) * 2 > keys.length) { grow(); s = slot(key); }
+                used[s] = true; keys[s] = key; states[s] = supplier.get(); order[size++] = s;
+            }
+            return (A) states[s];
+        }
+
+        @SuppressWarnings("unchecked")
+        GroupTable<A> merge(GroupTable<A> other, BinaryOperator<A> combiner) {
+            for (int i = 0; i < other.size; i++) {
+                int os = other.order[i];
+                int s = slot(other.keys[os]);
+                if (used[s]) states[s] = combiner.apply((A) states[s], (A) other.states[os]);
+                else getOrCreate(other.keys[os], () -> (A) other.states[os]);
+            }
+            return this;
+        }
+
+        // groups ordered by grouping set (finest first), then by first appearance
+        @SuppressWarnings("unchecked")
+        <T, R> Result<R> finish(KeyPacker<T> packer, int[] sets, Function<A, R> finisher) {
+            List<Long> out = new ArrayList<>(size);
+            for (int keep : sets)
+                for (int i = 0; i < size; i++) {
+                    long k = keys[order[i]];
+                    if (setOf(packer, k) == keep) out.add(k);
+                }
+            Map<Long, R> values = new LinkedHashMap<>();
+            for (long k : out) values.put(k, finisher.apply((A) states[slot(k)]));
+            return new Result<>(packer, values);
+        }
+
+        private static int setOf(KeyPacker<?> packer, long key) {
+            int keep = 0;
+            for (int i = 0; i < packer.dimensions(); i++) if (packer.value(key, i) != ALL) keep |= 1 << i;
+            return keep;
+        }
+
+        private int slot(long key) {
+            int m = keys.length - 1;
+            int s = (int) mix(key) & m;
+            while (used[s] && keys[s] != key) s = (s + 1) & m;
+            return s;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys; Object[] oldStates = states; int[] oldOrder = order; int n = size;
+            keys = new long[oldKeys.length * 2]; states = new Object[keys.length]; used = new boolean[keys.length]; order = new int[keys.length];
+            size = 0;
+            for (int i = 0; i < n; i++) {
+                int s = slot(oldKeys[oldOrder[i]]);
+                used[s] = true; keys[s] = oldKeys[oldOrder[i]]; states[s] = oldStates[oldOrder[i]]; order[size++] = s;
+            }
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+            return z ^ (z >>> 33);
+        }
+    }
+
+    // --- Result -------------------------------------------------------------
+
+    static final class Result<R> {
+        private final KeyPacker<?> packer;
+        private final Map<Long, R> values;
+
+        Result(KeyPacker<?> packer, Map<Long, R> values) { this.packer = packer; this.values = values; }
+
+        // values per dimension, ALL for a rolled-up dimension; null if the group is empty
+        R get(int... values) { return this.values.get(packer.key(values)); }
+
+        int size() { return values.size(); }
+
+        // "10-2022" style labels ('*' = ALL), finest grouping set first
+        Map<String, R> toMap() { return toMap("-"); }
+
+        Map<String, R> toMap(String separator) {
+            Map<String, R> out = new LinkedHashMap<>();
+            values.forEach((k, v) -> out.put(packer.label(k, separator), v));
+            return out;
+        }
+
+        // only the groups of one grouping set (bit i = dimension i kept)
+        Map<String, R> level(int keep) {
+            Map<String, R> out = new LinkedHashMap<>();
+            values.forEach((k, v) -> { if (GroupTable.setOf(packer, k) == keep) out.put(packer.label(k, "-"), v); });
+            return out;
+        }
+
+        @Override public String toString() { return toMap().toString(); }
+    }
+}
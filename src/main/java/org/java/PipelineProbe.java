@@ -0,0 +1,398 @@
+// PipelineProbe.java
+// Opt-in instrumentation for stream pipelines: per-stage element counts, time and allocation,
+// plus parallel split statistics, collected into a metrics registry and emitted as JFR events.
+//     PipelineProbe probe = new PipelineProbe(Level.TIMING, new PipelineProbe.Registry());
+//     List<String> names = probe.of("high earners", EMP)
+//         .filter(">10k", e -> e.salary.compareTo(TEN_K) > 0)
+//         .map("upper", e -> e.name.toUpperCase())
+//         .limit(3)
+//         .collect(Collectors.toList());
+//     System.out.println(probe.registry().get("high earners"));
+// Levels:
+// - OFF: every stage is applied to the plain stream as is, no wrapping and no per-element cost.
+// - COUNTS: elements into and out of each stage (a short-circuit shows up as fewer elements in).
+// - TIMING: adds time spent inside each stage's own lambda (not downstream stages), wall time per
+//   run, and split statistics when the stream is parallel.
+// - ALLOCATION: adds bytes allocated by each stage's lambda, from the HotSpot ThreadMXBean
+//   extension (absent on other JVMs: reported as n/a). Costs two MXBean calls per element.
+// Stateful stages without a lambda (sorted(), distinct(), limit, skip) are counted but not timed.
+// A run is published when its terminal operation returns: merged into the registry under the
+// pipeline name and, when JFR is available and recording, one PipelineStage event per stage.
+// PipelineProbe.DEFAULT takes its level from -Dpipeline.probe=off|counts|timing|allocation.
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class PipelineProbe {
+
+    enum Level { OFF, COUNTS, TIMING, ALLOCATION }
+
+    static final Registry REGISTRY = new Registry();
+    static final PipelineProbe DEFAULT = new PipelineProbe(levelOf(System.getProperty("pipeline.probe", "off")), REGISTRY);
+
+    private static final com.sun.management.ThreadMXBean ALLOC = allocationBean();
+    private static final boolean JFR = classExists("jdk.jfr.Event");
+
+    private final Level level;
+    private final Registry registry;
+
+    PipelineProbe(Level level, Registry registry) {
+        this.level = Objects.requireNonNull(level); this.registry = Objects.requireNonNull(registry);
+    }
+
+    Level level() { return level; }
+    Registry registry() { return registry; }
+
+    <T> Pipeline<T> of(String name, Collection<T> source) { return of(name, source.stream()); }
+
+    <T> Pipeline<T> of(String name, Stream<T> source) {
+        if (level == Level.OFF) return new Pipeline<>(source, null);
+        Run run = new Run(name, level.compareTo(Level.TIMING) >= 0 ? new Splits() : null);
+        Stage src = run.add("source", false);
+        Stream<T> s = run.splits == null ? source
+            : StreamSupport.stream(new SplitCounter<>(source.spliterator(), run.splits), source.isParallel()).onClose(source::close);
+        return new Pipeline<>(s.peek(e -> src.out.increment()), run);
+    }
+
+    // --- Pipeline -----------------------------------------------------------
+
+    // One use only, like the stream it wraps. With run == null (level OFF) it only delegates.
+    final class Pipeline<T> {
+        private final Stream<T> stream;
+        private final Run run;
+
+        private Pipeline(Stream<T> stream, Run run) { this.stream = stream; this.run = run; }
+
+        Pipeline<T> filter(String name, Predicate<? super T> p) {
+            if (run == null) return next(stream.filter(p));
+            Stage st = run.add(name, true);
+            return next(stream.peek(e -> st.in.increment()).filter(e -> {
+                long t0 = st.start();
+                boolean keep = p.test(e);
+                st.stop(t0);
+                return keep;
+            }).peek(e -> st.out.increment()));
+        }
+
+        <R> Pipeline<R> map(String name, Function<? super T, ? extends R> f) {
+            if (run == null) return next(stream.map(f));
+            Stage st = run.add(name, true);
+            return next(stream.peek(e -> st.in.increment()).<R>map(e -> {
+                long t0 = st.start();
+                R r = f.apply(e);
+                st.stop(t0);
+                return r;
+            }).peek(e -> st.out.increment()));
+        }
+
+        // times the mapper call only; producing the sub-stream's elements is downstream work
+        <R> Pipeline<R> flatMap(String name, Function<? super T, ? extends Stream<? extends R>> f) {
+            if (run == null) return next(stream.flatMap(f));
+            Stage st = run.add(name, true);
+            return next(stream.peek(e -> st.in.increment()).<R>flatMap(e -> {
+                long t0 = st.start();
+                Stream<? extends R> r = f.apply(e);
+                st.stop(t0);
+                return r;
+            }).peek(e -> st.out.increment()));
+        }
+
+        Pipeline<T> peek(String name, Consumer<? super T> action) {
+            if (run == null) return next(stream.peek(action));
+            Stage st = run.add(name, true);
+            return next(stream.peek(e -> {
+                st.in.increment();
+                long t0 = st.start();
+                action.accept(e);
+                st.stop(t0);
+                st.out.increment();
+            }));
+        }
+
+        Pipeline<T> sorted(String name, Comparator<? super T> c) {
+            if (run == null) return next(stream.sorted(c));
+            Stage st = run.add(name, true);
+            return next(stream.peek(e -> st.in.increment()).sorted((a, b) -> {
+                long t0 = st.start();
+                int r = c.compare(a, b);
+                st.stop(t0);
+                return r;
+            }).peek(e -> st.out.increment()));
+        }
+
+        Pipeline<T> sorted() { return untimed("sorted", Stream::sorted); }
+        Pipeline<T> distinct() { return untimed("distinct", Stream::distinct); }
+        Pipeline<T> limit(long n) { return untimed("limit " + n, s -> s.limit(n)); }
+        Pipeline<T> skip(long n) { return untimed("skip " + n, s -> s.skip(n)); }
+
+        private Pipeline<T> untimed(String name, UnaryOperator<Stream<T>> op) {
+            if (run == null) return next(op.apply(stream));
+            Stage st = run.add(name, false);
+            return next(op.apply(stream.peek(e -> st.in.increment())).peek(e -> st.out.increment()));
+        }
+
+        private <R> Pipeline<R> next(Stream<R> s) { return new Pipeline<>(s, run); }
+
+        // --- Terminal operations (publish the run) ---
+
+        <R, A> R collect(Collector<? super T, A, R> collector) { return finish(() -> stream.collect(collector)); }
+
+        List<T> toList() { return collect(Collectors.toList()); }
+
+        // traverses the pipeline even where Stream.count() could skip it, so the stages are measured
+        long count() { return finish(() -> stream.mapToLong(e -> 1L).sum()); }
+
+        boolean anyMatch(Predicate<? super T> p) { return finish(() -> stream.anyMatch(p)); }
+
+        boolean allMatch(Predicate<? super T> p) { return finish(() -> stream.allMatch(p)); }
+
+        Optional<T> findFirst() { return finish(stream::findFirst); }
+
+        void forEach(Consumer<? super T> action) { finish(() -> { stream.forEach(action); return null; }); }
+
+        // The run so far, without running anything: all zeros until a terminal operation starts.
+        Report peekReport() { return run == null ? null : run.report(-1); }
+
+        private <R> R finish(Supplier<R> terminal) {
+            if (run == null) return terminal.get();
+            long t0 = System.nanoTime();
+            try {
+                return terminal.get();
+            } finally {
+                Report r = run.report(level.compareTo(Level.TIMING) >= 0 ? System.nanoTime() - t0 : -1);
+                registry.record(r);
+                if (JFR) Jfr.emit(r);
+                stream.close();
+            }
+        }
+    }
+
+    // --- Per-run state ------------------------------------------------------
+
+    private final class Run {
+        final String name;
+        final Splits splits;
+        final List<Stage> stages = new ArrayList<>();
+
+        Run(String name, Splits splits) { this.name = name; this.splits = splits; }
+
+        Stage add(String stageName, boolean timed) {
+            Stage s = new Stage(stageName, timed && level.compareTo(Level.TIMING) >= 0, timed && level == Level.ALLOCATION && ALLOC != null);
+            stages.add(s);
+            return s;
+        }
+
+        Report report(long wallNanos) {
+            List<StageReport> out = new ArrayList<>();
+            for (int i = 0; i < stages.size(); i++) { // the source has no "in"
+                Stage s = stages.get(i);
+                out.add(new StageReport(s.name, i == 0 ? -1 : s.in.sum(), s.out.sum(), s.timed ? s.nanos.sum() : -1, s.alloc ? s.bytes.sum() : -1));
+            }
+            return new Report(name, 1, wallNanos, out, splits == null ? null : splits.report());
+        }
+    }
+
+    private static final class Stage {
+        final String name; final boolean timed, alloc;
+        final LongAdder in = new LongAdder(), out = new LongAdder(), nanos = new LongAdder(), bytes = new LongAdder();
+
+        Stage(String name, boolean timed, boolean alloc) { this.name = name; this.timed = timed; this.alloc = alloc; }
+
+        // start/stop bracket a lambda call; the allocation counter is read first and last so the
+        // clock reads are not charged to the stage
+        long start() {
+            if (alloc) bytes.add(-ALLOC.getThreadAllocatedBytes(Thread.currentThread().getId()));
+            return timed ? System.nanoTime() : 0;
+        }
+
+        void stop(long t0) {
+            if (timed) nanos.add(System.nanoTime() - t0);
+            if (alloc) bytes.add(ALLOC.getThreadAllocatedBytes(Thread.currentThread().getId()));
+        }
+    }
+
+    // Counts trySplit calls and the elements each leaf spliterator delivers.
+    private static final class Splits {
+        final LongAdder splits = new LongAdder(), leaves = new LongAdder();
+        final LongAccumulator minChunk = new LongAccumulator(Math::min, Long.MAX_VALUE), maxChunk = new LongAccumulator(Math::max, 0);
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        SplitReport report() {
+            long l = leaves.sum();
+            return new SplitReport(splits.sum(), l, l == 0 ? 0 : minChunk.get(), maxChunk.get(), threads.size());
+        }
+    }
+
+    private static final class SplitCounter<T> implements Spliterator<T> {
+        private final Spliterator<T> inner;
+        private final Splits stats;
+        private long delivered;
+        private boolean counted;
+
+        SplitCounter(Spliterator<T> inner, Splits stats) { this.inner = inner; this.stats = stats; }
+
+        @Override public boolean tryAdvance(Consumer<? super T> action) {
+            boolean more = inner.tryAdvance(action);
+            if (more) delivered++; else leafDone();
+            return more;
+        }
+
+        @Override public void forEachRemaining(Consumer<? super T> action) {
+            inner.forEachRemaining(e -> { delivered++; action.accept(e); });
+            leafDone();
+        }
+
+        private void leafDone() {
+            if (counted || delivered == 0) return;
+            counted = true;
+            stats.leaves.increment(); stats.minChunk.accumulate(delivered); stats.maxChunk.accumulate(delivered);
+            stats.threads.add(Thread.currentThread().getName());
+        }
+
+        @Override public Spliterator<T> trySplit() {
+            Spliterator<T> prefix = inner.trySplit();
+            if (prefix == null) return null;
+            stats.splits.increment();
+            return new SplitCounter<>(prefix, stats);
+        }
+
+        @Override public long estimateSize() { return inner.estimateSize(); }
+        @Override public int characteristics() { return inner.characteristics(); }
+        @Override public Comparator<? super T> getComparator() { return inner.getComparator(); }
+    }
+
+    // --- Reports and registry -----------------------------------------------
+
+    // -1 means not measured at this level
+    static final class StageReport {
+        final String stage; final long in, out, nanos, allocatedBytes;
+        StageReport(String stage, long in, long out, long nanos, long allocatedBytes) {
+            this.stage = stage; this.in = in; this.out = out; this.nanos = nanos; this.allocatedBytes = allocatedBytes;
+        }
+        StageReport plus(StageReport o) {
+            return new StageReport(stage, sum(in, o.in), out + o.out, sum(nanos, o.nanos), sum(allocatedBytes, o.allocatedBytes));
+        }
+        @Override public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(Locale.US, "%-16s", stage));
+            if (in >= 0) sb.append(" in=").append(in);
+            sb.append(" out=").append(out);
+            if (nanos >= 0) sb.append(String.format(Locale.US, " time=%.3fms", nanos / 1e6));
+            if (allocatedBytes >= 0) sb.append(" alloc=").append(allocatedBytes).append("B");
+            return sb.toString();
+        }
+    }
+
+    static final class SplitReport {
+        final long splits, leaves, minChunk, maxChunk; final int threads;
+        SplitReport(long splits, long leaves, long minChunk, long maxChunk, int threads) {
+            this.splits = splits; this.leaves = leaves; this.minChunk = minChunk; this.maxChunk = maxChunk; this.threads = threads;
+        }
+        SplitReport plus(SplitReport o) {
+            return new SplitReport(splits + o.splits, leaves + o.leaves, Math.min(minChunk, o.minChunk), Math.max(maxChunk, o.maxChunk), Math.max(threads, o.threads));
+        }
+        @Override public String toString() {
+            return "splits=" + splits + " chunks=" + leaves + " chunkSize=" + minChunk + ".." + maxChunk + " threads=" + threads;
+        }
+    }
+
+    // One run, or the sum of several runs of the same pipeline (as kept by the registry).
+    static final class Report {
+        final String pipeline; final int runs; final long wallNanos; // wallNanos -1 below TIMING
+        final List<StageReport> stages; final SplitReport splits;    // splits null below TIMING
+        Report(String pipeline, int runs, long wallNanos, List<StageReport> stages, SplitReport splits) {
+            this.pipeline = pipeline; this.runs = runs; this.wallNanos = wallNanos;
+            this.stages = Collections.unmodifiableList(stages); this.splits = splits;
+        }
+
+        Report plus(Report o) {
+            if (o.stages.size() != stages.size()) throw new IllegalArgumentException("Pipeline '" + pipeline + "' changed shape between runs");
+            List<StageReport> s = new ArrayList<>();
+            for (int i = 0; i < stages.size(); i++) s.add(stages.get(i).plus(o.stages.get(i)));
+            return new Report(pipeline, runs + o.runs, sum(wallNanos, o.wallNanos), s,
+                splits == null ? o.splits : o.splits == null ? splits : splits.plus(o.splits));
+        }
+
+        @Override public String toString() {
+            StringBuilder sb = new StringBuilder(pipeline).append(" (").append(runs).append(runs == 1 ? " run" : " runs");
+            if (wallNanos >= 0) sb.append(String.format(Locale.US, ", %.3fms", wallNanos / 1e6));
+            sb.append(")");
+            for (StageReport s : stages) sb.append("\n  ").append(s);
+            if (splits != null && splits.splits > 0) sb.append("\n  ").append(splits);
+            return sb.toString();
+        }
+    }
+
+    // Totals per pipeline name across runs; safe to record into from many threads.
+    static final class Registry {
+        private final ConcurrentHashMap<String, Report> reports = new ConcurrentHashMap<>();
+
+        void record(Report r) { reports.merge(r.pipeline, r, Report::plus); }
+
+        Report get(String pipeline) { return reports.get(pipeline); }
+
+        // pipeline name -> totals, by name
+        SortedMap<String, Report> snapshot() { return new TreeMap<>(reports); }
+
+        void reset() { reports.clear(); }
+    }
+
+    // --- JFR ----------------------------------------------------------------
+
+    // Only loaded when jdk.jfr is present; events cost nothing unless a recording enables them.
+    private static final class Jfr {
+        @jdk.jfr.Name("org.java.PipelineStage")
+        @jdk.jfr.Label("Pipeline Stage")
+        @jdk.jfr.Category("Streams")
+        static final class StageEvent extends jdk.jfr.Event {
+            @jdk.jfr.Label("Pipeline") String pipeline;
+            @jdk.jfr.Label("Stage") String stage;
+            @jdk.jfr.Label("Elements In") long in;
+            @jdk.jfr.Label("Elements Out") long out;
+            @jdk.jfr.Label("Time") @jdk.jfr.Timespan long nanos;                 // -1: not measured
+            @jdk.jfr.Label("Allocated") @jdk.jfr.DataAmount long allocatedBytes; // -1: not measured
+        }
+
+        static void emit(Report r) {
+            for (StageReport s : r.stages) {
+                StageEvent e = new StageEvent();
+                if (!e.shouldCommit()) return;
+                e.pipeline = r.pipeline; e.stage = s.stage; e.in = s.in; e.out = s.out; e.nanos = s.nanos; e.allocatedBytes = s.allocatedBytes;
+                e.commit();
+            }
+        }
+    }
+
+    // --- Helpers ------------------------------------------------------------
+
+    // unknown values mean OFF: a typo in a -D flag must not break the application
+    static Level levelOf(String s) {
+        for (Level l : Level.values()) if (l.name().equalsIgnoreCase(s.trim())) return l;
+        return Level.OFF;
+    }
+
+    private static long sum(long a, long b) { return a < 0 || b < 0 ? Math.max(a, b) : a + b; }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            java.lang.management.ThreadMXBean b = ManagementFactory.getThreadMXBean();
+            if (b instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) b).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) b).isThreadAllocatedMemoryEnabled()) return (com.sun.management.ThreadMXBean) b;
+        } catch (LinkageError | UnsupportedOperationException ignored) {
+            // not HotSpot: allocation is reported as n/a
+        }
+        return null;
+    }
+
+    private static boolean classExists(String name) {
+        try {
+            Class.forName(name, false, PipelineProbe.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+}
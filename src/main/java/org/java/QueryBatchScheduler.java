@@ -0,0 +1,222 @@
+// QueryBatchScheduler.java
+// Runs many independent queries (e.g. the Q-demos) concurrently over one shared, read-only dataset.
+// - Work-stealing: every query is its own task on a dedicated ForkJoinPool, so a query that uses
+//   parallelStream() forks its sub-tasks into the same pool and idle workers steal them alongside
+//   the queries still waiting to start.
+// - Priorities: pending queries sit in a priority queue (higher priority first, then submission order).
+//   A task does not own a query; it takes the best pending one when it starts, so priority order holds
+//   whatever order the pool runs its tasks in.
+// - Deadlines: measured from batch start. A query still queued past its deadline is SKIPPED, one that
+//   finishes after it is LATE. Running queries are never interrupted (Q-queries are CPU bound).
+// - Report: one QueryResult per query with status, captured output, error, wall and CPU time.
+//
+// Output capture: while any batch runs, System.out is one shared stream that routes each thread's prints
+// into the buffer of the query that thread is running (concurrent batches share it; the original stream
+// is put back when the last one ends). Capture is per thread, not per query: anything a query prints
+// from another thread - a parallel-stream lambda that runs on a different worker, or a thread the
+// query starts - lands in whatever that thread is running, or in the original stream. Print results
+// from the query's own thread (collect first, then print), as the Q-demos do.
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class QueryBatchScheduler<D> {
+
+    enum Status { OK, FAILED, LATE, SKIPPED, TIMED_OUT }
+
+    interface QueryBody<D> { void run(D data) throws Exception; }
+
+    static final class BatchQuery<D> {
+        final int seq; final String code; final int priority; final Duration deadline; final QueryBody<D> body;
+        BatchQuery(int seq, String code, int priority, Duration deadline, QueryBody<D> body) {
+            this.seq = seq; this.code = code; this.priority = priority; this.deadline = deadline; this.body = body;
+        }
+    }
+
+    static final class QueryResult {
+        final String code; final int priority; final Status status; final String output; final Throwable error;
+        // Exclusive times: a query the worker ran nested (while this one waited on a join) is not
+        // counted here, so the report's totals count every nanosecond once. cpuNanos is -1 when the
+        // JVM cannot measure thread CPU time.
+        final long wallNanos; final long cpuNanos;
+        QueryResult(String code, int priority, Status status, String output, Throwable error, long wallNanos, long cpuNanos) {
+            this.code = code; this.priority = priority; this.status = status; this.output = output; this.error = error;
+            this.wallNanos = wallNanos; this.cpuNanos = cpuNanos;
+        }
+        @Override public String toString() {
+            return String.format(Locale.US, "%-6s %-9s prio=%-3d wall=%8.3fms cpu=%8s%s", code, status, priority,
+                wallNanos / 1e6, cpuNanos < 0 ? "n/a" : String.format(Locale.US, "%.3fms", cpuNanos / 1e6),
+                error == null ? "" : "  " + error);
+        }
+    }
+
+    static final class BatchReport {
+        final List<QueryResult> results; // in submission order
+        final long wallNanos; final int parallelism;
+        BatchReport(List<QueryResult> results, long wallNanos, int parallelism) {
+            this.results = Collections.unmodifiableList(results); this.wallNanos = wallNanos; this.parallelism = parallelism;
+        }
+        long count(Status s) { return results.stream().filter(r -> r.status == s).count(); }
+        long totalCpuNanos() { return results.stream().mapToLong(r -> Math.max(0, r.cpuNanos)).sum(); }
+
+        void printOutputs(PrintStream out) { results.forEach(r -> out.print(r.output)); }
+        void printSummary(PrintStream out) {
+            out.println("\n== Batch report ==");
+            results.forEach(out::println);
+            out.println(String.format(Locale.US, "queries=%d ok=%d failed=%d late=%d skipped=%d timedOut=%d workers=%d wall=%.3fms cpu=%.3fms",
+                results.size(), count(Status.OK), count(Status.FAILED), count(Status.LATE), count(Status.SKIPPED),
+                count(Status.TIMED_OUT), parallelism, wallNanos / 1e6, totalCpuNanos() / 1e6));
+        }
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    // {wall, cpu} of the queries run nested inside the one this thread is executing
+    private static final ThreadLocal<long[]> NESTED = new ThreadLocal<>();
+
+    private final int parallelism;
+    private final List<BatchQuery<D>> queries = new ArrayList<>();
+
+    QueryBatchScheduler(int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be > 0: " + parallelism);
+        this.parallelism = parallelism;
+    }
+
+    // deadline == null means "no deadline"
+    QueryBatchScheduler<D> add(String code, int priority, Duration deadline, QueryBody<D> body) {
+        queries.add(new BatchQuery<>(queries.size(), code, priority, deadline, Objects.requireNonNull(body)));
+        return this;
+    }
+
+    BatchReport run(D data, Duration batchTimeout) throws InterruptedException {
+        PriorityBlockingQueue<BatchQuery<D>> pending = new PriorityBlockingQueue<>(Math.max(1, queries.size()),
+            Comparator.comparingInt((BatchQuery<D> q) -> q.priority).reversed().thenComparingInt(q -> q.seq));
+        pending.addAll(queries);
+        AtomicReferenceArray<QueryResult> results = new AtomicReferenceArray<>(queries.size());
+        Set<Integer> started = ConcurrentHashMap.newKeySet();
+
+        CapturingPrintStream capture = CapturingPrintStream.install();
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int i = 0; i < queries.size(); i++) {
+                pool.execute(() -> {
+                    BatchQuery<D> q = pending.poll();
+                    if (q == null) return;
+                    started.add(q.seq);
+                    results.set(q.seq, execute(q, data, start, capture));
+                });
+            }
+            pool.shutdown();
+            if (!pool.awaitTermination(batchTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                pending.clear();
+                pool.shutdownNow();
+            }
+        } finally {
+            CapturingPrintStream.release();
+        }
+        long wall = System.nanoTime() - start;
+
+        List<QueryResult> out = new ArrayList<>(queries.size());
+        for (BatchQuery<D> q : queries) {
+            QueryResult r = results.get(q.seq);
+            if (r == null) {
+                Status s = started.contains(q.seq) ? Status.TIMED_OUT : Status.SKIPPED;
+                r = new QueryResult(q.code, q.priority, s, "", new TimeoutException("batch timeout " + batchTimeout), 0, -1);
+            }
+            out.add(r);
+        }
+        return new BatchReport(out, wall, parallelism);
+    }
+
+    private static <D> QueryResult execute(BatchQuery<D> q, D data, long batchStart, CapturingPrintStream capture) {
+        long deadlineAt = q.deadline == null ? Long.MAX_VALUE : batchStart + q.deadline.toNanos();
+        if (System.nanoTime() - deadlineAt > 0) {
+            return new QueryResult(q.code, q.priority, Status.SKIPPED, "", new TimeoutException("deadline passed while queued"), 0, -1);
+        }
+        ByteArrayOutputStream outer = capture.begin();
+        long[] enclosing = NESTED.get(), nested = new long[2];
+        NESTED.set(nested);
+        long cpu0 = cpuTime();
+        long t0 = System.nanoTime();
+        Status status = Status.OK;
+        Throwable error = null;
+        try {
+            q.body.run(data);
+        } catch (Throwable ex) {
+            status = Status.FAILED; error = ex;
+        }
+        long t1 = System.nanoTime();
+        long cpu1 = cpuTime();
+        String output = capture.end(outer);
+        long cpu = cpu0 < 0 || cpu1 < 0 ? -1 : cpu1 - cpu0;
+        if (enclosing == null) NESTED.remove();
+        else { NESTED.set(enclosing); enclosing[0] += t1 - t0; enclosing[1] += Math.max(0, cpu); }
+        if (status == Status.OK && t1 - deadlineAt > 0) status = Status.LATE;
+        return new QueryResult(q.code, q.priority, status, output, error, t1 - t0 - nested[0], cpu < 0 ? -1 : cpu - nested[1]);
+    }
+
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    // Routes writes from a thread that is inside begin()/end() to that thread's buffer; everything else
+    // goes to the original stream. begin/end nest: a worker that picks up another query while it waits
+    // on a join gets its own buffer for it and then returns to the outer one.
+    static final class CapturingPrintStream extends PrintStream {
+        private static CapturingPrintStream installed;
+        private static int users;
+
+        private final PrintStream original;
+        private final ThreadLocal<ByteArrayOutputStream> current = new ThreadLocal<>();
+
+        private CapturingPrintStream(PrintStream original) {
+            super(new OutputStream() {
+                @Override public void write(int b) { original.write(b); }
+                @Override public void write(byte[] b, int off, int len) { original.write(b, off, len); }
+                @Override public void flush() { original.flush(); }
+            }, true, StandardCharsets.UTF_8);
+            this.original = original;
+        }
+
+        static synchronized CapturingPrintStream install() {
+            if (users++ == 0) {
+                installed = new CapturingPrintStream(System.out);
+                System.setOut(installed);
+            }
+            return installed;
+        }
+
+        static synchronized void release() {
+            if (--users == 0) {
+                System.setOut(installed.original);
+                installed = null;
+            }
+        }
+
+        ByteArrayOutputStream begin() {
+            ByteArrayOutputStream outer = current.get();
+            current.set(new ByteArrayOutputStream());
+            return outer;
+        }
+        String end(ByteArrayOutputStream outer) {
+            ByteArrayOutputStream buf = current.get();
+            if (outer == null) current.remove(); else current.set(outer);
+            return buf == null ? "" : buf.toString(StandardCharsets.UTF_8);
+        }
+
+        @Override public void write(int b) {
+            ByteArrayOutputStream buf = current.get();
+            if (buf != null) buf.write(b); else super.write(b);
+        }
+        @Override public void write(byte[] b, int off, int len) {
+            ByteArrayOutputStream buf = current.get();
+            if (buf != null) buf.write(b, off, len); else super.write(b, off, len);
+        }
+    }
+}
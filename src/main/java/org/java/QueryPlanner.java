@@ -0,0 +1,665 @@
+// QueryPlanner.java
+// Declarative queries over the employee model (employees, departments, projects, assignments),
+// turned into an executable plan by a small rule-based optimizer.
+//     Plan p = QueryPlanner.from(employees, "e").join(departments, "d", "e.deptId", "d.id")
+//         .where("e.active", "=", true).where("d.name", "=", "Engineering")
+//         .orderBy("e.salary desc").limit(3).select("e.name", "d.name").plan();
+//     p.rows();  p.values("e.name");  System.out.println(p.explain());
+// Clause order does not matter; the logical plan is always
+//   scan/join -> where -> derive -> groupBy/aggregate -> orderBy -> limit -> select.
+// Rewrite rules, applied in this order and listed by explain():
+// 1. predicate pushdown: where conditions move below joins into the scan of the table they name,
+//    and are tested on the source objects before any row is built.
+// 2. access path: an equality condition on an indexed column becomes a hash-index lookup when the
+//    index's estimate (rows / distinct values) is at most INDEX_SELECTIVITY of the table;
+//    otherwise the table is scanned.
+// 3. limit through sort: orderBy + limit n becomes a top-n heap (TopK), O(n log k) instead of a full sort.
+// 4. projection pushdown: each scan extracts only the columns used above it (join keys, sort keys,
+//    selected and aggregated columns); filter-only columns are never copied into rows.
+// Hash joins build on the side with the smaller estimate. Rows are Object[] in the plan's schema
+// ("alias.column" names). Tables are immutable once indexed; plans can be executed repeatedly.
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class QueryPlanner {
+
+    private QueryPlanner() { }
+
+    // an index is used when it is expected to return at most this share of the table
+    static final double INDEX_SELECTIVITY = 0.5;
+
+    // --- Tables -------------------------------------------------------------
+
+    static final class Table<T> {
+        final String name;
+        private final List<T> rows;
+        private final Map<String, Function<? super T, ?>> columns = new LinkedHashMap<>();
+        private final Map<String, Map<Object, List<T>>> indexes = new HashMap<>();
+
+        Table(String name, Collection<T> rows) { this.name = name; this.rows = Collections.unmodifiableList(new ArrayList<>(rows)); }
+
+        Table<T> column(String column, Function<? super T, ?> getter) { columns.put(column, getter); return this; }
+
+        // hash index column value -> rows, in table order
+        Table<T> index(String column) {
+            Function<? super T, ?> get = getter(column);
+            Map<Object, List<T>> idx = new HashMap<>();
+            for (T t : rows) idx.computeIfAbsent(key(get.apply(t)), k -> new ArrayList<>()).add(t);
+            indexes.put(column, idx);
+            return this;
+        }
+
+        int size() { return rows.size(); }
+
+        Set<String> columns() { return Collections.unmodifiableSet(columns.keySet()); }
+
+        private Function<? super T, ?> getter(String column) {
+            Function<? super T, ?> g = columns.get(column);
+            if (g == null) throw new IllegalArgumentException("No column " + column + " in " + name + " " + columns.keySet());
+            return g;
+        }
+    }
+
+    static Table<EmployeeStreamQ91to300.Employee> employees(Collection<EmployeeStreamQ91to300.Employee> emps) {
+        return new Table<>("employees", emps)
+            .column("id", e -> e.id).column("name", e -> e.name).column("gender", e -> e.gender).column("age", e -> e.age)
+            .column("deptId", e -> e.deptId).column("salary", e -> e.salary).column("joinDate", e -> e.joinDate)
+            .column("active", e -> e.active).column("skills", e -> e.skills)
+            .index("id").index("deptId").index("gender");
+    }
+
+    static Table<EmployeeStreamQ91to300.Department> departments(Collection<EmployeeStreamQ91to300.Department> depts) {
+        return new Table<>("departments", depts)
+            .column("id", d -> d.id).column("name", d -> d.name).column("location", d -> d.location)
+            .index("id").index("name");
+    }
+
+    static Table<EmployeeStreamQ91to300.Project> projects(Collection<EmployeeStreamQ91to300.Project> projects) {
+        return new Table<>("projects", projects)
+            .column("id", p -> p.id).column("name", p -> p.name).column("billable", p -> p.billable)
+            .column("startDate", p -> p.startDate).column("endDate", p -> p.endDate)
+            .index("id");
+    }
+
+    // one row per (employee, project) membership
+    static Table<Map.Entry<EmployeeStreamQ91to300.Employee, EmployeeStreamQ91to300.Project>> assignments(Collection<EmployeeStreamQ91to300.Employee> emps) {
+        List<Map.Entry<EmployeeStreamQ91to300.Employee, EmployeeStreamQ91to300.Project>> rows = new ArrayList<>();
+        for (EmployeeStreamQ91to300.Employee e : emps) for (EmployeeStreamQ91to300.Project p : e.projects) rows.add(new AbstractMap.SimpleImmutableEntry<>(e, p));
+        return new Table<>("assignments", rows)
+            .column("employeeId", a -> a.getKey().id).column("projectId", a -> a.getValue().id)
+            .index("employeeId").index("projectId");
+    }
+
+    // --- Conditions and values ----------------------------------------------
+
+    static final class Cond {
+        final String column, op; final Object value;
+
+        Cond(String column, String op, Object value) {
+            if (!Arrays.asList("=", "!=", "<", "<=", ">", ">=").contains(op)) throw new IllegalArgumentException("Unknown operator " + op);
+            this.column = column; this.op = op; this.value = value;
+        }
+
+        boolean test(Object v) {
+            if (v == null || value == null) return op.equals("=") ? v == value : op.equals("!=") && v != value;
+            int c = compare(v, value);
+            switch (op) {
+                case "=": return c == 0;
+                case "!=": return c != 0;
+                case "<": return c < 0;
+                case "<=": return c <= 0;
+                case ">": return c > 0;
+                default: return c >= 0;
+            }
+        }
+
+        @Override public String toString() { return column + " " + op + " " + (value instanceof String ? "'" + value + "'" : value); }
+    }
+
+    // numbers by value whatever their class, enums against their name, otherwise Comparable; nulls last
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object a, Object b) {
+        if (a == null || b == null) return a == null ? (b == null ? 0 : 1) : -1;
+        if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) return decimal((Number) a).compareTo(decimal((Number) b));
+        if (a instanceof Enum && b instanceof String) return ((Enum<?>) a).name().compareTo((String) b);
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private static BigDecimal decimal(Number n) { return n instanceof BigDecimal ? (BigDecimal) n : new BigDecimal(n.toString()); }
+
+    // index / join / group key: equal numbers give equal keys, 10 == 10L == 10.00
+    private static Object key(Object v) {
+        if (v instanceof Number) return decimal((Number) v).stripTrailingZeros();
+        if (v instanceof Enum) return ((Enum<?>) v).name();
+        return v;
+    }
+
+    enum Agg { COUNT, SUM, AVG, MIN, MAX, LIST }
+
+    // --- Query builder ------------------------------------------------------
+
+    static Query from(Table<?> table, String alias) { return new Query(new Scan<>(table, alias)); }
+
+    static final class Query {
+        private Node source;
+        private final List<Cond> where = new ArrayList<>();
+        private final List<Derive> derived = new ArrayList<>();
+        private final List<String> groupBy = new ArrayList<>();
+        private final List<Aggregate.Spec> aggregates = new ArrayList<>();
+        private final List<SortKey> orderBy = new ArrayList<>();
+        private long limit = -1;
+        private List<String> select;
+
+        private Query(Node source) { this.source = source; }
+
+        // inner equi-join; leftColumn from the tables joined so far, rightColumn from 'table'
+        Query join(Table<?> table, String alias, String leftColumn, String rightColumn) {
+            source = new Join(source, new Scan<>(table, alias), leftColumn, rightColumn);
+            return this;
+        }
+
+        Query where(String column, String op, Object value) { where.add(new Cond(column, op, value)); return this; }
+
+        Query derive(String name, String from, Function<Object, Object> f) { derived.add(new Derive(null, name, from, f)); return this; }
+
+        Query groupBy(String... columns) { groupBy.addAll(Arrays.asList(columns)); return this; }
+
+        // column is ignored for COUNT (pass "*")
+        Query aggregate(String name, Agg fn, String column) { aggregates.add(new Aggregate.Spec(name, fn, column)); return this; }
+
+        Query select(String... columns) { select = Arrays.asList(columns); return this; }
+
+        // "column" or "column desc"
+        Query orderBy(String... keys) { for (String k : keys) orderBy.add(SortKey.parse(k)); return this; }
+
+        Query limit(long n) {
+            if (n < 0) throw new IllegalArgumentException("limit must be >= 0: " + n);
+            limit = n;
+            return this;
+        }
+
+        Plan plan() {
+            Node n = source;
+            if (!where.isEmpty()) n = new Filter(n, where);
+            for (Derive d : derived) n = new Derive(n, d.name, d.from, d.f);
+            if (!groupBy.isEmpty() || !aggregates.isEmpty()) n = new Aggregate(n, groupBy, aggregates);
+            if (!orderBy.isEmpty()) n = new Sort(n, orderBy);
+            if (limit >= 0) n = new Limit(n, limit);
+            if (select != null) n = new Project(n, select);
+            n.schema(); // validates column names before optimizing
+            return Optimizer.optimize(n);
+        }
+    }
+
+    // --- Plan ---------------------------------------------------------------
+
+    static final class Plan {
+        final Node logical, physical;
+        final List<String> rewrites;
+
+        private Plan(Node logical, Node physical, List<String> rewrites) {
+            this.logical = logical; this.physical = physical; this.rewrites = Collections.unmodifiableList(rewrites);
+        }
+
+        List<String> schema() { return physical.schema(); }
+
+        List<Object[]> rows() { return physical.execute().collect(Collectors.toList()); }
+
+        List<Object> values(String column) {
+            int i = indexOf(physical.schema(), column);
+            return physical.execute().map(r -> r[i]).collect(Collectors.toList());
+        }
+
+        // first column -> second column, in row order
+        Map<Object, Object> toMap() {
+            Map<Object, Object> m = new LinkedHashMap<>();
+            physical.execute().forEach(r -> m.put(r[0], r[1]));
+            return m;
+        }
+
+        String explain() {
+            StringBuilder sb = new StringBuilder("Logical plan:\n");
+            logical.explain(sb, "  ");
+            sb.append("Rewrites:\n");
+            if (rewrites.isEmpty()) sb.append("  (none)\n");
+            for (String r : rewrites) sb.append("  - ").append(r).append('\n');
+            sb.append("Physical plan:\n");
+            physical.explain(sb, "  ");
+            return sb.toString();
+        }
+    }
+
+    // --- Plan nodes ---------------------------------------------------------
+
+    private abstract static class Node {
+        abstract List<String> schema();
+        abstract long estimate();
+        abstract Stream<Object[]> execute();
+        abstract String describe();
+        abstract List<Node> children();
+
+        void explain(StringBuilder sb, String indent) {
+            sb.append(indent).append(describe()).append("  (est ").append(estimate()).append(")\n");
+            for (Node c : children()) c.explain(sb, indent + "  ");
+        }
+    }
+
+    private static final class Scan<T> extends Node {
+        final Table<T> table; final String alias;
+        final List<Cond> filters;      // on source objects
+        final Cond lookup;             // index equality lookup, or null for a full scan
+        final List<String> columns;    // unqualified, extracted into rows
+
+        Scan(Table<T> table, String alias) { this(table, alias, Collections.emptyList(), null, new ArrayList<>(table.columns())); }
+
+        Scan(Table<T> table, String alias, List<Cond> filters, Cond lookup, List<String> columns) {
+            this.table = table; this.alias = alias; this.filters = filters; this.lookup = lookup; this.columns = columns;
+        }
+
+        Scan<T> with(List<Cond> filters, Cond lookup, List<String> columns) { return new Scan<>(table, alias, filters, lookup, columns); }
+
+        String owns(String qualified) {
+            if (!qualified.startsWith(alias + ".")) return null;
+            String c = qualified.substring(alias.length() + 1);
+            return table.columns.containsKey(c) ? c : null;
+        }
+
+        List<String> schema() { return columns.stream().map(c -> alias + "." + c).collect(Collectors.toList()); }
+
+        long estimate() {
+            double n = lookup == null ? table.size() : indexEstimate(lookup);
+            for (int i = 0; i < filters.size(); i++) n *= 0.5;
+            return Math.max(lookup == null && filters.isEmpty() ? 0 : 1, Math.round(n));
+        }
+
+        double indexEstimate(Cond c) {
+            Map<Object, List<T>> idx = table.indexes.get(owns(c.column));
+            return idx.isEmpty() ? 0 : (double) table.size() / idx.size();
+        }
+
+        Stream<Object[]> execute() {
+            List<T> source = lookup == null ? table.rows
+                : table.indexes.get(owns(lookup.column)).getOrDefault(key(lookup.value), Collections.emptyList());
+            List<Function<? super T, ?>> tests = new ArrayList<>();
+            for (Cond c : filters) tests.add(table.getter(owns(c.column)));
+            List<Function<? super T, ?>> getters = columns.stream().map(table::getter).collect(Collectors.toList());
+            Stream<T> s = source.stream();
+            if (!filters.isEmpty()) s = s.filter(t -> {
+                for (int i = 0; i < tests.size(); i++) if (!filters.get(i).test(tests.get(i).apply(t))) return false;
+                return true;
+            });
+            return s.map(t -> {
+                Object[] row = new Object[getters.size()];
+                for (int i = 0; i < row.length; i++) row[i] = getters.get(i).apply(t);
+                return row;
+            });
+        }
+
+        String describe() {
+            StringBuilder sb = new StringBuilder(lookup == null ? "Scan " : "IndexLookup ").append(table.name).append(' ').append(alias);
+            if (lookup != null) sb.append(" on ").append(lookup);
+            if (!filters.isEmpty()) sb.append(" filter ").append(filters.stream().map(Object::toString).collect(Collectors.joining(" and ")));
+            return sb.append(" columns ").append(columns).toString();
+        }
+
+        List<Node> children() { return Collections.emptyList(); }
+    }
+
+    private static final class Join extends Node {
+        final Node left, right; final String leftKey, rightKey;
+
+        Join(Node left, Node right, String leftKey, String rightKey) { this.left = left; this.right = right; this.leftKey = leftKey; this.rightKey = rightKey; }
+
+        List<String> schema() {
+            List<String> s = new ArrayList<>(left.schema());
+            s.addAll(right.schema());
+            indexOf(left.schema(), leftKey); indexOf(right.schema(), rightKey);
+            return s;
+        }
+
+        // foreign key -> primary key: at most one match per left row
+        long estimate() { return left.estimate(); }
+
+        boolean buildLeft() { return left.estimate() < right.estimate(); }
+
+        // output keeps probe-side order; columns are always left ++ right
+        Stream<Object[]> execute() {
+            int lk = indexOf(left.schema(), leftKey), rk = indexOf(right.schema(), rightKey);
+            int lw = left.schema().size(), rw = right.schema().size();
+            boolean buildLeft = buildLeft();
+            Map<Object, List<Object[]>> table = (buildLeft ? left : right).execute()
+                .collect(Collectors.groupingBy(r -> key(r[buildLeft ? lk : rk]), HashMap::new, Collectors.toList()));
+            return (buildLeft ? right : left).execute().flatMap(p -> table.getOrDefault(key(p[buildLeft ? rk : lk]), Collections.emptyList()).stream().map(b -> {
+                Object[] l = buildLeft ? b : p, r = buildLeft ? p : b;
+                Object[] row = Arrays.copyOf(l, lw + rw);
+                System.arraycopy(r, 0, row, lw, rw);
+                return row;
+            }));
+        }
+
+        String describe() { return "HashJoin " + leftKey + " = " + rightKey + " (build " + (buildLeft() ? "left" : "right") + ")"; }
+
+        List<Node> children() { return Arrays.asList(left, right); }
+    }
+
+    private static final class Filter extends Node {
+        final Node child; final List<Cond> conds;
+
+        Filter(Node child, List<Cond> conds) { this.child = child; this.conds = new ArrayList<>(conds); }
+
+        List<String> schema() { List<String> s = child.schema(); conds.forEach(c -> indexOf(s, c.column)); return s; }
+
+        long estimate() { return Math.max(1, Math.round(child.estimate() * Math.pow(0.5, conds.size()))); }
+
+        Stream<Object[]> execute() {
+            int[] at = conds.stream().mapToInt(c -> indexOf(child.schema(), c.column)).toArray();
+            return child.execute().filter(r -> {
+                for (int i = 0; i < at.length; i++) if (!conds.get(i).test(r[at[i]])) return false;
+                return true;
+            });
+        }
+
+        String describe() { return "Filter " + conds.stream().map(Object::toString).collect(Collectors.joining(" and ")); }
+
+        List<Node> children() { return Collections.singletonList(child); }
+    }
+
+    private static final class Derive extends Node {
+        final Node child; final String name, from; final Function<Object, Object> f;
+
+        Derive(Node child, String name, String from, Function<Object, Object> f) { this.child = child; this.name = name; this.from = from; this.f = f; }
+
+        List<String> schema() {
+            List<String> s = new ArrayList<>(child.schema());
+            indexOf(s, from);
+            s.add(name);
+            return s;
+        }
+
+        long estimate() { return child.estimate(); }
+
+        Stream<Object[]> execute() {
+            int at = indexOf(child.schema(), from);
+            return child.execute().map(r -> {
+                Object[] row = Arrays.copyOf(r, r.length + 1);
+                row[r.length] = f.apply(r[at]);
+                return row;
+            });
+        }
+
+        String describe() { return "Derive " + name + " from " + from; }
+
+        List<Node> children() { return Collections.singletonList(child); }
+    }
+
+    private static final class Aggregate extends Node {
+        static final class Spec {
+            final String name; final Agg fn; final String column;
+            Spec(String name, Agg fn, String column) { this.name = name; this.fn = fn; this.column = column; }
+            @Override public String toString() { return name + "=" + fn.name().toLowerCase(Locale.ROOT) + "(" + (fn == Agg.COUNT ? "*" : column) + ")"; }
+        }
+
+        final Node child; final List<String> keys; final List<Spec> aggs;
+
+        Aggregate(Node child, List<String> keys, List<Spec> aggs) { this.child = child; this.keys = new ArrayList<>(keys); this.aggs = new ArrayList<>(aggs); }
+
+        List<String> schema() {
+            List<String> in = child.schema(), s = new ArrayList<>(keys);
+            keys.forEach(k -> indexOf(in, k));
+            for (Spec a : aggs) { if (a.fn != Agg.COUNT) indexOf(in, a.column); s.add(a.name); }
+            return s;
+        }
+
+        long estimate() { return keys.isEmpty() ? 1 : Math.max(1, child.estimate() / 2); }
+
+        // groups in first-seen order
+        Stream<Object[]> execute() {
+            List<String> in = child.schema();
+            int[] k = keys.stream().mapToInt(c -> indexOf(in, c)).toArray();
+            int[] v = aggs.stream().mapToInt(a -> a.fn == Agg.COUNT ? -1 : indexOf(in, a.column)).toArray();
+            Map<List<Object>, List<Object[]>> groups = new LinkedHashMap<>();
+            child.execute().forEach(r -> {
+                List<Object> g = new ArrayList<>(k.length);
+                for (int i : k) g.add(key(r[i]));
+                groups.computeIfAbsent(g, x -> new ArrayList<>()).add(r);
+            });
+            if (groups.isEmpty() && keys.isEmpty()) groups.put(Collections.emptyList(), Collections.emptyList());
+            return groups.values().stream().map(rows -> {
+                Object[] out = new Object[k.length + aggs.size()];
+                for (int i = 0; i < k.length; i++) out[i] = rows.isEmpty() ? null : rows.get(0)[k[i]];
+                for (int j = 0; j < aggs.size(); j++) out[k.length + j] = aggregate(aggs.get(j).fn, rows, v[j]);
+                return out;
+            });
+        }
+
+        private static Object aggregate(Agg fn, List<Object[]> rows, int col) {
+            switch (fn) {
+                case COUNT: return (long) rows.size();
+                case LIST: return rows.stream().map(r -> r[col]).collect(Collectors.toList());
+                case MIN: return rows.stream().map(r -> r[col]).filter(Objects::nonNull).min(QueryPlanner::compare).orElse(null);
+                case MAX: return rows.stream().map(r -> r[col]).filter(Objects::nonNull).max(QueryPlanner::compare).orElse(null);
+                default:
+                    BigDecimal sum = BigDecimal.ZERO; long n = 0;
+                    for (Object[] r : rows) if (r[col] != null) { sum = sum.add(decimal((Number) r[col])); n++; }
+                    if (fn == Agg.SUM) return sum;
+                    return n == 0 ? null : sum.divide(BigDecimal.valueOf(n), Math.max(2, sum.scale()), java.math.RoundingMode.HALF_UP);
+            }
+        }
+
+        String describe() { return "Aggregate by " + keys + " " + aggs; }
+
+        List<Node> children() { return Collections.singletonList(child); }
+    }
+
+    private static final class SortKey {
+        final String column; final boolean desc;
+        SortKey(String column, boolean desc) { this.column = column; this.desc = desc; }
+
+        static SortKey parse(String s) {
+            String[] p = s.trim().split("\\s+");
+            if (p.length > 2 || (p.length == 2 && !p[1].matches("(?i)asc|desc"))) throw new IllegalArgumentException("Bad sort key: " + s);
+            return new SortKey(p[0], p.length == 2 && p[1].equalsIgnoreCase("desc"));
+        }
+
+        @Override public String toString() { return column + (desc ? " desc" : ""); }
+    }
+
+    private static Comparator<Object[]> comparator(List<String> schema, List<SortKey> keys) {
+        Comparator<Object[]> c = null;
+        for (SortKey k : keys) {
+            int i = indexOf(schema, k.column);
+            Comparator<Object[]> one = (a, b) -> compare(a[i], b[i]);
+            if (k.desc) one = one.reversed();
+            c = c == null ? one : c.thenComparing(one);
+        }
+        return c;
+    }
+
+    private static final class Sort extends Node {
+        final Node child; final List<SortKey> keys;
+        Sort(Node child, List<SortKey> keys) { this.child = child; this.keys = new ArrayList<>(keys); }
+        List<String> schema() { List<String> s = child.schema(); keys.forEach(k -> indexOf(s, k.column)); return s; }
+        long estimate() { return child.estimate(); }
+        Stream<Object[]> execute() { return child.execute().sorted(comparator(child.schema(), keys)); }
+        String describe() { return "Sort " + keys; }
+        List<Node> children() { return Collections.singletonList(child); }
+    }
+
+    private static final class Limit extends Node {
+        final Node child; final long n;
+        Limit(Node child, long n) { this.child = child; this.n = n; }
+        List<String> schema() { return child.schema(); }
+        long estimate() { return Math.min(n, child.estimate()); }
+        Stream<Object[]> execute() { return child.execute().limit(n); }
+        String describe() { return "Limit " + n; }
+        List<Node> children() { return Collections.singletonList(child); }
+    }
+
+    // sorted(keys).limit(n) in one bounded heap; ties keep input order, as a stable sort would
+    private static final class TopN extends Node {
+        final Node child; final List<SortKey> keys; final int n;
+        TopN(Node child, List<SortKey> keys, int n) { this.child = child; this.keys = keys; this.n = n; }
+        List<String> schema() { return child.schema(); }
+        long estimate() { return Math.min(n, child.estimate()); }
+        Stream<Object[]> execute() { return child.execute().collect(TopK.topK(n, comparator(child.schema(), keys).reversed())).stream(); }
+        String describe() { return "TopK " + n + " by " + keys; }
+        List<Node> children() { return Collections.singletonList(child); }
+    }
+
+    private static final class Project extends Node {
+        final Node child; final List<String> columns;
+        Project(Node child, List<String> columns) { this.child = child; this.columns = new ArrayList<>(columns); }
+        List<String> schema() { List<String> s = child.schema(); columns.forEach(c -> indexOf(s, c)); return columns; }
+        long estimate() { return child.estimate(); }
+        Stream<Object[]> execute() {
+            int[] at = columns.stream().mapToInt(c -> indexOf(child.schema(), c)).toArray();
+            return child.execute().map(r -> { Object[] o = new Object[at.length]; for (int i = 0; i < at.length; i++) o[i] = r[at[i]]; return o; });
+        }
+        String describe() { return "Project " + columns; }
+        List<Node> children() { return Collections.singletonList(child); }
+    }
+
+    private static int indexOf(List<String> schema, String column) {
+        int i = schema.indexOf(column);
+        if (i < 0) throw new IllegalArgumentException("Unknown column " + column + ", available: " + schema);
+        return i;
+    }
+
+    // --- Optimizer ----------------------------------------------------------
+
+    private static final class Optimizer {
+        final List<String> rewrites = new ArrayList<>();
+
+        static Plan optimize(Node logical) {
+            Optimizer o = new Optimizer();
+            Node n = o.pushDownFilters(logical);
+            n = o.chooseAccessPaths(n);
+            n = o.limitThroughSort(n);
+            n = o.pruneColumns(n, new LinkedHashSet<>(n.schema()));
+            return new Plan(logical, n, o.rewrites);
+        }
+
+        // 1. conditions on one table's columns move into that table's scan
+        Node pushDownFilters(Node n) {
+            if (n instanceof Filter) {
+                Filter f = (Filter) n;
+                List<Cond> stay = new ArrayList<>();
+                Node child = f.child;
+                for (Cond c : f.conds) {
+                    Node pushed = pushInto(child, c);
+                    if (pushed == null) stay.add(c);
+                    else { child = pushed; rewrites.add("pushed " + c + " down into its table scan"); }
+                }
+                child = pushDownFilters(child);
+                return stay.isEmpty() ? child : new Filter(child, stay);
+            }
+            return rebuild(n, this::pushDownFilters);
+        }
+
+        // the subtree with c applied at the scan that owns its column, or null if no scan owns it
+        private Node pushInto(Node n, Cond c) {
+            if (n instanceof Scan) {
+                Scan<?> s = (Scan<?>) n;
+                if (s.owns(c.column) == null) return null;
+                List<Cond> fs = new ArrayList<>(s.filters);
+                fs.add(c);
+                return s.with(fs, s.lookup, s.columns);
+            }
+            if (n instanceof Join) {
+                Join j = (Join) n;
+                Node l = pushInto(j.left, c);
+                if (l != null) return new Join(l, j.right, j.leftKey, j.rightKey);
+                Node r = pushInto(j.right, c);
+                return r == null ? null : new Join(j.left, r, j.leftKey, j.rightKey);
+            }
+            return null;
+        }
+
+        // 2. equality on an indexed column -> index lookup, the most selective one if several
+        Node chooseAccessPaths(Node n) {
+            if (n instanceof Scan) {
+                Scan<?> s = (Scan<?>) n;
+                Cond best = null;
+                double bestEst = Double.MAX_VALUE;
+                for (Cond c : s.filters) {
+                    if (!c.op.equals("=") || !s.table.indexes.containsKey(s.owns(c.column))) continue;
+                    double est = s.indexEstimate(c);
+                    if (est < bestEst) { best = c; bestEst = est; }
+                }
+                if (best == null) return s;
+                String est = String.format(Locale.US, "est %.1f of %d rows", bestEst, s.table.size());
+                if (bestEst > INDEX_SELECTIVITY * s.table.size()) {
+                    rewrites.add("scan " + s.alias + " kept: index on " + best.column + " not selective (" + est + ")");
+                    return s;
+                }
+                List<Cond> rest = new ArrayList<>(s.filters);
+                rest.remove(best);
+                rewrites.add("index lookup " + best + " instead of scanning " + s.table.name + " (" + est + ")");
+                return s.with(rest, best, s.columns);
+            }
+            return rebuild(n, this::chooseAccessPaths);
+        }
+
+        // 3. Limit(Sort) -> TopK
+        Node limitThroughSort(Node n) {
+            if (n instanceof Limit && ((Limit) n).child instanceof Sort && ((Limit) n).n <= Integer.MAX_VALUE) {
+                Limit l = (Limit) n; Sort s = (Sort) l.child;
+                rewrites.add("sort " + s.keys + " + limit " + l.n + " -> top-" + l.n + " heap");
+                return new TopN(limitThroughSort(s.child), s.keys, (int) l.n);
+            }
+            return rebuild(n, this::limitThroughSort);
+        }
+
+        // 4. top-down: 'required' are the columns the parent reads from n's output
+        Node pruneColumns(Node n, Set<String> required) {
+            if (n instanceof Scan) {
+                Scan<?> s = (Scan<?>) n;
+                List<String> keep = s.columns.stream().filter(c -> required.contains(s.alias + "." + c)).collect(Collectors.toList());
+                if (keep.size() < s.columns.size())
+                    rewrites.add("scan " + s.alias + " extracts " + keep + " (" + keep.size() + " of " + s.table.columns.size() + " columns)");
+                return s.with(s.filters, s.lookup, keep);
+            }
+            if (n instanceof Join) {
+                Join j = (Join) n;
+                Set<String> need = new LinkedHashSet<>(required);
+                need.add(j.leftKey); need.add(j.rightKey);
+                return new Join(pruneColumns(j.left, need), pruneColumns(j.right, need), j.leftKey, j.rightKey);
+            }
+            Set<String> need = new LinkedHashSet<>(required);
+            if (n instanceof Filter) { ((Filter) n).conds.forEach(c -> need.add(c.column)); Filter f = (Filter) n; return new Filter(pruneColumns(f.child, need), f.conds); }
+            if (n instanceof Derive) {
+                Derive d = (Derive) n;
+                need.remove(d.name); need.add(d.from);
+                return new Derive(pruneColumns(d.child, need), d.name, d.from, d.f);
+            }
+            if (n instanceof Aggregate) {
+                Aggregate a = (Aggregate) n;
+                Set<String> in = new LinkedHashSet<>(a.keys);
+                for (Aggregate.Spec s : a.aggs) if (s.fn != Agg.COUNT) in.add(s.column);
+                return new Aggregate(pruneColumns(a.child, in), a.keys, a.aggs);
+            }
+            if (n instanceof Sort) { Sort s = (Sort) n; s.keys.forEach(k -> need.add(k.column)); return new Sort(pruneColumns(s.child, need), s.keys); }
+            if (n instanceof TopN) { TopN t = (TopN) n; t.keys.forEach(k -> need.add(k.column)); return new TopN(pruneColumns(t.child, need), t.keys, t.n); }
+            if (n instanceof Limit) { Limit l = (Limit) n; return new Limit(pruneColumns(l.child, need), l.n); }
+            if (n instanceof Project) { Project p = (Project) n; return new Project(pruneColumns(p.child, new LinkedHashSet<>(p.columns)), p.columns); }
+            throw new IllegalStateException("Unknown node " + n.describe());
+        }
+
+        // same node with f applied to its children
+        private static Node rebuild(Node n, UnaryOperator<Node> f) {
+            if (n instanceof Scan) return n;
+            if (n instanceof Join) { Join j = (Join) n; return new Join(f.apply(j.left), f.apply(j.right), j.leftKey, j.rightKey); }
+            if (n instanceof Filter) { Filter x = (Filter) n; return new Filter(f.apply(x.child), x.conds); }
+            if (n instanceof Derive) { Derive d = (Derive) n; return new Derive(f.apply(d.child), d.name, d.from, d.f); }
+            if (n instanceof Aggregate) { Aggregate a = (Aggregate) n; return new Aggregate(f.apply(a.child), a.keys, a.aggs); }
+            if (n instanceof Sort) { Sort s = (Sort) n; return new Sort(f.apply(s.child), s.keys); }
+            if (n instanceof TopN) { TopN t = (TopN) n; return new TopN(f.apply(t.child), t.keys, t.n); }
+            if (n instanceof Limit) { Limit l = (Limit) n; return new Limit(f.apply(l.child), l.n); }
+            if (n instanceof Project) { Project p = (Project) n; return new Project(f.apply(p.child), p.columns); }
+            throw new IllegalStateException("Unknown node " + n.describe());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+// QueryResultCache.java
+// Results and shared sub-plans of report queries, cached by (normalized query, dataset, version).
+// - A Plan is a named computation over a dataset, e.g. "group by deptId". Queries that need the
+//   same intermediate ask the cache for that plan and derive their own output from it, so the
+//   grouping runs once per dataset version however many queries (Q26, Q30, Q152, ...) use it.
+// - Query names are normalized (trimmed, lower-cased, whitespace collapsed): "Group by  deptId"
+//   and "group by deptid" are the same entry.
+// - Datasets are compared by reference, plus the version a Versioned dataset reports itself
+//   (EmployeeRegistry, VersionedList). Changing such a dataset moves its version on, so entries
+//   computed from older contents are never served again; they age out of the bounded MemoCache
+//   underneath. Any other dataset is taken as immutable (e.g. FastStart.employees()): mutate data
+//   through a VersionedList, or pass a new list, never change a plain list in place.
+// - Concurrent requests for one entry (batch runs) compute it once, via MemoCache's in-flight dedup.
+// Values are shared between queries and threads, so plans must return unmodifiable results.
+//     static final Plan<List<Employee>, Map<Integer, List<Employee>>> BY_DEPT = QueryResultCache.plan("group by deptId", ...);
+//     RESULTS.get(BY_DEPT, EMP)
+
+import java.util.*;
+import java.util.function.*;
+
+public class QueryResultCache {
+
+    static final class Plan<D, R> {
+        final String name;
+        private final Function<? super D, ? extends R> compute;
+
+        private Plan(String name, Function<? super D, ? extends R> compute) {
+            this.name = normalize(name); this.compute = Objects.requireNonNull(compute);
+        }
+
+        @Override public String toString() { return name; }
+    }
+
+    static <D, R> Plan<D, R> plan(String name, Function<? super D, ? extends R> compute) { return new Plan<>(name, compute); }
+
+    // A dataset whose version changes whenever its contents do.
+    interface Versioned { long version(); }
+
+    // List that counts its own modifications. Not thread-safe, like the ArrayList it wraps.
+    static final class VersionedList<E> extends AbstractList<E> implements RandomAccess, Versioned {
+        private final List<E> items;
+        private volatile long version;
+
+        VersionedList(Collection<? extends E> items) { this.items = new ArrayList<>(items); }
+
+        @Override public long version() { return version; }
+        @Override public E get(int index) { return items.get(index); }
+        @Override public int size() { return items.size(); }
+        @Override public E set(int index, E e) { E old = items.set(index, e); version++; return old; }
+        @Override public void add(int index, E e) { items.add(index, e); version++; modCount++; }
+        @Override public E remove(int index) { E old = items.remove(index); version++; modCount++; return old; }
+    }
+
+    // Equality is (name, dataset reference, version); the plan only travels along to the loader.
+    private static final class Key {
+        final String name; final Object dataset; final long version; final Plan<?, ?> plan;
+
+        Key(Plan<?, ?> plan, Object dataset, long version) {
+            this.name = plan.name; this.dataset = dataset; this.version = version; this.plan = plan;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return dataset == k.dataset && version == k.version && name.equals(k.name);
+        }
+
+        @Override public int hashCode() { return (name.hashCode() * 31 + System.identityHashCode(dataset)) * 31 + Long.hashCode(version); }
+    }
+
+    private final MemoCache<Key, Object> cache;
+
+    QueryResultCache(int maximumEntries) {
+        cache = MemoCache.<Key, Object>builder().maximumSize(maximumEntries).build(QueryResultCache::compute);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object compute(Key k) { return ((Plan<Object, ?>) k.plan).compute.apply(k.dataset); }
+
+    @SuppressWarnings("unchecked")
+    <D, R> R get(Plan<D, R> plan, D dataset) { return (R) cache.get(new Key(plan, Objects.requireNonNull(dataset), versionOf(dataset))); }
+
+    // One-off named result; the same name must always mean the same computation.
+    <D, R> R get(String query, D dataset, Function<? super D, ? extends R> compute) { return get(plan(query, compute), dataset); }
+
+    private static long versionOf(Object dataset) { return dataset instanceof Versioned ? ((Versioned) dataset).version() : 0; }
+
+    MemoCache.Stats stats() { return cache.stats(); }
+
+    static String normalize(String query) { return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT); }
+}
@@ -0,0 +1,170 @@
+// SalaryAdjustment.java
+// Bulk salary changes for the TestEmployee.Employee model: stage, inspect, then commit or roll back.
+// Replaces setSalary() inside a stream map(), which mutates shared state from a lambda and leaves
+// the list half-updated if anything fails part-way.
+// - Rules: "salary < below (and department in ...) -> salary * factor"; the first matching rule wins.
+// - stage(): computes every new salary in parallel chunks into primitive arrays. Nothing is
+//   modified yet and no objects are created per employee (only a few arrays per batch).
+// - commit(): first checks that no staged salary was changed by someone else since staging, then
+//   writes all of them; a conflict aborts before any write. rollback() restores the old values.
+// - audit(): per-rule counts and totals, computed while staging, summed per chunk in chunk order so
+//   the totals are the same on every run.
+//     Batch b = SalaryAdjustment.stage(list, new Rule("junior raise", 19000, 1.10), new Rule("HR", 30000, 1.05, "HR"));
+//     System.out.println(b.audit());  b.commit();  ...  b.rollback();
+// What "atomic" covers: commit() and rollback() of all batches run one at a time under one lock,
+// so two batches never interleave their checks and writes, and a conflict aborts before any write.
+// Everything else is not blocked. Code that reads salaries directly while a commit is writing can
+// see a half-applied batch, and a plain setSalary() between the check and the write of a row is
+// overwritten without being detected. Readers that need a consistent view should read copies
+// from an EmployeeRegistry snapshot instead of the live objects.
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+public class SalaryAdjustment {
+
+    private SalaryAdjustment() { }
+
+    static final int CHUNK = 1 << 14;
+
+    private static final Object COMMIT_LOCK = new Object(); // serializes commit/rollback of every batch
+
+    static final class Rule {
+        final String name; final double below, factor;
+        private final String[] departments; // empty = any department
+
+        Rule(String name, double below, double factor, String... departments) {
+            if (!(factor > 0) || Double.isInfinite(factor)) throw new IllegalArgumentException(name + ": factor must be positive and finite: " + factor);
+            if (Double.isNaN(below)) throw new IllegalArgumentException(name + ": threshold is NaN");
+            this.name = name; this.below = below; this.factor = factor; this.departments = departments.clone();
+        }
+
+        boolean matches(TestEmployee.Employee e) {
+            if (!(e.salary < below)) return false;
+            if (departments.length == 0) return true;
+            for (String d : departments) if (d.equals(e.department)) return true;
+            return false;
+        }
+
+        @Override public String toString() {
+            return name + ": salary < " + below + (departments.length == 0 ? "" : " in " + Arrays.toString(departments)) + " -> x" + factor;
+        }
+    }
+
+    enum State { STAGED, COMMITTED, ROLLED_BACK }
+
+    static Batch stage(List<TestEmployee.Employee> employees, Rule... rules) { return new Batch(employees.toArray(new TestEmployee.Employee[0]), rules.clone()); }
+
+    static final class Batch {
+        private final TestEmployee.Employee[] rows;
+        private final Rule[] rules;
+        private final int[] ruleOf;          // index into rules, -1 = unchanged
+        private final double[] before, after;
+        private final Audit audit;
+        private State state = State.STAGED;
+
+        private Batch(TestEmployee.Employee[] rows, Rule[] rules) {
+            this.rows = rows; this.rules = rules;
+            int n = rows.length, chunks = (n + CHUNK - 1) / CHUNK, r = rules.length;
+            ruleOf = new int[n]; before = new double[n]; after = new double[n];
+            // per-chunk accumulators, merged in chunk order below
+            long[] count = new long[chunks * r];
+            double[] deltaByRule = new double[chunks * r], totalBefore = new double[chunks], totalAfter = new double[chunks];
+            int[] maxAt = new int[chunks];
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int best = -1;
+                double tb = 0, ta = 0;
+                for (int i = c * CHUNK, end = Math.min(n, i + CHUNK); i < end; i++) {
+                    TestEmployee.Employee e = rows[i];
+                    double old = e.salary, now = old;
+                    int k = -1;
+                    for (int j = 0; j < r; j++) if (rules[j].matches(e)) { k = j; break; }
+                    if (k >= 0) {
+                        now = old * rules[k].factor;
+                        if (Double.isInfinite(now)) throw new ArithmeticException("Salary overflow for employee " + e.id + " under " + rules[k].name);
+                        count[c * r + k]++;
+                        deltaByRule[c * r + k] += now - old;
+                        if (best < 0 || now - old > after[best] - before[best]) best = i;
+                    }
+                    ruleOf[i] = k; before[i] = old; after[i] = now;
+                    tb += old; ta += now;
+                }
+                totalBefore[c] = tb; totalAfter[c] = ta; maxAt[c] = best;
+            });
+            long[] perRuleCount = new long[r];
+            double[] perRuleDelta = new double[r];
+            double tb = 0, ta = 0;
+            int best = -1;
+            for (int c = 0; c < chunks; c++) {
+                for (int j = 0; j < r; j++) { perRuleCount[j] += count[c * r + j]; perRuleDelta[j] += deltaByRule[c * r + j]; }
+                tb += totalBefore[c]; ta += totalAfter[c];
+                int m = maxAt[c];
+                if (m >= 0 && (best < 0 || after[m] - before[m] > after[best] - before[best])) best = m;
+            }
+            audit = new Audit(n, rules, perRuleCount, perRuleDelta, tb, ta,
+                best < 0 ? -1 : rows[best].id, best < 0 ? 0 : after[best] - before[best]);
+        }
+
+        Audit audit() { return audit; }
+
+        synchronized State state() { return state; }
+
+        // the staged salary for row i of the input list
+        double stagedSalary(int i) { return after[i]; }
+
+        // All or nothing: throws ConcurrentModificationException, writing nothing, if any affected
+        // salary differs from the value seen when staging.
+        synchronized void commit() {
+            if (state != State.STAGED) throw new IllegalStateException("Batch is " + state);
+            synchronized (COMMIT_LOCK) { transfer(before, after); }
+            state = State.COMMITTED;
+        }
+
+        // Restores the salaries a commit changed (or just discards a staged batch).
+        synchronized void rollback() {
+            if (state == State.COMMITTED) { synchronized (COMMIT_LOCK) { transfer(after, before); } }
+            else if (state != State.STAGED) throw new IllegalStateException("Batch is " + state);
+            state = State.ROLLED_BACK;
+        }
+
+        private void transfer(double[] expected, double[] target) {
+            int n = rows.length, chunks = (n + CHUNK - 1) / CHUNK;
+            int conflict = IntStream.range(0, chunks).parallel().map(c -> {
+                for (int i = c * CHUNK, end = Math.min(n, i + CHUNK); i < end; i++)
+                    if (ruleOf[i] >= 0 && Double.doubleToLongBits(rows[i].salary) != Double.doubleToLongBits(expected[i])) return i;
+                return -1;
+            }).filter(i -> i >= 0).min().orElse(-1);
+            if (conflict >= 0)
+                throw new ConcurrentModificationException("Salary of employee " + rows[conflict].id + " changed outside the batch: expected "
+                    + expected[conflict] + ", found " + rows[conflict].salary);
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                for (int i = c * CHUNK, end = Math.min(n, i + CHUNK); i < end; i++) if (ruleOf[i] >= 0) rows[i].salary = target[i];
+            });
+        }
+    }
+
+    static final class Audit {
+        final int examined; final long changed;
+        final double totalBefore, totalAfter;
+        final int maxIncreaseId; final double maxIncrease; // -1 / 0 when nothing changed
+        private final Rule[] rules; private final long[] perRuleCount; private final double[] perRuleDelta;
+
+        Audit(int examined, Rule[] rules, long[] perRuleCount, double[] perRuleDelta, double totalBefore, double totalAfter, int maxIncreaseId, double maxIncrease) {
+            this.examined = examined; this.rules = rules; this.perRuleCount = perRuleCount; this.perRuleDelta = perRuleDelta;
+            this.changed = Arrays.stream(perRuleCount).sum();
+            this.totalBefore = totalBefore; this.totalAfter = totalAfter; this.maxIncreaseId = maxIncreaseId; this.maxIncrease = maxIncrease;
+        }
+
+        long count(int rule) { return perRuleCount[rule]; }
+        double delta(int rule) { return perRuleDelta[rule]; }
+
+        @Override public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(Locale.US, "examined=%d changed=%d payroll %.2f -> %.2f (%+.2f)",
+                examined, changed, totalBefore, totalAfter, totalAfter - totalBefore));
+            if (maxIncreaseId >= 0) sb.append(String.format(Locale.US, ", largest raise %.2f for id %d", maxIncrease, maxIncreaseId));
+            for (int j = 0; j < rules.length; j++)
+                sb.append(String.format(Locale.US, "%n  %s: %d changed, %+.2f", rules[j], perRuleCount[j], perRuleDelta[j]));
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+// SharedScan.java
+// Evaluate many collector-based aggregations in ONE pass over the data.
+// Instead of N pipelines like
+//     EMP.stream().filter(active).collect(groupingBy(dept, counting()))
+//     EMP.stream().collect(groupingBy(dept, averagingInt(age)))
+// register them once and run a single scan:
+//     SharedScan<Employee> scan = new SharedScan<>();
+//     SharedScan.Key<Employee,Integer> dept = scan.key("dept", e -> e.deptId);
+//     SharedScan.Filter<Employee> active = scan.filter("active", e -> e.active);
+//     Handle<Map<Integer,Long>> a = scan.groupBy("active per dept", active, dept, counting());
+//     Handle<Map<Integer,Double>> b = scan.groupBy("avg age per dept", null, dept, averagingInt(e -> e.age));
+//     SharedScan.Results r = scan.run(EMP.stream());   // r.get(a), r.get(b)
+// Sharing: every filter and key is evaluated at most once per element, and queries with the same
+// (filter, key) pair share one hash lookup per element ("lane"). Works with parallel streams because
+// the whole scan is itself a Collector with a proper combiner.
+// moments(fn) is a mergeable mean/variance collector (Welford per worker, Chan et al. to combine),
+// so a standard deviation can share the scan without the unstable E[x^2] - mean^2 formula.
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class SharedScan<T> {
+
+    static final class Filter<T> {
+        final int id; final String name; final Predicate<? super T> predicate;
+        private Filter(int id, String name, Predicate<? super T> predicate) { this.id = id; this.name = name; this.predicate = predicate; }
+        @Override public String toString() { return name; }
+    }
+
+    static final class Key<T, K> {
+        final int id; final String name; final Function<? super T, ? extends K> fn;
+        private Key(int id, String name, Function<? super T, ? extends K> fn) { this.id = id; this.name = name; this.fn = fn; }
+        @Override public String toString() { return name; }
+    }
+
+    static final class Handle<R> {
+        final int id; final String name;
+        private Handle(int id, String name) { this.id = id; this.name = name; }
+        @Override public String toString() { return name; }
+    }
+
+    static final class Results {
+        private final List<Handle<?>> handles; private final Object[] values;
+        private Results(List<Handle<?>> handles, Object[] values) { this.handles = handles; this.values = values; }
+        @SuppressWarnings("unchecked")
+        <R> R get(Handle<R> h) { return (R) values[h.id]; }
+        @Override public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Handle<?> h : handles) sb.append(h.name).append(" = ").append(values[h.id]).append('\n');
+            return sb.toString();
+        }
+    }
+
+    // one query = one collector fed from a lane (collector functions unpacked once, not per element)
+    private static final class Query {
+        final Handle<?> handle; final boolean grouped;
+        final Supplier<Object> supplier; final BiConsumer<Object, Object> accumulator;
+        final BinaryOperator<Object> combiner; final Function<Object, Object> finisher;
+        Query(Handle<?> handle, boolean grouped, Collector<Object, Object, Object> c) {
+            this.handle = handle; this.grouped = grouped;
+            this.supplier = c.supplier(); this.accumulator = c.accumulator(); this.combiner = c.combiner(); this.finisher = c.finisher();
+        }
+    }
+
+    // all queries that share the same (filter, key)
+    private static final class Lane {
+        final int filterId; final int keyId; final List<Query> queries = new ArrayList<>();
+        Lane(int filterId, int keyId) { this.filterId = filterId; this.keyId = keyId; }
+        Lane copy() { Lane l = new Lane(filterId, keyId); l.queries.addAll(queries); return l; }
+    }
+
+    // Count, mean and sum of squared deviations, updated incrementally.
+    static final class Moments {
+        private long count; private double mean, m2;
+
+        void accept(double x) {
+            count++;
+            double d = x - mean;
+            mean += d / count;
+            m2 += d * (x - mean);
+        }
+
+        Moments merge(Moments o) {
+            if (o.count == 0) return this;
+            if (count == 0) { count = o.count; mean = o.mean; m2 = o.m2; return this; }
+            long n = count + o.count;
+            double d = o.mean - mean;
+            mean += d * o.count / n;
+            m2 += o.m2 + d * d * ((double) count * o.count / n);
+            count = n;
+            return this;
+        }
+
+        long count() { return count; }
+        double mean() { return count == 0 ? 0 : mean; }
+        double variance() { return count == 0 ? 0 : m2 / count; } // population variance
+        double stdDev() { return Math.sqrt(variance()); }
+
+        @Override public String toString() { return "Moments{count=" + count + ", mean=" + mean() + ", std=" + stdDev() + "}"; }
+    }
+
+    static <T> Collector<T, ?, Moments> moments(ToDoubleFunction<? super T> fn) {
+        return Collector.of(Moments::new, (m, t) -> m.accept(fn.applyAsDouble(t)), Moments::merge);
+    }
+
+    private static final int NO_FILTER = -1, NO_KEY = -1;
+    private static final Object ALL = new Object(); // group key of ungrouped lanes
+
+    private final List<Filter<T>> filters = new ArrayList<>();
+    private final List<Key<T, ?>> keys = new ArrayList<>();
+    private final List<Lane> lanes = new ArrayList<>();
+    private final List<Query> queries = new ArrayList<>();
+    private final List<Handle<?>> handles = new ArrayList<>();
+
+    Filter<T> filter(String name, Predicate<? super T> predicate) {
+        Filter<T> f = new Filter<>(filters.size(), name, Objects.requireNonNull(predicate));
+        filters.add(f);
+        return f;
+    }
+
+    <K> Key<T, K> key(String name, Function<? super T, ? extends K> fn) {
+        Key<T, K> k = new Key<>(keys.size(), name, Objects.requireNonNull(fn));
+        keys.add(k);
+        return k;
+    }
+
+    // filter may be null (= every element)
+    <R> Handle<R> aggregate(String name, Filter<T> filter, Collector<? super T, ?, R> downstream) {
+        return register(name, filter, null, downstream);
+    }
+
+    <K, R> Handle<Map<K, R>> groupBy(String name, Filter<T> filter, Key<T, K> key, Collector<? super T, ?, R> downstream) {
+        return register(name, filter, Objects.requireNonNull(key), downstream);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> Handle<R> register(String name, Filter<T> filter, Key<T, ?> key, Collector<? super T, ?, ?> downstream) {
+        int fid = filter == null ? NO_FILTER : filter.id, kid = key == null ? NO_KEY : key.id;
+        Lane lane = lanes.stream().filter(l -> l.filterId == fid && l.keyId == kid).findFirst().orElse(null);
+        if (lane == null) { lane = new Lane(fid, kid); lanes.add(lane); }
+        Handle<R> h = new Handle<>(handles.size(), name);
+        Query q = new Query(h, key != null, (Collector<Object, Object, Object>) (Collector<?, ?, ?>) downstream);
+        lane.queries.add(q);
+        queries.add(q);
+        handles.add(h);
+        return h;
+    }
+
+    Results run(Stream<T> data) { return data.collect(collector()); }
+
+    Results run(Collection<T> data) { return run(data.stream()); }
+
+    // The whole plan as one Collector; usable with parallel streams.
+    Collector<T, ?, Results> collector() {
+        // snapshot the plan so later registrations don't affect a running scan
+        Lane[] plan = lanes.stream().map(Lane::copy).toArray(Lane[]::new);
+        int nFilters = filters.size(), nKeys = keys.size(), nQueries = handles.size();
+        List<Handle<?>> hs = new ArrayList<>(handles);
+        return Collector.of(
+            () -> new State(plan, nFilters, nKeys),
+            State::accept,
+            State::merge,
+            s -> s.finish(nQueries, hs));
+    }
+
+    // Human readable plan: which filters/keys are shared by which aggregations.
+    String explain() {
+        StringBuilder sb = new StringBuilder("SharedScan: 1 pass, ").append(filters.size()).append(" filter(s), ")
+            .append(keys.size()).append(" key(s), ").append(queries.size()).append(" aggregate(s)\n");
+        for (Lane l : lanes) {
+            sb.append("  lane filter=").append(l.filterId == NO_FILTER ? "<all>" : filters.get(l.filterId).name)
+              .append(" key=").append(l.keyId == NO_KEY ? "<none>" : keys.get(l.keyId).name).append(" -> ")
+              .append(l.queries.stream().map(q -> q.handle.name).collect(Collectors.toList())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // Per-thread accumulation state. The scratch arrays cache filter/key results for the current element.
+    private final class State {
+        final Lane[] plan;
+        final List<Map<Object, Object[]>> groups = new ArrayList<>();
+        final byte[] filterScratch; // 0 = not evaluated, 1 = pass, 2 = fail
+        final Object[] keyScratch; final boolean[] keyDone;
+
+        State(Lane[] plan, int nFilters, int nKeys) {
+            this.plan = plan;
+            for (int i = 0; i < plan.length; i++) groups.add(new HashMap<>());
+            filterScratch = new byte[nFilters]; keyScratch = new Object[nKeys]; keyDone = new boolean[nKeys];
+        }
+
+        void accept(T t) {
+            Arrays.fill(filterScratch, (byte) 0);
+            Arrays.fill(keyDone, false);
+            for (int li = 0; li < plan.length; li++) {
+                Lane lane = plan[li];
+                if (lane.filterId != NO_FILTER && !passes(lane.filterId, t)) continue;
+                Object k = lane.keyId == NO_KEY ? ALL : key(lane.keyId, t);
+                Object[] containers = groups.get(li).get(k);
+                if (containers == null) {
+                    containers = newContainers(lane);
+                    groups.get(li).put(k, containers);
+                }
+                for (int qi = 0; qi < containers.length; qi++) lane.queries.get(qi).accumulator.accept(containers[qi], t);
+            }
+        }
+
+        private boolean passes(int fid, T t) {
+            if (filterScratch[fid] == 0) filterScratch[fid] = filters.get(fid).predicate.test(t) ? (byte) 1 : (byte) 2;
+            return filterScratch[fid] == 1;
+        }
+
+        private Object key(int kid, T t) {
+            if (!keyDone[kid]) {
+                keyScratch[kid] = Objects.requireNonNull(keys.get(kid).fn.apply(t), "element cannot be mapped to a null key");
+                keyDone[kid] = true;
+            }
+            return keyScratch[kid];
+        }
+
+        private Object[] newContainers(Lane lane) {
+            Object[] c = new Object[lane.queries.size()];
+            for (int qi = 0; qi < c.length; qi++) c[qi] = lane.queries.get(qi).supplier.get();
+            return c;
+        }
+
+        State merge(State other) {
+            for (int li = 0; li < plan.length; li++) {
+                Lane lane = plan[li];
+                Map<Object, Object[]> mine = groups.get(li);
+                other.groups.get(li).forEach((k, theirs) -> {
+                    Object[] c = mine.get(k);
+                    if (c == null) { mine.put(k, theirs); return; }
+                    for (int qi = 0; qi < c.length; qi++) c[qi] = lane.queries.get(qi).combiner.apply(c[qi], theirs[qi]);
+                });
+            }
+            return this;
+        }
+
+        Results finish(int nQueries, List<Handle<?>> hs) {
+            Object[] values = new Object[nQueries];
+            for (int li = 0; li < plan.length; li++) {
+                Lane lane = plan[li];
+                Map<Object, Object[]> g = groups.get(li);
+                for (int qi = 0; qi < lane.queries.size(); qi++) {
+                    Query q = lane.queries.get(qi);
+                    Function<Object, Object> fin = q.finisher;
+                    if (q.grouped) {
+                        Map<Object, Object> m = new HashMap<>();
+                        for (Map.Entry<Object, Object[]> en : g.entrySet()) m.put(en.getKey(), fin.apply(en.getValue()[qi]));
+                        values[q.handle.id] = m;
+                    } else {
+                        Object[] c = g.get(ALL);
+                        values[q.handle.id] = fin.apply(c == null ? q.supplier.get() : c[qi]);
+                    }
+                }
+            }
+            return new Results(hs, values);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+// Sketches.java
+// Fixed-memory streaming summaries for frequency and distinct-count questions (Q67/Q68 skill
+// frequency, Q204 and Q130/Q205 top skills, Q186 distinct skills per dept).
+// Those queries used to build a HashMap with an entry for every distinct value.
+// - CountMin: depth x width counters. estimate(x) is never below the true count and exceeds it by
+//   at most epsilon * total with probability 1 - delta. Answers "how often did x occur" for any x.
+// - SpaceSaving: at most `capacity` monitored items in a min-heap. A new item replaces the smallest
+//   one and inherits its count as error. Every item occurring more than total / capacity times is
+//   kept, and count - error <= true count <= count. Exact while distinct values <= capacity.
+// - HeavyHitters: both together. SpaceSaving picks the candidates, and each count is capped by the
+//   Count-Min estimate, which often tightens the upper bound.
+// - HyperLogLog: 2^p one-byte registers, relative standard error about 1.04 / sqrt(2^p)
+//   (p = 12: 4 KB, ~1.6%), from zero up, with no switch-over between small and large counts.
+// All of them merge (element-wise sum or max; SpaceSaving with the mergeable-summaries rule), so
+// the collectors below work in parallel streams and as groupingBy downstreams with fixed memory
+// per group:
+//     EMP.stream().collect(groupingBy(e -> e.deptId, flatMapping(e -> e.skills.stream(), Sketches.topItems(3))));
+//     EMP.stream().collect(groupingBy(e -> e.deptId, flatMapping(e -> e.skills.stream(), Sketches.distinctCount(12))));
+// Items are hashed with a 64-bit hash of the String contents (or of hashCode() for other types),
+// so equal items must have equal hashes, as with HashMap.
+
+import java.util.*;
+import java.util.stream.Collector;
+
+public class Sketches {
+
+    private Sketches() { }
+
+    // --- Count-Min ------------------------------------------------------------
+
+    static final class CountMin<T> {
+        private final int depth, mask;
+        private final long[] counts; // depth rows of mask + 1 counters
+        private long total;
+
+        // width e / epsilon (rounded up to a power of two), depth ln(1 / delta)
+        CountMin(double epsilon, double delta) {
+            if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) throw new IllegalArgumentException("epsilon and delta must be in (0, 1)");
+            long width = Long.highestOneBit((long) Math.ceil(Math.E / epsilon) - 1) << 1;
+            if (width > 1 << 26) throw new IllegalArgumentException("epsilon too small: " + epsilon);
+            depth = (int) Math.ceil(Math.log(1 / delta));
+            mask = (int) width - 1;
+            counts = new long[depth * (int) width];
+        }
+
+        void add(T item) { add(item, 1); }
+
+        void add(T item, long n) {
+            if (n < 0) throw new IllegalArgumentException("Negative count: " + n);
+            long h = hash64(item);
+            for (int row = 0; row < depth; row++) counts[row * (mask + 1) + index(h, row)] += n;
+            total += n;
+        }
+
+        long estimate(T item) {
+            long h = hash64(item), min = Long.MAX_VALUE;
+            for (int row = 0; row < depth; row++) min = Math.min(min, counts[row * (mask + 1) + index(h, row)]);
+            return min;
+        }
+
+        long total() { return total; }
+
+        CountMin<T> merge(CountMin<T> o) {
+            if (o.depth != depth || o.mask != mask) throw new IllegalArgumentException("Count-Min sketches of different shapes");
+            for (int i = 0; i < counts.length; i++) counts[i] += o.counts[i];
+            total += o.total;
+            return this;
+        }
+
+        // Kirsch-Mitzenmacher: row hashes h1 + row * h2 from the two halves of one 64-bit hash
+        private int index(long h, int row) { return ((int) h + row * ((int) (h >>> 32) | 1)) & mask; }
+    }
+
+    // --- Space-Saving -----------------------------------------------------------
+
+    // An item with an upper-bound count; count - error is a lower bound.
+    static final class Counter<T> {
+        final T item; final long count, error;
+
+        Counter(T item, long count, long error) { this.item = item; this.count = count; this.error = error; }
+
+        long guaranteed() { return count - error; }
+
+        @Override public String toString() { return item + "=" + (error == 0 ? "" : "~") + count; }
+    }
+
+    static final class SpaceSaving<T> {
+        private final int capacity;
+        private final Map<T, Integer> slot = new HashMap<>(); // item -> heap position
+        private final Object[] items;
+        private final long[] counts, errors;               // min-heap on counts
+        private int size;
+        private long total;
+
+        SpaceSaving(int capacity) {
+            if (capacity < 1) throw new IllegalArgumentException("capacity < 1: " + capacity);
+            this.capacity = capacity;
+            items = new Object[capacity]; counts = new long[capacity]; errors = new long[capacity];
+        }
+
+        void add(T item) { add(item, 1); }
+
+        void add(T item, long n) {
+            if (n < 0) throw new IllegalArgumentException("Negative count: " + n);
+            total += n;
+            Integer at = slot.get(item);
+            if (at != null) { counts[at] += n; down(at); return; }
+            if (size < capacity) { put(size, item, n, 0); up(size++); return; }
+            slot.remove(items[0]);
+            put(0, item, counts[0] + n, counts[0]);
+            down(0);
+        }
+
+        long total() { return total; }
+
+        int size() { return size; }
+
+        // upper bound for any item: its count if monitored, else the smallest monitored count when full
+        long estimate(T item) {
+            Integer at = slot.get(item);
+            return at != null ? counts[at] : floor();
+        }
+
+        // Most frequent first (by count, then by guaranteed count).
+        List<Counter<T>> top(int k) {
+            List<Counter<T>> all = counters();
+            all.sort(BY_COUNT);
+            return new ArrayList<>(all.subList(0, Math.min(k, all.size())));
+        }
+
+        // Mergeable-summaries rule: an item missing from a full summary may have occurred up to that
+        // summary's minimum count, which is added to both its count and its error; then the largest
+        // `capacity` counters are kept.
+        SpaceSaving<T> merge(SpaceSaving<T> o) {
+            if (o.capacity != capacity) throw new IllegalArgumentException("Space-Saving summaries of different capacity");
+            long floorA = floor(), floorB = o.floor();
+            Map<T, long[]> m = new HashMap<>();
+            for (Counter<T> c : counters()) m.put(c.item, new long[] { c.count + floorB, c.error + floorB });
+            for (Counter<T> c : o.counters()) {
+                long[] v = m.get(c.item);
+                if (v == null) m.put(c.item, new long[] { c.count + floorA, c.error + floorA });
+                else { v[0] += c.count - floorB; v[1] += c.error - floorB; }
+            }
+            List<Counter<T>> merged = new ArrayList<>(m.size());
+            m.forEach((item, v) -> merged.add(new Counter<>(item, v[0], v[1])));
+            merged.sort(BY_COUNT);
+            slot.clear();
+            size = 0;
+            for (Counter<T> c : merged.subList(0, Math.min(capacity, merged.size()))) { put(size, c.item, c.count, c.error); up(size++); }
+            total += o.total;
+            return this;
+        }
+
+        private long floor() { return size < capacity ? 0 : counts[0]; }
+
+        @SuppressWarnings("unchecked")
+        private List<Counter<T>> counters() {
+            List<Counter<T>> l = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) l.add(new Counter<>((T) items[i], counts[i], errors[i]));
+            return l;
+        }
+
+        private void put(int i, Object item, long count, long error) {
+            items[i] = item; counts[i] = count; errors[i] = error;
+            slot.put(uncheckedItem(item), i);
+        }
+
+        @SuppressWarnings("unchecked")
+        private T uncheckedItem(Object o) { return (T) o; }
+
+        private void up(int i) {
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (counts[p] <= counts[i]) break;
+                swap(i, p); i = p;
+            }
+        }
+
+        private void down(int i) {
+            for (int c; (c = 2 * i + 1) < size; i = c) {
+                if (c + 1 < size && counts[c + 1] < counts[c]) c++;
+                if (counts[i] <= counts[c]) break;
+                swap(i, c);
+            }
+        }
+
+        private void swap(int i, int j) {
+            Object it = items[i]; items[i] = items[j]; items[j] = it;
+            long c = counts[i]; counts[i] = counts[j]; counts[j] = c;
+            long e = errors[i]; errors[i] = errors[j]; errors[j] = e;
+            slot.put(uncheckedItem(items[i]), i); slot.put(uncheckedItem(items[j]), j);
+        }
+    }
+
+    private static final Comparator<Counter<?>> BY_COUNT =
+        Comparator.<Counter<?>>comparingLong(c -> c.count).thenComparingLong(Counter::guaranteed).reversed();
+
+    // --- Heavy hitters ------------------------------------------------------------
+
+    static final class HeavyHitters<T> {
+        final SpaceSaving<T> candidates;
+        final CountMin<T> frequencies;
+
+        // Count-Min about 4 x capacity wide, so its error bound is a fraction of Space-Saving's total / capacity
+        HeavyHitters(int capacity) {
+            candidates = new SpaceSaving<>(capacity);
+            frequencies = new CountMin<>(Math.E / (4.0 * capacity), 0.01);
+        }
+
+        void add(T item) { candidates.add(item); frequencies.add(item); }
+
+        // upper bound from whichever summary gives the smaller one
+        long estimate(T item) { return Math.min(candidates.estimate(item), frequencies.estimate(item)); }
+
+        List<Counter<T>> top(int k) {
+            List<Counter<T>> l = new ArrayList<>();
+            for (Counter<T> c : candidates.top(candidates.size())) {
+                long count = Math.min(c.count, frequencies.estimate(c.item));
+                l.add(new Counter<>(c.item, count, Math.max(0, count - c.guaranteed())));
+            }
+            l.sort(BY_COUNT);
+            return new ArrayList<>(l.subList(0, Math.min(k, l.size())));
+        }
+
+        HeavyHitters<T> merge(HeavyHitters<T> o) { candidates.merge(o.candidates); frequencies.merge(o.frequencies); return this; }
+    }
+
+    // --- HyperLogLog --------------------------------------------------------------
+
+    static final class HyperLogLog {
+        private final int p;
+        private final byte[] registers;
+
+        HyperLogLog(int p) {
+            if (p < 4 || p > 18) throw new IllegalArgumentException("precision must be in [4, 18]: " + p);
+            this.p = p;
+            registers = new byte[1 << p];
+        }
+
+        void add(Object item) { addHash(hash64(item)); }
+
+        void addHash(long h) {
+            int i = (int) (h >>> (64 - p));
+            int rank = Long.numberOfLeadingZeros((h << p) | (1L << (p - 1))) + 1;
+            if (rank > registers[i]) registers[i] = (byte) rank;
+        }
+
+        // Ertl's improved estimator ("New cardinality estimation algorithms for HyperLogLog
+        // sketches", 2017): works from the register histogram, needs no empirical bias tables and has
+        // no jump between the small and large range.
+        long estimate() {
+            int m = registers.length, q = 64 - p;
+            int[] hist = new int[q + 2];
+            for (byte r : registers) hist[r]++;
+            double z = m * tau(1 - (double) hist[q + 1] / m);
+            for (int k = q; k >= 1; k--) z = 0.5 * (z + hist[k]);
+            z += m * sigma((double) hist[0] / m);
+            return Math.round(m / (2 * Math.log(2)) * m / z);
+        }
+
+        private static double sigma(double x) {
+            if (x == 1) return Double.POSITIVE_INFINITY;
+            double y = 1, z = x, prev;
+            do { x *= x; prev = z; z += x * y; y += y; } while (z != prev);
+            return z;
+        }
+
+        private static double tau(double x) {
+            if (x == 0 || x == 1) return 0;
+            double y = 1, z = 1 - x, prev;
+            do { x = Math.sqrt(x); prev = z; y *= 0.5; z -= (1 - x) * (1 - x) * y; } while (z != prev);
+            return z / 3;
+        }
+
+        double relativeStandardError() { return 1.04 / Math.sqrt(registers.length); }
+
+        HyperLogLog merge(HyperLogLog o) {
+            if (o.p != p) throw new IllegalArgumentException("HyperLogLog sketches of different precision");
+            for (int i = 0; i < registers.length; i++) if (o.registers[i] > registers[i]) registers[i] = o.registers[i];
+            return this;
+        }
+    }
+
+    // --- Collectors ----------------------------------------------------------------
+
+    static <T> Collector<T, ?, CountMin<T>> countMin(double epsilon, double delta) {
+        return Collector.of(() -> new CountMin<T>(epsilon, delta), CountMin::add, CountMin::merge,
+            Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    static <T> Collector<T, ?, HeavyHitters<T>> heavyHitters(int capacity) {
+        return Collector.of(() -> new HeavyHitters<T>(capacity), HeavyHitters::add, HeavyHitters::merge,
+            Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    // k most frequent items with counts, from a Space-Saving summary of max(64, 8k) items capped by
+    // Count-Min; exact while there are at most that many distinct items.
+    static <T> Collector<T, ?, List<Counter<T>>> topK(int k) {
+        return Collector.of(() -> new HeavyHitters<T>(Math.max(64, 8 * k)), HeavyHitters::add, HeavyHitters::merge,
+            h -> h.top(k), Collector.Characteristics.UNORDERED);
+    }
+
+    static <T> Collector<T, ?, List<T>> topItems(int k) {
+        return Collector.of(() -> new HeavyHitters<T>(Math.max(64, 8 * k)), HeavyHitters::add, HeavyHitters::merge, h -> {
+            List<T> l = new ArrayList<>(k);
+            for (Counter<T> c : h.top(k)) l.add(c.item);
+            return l;
+        }, Collector.Characteristics.UNORDERED);
+    }
+
+    static <T> Collector<T, ?, HyperLogLog> hyperLogLog(int p) {
+        return Collector.of(() -> new HyperLogLog(p), HyperLogLog::add, HyperLogLog::merge,
+            Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    static <T> Collector<T, ?, Long> distinctCount(int p) {
+        return Collector.of(() -> new HyperLogLog(p), HyperLogLog::add, HyperLogLog::merge, HyperLogLog::estimate,
+            Collector.Characteristics.UNORDERED);
+    }
+
+    // --- hashing --------------------------------------------------------------------
+
+    // 64-bit hash: Strings over their chars, boxed integrals by value, other objects via hashCode()
+    static long hash64(Object o) {
+        long h;
+        if (o instanceof String) {
+            String s = (String) o;
+            h = 0x9E3779B97F4A7C15L ^ s.length();
+            for (int i = 0; i < s.length(); i++) h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        } else if (o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte) {
+            h = ((Number) o).longValue();
+        } else if (o instanceof Character) {
+            h = (Character) o;
+        } else {
+            h = o == null ? 0 : o.hashCode();
+        }
+        return mix(h);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
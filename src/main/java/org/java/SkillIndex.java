@@ -0,0 +1,121 @@
+// SkillIndex.java
+// Inverted index: skill -> compressed bitmap of employee ordinals (plus dept -> bitmap).
+// Skills are keyed by their SymbolDictionary.SKILLS id (employees already hold them as SymbolSets),
+// so indexing an employee is an int loop; each employee gets a dense ordinal when added.
+// Queries are bitmap algebra instead of a Set.contains() per employee:
+//     SkillIndex idx = new SkillIndex(EMP);
+//     CompressedBitmap hit = idx.dept(10).and(idx.allOf("Java", "SQL")).andNot(idx.skill("Docker"));
+//     idx.count(hit);  idx.employees(hit);
+// Supports incremental add/update/remove. Not thread-safe; wrap or rebuild for concurrent use.
+
+import java.util.*;
+import java.util.stream.*;
+
+public class SkillIndex {
+
+    private final List<CompressedBitmap> bySkill = new ArrayList<>(); // indexed by SKILLS id, null if unused here
+    private final Map<Integer, CompressedBitmap> byDept = new HashMap<>();
+
+    private final List<EmployeeStreamQ91to300.Employee> byOrdinal = new ArrayList<>();
+    private final Map<Integer, Integer> ordinalById = new HashMap<>();
+    private final CompressedBitmap live = new CompressedBitmap();
+
+    SkillIndex() { }
+
+    SkillIndex(Collection<EmployeeStreamQ91to300.Employee> employees) { employees.forEach(this::add); }
+
+    // --- Maintenance --------------------------------------------------------
+
+    // Adds a new employee, or replaces the indexed copy with the same id.
+    void add(EmployeeStreamQ91to300.Employee e) {
+        Integer ord = ordinalById.get(e.id);
+        if (ord != null) { unindex(ord); byOrdinal.set(ord, e); }
+        else { ord = byOrdinal.size(); byOrdinal.add(e); ordinalById.put(e.id, ord); }
+        index(ord, e);
+    }
+
+    void update(EmployeeStreamQ91to300.Employee e) { add(e); }
+
+    boolean remove(int employeeId) {
+        Integer ord = ordinalById.remove(employeeId);
+        if (ord == null) return false;
+        unindex(ord);
+        byOrdinal.set(ord, null); // ordinal retired; keeps other ordinals stable
+        return true;
+    }
+
+    private void index(int ord, EmployeeStreamQ91to300.Employee e) {
+        e.skills.forEachId(id -> {
+            while (bySkill.size() <= id) bySkill.add(null);
+            if (bySkill.get(id) == null) bySkill.set(id, new CompressedBitmap());
+            bySkill.get(id).add(ord);
+        });
+        byDept.computeIfAbsent(e.deptId, k -> new CompressedBitmap()).add(ord);
+        live.add(ord);
+    }
+
+    private void unindex(int ord) {
+        EmployeeStreamQ91to300.Employee old = byOrdinal.get(ord);
+        old.skills.forEachId(id -> bySkill.get(id).remove(ord));
+        CompressedBitmap d = byDept.get(old.deptId);
+        if (d != null) d.remove(ord);
+        live.remove(ord);
+    }
+
+    // --- Posting lists (copies; safe to combine and keep) -------------------
+
+    CompressedBitmap skill(String skill) { return posting(skill).copy(); }
+
+    CompressedBitmap dept(int deptId) {
+        CompressedBitmap b = byDept.get(deptId);
+        return b == null ? new CompressedBitmap() : b.copy();
+    }
+
+    CompressedBitmap all() { return live.copy(); }
+
+    CompressedBitmap allOf(String... skills) {
+        if (skills.length == 0) return all();
+        CompressedBitmap r = skill(skills[0]);
+        for (int i = 1; i < skills.length && !r.isEmpty(); i++) r = r.and(posting(skills[i]));
+        return r;
+    }
+
+    CompressedBitmap anyOf(String... skills) {
+        CompressedBitmap r = new CompressedBitmap();
+        for (String s : skills) r = r.or(posting(s));
+        return r;
+    }
+
+    CompressedBitmap not(CompressedBitmap b) { return live.andNot(b); }
+
+    // read-only access for combining without an extra copy
+    private CompressedBitmap posting(String skill) {
+        int id = SymbolDictionary.SKILLS.id(skill);
+        CompressedBitmap b = id >= 0 && id < bySkill.size() ? bySkill.get(id) : null;
+        return b == null ? new CompressedBitmap() : b;
+    }
+
+    // --- Results ------------------------------------------------------------
+
+    int count(CompressedBitmap b) { return b.cardinality(); }
+
+    // employees with the skill in the dept, counted without materializing the intersection
+    int countSkillInDept(String skill, int deptId) {
+        CompressedBitmap d = byDept.get(deptId);
+        return d == null ? 0 : CompressedBitmap.andCardinality(posting(skill), d);
+    }
+
+    int skillCount(String skill) { return posting(skill).cardinality(); }
+
+    List<EmployeeStreamQ91to300.Employee> employees(CompressedBitmap b) {
+        List<EmployeeStreamQ91to300.Employee> out = new ArrayList<>(b.cardinality());
+        b.forEach(ord -> { EmployeeStreamQ91to300.Employee e = byOrdinal.get(ord); if (e != null) out.add(e); });
+        return out;
+    }
+
+    // skills held by at least one indexed employee, in SKILLS id (first-interned) order
+    List<String> skills() {
+        return IntStream.range(0, bySkill.size()).filter(i -> bySkill.get(i) != null && !bySkill.get(i).isEmpty())
+            .mapToObj(SymbolDictionary.SKILLS::name).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,185 @@
+// SkillSimilarity.java
+// "Find employees with similar skills" without comparing every pair.
+// 1. Employees already carry their skills as sorted SymbolDictionary.SKILLS ids (no per-pair HashSets).
+// 2. MinHash: numHashes = bands * rows hash functions; signature[i] = min over skills of h_i(skill).
+//    P(signature[i] equal for two employees) == Jaccard(skills of both).
+// 3. LSH banding: signatures are cut into 'bands' slices of 'rows' values; employees whose slice
+//    hashes collide in any band become candidate pairs. Pairs above the threshold collide with high
+//    probability, dissimilar pairs rarely do, so the work is near-linear in the number of employees.
+// 4. Every candidate is verified with the exact Jaccard on the sorted int[] skill ids.
+// For exact "share at least m skills" questions use pairsSharingAtLeast(m), which walks skill
+// postings instead of all pairs.
+
+import java.util.*;
+import java.util.stream.*;
+
+public class SkillSimilarity {
+
+    static final class SimilarPair {
+        final EmployeeStreamQ91to300.Employee a, b; final double jaccard; final int shared;
+        SimilarPair(EmployeeStreamQ91to300.Employee a, EmployeeStreamQ91to300.Employee b, double jaccard, int shared) {
+            this.a = a; this.b = b; this.jaccard = jaccard; this.shared = shared;
+        }
+        @Override public String toString() { return a.name + "-" + b.name + ": " + String.format(Locale.US, "%.2f", jaccard); }
+    }
+
+    private final List<EmployeeStreamQ91to300.Employee> employees;
+    private final int[][] skillIds;     // per employee, sorted
+    private final int bands, rows;
+    private final long[] hashA, hashB;  // one (a, b) pair per MinHash function
+    private final Map<Integer, Integer> positionById = new HashMap<>();
+    private int[][] signatures;         // built lazily on first LSH query
+    private List<Map<Long, List<Integer>>> bandBuckets;
+
+    SkillSimilarity(List<EmployeeStreamQ91to300.Employee> employees, int bands, int rows, long seed) {
+        if (bands <= 0 || rows <= 0) throw new IllegalArgumentException("bands and rows must be > 0");
+        this.employees = new ArrayList<>(employees);
+        this.bands = bands; this.rows = rows;
+        this.skillIds = new int[this.employees.size()][];
+        for (int i = 0; i < skillIds.length; i++) {
+            positionById.put(this.employees.get(i).id, i);
+            skillIds[i] = this.employees.get(i).skills.ids().toArray();
+        }
+        SplittableRandom rnd = new SplittableRandom(seed);
+        hashA = new long[bands * rows]; hashB = new long[bands * rows];
+        for (int i = 0; i < hashA.length; i++) { hashA[i] = rnd.nextLong() | 1L; hashB[i] = rnd.nextLong(); }
+    }
+
+    // Picks bands/rows (bands * rows <= numHashes) whose S-curve midpoint (1/b)^(1/r) is closest to the
+    // threshold from below, so pairs at the threshold are found with good probability.
+    static SkillSimilarity forThreshold(List<EmployeeStreamQ91to300.Employee> employees, double threshold, int numHashes, long seed) {
+        int bestB = 1, bestR = numHashes; double bestGap = Double.MAX_VALUE;
+        for (int r = 1; r <= numHashes; r++) {
+            int b = numHashes / r;
+            double t = Math.pow(1.0 / b, 1.0 / r);
+            if (t <= threshold && threshold - t < bestGap) { bestGap = threshold - t; bestB = b; bestR = r; }
+        }
+        return new SkillSimilarity(employees, bestB, bestR, seed);
+    }
+
+    // --- Exact measures on sorted int ids -----------------------------------
+
+    static int sharedCount(int[] a, int[] b) {
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) i++; else if (a[i] > b[j]) j++; else { n++; i++; j++; }
+        }
+        return n;
+    }
+
+    static double jaccard(int[] a, int[] b) {
+        int inter = sharedCount(a, b), union = a.length + b.length - inter;
+        return union == 0 ? 0 : (double) inter / union;
+    }
+
+    List<String> sharedSkills(EmployeeStreamQ91to300.Employee a, EmployeeStreamQ91to300.Employee b) {
+        int[] x = skillIds[positionById.get(a.id)], y = skillIds[positionById.get(b.id)];
+        List<String> out = new ArrayList<>();
+        for (int i = 0, j = 0; i < x.length && j < y.length; ) {
+            if (x[i] < y[j]) i++; else if (x[i] > y[j]) j++; else { out.add(SymbolDictionary.SKILLS.name(x[i])); i++; j++; }
+        }
+        return out;
+    }
+
+    // --- MinHash + LSH ------------------------------------------------------
+
+    // All pairs with Jaccard >= threshold among the LSH candidates, in employee-list order.
+    // Approximate recall (tune bands/rows), exact precision.
+    List<SimilarPair> similarPairs(double threshold) {
+        Set<Long> candidates = new HashSet<>();
+        for (Map<Long, List<Integer>> buckets : buckets())
+            for (List<Integer> bucket : buckets.values())
+                for (int x = 0; x < bucket.size(); x++)
+                    for (int y = x + 1; y < bucket.size(); y++) candidates.add(((long) bucket.get(x) << 32) | bucket.get(y));
+        return verify(candidates.stream().mapToLong(Long::longValue).sorted().toArray(), threshold, 0);
+    }
+
+    // Employees similar to one employee (same LSH buckets, verified).
+    List<SimilarPair> similarTo(EmployeeStreamQ91to300.Employee target, double threshold) {
+        Integer t = positionById.get(target.id);
+        if (t == null || skillIds[t].length == 0) return Collections.emptyList();
+        int[] sig = signatures()[t];
+        SortedSet<Long> candidates = new TreeSet<>();
+        List<Map<Long, List<Integer>>> all = buckets();
+        for (int band = 0; band < bands; band++)
+            for (int e : all.get(band).get(bandHash(sig, band)))
+                if (e != t) candidates.add(((long) Math.min(t, e) << 32) | Math.max(t, e));
+        return verify(candidates.stream().mapToLong(Long::longValue).toArray(), threshold, 0);
+    }
+
+    // Exact: pairs sharing at least minShared skills, found through skill -> employees postings.
+    List<SimilarPair> pairsSharingAtLeast(int minShared) {
+        if (minShared <= 0) throw new IllegalArgumentException("minShared must be >= 1: " + minShared);
+        Map<Integer, List<Integer>> postings = new TreeMap<>();
+        for (int e = 0; e < skillIds.length; e++) for (int s : skillIds[e]) postings.computeIfAbsent(s, k -> new ArrayList<>()).add(e);
+        Map<Long, Integer> shared = new HashMap<>();
+        for (List<Integer> p : postings.values())
+            for (int x = 0; x < p.size(); x++)
+                for (int y = x + 1; y < p.size(); y++) shared.merge(((long) p.get(x) << 32) | p.get(y), 1, Integer::sum);
+        long[] keys = shared.entrySet().stream().filter(en -> en.getValue() >= minShared)
+            .mapToLong(Map.Entry::getKey).sorted().toArray();
+        return verify(keys, 0, minShared);
+    }
+
+    private List<SimilarPair> verify(long[] pairKeys, double threshold, int minShared) {
+        List<SimilarPair> out = new ArrayList<>();
+        for (long key : pairKeys) {
+            int i = (int) (key >>> 32), j = (int) key;
+            int inter = sharedCount(skillIds[i], skillIds[j]);
+            int union = skillIds[i].length + skillIds[j].length - inter;
+            double jac = union == 0 ? 0 : (double) inter / union;
+            if (inter >= minShared && jac >= threshold && inter > 0) out.add(new SimilarPair(employees.get(i), employees.get(j), jac, inter));
+        }
+        return out;
+    }
+
+    private int[][] signatures() {
+        if (signatures == null) {
+            int[][] sig = new int[skillIds.length][];
+            IntStream.range(0, sig.length).parallel().forEach(e -> sig[e] = minHash(skillIds[e]));
+            signatures = sig;
+        }
+        return signatures;
+    }
+
+    // one map per band: band hash -> employee positions (ascending)
+    private List<Map<Long, List<Integer>>> buckets() {
+        if (bandBuckets == null) {
+            int[][] sig = signatures();
+            List<Map<Long, List<Integer>>> all = new ArrayList<>(bands);
+            for (int band = 0; band < bands; band++) {
+                Map<Long, List<Integer>> buckets = new HashMap<>();
+                for (int e = 0; e < sig.length; e++)
+                    if (sig[e] != null) buckets.computeIfAbsent(bandHash(sig[e], band), k -> new ArrayList<>(2)).add(e);
+                all.add(buckets);
+            }
+            bandBuckets = all;
+        }
+        return bandBuckets;
+    }
+
+    // null for employees without skills: they are similar to nobody (Jaccard of empty sets is 0)
+    private int[] minHash(int[] skills) {
+        if (skills.length == 0) return null;
+        int[] sig = new int[hashA.length];
+        for (int h = 0; h < sig.length; h++) {
+            int min = Integer.MAX_VALUE;
+            for (int s : skills) min = Math.min(min, (int) (mix(hashA[h] * s + hashB[h]) >>> 33));
+            sig[h] = min;
+        }
+        return sig;
+    }
+
+    private long bandHash(int[] sig, int band) {
+        long h = band * 0x9E3779B97F4A7C15L;
+        for (int r = band * rows, end = r + rows; r < end; r++) h = mix(h ^ sig[r]);
+        return h;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
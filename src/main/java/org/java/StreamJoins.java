@@ -0,0 +1,279 @@
+// StreamJoins.java
+// Join operators over streams with int keys (employee id, dept id, project id, ...).
+// - Hash join: the build side goes into an open-addressing int -> rows table (no boxing of keys);
+//   the probe stream is streamed through it lazily. INNER, LEFT, SEMI and ANTI.
+// - Merge join: for inputs already sorted by key; one forward pass over both sides, no table.
+// - Grace hash join: if the build side is larger than a row budget, both sides are hash-partitioned
+//   into temp files and joined one partition at a time (needs a RowCodec to spill rows).
+// Pass a JoinStats to measure rows in/out, spilled partitions/bytes and build/probe time
+// (probe time is only known when the join drives the probe itself, i.e. in graceHashJoin).
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class StreamJoins {
+
+    private StreamJoins() { }
+
+    enum JoinType { INNER, LEFT, SEMI, ANTI }
+
+    // Writes/reads one row to a spill file.
+    interface RowCodec<T> {
+        void write(DataOutputStream out, T row) throws IOException;
+        T read(DataInputStream in) throws IOException;
+    }
+
+    static final class JoinStats {
+        final LongAdder buildRows = new LongAdder(), probeRows = new LongAdder(), outputRows = new LongAdder();
+        final LongAdder spilledPartitions = new LongAdder(), spilledBytes = new LongAdder();
+        final LongAdder buildNanos = new LongAdder(), probeNanos = new LongAdder();
+        @Override public String toString() {
+            return String.format(Locale.US, "build=%d probe=%d out=%d spilledPartitions=%d spilledBytes=%d buildMs=%.3f probeMs=%.3f",
+                buildRows.sum(), probeRows.sum(), outputRows.sum(), spilledPartitions.sum(), spilledBytes.sum(),
+                buildNanos.sum() / 1e6, probeNanos.sum() / 1e6);
+        }
+    }
+
+    // --- Hash join ----------------------------------------------------------
+
+    static <L, R, O> Stream<O> innerJoin(Stream<L> probe, Collection<R> build, ToIntFunction<? super L> probeKey,
+                                         ToIntFunction<? super R> buildKey, BiFunction<? super L, ? super R, ? extends O> combiner) {
+        return hashJoin(JoinType.INNER, probe, build, probeKey, buildKey, combiner, null);
+    }
+
+    // combiner gets r == null when a left row has no match
+    static <L, R, O> Stream<O> leftJoin(Stream<L> probe, Collection<R> build, ToIntFunction<? super L> probeKey,
+                                        ToIntFunction<? super R> buildKey, BiFunction<? super L, ? super R, ? extends O> combiner) {
+        return hashJoin(JoinType.LEFT, probe, build, probeKey, buildKey, combiner, null);
+    }
+
+    static <L, R> Stream<L> semiJoin(Stream<L> probe, Collection<R> build, ToIntFunction<? super L> probeKey, ToIntFunction<? super R> buildKey) {
+        return hashJoin(JoinType.SEMI, probe, build, probeKey, buildKey, (l, r) -> l, null);
+    }
+
+    static <L, R> Stream<L> antiJoin(Stream<L> probe, Collection<R> build, ToIntFunction<? super L> probeKey, ToIntFunction<? super R> buildKey) {
+        return hashJoin(JoinType.ANTI, probe, build, probeKey, buildKey, (l, r) -> l, null);
+    }
+
+    // SEMI/ANTI emit combiner(l, null) once per qualifying left row. Keeps the probe stream's
+    // order and parallelism; the table is read-only after the build, so parallel probing is safe.
+    static <L, R, O> Stream<O> hashJoin(JoinType type, Stream<L> probe, Collection<R> build, ToIntFunction<? super L> probeKey,
+                                        ToIntFunction<? super R> buildKey, BiFunction<? super L, ? super R, ? extends O> combiner,
+                                        JoinStats stats) {
+        long t0 = System.nanoTime();
+        IntRowTable<R> table = new IntRowTable<>(build.size());
+        for (R r : build) table.put(buildKey.applyAsInt(r), r);
+        if (stats != null) { stats.buildRows.add(build.size()); stats.buildNanos.add(System.nanoTime() - t0); }
+        Stream<O> out = probe.flatMap(l -> {
+            if (stats != null) stats.probeRows.increment();
+            return table.probe(type, l, probeKey.applyAsInt(l), combiner).stream();
+        });
+        return stats == null ? out : out.peek(o -> stats.outputRows.increment());
+    }
+
+    // int key -> chain of rows, open addressing with linear probing; duplicates allowed.
+    static final class IntRowTable<R> {
+        private static final int EMPTY = -1;
+        private int[] keys, heads;        // slot -> key, slot -> first row index
+        private int[] next;               // row index -> next row index with same key
+        private Object[] rows;
+        private int size, used;
+
+        IntRowTable(int expectedRows) {
+            int cap = Integer.highestOneBit(Math.max(4, expectedRows * 2 - 1)) << 1;
+            keys = new int[cap]; heads = new int[cap]; Arrays.fill(heads, EMPTY);
+            next = new int[Math.max(4, expectedRows)]; rows = new Object[next.length];
+        }
+
+        void put(int key, R row) {
+            if ((used + 1) * 2 > heads.length) rehash();
+            if (size == rows.length) { rows = Arrays.copyOf(rows, size * 2); next = Arrays.copyOf(next, size * 2); }
+            int slot = slot(key);
+            if (heads[slot] == EMPTY) { keys[slot] = key; used++; }
+            rows[size] = row; next[size] = heads[slot]; heads[slot] = size; size++;
+        }
+
+        int rowCount() { return size; }
+
+        @SuppressWarnings("unchecked")
+        <L, O> List<O> probe(JoinType type, L l, int key, BiFunction<? super L, ? super R, ? extends O> combiner) {
+            int slot = slot(key);
+            int first = heads[slot];
+            switch (type) {
+                case SEMI: return first == EMPTY ? Collections.emptyList() : Collections.singletonList(combiner.apply(l, null));
+                case ANTI: return first != EMPTY ? Collections.emptyList() : Collections.singletonList(combiner.apply(l, null));
+                case LEFT: if (first == EMPTY) return Collections.singletonList(combiner.apply(l, null)); break;
+                default: if (first == EMPTY) return Collections.emptyList();
+            }
+            List<O> out = new ArrayList<>(2);
+            List<R> matches = new ArrayList<>(2);
+            for (int i = first; i != EMPTY; i = next[i]) matches.add((R) rows[i]);
+            for (int i = matches.size() - 1; i >= 0; i--) out.add(combiner.apply(l, matches.get(i))); // build order
+            return out;
+        }
+
+        private int slot(int key) {
+            int mask = heads.length - 1, s = mix(key) & mask;
+            while (heads[s] != EMPTY && keys[s] != key) s = (s + 1) & mask;
+            return s;
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys, oldHeads = heads;
+            keys = new int[oldKeys.length * 2]; heads = new int[oldHeads.length * 2]; Arrays.fill(heads, EMPTY);
+            for (int s = 0; s < oldHeads.length; s++) {
+                if (oldHeads[s] == EMPTY) continue;
+                int ns = slot(oldKeys[s]);
+                keys[ns] = oldKeys[s]; heads[ns] = oldHeads[s];
+            }
+        }
+
+        private static int mix(int k) { int h = k * 0x9E3779B9; return h ^ (h >>> 16); }
+    }
+
+    // --- Merge join (pre-sorted inputs) -------------------------------------
+
+    // INNER or LEFT join of two lists sorted ascending by key; throws if an input is out of order.
+    static <L, R, O> List<O> mergeJoin(JoinType type, List<L> left, List<R> right, ToIntFunction<? super L> leftKey,
+                                       ToIntFunction<? super R> rightKey, BiFunction<? super L, ? super R, ? extends O> combiner) {
+        if (type != JoinType.INNER && type != JoinType.LEFT) throw new IllegalArgumentException("mergeJoin supports INNER and LEFT: " + type);
+        List<O> out = new ArrayList<>();
+        int i = 0, j = 0, prevL = Integer.MIN_VALUE, prevR = Integer.MIN_VALUE;
+        while (i < left.size()) {
+            L l = left.get(i);
+            int lk = leftKey.applyAsInt(l);
+            if (lk < prevL) throw new IllegalArgumentException("left input not sorted at index " + i);
+            prevL = lk;
+            while (j < right.size() && rightKey.applyAsInt(right.get(j)) < lk) {
+                int rk = rightKey.applyAsInt(right.get(j));
+                if (rk < prevR) throw new IllegalArgumentException("right input not sorted at index " + j);
+                prevR = rk; j++;
+            }
+            int k = j;
+            for (; k < right.size(); k++) {
+                int rk = rightKey.applyAsInt(right.get(k));
+                if (rk < prevR) throw new IllegalArgumentException("right input not sorted at index " + k);
+                if (rk != lk) break;
+                out.add(combiner.apply(l, right.get(k)));
+            }
+            if (k == j && type == JoinType.LEFT) out.add(combiner.apply(l, null));
+            i++; // j stays on the first match: the next left row may have the same key
+        }
+        return out;
+    }
+
+    // --- Grace hash join (spills when the build side exceeds the budget) ----
+
+    // Results go to 'sink'. If the build side fits in maxBuildRowsInMemory this is a plain hash join
+    // in probe order; otherwise both sides are partitioned into 'partitions' temp files under tmpDir
+    // and output order is per partition. Partitions that are still too big are split again.
+    static <L, R, O> void graceHashJoin(JoinType type, Stream<L> probe, Stream<R> build,
+                                        ToIntFunction<? super L> probeKey, ToIntFunction<? super R> buildKey,
+                                        RowCodec<L> probeCodec, RowCodec<R> buildCodec,
+                                        BiFunction<? super L, ? super R, ? extends O> combiner, Consumer<? super O> sink,
+                                        int maxBuildRowsInMemory, int partitions, Path tmpDir, JoinStats stats) throws IOException {
+        if (maxBuildRowsInMemory <= 0 || partitions < 2) throw new IllegalArgumentException("need a positive budget and >= 2 partitions");
+        JoinStats st = stats == null ? new JoinStats() : stats;
+        Iterator<R> it = build.iterator();
+        List<R> inMemory = new ArrayList<>();
+        while (it.hasNext() && inMemory.size() <= maxBuildRowsInMemory) inMemory.add(it.next());
+        if (inMemory.size() <= maxBuildRowsInMemory) {
+            Stream<O> joined = hashJoin(type, probe, inMemory, probeKey, buildKey, combiner, st);
+            long tp = System.nanoTime();
+            joined.forEachOrdered(sink);
+            st.probeNanos.add(System.nanoTime() - tp);
+            return;
+        }
+        Iterator<R> all = Stream.concat(inMemory.stream(), StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED), false)).iterator();
+        graceLevel(type, all, probe.iterator(), probeKey, buildKey, probeCodec, buildCodec, combiner, sink,
+            maxBuildRowsInMemory, partitions, tmpDir, st, 0);
+    }
+
+    private static final int MAX_LEVELS = 4; // after this many splits, a hot key just gets loaded
+
+    private static <L, R, O> void graceLevel(JoinType type, Iterator<R> build, Iterator<L> probe,
+                                             ToIntFunction<? super L> probeKey, ToIntFunction<? super R> buildKey,
+                                             RowCodec<L> probeCodec, RowCodec<R> buildCodec,
+                                             BiFunction<? super L, ? super R, ? extends O> combiner, Consumer<? super O> sink,
+                                             int budget, int partitions, Path tmpDir, JoinStats st, int level) throws IOException {
+        Path[] buildFiles = new Path[partitions], probeFiles = new Path[partitions];
+        long[] buildCounts = new long[partitions];
+        try {
+            long tb = System.nanoTime();
+            spill(build, r -> partition(buildKey.applyAsInt(r), level, partitions), buildCodec, buildFiles, buildCounts, tmpDir, "build", st);
+            st.buildNanos.add(System.nanoTime() - tb);
+            spill(probe, l -> partition(probeKey.applyAsInt(l), level, partitions), probeCodec, probeFiles, new long[partitions], tmpDir, "probe", st);
+            for (int p = 0; p < partitions; p++) {
+                if (buildCounts[p] > budget && level + 1 < MAX_LEVELS) {
+                    try (SpillReader<R> b = new SpillReader<>(buildFiles[p], buildCodec); SpillReader<L> pr = new SpillReader<>(probeFiles[p], probeCodec)) {
+                        graceLevel(type, b, pr, probeKey, buildKey, probeCodec, buildCodec, combiner, sink, budget, partitions, tmpDir, st, level + 1);
+                    }
+                    continue;
+                }
+                List<R> rows = new ArrayList<>((int) buildCounts[p]);
+                try (SpillReader<R> b = new SpillReader<>(buildFiles[p], buildCodec)) { b.forEachRemaining(rows::add); }
+                try (SpillReader<L> pr = new SpillReader<>(probeFiles[p], probeCodec)) {
+                    Stream<O> joined = hashJoin(type, StreamSupport.stream(Spliterators.spliteratorUnknownSize(pr, Spliterator.ORDERED), false),
+                        rows, probeKey, buildKey, combiner, st);
+                    long tp = System.nanoTime();
+                    joined.forEachOrdered(sink);
+                    st.probeNanos.add(System.nanoTime() - tp);
+                }
+            }
+        } finally {
+            for (Path f : buildFiles) if (f != null) Files.deleteIfExists(f);
+            for (Path f : probeFiles) if (f != null) Files.deleteIfExists(f);
+        }
+    }
+
+    // a different hash per level so a re-split actually separates the keys
+    private static int partition(int key, int level, int partitions) {
+        int h = (key + level * 0x61C88647) * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 15), partitions);
+    }
+
+    private static <T> void spill(Iterator<T> rows, ToIntFunction<T> partitionOf, RowCodec<T> codec, Path[] files, long[] counts,
+                                  Path tmpDir, String side, JoinStats st) throws IOException {
+        DataOutputStream[] outs = new DataOutputStream[files.length];
+        try {
+            for (int p = 0; p < files.length; p++) {
+                files[p] = Files.createTempFile(tmpDir, "join-" + side + "-" + p + "-", ".spill");
+                outs[p] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(files[p]), 1 << 16));
+            }
+            while (rows.hasNext()) {
+                T row = rows.next();
+                int p = partitionOf.applyAsInt(row);
+                outs[p].writeBoolean(true);
+                codec.write(outs[p], row);
+                counts[p]++;
+            }
+        } finally {
+            for (DataOutputStream o : outs) if (o != null) { o.writeBoolean(false); o.close(); }
+        }
+        for (Path f : files) { st.spilledPartitions.increment(); st.spilledBytes.add(Files.size(f)); }
+    }
+
+    // Iterates the rows of one spill file (each row is prefixed by a 'true' marker; 'false' ends the file).
+    private static final class SpillReader<T> implements Iterator<T>, Closeable {
+        private final DataInputStream in; private final RowCodec<T> codec; private Boolean hasNext;
+        SpillReader(Path file, RowCodec<T> codec) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16)); this.codec = codec;
+        }
+        @Override public boolean hasNext() {
+            if (hasNext == null) {
+                try { hasNext = in.readBoolean(); } catch (IOException ex) { throw new UncheckedIOException(ex); }
+            }
+            return hasNext;
+        }
+        @Override public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            hasNext = null;
+            try { return codec.read(in); } catch (IOException ex) { throw new UncheckedIOException(ex); }
+        }
+        @Override public void close() throws IOException { in.close(); }
+    }
+}
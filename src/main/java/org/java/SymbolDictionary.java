@@ -0,0 +1,151 @@
+// SymbolDictionary.java
+// Global string <-> dense int id dictionaries for names that repeat across the domain model
+// (skills, department names, project names).
+// - intern(s) gives every distinct string one id (0, 1, 2, ... in first-seen order) and keeps a
+//   single canonical String instance; name(id) is an array read.
+// - SymbolSet is an immutable Set<String> stored as a sorted int[] of ids. Employees keep their
+//   skills this way instead of a HashSet<String> each; contains() is a binary search and set
+//   operations between two SymbolSets are merges over ints, no string hashing.
+// Thread-safe: lookups are lock-free, only the first intern of a new string takes a lock.
+//     SymbolDictionary.SKILLS.setOf(Arrays.asList("Java", "SQL"))   // -> [Java, SQL]
+//     SymbolSet.sharedCount(a.skills, b.skills)
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.stream.*;
+
+public final class SymbolDictionary {
+
+    static final SymbolDictionary SKILLS = new SymbolDictionary("skill");
+    static final SymbolDictionary DEPARTMENTS = new SymbolDictionary("department");
+    static final SymbolDictionary PROJECTS = new SymbolDictionary("project");
+
+    private final String kind;
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private int size; // guarded by this
+
+    SymbolDictionary(String kind) { this.kind = kind; }
+
+    // The id of s, assigning the next free one if s is new.
+    int intern(String s) {
+        Integer id = ids.get(s);
+        if (id != null) return id;
+        synchronized (this) {
+            id = ids.get(s);
+            if (id != null) return id;
+            String[] n = names;
+            if (size == n.length) names = n = Arrays.copyOf(n, size * 2);
+            n[size] = s;
+            ids.put(s, size); // publishes the slot written above to lock-free readers
+            return size++;
+        }
+    }
+
+    // The id of s, or -1 if it was never interned (does not add it).
+    int id(String s) {
+        Integer id = ids.get(s);
+        return id == null ? -1 : id;
+    }
+
+    String name(int id) {
+        String[] n = names;
+        String s = id >= 0 && id < n.length ? n[id] : null;
+        if (s == null) throw new IllegalArgumentException("Unknown " + kind + " id: " + id);
+        return s;
+    }
+
+    // One shared String instance per distinct value.
+    String canonical(String s) { return name(intern(s)); }
+
+    int size() { return ids.size(); }
+
+    SymbolSet setOf(Collection<String> values) {
+        if (values instanceof SymbolSet && ((SymbolSet) values).dict == this) return (SymbolSet) values;
+        int[] a = new int[values.size()];
+        int n = 0;
+        for (String s : values) a[n++] = intern(Objects.requireNonNull(s, kind));
+        return new SymbolSet(this, distinctSorted(a, n));
+    }
+
+    SymbolSet setOfIds(BitSet ids) { return new SymbolSet(this, ids.stream().toArray()); }
+
+    @Override public String toString() { return kind + " dictionary (" + size() + " symbols)"; }
+
+    private static int[] distinctSorted(int[] a, int n) {
+        Arrays.sort(a, 0, n);
+        int m = 0;
+        for (int i = 0; i < n; i++) if (m == 0 || a[m - 1] != a[i]) a[m++] = a[i];
+        return m == a.length ? a : Arrays.copyOf(a, m);
+    }
+
+    // Immutable set of symbols of one dictionary; iterates in id (first-interned) order.
+    static final class SymbolSet extends AbstractSet<String> {
+        private final SymbolDictionary dict;
+        private final int[] ids; // sorted, distinct
+
+        private SymbolSet(SymbolDictionary dict, int[] ids) { this.dict = dict; this.ids = ids; }
+
+        @Override public int size() { return ids.length; }
+
+        @Override public boolean contains(Object o) {
+            if (!(o instanceof String)) return false;
+            int id = dict.id((String) o);
+            return id >= 0 && containsId(id);
+        }
+
+        boolean containsId(int id) { return Arrays.binarySearch(ids, id) >= 0; }
+
+        @Override public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                int i;
+                @Override public boolean hasNext() { return i < ids.length; }
+                @Override public String next() {
+                    if (i >= ids.length) throw new NoSuchElementException();
+                    return dict.name(ids[i++]);
+                }
+            };
+        }
+
+        IntStream ids() { return Arrays.stream(ids); }
+
+        void forEachId(IntConsumer action) { for (int id : ids) action.accept(id); }
+
+        // Size of the intersection of two sets from the same dictionary, by merging the id arrays.
+        static int sharedCount(SymbolSet a, SymbolSet b) {
+            checkSameDictionary(a, b);
+            int n = 0;
+            for (int i = 0, j = 0; i < a.ids.length && j < b.ids.length; ) {
+                if (a.ids[i] < b.ids[j]) i++; else if (a.ids[i] > b.ids[j]) j++; else { n++; i++; j++; }
+            }
+            return n;
+        }
+
+        SymbolSet intersect(SymbolSet other) {
+            checkSameDictionary(this, other);
+            int[] out = new int[Math.min(ids.length, other.ids.length)];
+            int n = 0;
+            for (int i = 0, j = 0; i < ids.length && j < other.ids.length; ) {
+                if (ids[i] < other.ids[j]) i++; else if (ids[i] > other.ids[j]) j++; else { out[n++] = ids[i]; i++; j++; }
+            }
+            return new SymbolSet(dict, Arrays.copyOf(out, n));
+        }
+
+        SymbolSet union(SymbolSet other) {
+            checkSameDictionary(this, other);
+            int[] out = new int[ids.length + other.ids.length];
+            int n = 0, i = 0, j = 0;
+            while (i < ids.length || j < other.ids.length) {
+                if (j == other.ids.length || (i < ids.length && ids[i] < other.ids[j])) out[n++] = ids[i++];
+                else if (i == ids.length || other.ids[j] < ids[i]) out[n++] = other.ids[j++];
+                else { out[n++] = ids[i++]; j++; }
+            }
+            return new SymbolSet(dict, Arrays.copyOf(out, n));
+        }
+
+        private static void checkSameDictionary(SymbolSet a, SymbolSet b) {
+            if (a.dict != b.dict) throw new IllegalArgumentException("Sets come from different dictionaries: " + a.dict + ", " + b.dict);
+        }
+    }
+}
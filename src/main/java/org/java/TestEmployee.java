@@ -1,42 +1,51 @@
 import java.util.*;
 import java.util.stream.*;
-class Employee {
-    int id;
-    String name;
-    int age;
-    String gender;
-    String department;
-    int yearOfJoining;
-    double salary;
+public class TestEmployee {
+    static class Employee {
+        int id;
+        String name;
+        int age;
+        String gender;
+        String department;
+        int yearOfJoining;
+        double salary;
 
-    public String getGender() {
-        return this.gender;
-    }
-    public String getDepartment() {
-        return this.department;
-    }
-    public int getAge() {
-        return this.age;
-    }
-    public double getSalary() {
-        return this.salary;
-    }
-    public String getName() {
-        return this.name;
-    }
-    public void setSalary(double salary) {
-        this.salary = salary;
-    }
+        public String getGender() {
+            return this.gender;
+        }
+        public String getDepartment() {
+            return this.department;
+        }
+        public int getAge() {
+            return this.age;
+        }
+        public double getSalary() {
+            return this.salary;
+        }
+        public String getName() {
+            return this.name;
+        }
+        public void setSalary(double salary) {
+            this.salary = salary;
+        }
+        // Copy with a new salary, for holders such as EmployeeRegistry that must not see in-place changes.
+        public Employee withSalary(double salary) {
+            return new Employee(id, name, age, gender, department, yearOfJoining, salary);
+        }
 
-    public Employee(int id, String name, int age, String gender, String dept, int yoj, double salary) {
-        super();
-        this.id=id;
-        this.name=name;
-        this.salary=salary;
+        public Employee(int id, String name, int age, String gender, String dept, int yoj, double salary) {
+            super();
+            this.id=id;
+            this.name=name;
+            this.age=age;
+            this.gender=gender;
+            this.department=dept;
+            this.yearOfJoining=yoj;
+            this.salary=salary;
+        }
     }
-}
-public class TestEmployee {
-    public static void main(String[] args) {
+
+    public static void main(String[] args) throws InterruptedException {
         List<Employee> employeeList = new ArrayList<Employee>();
 
         employeeList.add(new Employee(111, "Jiya Brein", 32, "Female", "HR", 2011, 25000.0));
@@ -47,7 +56,8 @@ public class TestEmployee {
         employeeList.add(new Employee(166, "Iqbal Hussain", 43, "Male", "Security And Transport", 2016, 10500.0));
         System.out.println("Array list"+employeeList.get(1).getName());
         // employeeList.stream().forEach(e-> System.out.println(e.getSalary()));
-        //incrementSalaryforLessThanA(employeeList,2,19000);
+        incrementSalaryforLessThanA(employeeList,2,19000);
+        raiseWhileReading(employeeList, 1.1, 25000);
         incrementSalaryforLessThanA1(employeeList);
 
     }
@@ -56,24 +66,36 @@ public class TestEmployee {
 
     //write a function to retrieve the youngest male employee from the "Security And Transport" department
 
-    //Evaluate the output
-	/*private static void incrementSalaryforLessThanA(List<Employee> employeeList, double incFactor, double lessThan) {
-            final List<Employee> incrementedList = employeeList.stream()
-                .filter(emp -> {
-                        System.out.println("fitering employee " + emp.getName());
-                      return emp.getSalary() >1;
-                    })
-                .map(emp -> {
-                        System.out.println("Mapping employee " + emp.getName());
-                        double newSal = emp.getSalary() * incFactor;
-                        emp.setSalary(newSal);
-                        return emp;
-                    })
-                .collect(Collectors.toList());
-        }*/
+    // Staged bulk update instead of setSalary() inside map(): nothing changes until commit(),
+    // and the audit shows what will change first.
+    private static void incrementSalaryforLessThanA(List<Employee> employeeList, double incFactor, double lessThan) {
+        SalaryAdjustment.Batch batch = SalaryAdjustment.stage(employeeList,
+                new SalaryAdjustment.Rule("below " + lessThan, lessThan, incFactor));
+        System.out.println(batch.audit());
+        batch.commit();
+    }
+
+    // Raises salaries while a reader sums them. The registry keeps every record as a chain of immutable
+    // copies, so the reader's snapshot is not disturbed by the writer and never sees half of its raises.
+    private static void raiseWhileReading(List<Employee> employeeList, double incFactor, double lessThan) throws InterruptedException {
+        EmployeeRegistry<Employee> registry = new EmployeeRegistry<>(e -> e.id, Employee::getDepartment, e -> null);
+        for (Employee e : employeeList) registry.put(e.withSalary(e.getSalary())); // copies: the list's objects stay mutable
+        try (EmployeeRegistry<Employee>.Snapshot before = registry.snapshot()) {
+            Thread writer = new Thread(() -> employeeList.forEach(e -> registry.update(e.id,
+                    cur -> cur.getSalary() < lessThan ? cur.withSalary(cur.getSalary() * incFactor) : cur)));
+            writer.start();
+            DoubleSummaryStatistics seen = before.stream().mapToDouble(Employee::getSalary).summaryStatistics();
+            writer.join();
+            try (EmployeeRegistry<Employee>.Snapshot after = registry.snapshot()) {
+                DoubleSummaryStatistics now = after.stream().mapToDouble(Employee::getSalary).summaryStatistics();
+                System.out.printf("Total %.2f, average %.2f -> total %.2f, average %.2f%n",
+                        seen.getSum(), seen.getAverage(), now.getSum(), now.getAverage());
+            }
+        }
+    }
 
     public static void incrementSalaryforLessThanA1(List<Employee> list)
     {
-        list.stream().forEach((l -> System.out.println("Names"+l.getName())));
+        list.forEach(l -> System.out.println("Names"+l.getName()+" "+l.getSalary()));
     }
 }
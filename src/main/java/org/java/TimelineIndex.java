@@ -0,0 +1,182 @@
+// TimelineIndex.java
+// Date-range queries over project timelines, assignments and join dates, evaluated against an
+// explicit Clock instead of LocalDate.now() inside each lambda (fixed clock => reproducible output).
+// - Intervals<T>: half-open [start, end) date intervals, end == null meaning "ongoing". Dates are
+//   epoch days in primitive arrays. Intervals are sorted by start and laid out as an implicit
+//   balanced tree with the max end per subtree (an augmented interval tree):
+//     activeOn(d) / overlapping(from, to)  -> O(log n + k), results in start order
+//   plus start/end arrays sorted separately, so counts never visit the matches:
+//     countActiveOn(d) / countOverlapping(from, to) -> O(log n)
+// - Points<T>: rows sorted by one date (e.g. joinDate). Ranges and tenure buckets are contiguous
+//   slices found by binary search: O(log n + k), counts O(log n).
+// - yearsSince(date, clock), durationDays(start, end, clock): per-row arithmetic needs no index.
+// Half-open intervals match ChronoUnit.DAYS.between(start, end): a project ending on 2024-06-30
+// is no longer active that day. Immutable once built; safe to share between threads.
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.*;
+
+public class TimelineIndex {
+
+    private TimelineIndex() { }
+
+    static Clock fixedAt(LocalDate date) { return Clock.fixed(date.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC); }
+
+    // full years from the date to the clock's today, as ChronoUnit.YEARS.between would compute them
+    static long yearsSince(LocalDate date, Clock clock) { return ChronoUnit.YEARS.between(date, LocalDate.now(clock)); }
+
+    // days of [start, end), an ongoing interval (end == null) cut at the clock's today
+    static long durationDays(LocalDate start, LocalDate end, Clock clock) {
+        long today = LocalDate.now(clock).toEpochDay();
+        return Math.max(0, Math.min(end == null ? today : end.toEpochDay(), today) - start.toEpochDay());
+    }
+
+    // --- Intervals ----------------------------------------------------------
+
+    static final class Intervals<T> {
+        private static final long OPEN = Long.MAX_VALUE;
+
+        private final Clock clock;
+        private final Object[] rows;          // sorted by start
+        private final long[] start, end;      // epoch days, end == OPEN for ongoing
+        private final long[] maxEnd;          // max end in the implicit subtree rooted at each index
+        private final long[] startsSorted, endsSorted;
+
+        Intervals(Collection<? extends T> data, Function<? super T, LocalDate> startOf, Function<? super T, LocalDate> endOf, Clock clock) {
+            this.clock = Objects.requireNonNull(clock);
+            int n = data.size();
+            Object[] in = data.toArray();
+            long[] s = new long[n], e = new long[n];
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                @SuppressWarnings("unchecked") T t = (T) in[i];
+                s[i] = startOf.apply(t).toEpochDay();
+                LocalDate end = endOf.apply(t);
+                e[i] = end == null ? OPEN : end.toEpochDay();
+                if (e[i] < s[i]) throw new IllegalArgumentException("Interval ends before it starts: " + t);
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> s[i])); // stable: equal starts keep input order
+            rows = new Object[n]; start = new long[n]; end = new long[n];
+            for (int i = 0; i < n; i++) { rows[i] = in[order[i]]; start[i] = s[order[i]]; end[i] = e[order[i]]; }
+            maxEnd = new long[n];
+            buildMaxEnd(0, n);
+            startsSorted = start.clone();
+            endsSorted = end.clone();
+            Arrays.sort(endsSorted);
+        }
+
+        private long buildMaxEnd(int lo, int hi) {
+            if (lo >= hi) return Long.MIN_VALUE;
+            int mid = (lo + hi) >>> 1;
+            maxEnd[mid] = Math.max(end[mid], Math.max(buildMaxEnd(lo, mid), buildMaxEnd(mid + 1, hi)));
+            return maxEnd[mid];
+        }
+
+        LocalDate today() { return LocalDate.now(clock); }
+
+        int size() { return rows.length; }
+
+        // start <= d < end
+        List<T> activeOn(LocalDate d) { return overlapping(d, d.plusDays(1)); }
+
+        List<T> activeToday() { return activeOn(today()); }
+
+        // intervals sharing at least one day with [from, to)
+        List<T> overlapping(LocalDate from, LocalDate to) {
+            List<T> out = new ArrayList<>();
+            collect(0, rows.length, from.toEpochDay(), to.toEpochDay(), out);
+            return out;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void collect(int lo, int hi, long qs, long qe, List<T> out) {
+            if (lo >= hi) return;
+            int mid = (lo + hi) >>> 1;
+            if (maxEnd[mid] <= qs) return;                // everything here ended before the range
+            collect(lo, mid, qs, qe, out);
+            if (start[mid] >= qe) return;                  // this and everything right start after it
+            if (end[mid] > qs && start[mid] < end[mid]) out.add((T) rows[mid]);
+            collect(mid + 1, hi, qs, qe, out);
+        }
+
+        int countActiveOn(LocalDate d) { return countOverlapping(d, d.plusDays(1)); }
+
+        // #(start < to) - #(end <= from); assumes non-empty intervals (start < end)
+        int countOverlapping(LocalDate from, LocalDate to) {
+            return upperBound(startsSorted, to.toEpochDay() - 1) - upperBound(endsSorted, from.toEpochDay());
+        }
+    }
+
+    // --- Points -------------------------------------------------------------
+
+    static final class Points<T> {
+        private final Clock clock;
+        private final Object[] rows;   // sorted by date
+        private final long[] days;
+
+        Points(Collection<? extends T> data, Function<? super T, LocalDate> dateOf, Clock clock) {
+            this.clock = Objects.requireNonNull(clock);
+            int n = data.size();
+            Object[] in = data.toArray();
+            long[] d = new long[n];
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                @SuppressWarnings("unchecked") T t = (T) in[i];
+                d[i] = dateOf.apply(t).toEpochDay();
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> d[i]));
+            rows = new Object[n]; days = new long[n];
+            for (int i = 0; i < n; i++) { rows[i] = in[order[i]]; days[i] = d[order[i]]; }
+        }
+
+        LocalDate today() { return LocalDate.now(clock); }
+
+        // rows dated in [from, to), oldest first
+        List<T> between(LocalDate from, LocalDate to) { return slice(lowerBound(days, from.toEpochDay()), lowerBound(days, to.toEpochDay())); }
+
+        int countBetween(LocalDate from, LocalDate to) {
+            return Math.max(0, lowerBound(days, to.toEpochDay()) - lowerBound(days, from.toEpochDay()));
+        }
+
+        // Rows by full years elapsed, one bucket per [bounds[i], bounds[i+1]) years plus ">= last";
+        // bounds ascending, e.g. (1, 3, 5) -> "<1y", "1-3y", "3-5y", ">=5y". Oldest first per bucket.
+        Map<String, List<T>> yearBuckets(int... bounds) {
+            Map<String, List<T>> out = new LinkedHashMap<>();
+            LocalDate today = today();
+            int prevYears = 0;
+            long prevCut = today.toEpochDay() + 1; // dated after today: not counted
+            for (int b = 0; b <= bounds.length; b++) {
+                // y full years elapsed <=> date in (today - (y+1) years, today - y years]
+                long cut = b < bounds.length ? today.minusYears(bounds[b]).toEpochDay() + 1 : Long.MIN_VALUE;
+                String label = b == 0 ? "<" + bounds[0] + "y" : b < bounds.length ? prevYears + "-" + bounds[b] + "y" : ">=" + prevYears + "y";
+                List<T> rows = slice(cut == Long.MIN_VALUE ? 0 : lowerBound(days, cut), lowerBound(days, prevCut));
+                out.put(label, rows);
+                if (b < bounds.length) { prevYears = bounds[b]; prevCut = cut; }
+            }
+            return out;
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<T> slice(int from, int to) {
+            List<T> out = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) out.add((T) rows[i]);
+            return out;
+        }
+    }
+
+    // --- Helpers ------------------------------------------------------------
+
+    // first index with a[i] >= key
+    private static int lowerBound(long[] a, long key) {
+        int lo = 0, hi = a.length;
+        while (lo < hi) { int mid = (lo + hi) >>> 1; if (a[mid] < key) lo = mid + 1; else hi = mid; }
+        return lo;
+    }
+
+    // number of elements <= key (key is an epoch day, never Long.MAX_VALUE)
+    private static int upperBound(long[] a, long key) { return lowerBound(a, key + 1); }
+}
@@ -0,0 +1,125 @@
+// TopK.java
+// Top-K / Nth-largest without sorting everything.
+// - topK(k, cmp): collector keeping a bounded min-heap of k elements -> O(n log k) time, O(k) memory.
+//   Parallel streams get one heap per worker, merged in the combiner.
+//   Result is largest-first and matches sorted(cmp.reversed()).limit(k) exactly, ties included
+//   (earlier elements win), because every element carries its encounter position.
+// - nthLargest(n, cmp): same heap, returns the n-th element (1-based) if there are at least n.
+// - topKPerGroup(classifier, k, cmp): groupingBy + topK, e.g. "top 10 earners per department".
+// - select(...) / nthLargest(list, ...): quickselect over an in-memory list, O(n) on average,
+//   for when the data is already materialized; ties come back in no particular order.
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class TopK {
+
+    private TopK() { }
+
+    // --- Heap-based collectors ----------------------------------------------
+
+    static <T> Collector<T, ?, List<T>> topK(int k, Comparator<? super T> cmp) {
+        if (k < 0) throw new IllegalArgumentException("k must be >= 0: " + k);
+        Objects.requireNonNull(cmp);
+        return Collector.of(() -> new Heap<T>(k, cmp), Heap::add, Heap::merge, Heap::toSortedList);
+    }
+
+    static <T> Collector<T, ?, Optional<T>> nthLargest(int n, Comparator<? super T> cmp) {
+        if (n <= 0) throw new IllegalArgumentException("n must be >= 1: " + n);
+        return Collectors.collectingAndThen(topK(n, cmp), top -> top.size() < n ? Optional.empty() : Optional.of(top.get(n - 1)));
+    }
+
+    static <T, K> Collector<T, ?, Map<K, List<T>>> topKPerGroup(Function<? super T, ? extends K> classifier, int k, Comparator<? super T> cmp) {
+        return Collectors.groupingBy(classifier, topK(k, cmp));
+    }
+
+    // Bounded heap; the root is the weakest element currently kept.
+    private static final class Heap<T> {
+        private static final class Entry<T> {
+            final T value; long seq;
+            Entry(T value, long seq) { this.value = value; this.seq = seq; }
+        }
+
+        final int k; final Comparator<? super T> cmp;
+        final Comparator<Entry<T>> weakestFirst;
+        final PriorityQueue<Entry<T>> pq;
+        long seen; // elements offered so far = encounter position of the next one
+
+        Heap(int k, Comparator<? super T> cmp) {
+            this.k = k; this.cmp = cmp;
+            // weaker = smaller by cmp, or equal but encountered later
+            this.weakestFirst = (a, b) -> {
+                int c = cmp.compare(a.value, b.value);
+                return c != 0 ? c : Long.compare(b.seq, a.seq);
+            };
+            this.pq = new PriorityQueue<>(Math.max(1, k), weakestFirst);
+        }
+
+        void add(T t) { offer(new Entry<>(t, seen++)); }
+
+        private void offer(Entry<T> e) {
+            if (k == 0) return;
+            if (pq.size() < k) pq.add(e);
+            else if (weakestFirst.compare(e, pq.peek()) > 0) { pq.poll(); pq.add(e); }
+        }
+
+        // 'other' holds elements encountered after ours, so shift its positions past ours
+        Heap<T> merge(Heap<T> other) {
+            for (Entry<T> e : other.pq) { e.seq += seen; offer(e); }
+            seen += other.seen;
+            return this;
+        }
+
+        List<T> toSortedList() {
+            List<Entry<T>> entries = new ArrayList<>(pq);
+            entries.sort(weakestFirst.reversed());
+            List<T> out = new ArrayList<>(entries.size());
+            for (Entry<T> e : entries) out.add(e.value);
+            return out;
+        }
+    }
+
+    // --- Quickselect (in-memory) --------------------------------------------
+
+    // The k largest elements of 'data', largest first. 'data' is not modified.
+    static <T> List<T> select(List<T> data, int k, Comparator<? super T> cmp) {
+        if (k < 0) throw new IllegalArgumentException("k must be >= 0: " + k);
+        @SuppressWarnings("unchecked")
+        T[] a = (T[]) data.toArray();
+        int n = Math.min(k, a.length);
+        if (n == 0) return new ArrayList<>();
+        Comparator<? super T> desc = cmp.reversed();
+        if (n < a.length) partitionAround(a, n - 1, desc);
+        T[] top = Arrays.copyOf(a, n);
+        Arrays.sort(top, desc);
+        return new ArrayList<>(Arrays.asList(top));
+    }
+
+    static <T> Optional<T> nthLargest(List<T> data, int n, Comparator<? super T> cmp) {
+        if (n <= 0) throw new IllegalArgumentException("n must be >= 1: " + n);
+        if (n > data.size()) return Optional.empty();
+        @SuppressWarnings("unchecked")
+        T[] a = (T[]) data.toArray();
+        partitionAround(a, n - 1, cmp.reversed());
+        return Optional.of(a[n - 1]);
+    }
+
+    // Hoare-style quickselect: afterwards a[i] <= a[nth] for i < nth and a[i] >= a[nth] for i > nth (by order).
+    private static <T> void partitionAround(T[] a, int nth, Comparator<? super T> order) {
+        int lo = 0, hi = a.length - 1;
+        Random rnd = new Random(a.length); // deterministic pivots, still robust against sorted input
+        while (lo < hi) {
+            T pivot = a[lo + rnd.nextInt(hi - lo + 1)];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (order.compare(a[i], pivot) < 0) i++;
+                while (order.compare(a[j], pivot) > 0) j--;
+                if (i <= j) { T t = a[i]; a[i] = a[j]; a[j] = t; i++; j--; }
+            }
+            if (nth <= j) hi = j;
+            else if (nth >= i) lo = i;
+            else return;
+        }
+    }
+}
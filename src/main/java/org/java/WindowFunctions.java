@@ -0,0 +1,207 @@
+// WindowFunctions.java
+// SQL-style window functions over a collection: PARTITION BY + ORDER BY, then
+// ROW_NUMBER, RANK, DENSE_RANK, PERCENT_RANK, LAG/LEAD and running / partition aggregates.
+// - Rows are grouped once and each partition is sorted once (partitions in parallel); every window
+//   function over that partitioning reads the same sorted partitions.
+// - Peers are rows the comparator considers equal: they share RANK and DENSE_RANK; ROW_NUMBER
+//   breaks ties by insertion order.
+// - add/remove/update keep partitions sorted by binary-search insert/delete instead of re-sorting,
+//   so a single salary change only touches its own partition(s); RANK is a binary search, the
+//   DENSE_RANK table of a changed partition is rebuilt on the next read.
+//     WindowFunctions<Employee, Integer> w = WindowFunctions.over(EMP, e -> e.deptId, bySalaryDesc);
+//     w.rank(e);  w.denseRank(e);  w.lag(e, 1);  w.rows(e -> e.salary.doubleValue());
+// Rows are matched by identity (==), which suits immutable rows replaced on update.
+// Not thread-safe for updates; reads may run concurrently once updates have stopped.
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+public class WindowFunctions<T, P> {
+
+    // One evaluated row: its window position plus (optionally) a running and partition aggregate.
+    static final class Row<T, P> {
+        final T row; final P partition;
+        final int rowNumber, rank, denseRank, partitionSize;
+        final double percentRank;
+        final T lag, lead;              // previous / next row in the partition, null at the edges
+        final double value, runningSum, partitionAvg; // NaN when evaluated without a value function
+
+        Row(T row, P partition, int rowNumber, int rank, int denseRank, int partitionSize, T lag, T lead,
+            double value, double runningSum, double partitionAvg) {
+            this.row = row; this.partition = partition; this.rowNumber = rowNumber; this.rank = rank; this.denseRank = denseRank;
+            this.partitionSize = partitionSize; this.percentRank = partitionSize <= 1 ? 0 : (rank - 1) / (double) (partitionSize - 1);
+            this.lag = lag; this.lead = lead; this.value = value; this.runningSum = runningSum; this.partitionAvg = partitionAvg;
+        }
+        @Override public String toString() {
+            return row + " #" + rowNumber + " rank=" + rank + " dense=" + denseRank;
+        }
+    }
+
+    private final class Partition {
+        final P key;
+        final List<T> rows = new ArrayList<>();
+        int[] dense; // dense rank per position; null when stale
+
+        Partition(P key) { this.key = key; }
+
+        // first position whose row is not ahead of 'row' (start of its peer group)
+        int lowerBound(T row) {
+            int lo = 0, hi = rows.size();
+            while (lo < hi) { int mid = (lo + hi) >>> 1; if (orderBy.compare(rows.get(mid), row) < 0) lo = mid + 1; else hi = mid; }
+            return lo;
+        }
+
+        // first position after the peer group of 'row'
+        int upperBound(T row) {
+            int lo = 0, hi = rows.size();
+            while (lo < hi) { int mid = (lo + hi) >>> 1; if (orderBy.compare(rows.get(mid), row) <= 0) lo = mid + 1; else hi = mid; }
+            return lo;
+        }
+
+        int indexOf(T row) {
+            for (int i = lowerBound(row), end = upperBound(row); i < end; i++) if (rows.get(i) == row) return i;
+            return -1;
+        }
+
+        int[] dense() {
+            if (dense == null) {
+                int[] d = new int[rows.size()];
+                for (int i = 0; i < d.length; i++)
+                    d[i] = i == 0 ? 1 : d[i - 1] + (orderBy.compare(rows.get(i - 1), rows.get(i)) == 0 ? 0 : 1);
+                dense = d;
+            }
+            return dense;
+        }
+    }
+
+    private final Function<? super T, ? extends P> partitionBy;
+    private final Comparator<? super T> orderBy;
+    private final Map<P, Partition> partitions = new LinkedHashMap<>(); // first-seen order
+
+    private WindowFunctions(Collection<? extends T> rows, Function<? super T, ? extends P> partitionBy, Comparator<? super T> orderBy) {
+        this.partitionBy = Objects.requireNonNull(partitionBy);
+        this.orderBy = Objects.requireNonNull(orderBy);
+        for (T t : rows) partition(t).rows.add(t);
+        partitions.values().parallelStream().forEach(p -> p.rows.sort(orderBy)); // stable: ties keep input order
+    }
+
+    static <T, P> WindowFunctions<T, P> over(Collection<? extends T> rows, Function<? super T, ? extends P> partitionBy, Comparator<? super T> orderBy) {
+        return new WindowFunctions<>(rows, partitionBy, orderBy);
+    }
+
+    // a single window over all rows (no PARTITION BY)
+    static <T> WindowFunctions<T, Boolean> over(Collection<? extends T> rows, Comparator<? super T> orderBy) {
+        return new WindowFunctions<>(rows, t -> Boolean.TRUE, orderBy);
+    }
+
+    // --- Per-row functions --------------------------------------------------
+
+    int rowNumber(T row) { return locate(row).position + 1; }
+
+    int rank(T row) { Located l = locate(row); return l.partition.lowerBound(row) + 1; }
+
+    int denseRank(T row) { Located l = locate(row); return l.partition.dense()[l.position]; }
+
+    double percentRank(T row) {
+        Located l = locate(row);
+        int n = l.partition.rows.size();
+        return n <= 1 ? 0 : l.partition.lowerBound(row) / (double) (n - 1);
+    }
+
+    // the row 'offset' places earlier in the same partition
+    Optional<T> lag(T row, int offset) { return shifted(row, -offset); }
+
+    Optional<T> lead(T row, int offset) { return shifted(row, offset); }
+
+    private Optional<T> shifted(T row, int delta) {
+        Located l = locate(row);
+        int i = l.position + delta;
+        return i < 0 || i >= l.partition.rows.size() ? Optional.empty() : Optional.of(l.partition.rows.get(i));
+    }
+
+    // --- Whole-window evaluation --------------------------------------------
+
+    List<Row<T, P>> rows() { return rows(null); }
+
+    // Every row with all window functions, partitions in first-seen order, rows in window order.
+    // With a value function also: running sum (ROWS UNBOUNDED PRECEDING .. CURRENT ROW) and partition average.
+    List<Row<T, P>> rows(ToDoubleFunction<? super T> value) {
+        return partitions.values().parallelStream()
+            .map(p -> evaluate(p, value))
+            .flatMap(List::stream)
+            .collect(Collectors.toList());
+    }
+
+    // The top n rows of every partition by ROW_NUMBER (use rank(...) <= n to keep ties instead).
+    Map<P, List<T>> topPerPartition(int n) {
+        Map<P, List<T>> out = new LinkedHashMap<>();
+        partitions.forEach((k, p) -> out.put(k, new ArrayList<>(p.rows.subList(0, Math.min(n, p.rows.size())))));
+        return out;
+    }
+
+    private List<Row<T, P>> evaluate(Partition p, ToDoubleFunction<? super T> value) {
+        List<T> rows = p.rows;
+        int n = rows.size();
+        int[] dense = p.dense();
+        double[] values = new double[n];
+        double total = 0;
+        if (value != null) for (int i = 0; i < n; i++) { values[i] = value.applyAsDouble(rows.get(i)); total += values[i]; }
+        double avg = value == null ? Double.NaN : total / n;
+        List<Row<T, P>> out = new ArrayList<>(n);
+        double running = 0;
+        int rank = 1;
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && orderBy.compare(rows.get(i - 1), rows.get(i)) != 0) rank = i + 1;
+            running += values[i];
+            out.add(new Row<>(rows.get(i), p.key, i + 1, rank, dense[i], n, i > 0 ? rows.get(i - 1) : null, i + 1 < n ? rows.get(i + 1) : null,
+                value == null ? Double.NaN : values[i], value == null ? Double.NaN : running, avg));
+        }
+        return out;
+    }
+
+    // --- Incremental maintenance --------------------------------------------
+
+    // Inserted after its existing peers, as if it had come last in the input.
+    void add(T row) {
+        Partition p = partition(row);
+        p.rows.add(p.upperBound(row), row);
+        p.dense = null;
+    }
+
+    boolean remove(T row) {
+        Partition p = partitions.get(partitionBy.apply(row));
+        int i = p == null ? -1 : p.indexOf(row);
+        if (i < 0) return false;
+        p.rows.remove(i);
+        p.dense = null;
+        if (p.rows.isEmpty()) partitions.remove(p.key);
+        return true;
+    }
+
+    // Replaces a row with its new version, e.g. after a salary change; moves partitions if needed.
+    void update(T oldRow, T newRow) {
+        if (!remove(oldRow)) throw new IllegalArgumentException("Row is not in this window: " + oldRow);
+        add(newRow);
+    }
+
+    int partitionCount() { return partitions.size(); }
+
+    // --- Helpers ------------------------------------------------------------
+
+    private final class Located {
+        final Partition partition; final int position;
+        Located(Partition partition, int position) { this.partition = partition; this.position = position; }
+    }
+
+    private Located locate(T row) {
+        Partition p = partitions.get(partitionBy.apply(row));
+        int i = p == null ? -1 : p.indexOf(row);
+        if (i < 0) throw new IllegalArgumentException("Row is not in this window: " + row);
+        return new Located(p, i);
+    }
+
+    private Partition partition(T row) {
+        return partitions.computeIfAbsent(partitionBy.apply(row), Partition::new);
+    }
+}